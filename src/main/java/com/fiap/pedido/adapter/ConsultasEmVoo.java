@@ -0,0 +1,78 @@
+package com.fiap.pedido.adapter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Junta consultas idênticas simultâneas aos serviços externos (mesma consulta, mesma chave) em uma única chamada
+ * remota: a primeira thread chama o serviço na própria thread e as que chegam enquanto ela está em voo esperam o
+ * mesmo futuro. Nada fica guardado depois que a chamada termina (isso é papel dos caches).
+ * Todas recebem a mesma instância do resultado, que deve ser tratada como somente leitura.
+ */
+@Slf4j
+@Component
+public class ConsultasEmVoo {
+
+    static final String METRICA_REMOTAS = "pedido.consultas.remotas";
+    static final String METRICA_COALESCIDAS = "pedido.consultas.coalescidas";
+
+    private final ConcurrentMap<ChaveConsulta, CompletableFuture<Object>> emVoo = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public ConsultasEmVoo(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T executar(String consulta, Object chave, Supplier<T> chamada) {
+        ChaveConsulta chaveConsulta = new ChaveConsulta(consulta, chave);
+        CompletableFuture<Object> minha = new CompletableFuture<>();
+        CompletableFuture<Object> emAndamento = emVoo.putIfAbsent(chaveConsulta, minha);
+        if (emAndamento != null) {
+            contador(METRICA_COALESCIDAS, consulta).increment();
+            log.debug("🔗 {} de {} aguardando chamada já em voo", consulta, chave);
+            return (T) aguardar(emAndamento);
+        }
+
+        contador(METRICA_REMOTAS, consulta).increment();
+        try {
+            T resultado = chamada.get();
+            minha.complete(resultado);
+            return resultado;
+        } catch (RuntimeException e) {
+            minha.completeExceptionally(e);
+            throw e;
+        } finally {
+            // A próxima consulta depois desta já é uma chamada nova; se a chamada saiu por um Error, quem espera é liberado
+            emVoo.remove(chaveConsulta, minha);
+            minha.completeExceptionally(new IllegalStateException("Consulta " + consulta + " interrompida"));
+        }
+    }
+
+    public int emAndamento() {
+        return emVoo.size();
+    }
+
+    private static Object aguardar(CompletableFuture<Object> emAndamento) {
+        try {
+            return emAndamento.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        }
+    }
+
+    private Counter contador(String metrica, String consulta) {
+        return meterRegistry.counter(metrica, "consulta", consulta);
+    }
+
+    private record ChaveConsulta(String consulta, Object chave) {
+    }
+}
@@ -1,11 +1,15 @@
 package com.fiap.pedido.adapter;
 
+import com.fiap.pedido.dto.response.ReservaEstoqueResponseDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.Map;
+
 @FeignClient(name = "estoque-service", url = "${estoque.service.url}")
 public interface EstoqueServiceClient {
 
@@ -14,4 +18,17 @@ public interface EstoqueServiceClient {
 
     @PostMapping("/estoques/{sku}/baixa")
     void baixarEstoque(@PathVariable("sku") String sku, @RequestParam("quantidade") Integer quantidade);
-}
\ No newline at end of file
+
+    /**
+     * Reserva o lote SKU -> quantidade em uma única transação (2xx reserva todos, erro não reserva nenhum) e devolve
+     * o ID da reserva, usado depois na baixa ou na liberação
+     */
+    @PostMapping("/estoques/reservas")
+    ReservaEstoqueResponseDTO reservarEstoque(@RequestBody Map<String, Integer> itens);
+
+    @PostMapping("/estoques/reservas/{reservaId}/baixa")
+    void baixarReserva(@PathVariable("reservaId") String reservaId);
+
+    @PostMapping("/estoques/reservas/{reservaId}/liberacao")
+    void liberarReserva(@PathVariable("reservaId") String reservaId);
+}
@@ -0,0 +1,216 @@
+package com.fiap.pedido.adapter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Livro de estoque em memória, sem lock global: cada SKU tem seus próprios contadores atômicos e o saldo disponível
+ * só muda por compare-and-set, então nunca fica negativo (não vende mais do que tem) mesmo com várias threads
+ * disputando o mesmo SKU. SKUs diferentes não disputam nada entre si.
+ * <p>
+ * Uma reserva tira a quantidade de um ou mais SKUs do disponível e recebe um ID, que é a única forma de mexer nela
+ * depois: aberta, ela é confirmada (a quantidade sai do estoque) ou liberada (volta ao disponível); confirmada, pode
+ * ser estornada (volta ao disponível). Cada transição acontece uma única vez, por compare-and-set no estado da
+ * reserva, então repetir uma confirmação, liberação ou estorno, ou usar um ID desconhecido, não mexe nos saldos.
+ * <p>
+ * Reservas abertas ficam no livro até serem confirmadas ou liberadas; cada uma segura ao menos uma unidade, então
+ * não passam do estoque abastecido. Confirmadas ficam estornáveis por RETENCAO_CONFIRMADAS, no máximo
+ * MAXIMO_CONFIRMADAS delas; depois disso a reserva é esquecida (a venda continua contada), uma baixa repetida
+ * devolve false e um estorno é ignorado.
+ */
+public class LivroEstoque {
+
+    static final Duration RETENCAO_CONFIRMADAS = Duration.ofHours(1);
+    static final long MAXIMO_CONFIRMADAS = 100_000;
+
+    private final ConcurrentMap<String, SaldoSku> saldos = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Reserva> abertas = new ConcurrentHashMap<>();
+    private final Cache<String, Reserva> confirmadas;
+
+    public LivroEstoque() {
+        this(RETENCAO_CONFIRMADAS, MAXIMO_CONFIRMADAS, Ticker.systemTicker());
+    }
+
+    LivroEstoque(Duration retencaoConfirmadas, long maximoConfirmadas, Ticker ticker) {
+        this.confirmadas = Caffeine.newBuilder()
+                .maximumSize(maximoConfirmadas)
+                .expireAfterWrite(retencaoConfirmadas)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    public void abastecer(String sku, int quantidade) {
+        validarQuantidade(sku, quantidade);
+        saldo(sku).disponivel.addAndGet(quantidade);
+    }
+
+    public Optional<String> reservar(String sku, int quantidade) {
+        return reservar(Map.of(sku, quantidade));
+    }
+
+    /**
+     * Reserva todos os SKUs ou nenhum: devolve o ID da reserva, ou vazio se algum SKU não tem a quantidade
+     * disponível (o que já tinha sido retirado volta ao disponível). Quantidade zero ou negativa é recusada antes
+     * de qualquer SKU ser tocado.
+     */
+    public Optional<String> reservar(Map<String, Integer> itens) {
+        itens.forEach(LivroEstoque::validarQuantidade);
+        List<Parcela> parcelas = new ArrayList<>(itens.size());
+        for (Map.Entry<String, Integer> item : itens.entrySet()) {
+            SaldoSku saldo = saldos.get(item.getKey());
+            if (saldo == null || !saldo.retirar(item.getValue())) {
+                parcelas.forEach(parcela -> parcela.saldo.disponivel.addAndGet(parcela.quantidade));
+                return Optional.empty();
+            }
+            parcelas.add(new Parcela(saldo, item.getValue()));
+        }
+        if (parcelas.isEmpty()) {
+            return Optional.empty();
+        }
+        parcelas.forEach(parcela -> parcela.saldo.reservado.addAndGet(parcela.quantidade));
+        // Sequência do primeiro SKU: gerar IDs não vira um ponto de disputa entre SKUs diferentes
+        String idReserva = itens.keySet().iterator().next() + "-" + parcelas.get(0).saldo.sequenciaReservas.incrementAndGet();
+        abertas.put(idReserva, new Reserva(parcelas));
+        return Optional.of(idReserva);
+    }
+
+    /**
+     * A quantidade reservada sai do estoque. True também se a reserva já estava confirmada (dentro da retenção);
+     * false se ela não existe, foi liberada ou estornada.
+     */
+    public boolean confirmar(String idReserva) {
+        Reserva reserva = abertas.get(idReserva);
+        if (reserva == null) {
+            reserva = confirmadas.getIfPresent(idReserva);
+            return reserva != null && reserva.estado.get() == Estado.CONFIRMADA;
+        }
+        if (!reserva.estado.compareAndSet(Estado.ABERTA, Estado.CONFIRMADA)) {
+            return reserva.estado.get() == Estado.CONFIRMADA;
+        }
+        // Entra nas confirmadas antes de sair das abertas: um estorno concorrente sempre a encontra em um dos dois
+        confirmadas.put(idReserva, reserva);
+        abertas.remove(idReserva, reserva);
+        for (Parcela parcela : reserva.parcelas) {
+            parcela.saldo.reservado.addAndGet(-parcela.quantidade);
+            parcela.saldo.vendido.addAndGet(parcela.quantidade);
+        }
+        return true;
+    }
+
+    /**
+     * A quantidade de uma reserva aberta volta ao disponível. False se a reserva não existe, já foi liberada ou
+     * foi confirmada (aí o caminho é o estorno).
+     */
+    public boolean liberar(String idReserva) {
+        Reserva reserva = abertas.get(idReserva);
+        if (reserva == null || !reserva.estado.compareAndSet(Estado.ABERTA, Estado.LIBERADA)) {
+            return false;
+        }
+        abertas.remove(idReserva, reserva);
+        for (Parcela parcela : reserva.parcelas) {
+            parcela.saldo.reservado.addAndGet(-parcela.quantidade);
+            parcela.saldo.disponivel.addAndGet(parcela.quantidade);
+        }
+        return true;
+    }
+
+    /**
+     * A quantidade de uma reserva confirmada volta ao disponível. False se a reserva não existe (ou já passou da
+     * retenção), já foi estornada ou ainda está aberta.
+     */
+    public boolean estornar(String idReserva) {
+        Reserva reserva = confirmadas.getIfPresent(idReserva);
+        if (reserva == null) {
+            reserva = abertas.get(idReserva);
+        }
+        if (reserva == null || !reserva.estado.compareAndSet(Estado.CONFIRMADA, Estado.ESTORNADA)) {
+            return false;
+        }
+        confirmadas.asMap().remove(idReserva, reserva);
+        for (Parcela parcela : reserva.parcelas) {
+            parcela.saldo.vendido.addAndGet(-parcela.quantidade);
+            parcela.saldo.disponivel.addAndGet(parcela.quantidade);
+        }
+        return true;
+    }
+
+    public int disponivel(String sku) {
+        SaldoSku saldo = saldos.get(sku);
+        return saldo != null ? saldo.disponivel.get() : 0;
+    }
+
+    public int reservado(String sku) {
+        SaldoSku saldo = saldos.get(sku);
+        return saldo != null ? saldo.reservado.get() : 0;
+    }
+
+    public int vendido(String sku) {
+        SaldoSku saldo = saldos.get(sku);
+        return saldo != null ? saldo.vendido.get() : 0;
+    }
+
+    /**
+     * Reservas ainda guardadas no livro: abertas mais confirmadas dentro da retenção
+     */
+    long reservasGuardadas() {
+        confirmadas.cleanUp();
+        return abertas.size() + confirmadas.estimatedSize();
+    }
+
+    private static void validarQuantidade(String sku, Integer quantidade) {
+        if (quantidade == null || quantidade <= 0) {
+            throw new IllegalArgumentException("Quantidade inválida para o SKU " + sku + ": " + quantidade);
+        }
+    }
+
+    private SaldoSku saldo(String sku) {
+        return saldos.computeIfAbsent(sku, s -> new SaldoSku());
+    }
+
+    private static final class SaldoSku {
+
+        private final AtomicInteger disponivel = new AtomicInteger();
+        private final AtomicInteger reservado = new AtomicInteger();
+        private final AtomicInteger vendido = new AtomicInteger();
+        private final AtomicLong sequenciaReservas = new AtomicLong();
+
+        private boolean retirar(int quantidade) {
+            int atual;
+            do {
+                atual = disponivel.get();
+                if (atual < quantidade) {
+                    return false;
+                }
+            } while (!disponivel.compareAndSet(atual, atual - quantidade));
+            return true;
+        }
+    }
+
+    private enum Estado { ABERTA, CONFIRMADA, LIBERADA, ESTORNADA }
+
+    private record Parcela(SaldoSku saldo, int quantidade) {
+    }
+
+    private static final class Reserva {
+
+        private final List<Parcela> parcelas;
+        private final AtomicReference<Estado> estado = new AtomicReference<>(Estado.ABERTA);
+
+        private Reserva(List<Parcela> parcelas) {
+            this.parcelas = parcelas;
+        }
+    }
+}
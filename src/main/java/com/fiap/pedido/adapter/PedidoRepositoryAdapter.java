@@ -1,18 +1,43 @@
 package com.fiap.pedido.adapter;
 
+import com.fiap.pedido.cache.PedidoCache;
+import com.fiap.pedido.config.datasource.EscritasRecentes;
+import com.fiap.pedido.config.datasource.RoteadorDataSource;
 import com.fiap.pedido.domain.Pedido;
+import com.fiap.pedido.domain.PedidoCursor;
+import com.fiap.pedido.domain.PedidoFiltro;
+import com.fiap.pedido.domain.PedidoPagina;
+import com.fiap.pedido.dto.response.ItemPedidoResponseDTO;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.entity.ItemPedidoEntity;
 import com.fiap.pedido.entity.PedidoEntity;
+import com.fiap.pedido.entity.PedidoOutboxEntity;
 import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.estatistica.PedidoEstatisticas;
 import com.fiap.pedido.mapper.PedidoMapper;
 import com.fiap.pedido.pots.PedidoRepositoryPort;
+import com.fiap.pedido.repository.PedidoItemLinha;
+import com.fiap.pedido.repository.PedidoOutboxRepository;
 import com.fiap.pedido.repository.PedidoRepository;
+import com.fiap.pedido.repository.PedidoValorLinha;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Component
@@ -21,10 +46,22 @@ public class PedidoRepositoryAdapter implements PedidoRepositoryPort {
 
     private final PedidoRepository pedidoRepository;
     private final PedidoMapper pedidoMapper;
+    private final EntityManager entityManager;
+    private final PedidoCache pedidoCache;
+    private final PedidoEstatisticas pedidoEstatisticas;
+    private final EscritasRecentes escritasRecentes;
+    private final PedidoOutboxRepository pedidoOutboxRepository;
 
+    /**
+     * Sempre grava um pedido novo (status mudam só por {@link #transicionarStatus}): o ID vem da sequence e o evento
+     * de criação vai para o outbox na mesma transação do INSERT. Um pedido com ID é recusado, para não virar um merge
+     * sobre outro pedido.
+     */
     @Override
+    @Transactional
     public Pedido save(Pedido pedido) {
-        log.info("💾 Salvando pedido no banco - ID: {} Status: {}", pedido.getId(), pedido.getStatus());
+        log.info("💾 Salvando pedido no banco - Cliente: {} Status: {}", pedido.getClienteId(), pedido.getStatus());
+        exigirPedidoNovo(pedido);
         try {
             PedidoEntity entity = pedidoMapper.toEntity(pedido);
 
@@ -34,6 +71,13 @@ public class PedidoRepositoryAdapter implements PedidoRepositoryPort {
 
             PedidoEntity salvo = pedidoRepository.save(entity);
             log.info("✅ Pedido salvo com sucesso - ID: {}", salvo.getId());
+            pedidoOutboxRepository.save(eventoDeCriacao(salvo));
+
+            aposCommit(() -> {
+                escritasRecentes.registrar(salvo.getId());
+                pedidoCache.invalidar(salvo.getId());
+                pedidoEstatisticas.registrarCriacao(salvo.getStatus(), salvo.getDataCriacao(), calcularValor(salvo));
+            });
             return pedidoMapper.toDomain(salvo);
         } catch (Exception e) {
             log.error("❌ Erro ao salvar pedido", e);
@@ -41,18 +85,70 @@ public class PedidoRepositoryAdapter implements PedidoRepositoryPort {
         }
     }
 
+    /**
+     * Grava os pedidos e seus eventos de criação em uma única transação; os INSERTs saem agrupados pelo batch JDBC
+     */
     @Override
-    public Optional<Pedido> findById(Long id) {
-        log.info("🔍 Buscando pedido por ID: {}", id);
+    @Transactional
+    public List<Pedido> saveAll(List<Pedido> pedidos) {
+        log.info("💾 Salvando lote de {} pedidos no banco", pedidos.size());
+        pedidos.forEach(PedidoRepositoryAdapter::exigirPedidoNovo);
         try {
-            Optional<PedidoEntity> entity = pedidoRepository.findByIdWithItens(id);
-            if (entity.isPresent()) {
-                log.info("✅ Pedido encontrado - ID: {} Status: {}", id, entity.get().getStatus());
-                return Optional.of(pedidoMapper.toDomain(entity.get()));
-            } else {
+            List<PedidoEntity> entities = new ArrayList<>(pedidos.size());
+            for (Pedido pedido : pedidos) {
+                PedidoEntity entity = pedidoMapper.toEntity(pedido);
+                if (entity.getItens() != null) {
+                    entity.getItens().forEach(item -> item.setPedido(entity));
+                }
+                entities.add(entity);
+            }
+
+            List<PedidoEntity> salvos = pedidoRepository.saveAll(entities);
+            log.info("✅ Lote de {} pedidos salvo com sucesso", salvos.size());
+
+            List<PedidoOutboxEntity> eventos = new ArrayList<>(salvos.size());
+            List<Pedido> resultado = new ArrayList<>(salvos.size());
+            for (PedidoEntity salvo : salvos) {
+                eventos.add(eventoDeCriacao(salvo));
+                resultado.add(pedidoMapper.toDomain(salvo));
+            }
+            pedidoOutboxRepository.saveAll(eventos);
+
+            aposCommit(() -> {
+                for (PedidoEntity salvo : salvos) {
+                    escritasRecentes.registrar(salvo.getId());
+                    pedidoCache.invalidar(salvo.getId());
+                    pedidoEstatisticas.registrarCriacao(salvo.getStatus(), salvo.getDataCriacao(), calcularValor(salvo));
+                }
+            });
+            return resultado;
+        } catch (Exception e) {
+            log.error("❌ Erro ao salvar lote de pedidos", e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<PedidoResponseDTO> findResponseById(Long id) {
+        log.info("🔍 Buscando resposta do pedido por ID: {}", id);
+        // Sem @Transactional aqui para que acertos no cache não abram transação; findLinhasById é somente leitura
+        return pedidoCache.buscar(id, this::carregarResposta);
+    }
+
+    private Optional<PedidoResponseDTO> carregarResposta(Long id) {
+        log.debug("🗄️ Pedido ID: {} fora do cache, consultando banco", id);
+        try {
+            // Gravado há pouco: a réplica pode não ter recebido a escrita, então lê do primário
+            List<PedidoItemLinha> linhas = escritasRecentes.isRecente(id)
+                    ? RoteadorDataSource.noPrimario(() -> pedidoRepository.findLinhasById(id))
+                    : pedidoRepository.findLinhasById(id);
+            List<PedidoResponseDTO> pedidos = montarRespostas(List.of(id), linhas);
+            if (pedidos.isEmpty()) {
                 log.warn("⚠️ Pedido não encontrado - ID: {}", id);
                 return Optional.empty();
             }
+            log.info("✅ Pedido encontrado - ID: {} Status: {}", id, pedidos.get(0).getStatus());
+            return Optional.of(pedidos.get(0));
         } catch (Exception e) {
             log.error("❌ Erro ao buscar pedido ID: {}", id, e);
             throw e;
@@ -60,50 +156,230 @@ public class PedidoRepositoryAdapter implements PedidoRepositoryPort {
     }
 
     @Override
-    public List<Pedido> findAll() {
-        log.info("📋 Buscando todos os pedidos");
+    @Transactional(readOnly = true)
+    public PedidoPagina findPagina(PedidoFiltro filtro, PedidoCursor cursor, int tamanho) {
+        log.info("📋 Buscando página de pedidos - Tamanho: {} Cursor: {}", tamanho, cursor != null ? cursor.getId() : null);
         try {
-            List<PedidoEntity> entities = pedidoRepository.findAll();
-            log.info("✅ Encontrados {} pedidos", entities.size());
-            return entities.stream()
-                    .map(pedidoMapper::toDomain)
-                    .collect(Collectors.toList());
+            // Busca um ID a mais para saber se existe próxima página
+            List<Long> ids = pedidoRepository.findIdsPagina(filtro, cursor, tamanho + 1);
+            boolean temMais = ids.size() > tamanho;
+            if (temMais) {
+                ids = ids.subList(0, tamanho);
+            }
+            if (ids.isEmpty()) {
+                return PedidoPagina.builder().pedidos(List.of()).build();
+            }
+
+            // Itens da página inteira em uma única consulta de projeção, reordenados conforme o keyset
+            List<PedidoResponseDTO> pedidos = montarRespostas(ids, pedidoRepository.findLinhasByIdIn(ids));
+
+            log.info("✅ Encontrados {} pedidos na página", pedidos.size());
+            return PedidoPagina.builder()
+                    .pedidos(pedidos)
+                    .proximoCursor(temMais && !pedidos.isEmpty() ? PedidoCursor.de(pedidos.get(pedidos.size() - 1)) : null)
+                    .build();
         } catch (Exception e) {
-            log.error("❌ Erro ao buscar todos os pedidos", e);
+            log.error("❌ Erro ao buscar página de pedidos", e);
             throw e;
         }
     }
 
     @Override
-    public Pedido atualizarStatus(Long id, String status) {
-        log.info("🔄 Atualizando status do pedido ID: {} para: {}", id, status);
-        try {
-            PedidoEntity entity = pedidoRepository.findById(id)
-                    .orElseThrow(() -> {
-                        log.error("❌ Pedido não encontrado para atualização - ID: {}", id);
-                        return new RuntimeException("Pedido não encontrado - ID: " + id);
-                    });
-
-            StatusPedido novoStatus;
-            try {
-                novoStatus = StatusPedido.valueOf(status);
-                log.info("✅ Status válido: {}", status);
-            } catch (IllegalArgumentException e) {
-                log.error("❌ Status inválido: {}", status);
-                throw new RuntimeException("Status inválido: " + status, e);
+    @Transactional(readOnly = true)
+    public PedidoPagina findPaginaPorCliente(Long clienteId, PedidoCursor cursor, int tamanho) {
+        // WHERE cliente_id = ? ORDER BY data_criacao DESC, id DESC → idx_pedidos_cliente_data
+        return findPagina(PedidoFiltro.builder().clienteId(clienteId).build(), cursor, tamanho);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PedidoPagina findPaginaPorStatusAntesDe(StatusPedido status, LocalDateTime limite, PedidoCursor cursor, int tamanho) {
+        // WHERE status = ? AND data_criacao < ? ORDER BY data_criacao DESC, id DESC → idx_pedidos_status_data
+        return findPagina(PedidoFiltro.builder().status(status).dataFim(limite).build(), cursor, tamanho);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportarTodos(Consumer<Pedido> consumidor) {
+        log.info("📤 Iniciando exportação de pedidos");
+        long total = 0;
+        try (Stream<PedidoEntity> pedidos = pedidoRepository.streamAllWithItens()) {
+            Iterator<PedidoEntity> iterator = pedidos.iterator();
+            while (iterator.hasNext()) {
+                PedidoEntity entity = iterator.next();
+                consumidor.accept(pedidoMapper.toDomain(entity));
+                // Libera a linha do contexto de persistência para manter o heap constante
+                entityManager.detach(entity);
+                total++;
             }
+            log.info("✅ Exportação concluída - {} pedidos", total);
+            return total;
+        } catch (Exception e) {
+            log.error("❌ Erro ao exportar pedidos após {} registros", total, e);
+            throw e;
+        }
+    }
 
-            StatusPedido statusAnterior = entity.getStatus();
-            entity.setStatus(novoStatus);
+    /**
+     * Fica no primário: o status lido é o valor esperado do CAS da transição
+     */
+    @Override
+    public Optional<StatusPedido> findStatusById(Long id) {
+        log.info("🔍 Buscando status do pedido ID: {}", id);
+        try {
+            return pedidoRepository.findStatusById(id);
+        } catch (Exception e) {
+            log.error("❌ Erro ao buscar status do pedido ID: {}", id, e);
+            throw e;
+        }
+    }
 
-            PedidoEntity atualizado = pedidoRepository.save(entity);
-            log.info("✅ Status atualizado com sucesso - ID: {} | {} → {}",
-                    id, statusAnterior, atualizado.getStatus());
+    /**
+     * Consulta pelo índice único no primário (sem readOnly): uma réplica atrasada deixaria passar o duplicado
+     */
+    @Override
+    public boolean existsByChaveIdempotencia(String chaveIdempotencia) {
+        log.debug("🔍 Verificando chave de idempotência no banco: {}", chaveIdempotencia);
+        try {
+            return pedidoRepository.existsByChaveIdempotencia(chaveIdempotencia);
+        } catch (Exception e) {
+            log.error("❌ Erro ao verificar chave de idempotência: {}", chaveIdempotencia, e);
+            throw e;
+        }
+    }
 
-            return pedidoMapper.toDomain(atualizado);
+    /**
+     * ID pelo índice único no primário (o pedido pode ter acabado de ser gravado); a resposta vem do cache
+     */
+    @Override
+    public Optional<PedidoResponseDTO> findResponseByChaveIdempotencia(String chaveIdempotencia) {
+        log.debug("🔍 Buscando pedido pela chave de idempotência: {}", chaveIdempotencia);
+        try {
+            return pedidoRepository.findIdByChaveIdempotencia(chaveIdempotencia).flatMap(this::findResponseById);
+        } catch (Exception e) {
+            log.error("❌ Erro ao buscar pedido pela chave de idempotência: {}", chaveIdempotencia, e);
+            throw e;
+        }
+    }
+
+    /**
+     * O UPDATE condicional e o evento da transição no outbox são gravados na mesma transação
+     */
+    @Override
+    @Transactional
+    public boolean transicionarStatus(Long id, StatusPedido statusEsperado, StatusPedido novoStatus) {
+        log.info("🔄 Transicionando status do pedido ID: {} | {} → {}", id, statusEsperado, novoStatus);
+        try {
+            boolean transicionado = pedidoRepository.updateStatusIfMatches(id, statusEsperado, novoStatus) == 1;
+            if (transicionado) {
+                pedidoOutboxRepository.save(PedidoOutboxEntity.builder()
+                        .pedidoId(id)
+                        .statusAnterior(statusEsperado)
+                        .statusAtual(novoStatus)
+                        .ocorridoEm(Instant.now())
+                        .build());
+            }
+            Optional<PedidoValorLinha> valor = transicionado ? pedidoRepository.findValorById(id) : Optional.empty();
+            aposCommit(() -> {
+                if (transicionado) {
+                    escritasRecentes.registrar(id);
+                }
+                // Invalida mesmo sem transição: se o CAS falhou, a entrada em cache pode estar desatualizada
+                pedidoCache.invalidar(id);
+                valor.ifPresent(linha -> pedidoEstatisticas.registrarTransicao(
+                        statusEsperado, novoStatus, linha.getDataCriacao(), linha.getValor()));
+            });
+            if (transicionado) {
+                log.info("✅ Status atualizado com sucesso - ID: {} | {} → {}", id, statusEsperado, novoStatus);
+            } else {
+                log.warn("⚠️ Transição não aplicada - ID: {} não está mais em {}", id, statusEsperado);
+            }
+            return transicionado;
         } catch (Exception e) {
             log.error("❌ Erro ao atualizar status do pedido ID: {}", id, e);
             throw e;
         }
     }
-}
\ No newline at end of file
+
+    private static void exigirPedidoNovo(Pedido pedido) {
+        if (pedido.getId() != null) {
+            throw new IllegalArgumentException("Pedido novo não pode ter ID definido: " + pedido.getId());
+        }
+    }
+
+    private PedidoOutboxEntity eventoDeCriacao(PedidoEntity pedido) {
+        return PedidoOutboxEntity.builder()
+                .pedidoId(pedido.getId())
+                .clienteId(pedido.getClienteId())
+                .statusAtual(pedido.getStatus())
+                .ocorridoEm(Instant.now())
+                .build();
+    }
+
+    /**
+     * Cache, leitura após escrita e estatísticas só depois do commit: antes dele uma leitura concorrente ainda
+     * veria (e guardaria em cache) o valor antigo, e um rollback deixaria as estatísticas erradas.
+     * Fora de transação executa na hora.
+     */
+    private void aposCommit(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+        });
+    }
+
+    private double calcularValor(PedidoEntity pedido) {
+        if (pedido.getItens() == null) {
+            return 0.0;
+        }
+        double valor = 0.0;
+        for (ItemPedidoEntity item : pedido.getItens()) {
+            if (item.getQuantidade() != null && item.getPrecoUnitario() != null) {
+                valor += item.getQuantidade() * item.getPrecoUnitario();
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Monta as respostas direto das linhas projetadas (pedido + item), na ordem dos IDs informados
+     */
+    private List<PedidoResponseDTO> montarRespostas(List<Long> ids, List<PedidoItemLinha> linhas) {
+        Map<Long, PedidoResponseDTO> porId = new HashMap<>();
+        for (PedidoItemLinha linha : linhas) {
+            PedidoResponseDTO pedido = porId.get(linha.getPedidoId());
+            if (pedido == null) {
+                pedido = PedidoResponseDTO.builder()
+                        .id(linha.getPedidoId())
+                        .clienteId(linha.getClienteId())
+                        .status(linha.getStatus() != null ? linha.getStatus().name() : null)
+                        .dataCriacao(linha.getDataCriacao())
+                        .itens(new ArrayList<>())
+                        .build();
+                porId.put(linha.getPedidoId(), pedido);
+            }
+            if (linha.getItemId() != null) {
+                pedido.getItens().add(ItemPedidoResponseDTO.builder()
+                        .produtoId(linha.getProdutoId())
+                        .quantidade(linha.getQuantidade())
+                        .precoUnitario(linha.getPrecoUnitario())
+                        .build());
+            }
+        }
+
+        List<PedidoResponseDTO> pedidos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            PedidoResponseDTO pedido = porId.get(id);
+            if (pedido != null) {
+                pedidos.add(pedido);
+            }
+        }
+        return pedidos;
+    }
+}
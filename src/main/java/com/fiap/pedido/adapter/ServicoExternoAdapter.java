@@ -4,13 +4,41 @@ import com.fiap.pedido.dto.ClienteDTO;
 import com.fiap.pedido.dto.ProdutoDTO;
 import com.fiap.pedido.dto.StatusPagamentoDTO;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Optional;
 
 @Slf4j
 @Component
 public class ServicoExternoAdapter {
 
+    private final ConsultasEmVoo consultasEmVoo;
+    private final RestTemplate restTemplate;
+    private final String produtoServiceUrl;
+
+    public ServicoExternoAdapter(ConsultasEmVoo consultasEmVoo, RestTemplate restTemplate,
+                                 @Value("${produto.service.url}") String produtoServiceUrl) {
+        this.consultasEmVoo = consultasEmVoo;
+        this.restTemplate = restTemplate;
+        this.produtoServiceUrl = produtoServiceUrl;
+    }
+
     public ClienteDTO consultarCliente(String clienteId) {
+        return consultasEmVoo.executar("consultarCliente", clienteId, () -> buscarCliente(clienteId));
+    }
+
+    /**
+     * Consulta o produto no produto-service. Vazio quando o serviço responde 404 (SKU fora do catálogo), para que
+     * o ProdutoCache guarde a ausência; as demais falhas sobem para quem chamou
+     */
+    public Optional<ProdutoDTO> consultarProduto(String produtoId) {
+        return consultasEmVoo.executar("consultarProduto", produtoId, () -> buscarProduto(produtoId));
+    }
+
+    private ClienteDTO buscarCliente(String clienteId) {
         log.info("Mock consultar cliente id: {}", clienteId);
         ClienteDTO cliente = new ClienteDTO();
         cliente.setId(clienteId);
@@ -21,14 +49,15 @@ public class ServicoExternoAdapter {
         return cliente;
     }
 
-    public ProdutoDTO consultarProduto(String produtoId) {
-        log.info("Mock consultar produto id: {}", produtoId);
-        ProdutoDTO produto = new ProdutoDTO();
-        produto.setId(produtoId);
-        produto.setNome("Produto Mock");
-        produto.setSku(produtoId);
-        produto.setPreco(100.0);
-        return produto;
+    private Optional<ProdutoDTO> buscarProduto(String produtoId) {
+        log.info("Consultar produto id: {}", produtoId);
+        try {
+            return Optional.ofNullable(restTemplate.getForObject(produtoServiceUrl + "/produtos/{produtoId}",
+                    ProdutoDTO.class, produtoId));
+        } catch (HttpClientErrorException.NotFound e) {
+            log.warn("Produto {} não encontrado no catálogo", produtoId);
+            return Optional.empty();
+        }
     }
 
     public boolean reservarEstoque(String produtoId, int quantidade) {
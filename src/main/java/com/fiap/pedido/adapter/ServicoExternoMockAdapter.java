@@ -6,23 +6,35 @@ import com.fiap.pedido.dto.StatusPagamentoDTO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Slf4j
 @Component
 public class ServicoExternoMockAdapter {
 
-    private final Map<String, Integer> estoqueDisponivel = new HashMap<>();
+    // Acessado por vários workers ao mesmo tempo: contadores atômicos por SKU, sem lock global
+    private final LivroEstoque livroEstoque = new LivroEstoque();
 
-    public ServicoExternoMockAdapter() {
-        estoqueDisponivel.put("SKU001", 2);
-        estoqueDisponivel.put("SKU002", 2);
-        estoqueDisponivel.put("SKU003", 2);
+    private final ConsultasEmVoo consultasEmVoo;
+
+    public ServicoExternoMockAdapter(ConsultasEmVoo consultasEmVoo) {
+        this.consultasEmVoo = consultasEmVoo;
+        livroEstoque.abastecer("SKU001", 2);
+        livroEstoque.abastecer("SKU002", 2);
+        livroEstoque.abastecer("SKU003", 2);
     }
 
     public ClienteDTO consultarCliente(String clienteId) {
+        return consultasEmVoo.executar("consultarCliente", clienteId, () -> buscarCliente(clienteId));
+    }
+
+    public ProdutoDTO consultarProduto(String produtoId) {
+        return consultasEmVoo.executar("consultarProduto", produtoId, () -> buscarProduto(produtoId));
+    }
+
+    private ClienteDTO buscarCliente(String clienteId) {
         log.info("Mock: consultando cliente com id {}", clienteId);
         ClienteDTO cliente = new ClienteDTO();
         cliente.setId(clienteId);
@@ -33,7 +45,7 @@ public class ServicoExternoMockAdapter {
         return cliente;
     }
 
-    public ProdutoDTO consultarProduto(String produtoId) {
+    private ProdutoDTO buscarProduto(String produtoId) {
         log.info("Mock: consultando produto com id {}", produtoId);
         ProdutoDTO produto = new ProdutoDTO();
         produto.setId(produtoId);
@@ -43,37 +55,53 @@ public class ServicoExternoMockAdapter {
         return produto;
     }
 
-    public boolean reservarEstoque(String produtoId, Integer quantidade) {
-        log.info("Mock: reservando estoque para produto {} quantidade {}", produtoId, quantidade);
-        Integer disponivel = estoqueDisponivel.getOrDefault(produtoId, 0);
-        if (quantidade <= disponivel) {
-            log.info("Estoque reservado para produto {} quantidade {}", produtoId, quantidade);
-            return true;
+    /**
+     * Reserva o pedido inteiro (SKU -> quantidade) ou nada: devolve o ID da reserva, que quem chamou usa na baixa ou
+     * no estorno, ou vazio se algum SKU não tem estoque
+     */
+    public Optional<String> reservarEstoque(Map<String, Integer> itens) {
+        log.info("Mock: reservando estoque de {} SKUs: {}", itens.size(), itens);
+        Optional<String> idReserva = livroEstoque.reservar(itens);
+        if (idReserva.isPresent()) {
+            log.info("Estoque reservado - Reserva: {}", idReserva.get());
+        } else {
+            log.warn("Falha ao reservar estoque: algum produto sem a quantidade solicitada em {}", itens);
+        }
+        return idReserva;
+    }
+
+    /**
+     * Confirma a reserva. Repetir a baixa de uma reserva já confirmada devolve true sem baixar de novo; false se a
+     * reserva não existe ou foi estornada
+     */
+    public boolean baixarEstoque(String idReserva) {
+        log.info("Mock: baixando estoque da reserva {}", idReserva);
+        boolean baixado = livroEstoque.confirmar(idReserva);
+        if (baixado) {
+            log.info("Estoque baixado - Reserva: {}", idReserva);
         } else {
-            log.warn("Falha ao reservar estoque para produto {}. Quantidade solicitada: {}, disponível: {}", produtoId, quantidade, disponivel);
-            return false;
+            log.warn("Falha ao baixar estoque: reserva {} inexistente ou já estornada", idReserva);
         }
+        return baixado;
     }
 
-    public boolean baixarEstoque(String produtoId, Integer quantidade) {
-        log.info("Mock: baixando estoque para produto {} quantidade {}", produtoId, quantidade);
-        Integer disponivel = estoqueDisponivel.getOrDefault(produtoId, 0);
-        if (quantidade <= disponivel) {
-            estoqueDisponivel.put(produtoId, disponivel - quantidade);
-            log.info("Estoque baixado para produto {}. Quantidade: {}. Estoque restante: {}", produtoId, quantidade, estoqueDisponivel.get(produtoId));
-            return true;
+    /**
+     * Libera a reserva ainda aberta ou devolve ao disponível a reserva já baixada. Só a própria reserva volta ao
+     * estoque, uma única vez: um estorno repetido ou de reserva desconhecida não mexe no estoque e devolve false
+     */
+    public boolean estornarEstoque(String idReserva) {
+        log.info("Mock: estornando estoque da reserva {}", idReserva);
+        boolean estornado = livroEstoque.liberar(idReserva) || livroEstoque.estornar(idReserva);
+        if (estornado) {
+            log.info("Estoque estornado - Reserva: {}", idReserva);
         } else {
-            log.warn("Falha ao baixar estoque para produto {}. Quantidade solicitada: {}, disponível: {}", produtoId, quantidade, disponivel);
-            return false;
+            log.warn("Estorno ignorado: reserva {} inexistente ou já estornada", idReserva);
         }
+        return estornado;
     }
 
-    public boolean estornarEstoque(String produtoId, Integer quantidade) {
-        log.info("Mock: estornando estoque para produto {} quantidade {}", produtoId, quantidade);
-        Integer disponivel = estoqueDisponivel.getOrDefault(produtoId, 0);
-        estoqueDisponivel.put(produtoId, disponivel + quantidade);
-        log.info("Estoque estornado para produto {}. Quantidade: {}. Estoque atualizado: {}", produtoId, quantidade, estoqueDisponivel.get(produtoId));
-        return true;
+    public LivroEstoque getLivroEstoque() {
+        return livroEstoque;
     }
 
     public StatusPagamentoDTO processarPagamento(String numeroCartao, Double valorTotal) {
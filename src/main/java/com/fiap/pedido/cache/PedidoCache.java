@@ -0,0 +1,129 @@
+package com.fiap.pedido.cache;
+
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Cache local das respostas de pedidos por ID, limitado por tamanho e com expiração por status
+ */
+@Slf4j
+@Component
+public class PedidoCache {
+
+    static final String NOME_CACHE = "pedidos";
+
+    private static final Set<StatusPedido> STATUS_TERMINAIS = EnumSet.of(
+            StatusPedido.FECHADO_COM_SUCESSO,
+            StatusPedido.FECHADO_SEM_ESTOQUE,
+            StatusPedido.FECHADO_SEM_CREDITO,
+            StatusPedido.CANCELADO);
+
+    private final AsyncCache<Long, PedidoResponseDTO> cache;
+
+    @Autowired
+    public PedidoCache(@Value("${pedido.cache.tamanho-maximo:10000}") long tamanhoMaximo,
+                       @Value("${pedido.cache.ttl-nao-terminal:PT5S}") Duration ttlNaoTerminal,
+                       MeterRegistry meterRegistry) {
+        this(tamanhoMaximo, ttlNaoTerminal, meterRegistry, Ticker.systemTicker());
+    }
+
+    PedidoCache(long tamanhoMaximo, Duration ttlNaoTerminal, MeterRegistry meterRegistry, Ticker ticker) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfter(new ExpiracaoPorStatus(ttlNaoTerminal))
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME_CACHE);
+        log.info("🗄️ Cache de pedidos criado - Tamanho máximo: {} TTL não terminal: {}", tamanhoMaximo, ttlNaoTerminal);
+    }
+
+    /**
+     * Devolve o pedido do cache ou carrega pelo carregador informado; ausências não são armazenadas.
+     * Só um futuro pendente é registrado dentro do lock do mapa: a consulta ao banco roda fora dele, na thread
+     * de quem chamou, e as demais threads do mesmo ID aguardam o futuro (sem fixar a carrier de threads virtuais).
+     */
+    public Optional<PedidoResponseDTO> buscar(Long id, Function<Long, Optional<PedidoResponseDTO>> carregador) {
+        CompletableFuture<PedidoResponseDTO> carregamento = new CompletableFuture<>();
+        CompletableFuture<PedidoResponseDTO> pedido = cache.get(id, (chave, executor) -> carregamento);
+        if (pedido == carregamento) {
+            try {
+                carregamento.complete(carregador.apply(id).orElse(null));
+            } catch (RuntimeException e) {
+                carregamento.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return Optional.ofNullable(pedido.join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        }
+    }
+
+    public void atualizar(PedidoResponseDTO pedido) {
+        if (pedido != null && pedido.getId() != null) {
+            cache.put(pedido.getId(), CompletableFuture.completedFuture(pedido));
+        }
+    }
+
+    public void invalidar(Long id) {
+        cache.synchronous().invalidate(id);
+        log.debug("🗑️ Pedido ID: {} removido do cache", id);
+    }
+
+    public long tamanho() {
+        cache.synchronous().cleanUp();
+        return cache.synchronous().estimatedSize();
+    }
+
+    public CacheStats estatisticas() {
+        return cache.synchronous().stats();
+    }
+
+    static boolean isTerminal(String status) {
+        return status != null && STATUS_TERMINAIS.contains(StatusPedido.valueOf(status));
+    }
+
+    /**
+     * Pedidos em status terminal não expiram por tempo (só saem por tamanho ou invalidação);
+     * os demais expiram após o TTL configurado
+     */
+    private record ExpiracaoPorStatus(Duration ttlNaoTerminal) implements Expiry<Long, PedidoResponseDTO> {
+
+        @Override
+        public long expireAfterCreate(Long id, PedidoResponseDTO pedido, long currentTime) {
+            return isTerminal(pedido.getStatus()) ? Long.MAX_VALUE : ttlNaoTerminal.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Long id, PedidoResponseDTO pedido, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, pedido, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long id, PedidoResponseDTO pedido, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
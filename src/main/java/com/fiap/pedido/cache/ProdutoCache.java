@@ -0,0 +1,180 @@
+package com.fiap.pedido.cache;
+
+import com.fiap.pedido.adapter.ServicoExternoAdapter;
+import com.fiap.pedido.adapter.ServicoExternoMockAdapter;
+import com.fiap.pedido.dto.ProdutoDTO;
+import com.fiap.pedido.enuns.CatalogoProdutos;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cache local do catálogo de produtos (preço e SKU) consultado a cada item de pedido, limitado por tamanho.
+ * Um produto lido depois de {@code atualizar-apos} é recarregado em segundo plano e continua sendo servido com o
+ * valor atual até a recarga terminar: produtos consultados com frequência não voltam a custar uma chamada remota
+ * no caminho do pedido. SKUs desconhecidos (consulta sem produto, ou 404 do produto-service) também ficam em cache,
+ * por um TTL menor. {@code pedido.produtos.catalogo} escolhe a origem: o mock local ou o produto-service.
+ */
+@Slf4j
+@Component
+public class ProdutoCache implements DisposableBean {
+
+    static final String NOME_CACHE = "produtos";
+    static final String METRICA_CARREGAMENTO = "pedido.produtos.carregamento";
+
+    private final AsyncLoadingCache<String, Optional<ProdutoDTO>> cache;
+    private final Function<String, Optional<ProdutoDTO>> carregador;
+    private final Executor executorAtualizacao;
+    private final Timer carregamentosEncontrados;
+    private final Timer carregamentosAusentes;
+    private final Timer carregamentosComFalha;
+
+    @Autowired
+    public ProdutoCache(ServicoExternoMockAdapter servicoExternoMockAdapter,
+                        ServicoExternoAdapter servicoExternoAdapter,
+                        @Value("${pedido.produtos.catalogo:MOCK}") CatalogoProdutos catalogo,
+                        @Value("${pedido.produtos.cache.tamanho-maximo:60000}") long tamanhoMaximo,
+                        @Value("${pedido.produtos.cache.ttl:PT1H}") Duration ttl,
+                        @Value("${pedido.produtos.cache.atualizar-apos:PT45M}") Duration atualizarApos,
+                        @Value("${pedido.produtos.cache.ttl-ausente:PT5M}") Duration ttlAusente,
+                        @Value("${pedido.produtos.cache.threads-atualizacao:2}") int threadsAtualizacao,
+                        MeterRegistry meterRegistry) {
+        this(catalogo == CatalogoProdutos.SERVICO
+                        ? servicoExternoAdapter::consultarProduto
+                        : produtoId -> Optional.ofNullable(servicoExternoMockAdapter.consultarProduto(produtoId)),
+                tamanhoMaximo, ttl, atualizarApos, ttlAusente,
+                Executors.newFixedThreadPool(threadsAtualizacao, new CustomizableThreadFactory("produtos-cache-")),
+                meterRegistry, Ticker.systemTicker());
+    }
+
+    ProdutoCache(Function<String, Optional<ProdutoDTO>> carregador, long tamanhoMaximo, Duration ttl, Duration atualizarApos,
+                 Duration ttlAusente, Executor executorAtualizacao, MeterRegistry meterRegistry, Ticker ticker) {
+        if (atualizarApos.compareTo(ttl) >= 0) {
+            throw new IllegalArgumentException("A recarga (" + atualizarApos + ") precisa começar antes do TTL (" + ttl + ")");
+        }
+        this.carregador = carregador;
+        this.executorAtualizacao = executorAtualizacao;
+        this.carregamentosEncontrados = timerCarregamento(meterRegistry, "encontrado");
+        this.carregamentosAusentes = timerCarregamento(meterRegistry, "ausente");
+        this.carregamentosComFalha = timerCarregamento(meterRegistry, "falha");
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfter(new ExpiracaoPorPresenca(ttl, ttlAusente))
+                .refreshAfterWrite(atualizarApos)
+                .executor(executorAtualizacao)
+                .ticker(ticker)
+                .recordStats()
+                .buildAsync(this::carregar);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME_CACHE);
+        log.info("🗄️ Cache de produtos criado - Tamanho máximo: {} TTL: {} Recarga após: {} TTL ausente: {}",
+                tamanhoMaximo, ttl, atualizarApos, ttlAusente);
+    }
+
+    /**
+     * Devolve o produto do cache ou o consulta na thread de quem chamou (como no cache de pedidos: só o futuro
+     * pendente é registrado dentro do lock do mapa); as recargas antes do TTL rodam no pool de atualização.
+     * Vazio quando o SKU não existe no catálogo.
+     */
+    public Optional<ProdutoDTO> buscar(String produtoId) {
+        CompletableFuture<Optional<ProdutoDTO>> carregamento = new CompletableFuture<>();
+        CompletableFuture<Optional<ProdutoDTO>> produto = cache.get(produtoId, (chave, executor) -> carregamento);
+        if (produto == carregamento) {
+            try {
+                carregamento.complete(carregar(produtoId));
+            } catch (RuntimeException e) {
+                carregamento.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return produto.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        }
+    }
+
+    public void invalidar(String produtoId) {
+        cache.synchronous().invalidate(produtoId);
+        log.debug("🗑️ Produto {} removido do cache", produtoId);
+    }
+
+    public long tamanho() {
+        cache.synchronous().cleanUp();
+        return cache.synchronous().estimatedSize();
+    }
+
+    public CacheStats estatisticas() {
+        return cache.synchronous().stats();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (executorAtualizacao instanceof ExecutorService pool) {
+            pool.shutdown();
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private Optional<ProdutoDTO> carregar(String produtoId) {
+        long inicio = System.nanoTime();
+        Timer timer = carregamentosComFalha;
+        try {
+            Optional<ProdutoDTO> produto = carregador.apply(produtoId);
+            timer = produto.isPresent() ? carregamentosEncontrados : carregamentosAusentes;
+            return produto;
+        } finally {
+            timer.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer timerCarregamento(MeterRegistry meterRegistry, String resultado) {
+        return Timer.builder(METRICA_CARREGAMENTO)
+                .description("Latência das consultas ao catálogo feitas pelo cache de produtos")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Produtos encontrados expiram após o TTL; SKUs desconhecidos, após o TTL de ausência
+     */
+    private record ExpiracaoPorPresenca(Duration ttl, Duration ttlAusente) implements Expiry<String, Optional<ProdutoDTO>> {
+
+        @Override
+        public long expireAfterCreate(String produtoId, Optional<ProdutoDTO> produto, long currentTime) {
+            return produto.isPresent() ? ttl.toNanos() : ttlAusente.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String produtoId, Optional<ProdutoDTO> produto, long currentTime, long currentDuration) {
+            return expireAfterCreate(produtoId, produto, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String produtoId, Optional<ProdutoDTO> produto, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
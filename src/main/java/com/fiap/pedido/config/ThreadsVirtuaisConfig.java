@@ -0,0 +1,36 @@
+package com.fiap.pedido.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.AbstractKafkaListenerContainerFactory;
+
+/**
+ * Ativa com Java 21 e spring.threads.virtual.enabled=true. O Spring Boot já coloca o Tomcat e os executores
+ * padrão em threads virtuais; aqui as fábricas de listener Kafka próprias (KafkaConfig) recebem o mesmo tratamento.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ThreadsVirtuaisConfig {
+
+    @Bean
+    public static BeanPostProcessor listenersKafkaEmThreadsVirtuais() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractKafkaListenerContainerFactory<?, ?, ?> factory) {
+                    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(beanName + "-");
+                    executor.setVirtualThreads(true);
+                    factory.getContainerProperties().setListenerTaskExecutor(executor);
+                    log.info("🧵 Listeners da fábrica {} em threads virtuais", beanName);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.fiap.pedido.config.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * IDs de pedidos gravados dentro da janela de atraso tolerado das réplicas.
+ * Leituras desses pedidos vão ao primário, garantindo leitura após escrita.
+ */
+@Slf4j
+@Component
+public class EscritasRecentes {
+
+    private static final long TAMANHO_MAXIMO = 100_000;
+
+    private final Cache<Long, Boolean> pedidos;
+
+    @Autowired
+    public EscritasRecentes(@Value("${pedido.datasource.replica.janela-leitura-apos-escrita:PT2S}") Duration janela) {
+        this(janela, Ticker.systemTicker());
+    }
+
+    EscritasRecentes(Duration janela, Ticker ticker) {
+        this.pedidos = Caffeine.newBuilder()
+                .maximumSize(TAMANHO_MAXIMO)
+                .expireAfterWrite(janela)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .build();
+        log.info("🔀 Janela de leitura após escrita no primário: {}", janela);
+    }
+
+    public void registrar(Long id) {
+        if (id != null) {
+            pedidos.put(id, Boolean.TRUE);
+        }
+    }
+
+    public boolean isRecente(Long id) {
+        return id != null && pedidos.getIfPresent(id) != null;
+    }
+}
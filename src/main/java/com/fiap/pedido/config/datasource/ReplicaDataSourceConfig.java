@@ -0,0 +1,74 @@
+package com.fiap.pedido.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ativada somente quando há réplicas configuradas; sem elas o DataSource padrão do Spring Boot é mantido.
+ * Primário e réplicas recebem os mesmos spring.datasource.hikari.* (tamanho do pool, timeouts...) que o Spring Boot
+ * aplicaria ao pool padrão.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "pedido.datasource.replica", name = "urls")
+public class ReplicaDataSourceConfig {
+
+    static final String PREFIXO_HIKARI = "spring.datasource.hikari";
+
+    @Bean
+    public RoteadorDataSource roteadorDataSource(DataSourceProperties properties, Environment environment,
+                                 @Value("${pedido.datasource.replica.urls}") List<String> urls,
+                                 @Value("${pedido.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                 @Value("${pedido.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primario = configurarPool(binder,
+                properties.initializeDataSourceBuilder().type(HikariDataSource.class).build());
+        primario.setPoolName("pedido-primario");
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = configurarPool(binder, DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build());
+            replica.setPoolName("pedido-replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        log.info("🔀 Leituras somente leitura roteadas para {} réplica(s)", replicas.size());
+        return new RoteadorDataSource(primario, replicas);
+    }
+
+    /**
+     * Nome do pool e somente leitura são definidos depois, para não serem sobrescritos pelo prefixo compartilhado
+     */
+    private static HikariDataSource configurarPool(Binder binder, HikariDataSource pool) {
+        binder.bind(PREFIXO_HIKARI, Bindable.ofInstance(pool));
+        return pool;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(RoteadorDataSource roteadorDataSource) {
+        return new LazyConnectionDataSourceProxy(roteadorDataSource);
+    }
+}
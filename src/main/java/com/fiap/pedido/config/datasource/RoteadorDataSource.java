@@ -0,0 +1,76 @@
+package com.fiap.pedido.config.datasource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Envia transações somente leitura para as réplicas (round-robin) e todo o resto para o primário.
+ * Deve ser envolvido por um LazyConnectionDataSourceProxy: a conexão só é obtida no primeiro comando,
+ * quando a transação já está marcada como somente leitura.
+ */
+public class RoteadorDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARIO = "primario";
+
+    private static final ThreadLocal<Boolean> PRIMARIO_FORCADO = new ThreadLocal<>();
+
+    private final List<String> replicas = new ArrayList<>();
+    private final AtomicInteger proxima = new AtomicInteger();
+
+    public RoteadorDataSource(DataSource primario, List<? extends DataSource> replicas) {
+        Map<Object, Object> destinos = new HashMap<>();
+        destinos.put(PRIMARIO, primario);
+        for (int i = 0; i < replicas.size(); i++) {
+            String chave = "replica-" + i;
+            destinos.put(chave, replicas.get(i));
+            this.replicas.add(chave);
+        }
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(primario);
+    }
+
+    /**
+     * Executa a leitura no primário mesmo dentro de transação somente leitura (leitura após escrita)
+     */
+    public static <T> T noPrimario(Supplier<T> leitura) {
+        Boolean anterior = PRIMARIO_FORCADO.get();
+        PRIMARIO_FORCADO.set(Boolean.TRUE);
+        try {
+            return leitura.get();
+        } finally {
+            if (anterior == null) {
+                PRIMARIO_FORCADO.remove();
+            } else {
+                PRIMARIO_FORCADO.set(anterior);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || PRIMARIO_FORCADO.get() != null) {
+            return PRIMARIO;
+        }
+        return replicas.get(Math.floorMod(proxima.getAndIncrement(), replicas.size()));
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource destino : getResolvedDataSources().values()) {
+            if (destino instanceof AutoCloseable pool) {
+                pool.close();
+            }
+        }
+    }
+}
@@ -1,45 +1,225 @@
 package com.fiap.pedido.config.kafka;
 
+import com.fiap.pedido.domain.PedidoStatusAlterado;
 import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.FormatoMensagem;
+import com.fiap.pedido.enuns.GarantiaEntrega;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 @EnableKafka
 @Configuration
 public class KafkaConfig {
 
+    static final String BOOTSTRAP_SERVERS_PADRAO = "kafka:9092";
+    static final String PREFIXO_TRANSACAO_PADRAO = "pedido-tx-";
+
+    private final String bootstrapServers;
+    private final FormatoMensagem formatoProducao;
+    private final GarantiaEntrega garantiaEntrega;
+    private final String prefixoTransacao;
+
+    @Autowired
+    public KafkaConfig(@Value("${spring.kafka.bootstrap-servers:" + BOOTSTRAP_SERVERS_PADRAO + "}") String bootstrapServers,
+                       @Value("${pedido.kafka.formato-producao:JSON}") FormatoMensagem formatoProducao,
+                       @Value("${pedido.kafka.garantia-entrega:PELO_MENOS_UMA_VEZ}") GarantiaEntrega garantiaEntrega,
+                       @Value("${pedido.kafka.transacao.prefixo-id:" + PREFIXO_TRANSACAO_PADRAO + "}") String prefixoTransacao) {
+        this.bootstrapServers = bootstrapServers;
+        this.formatoProducao = formatoProducao;
+        this.garantiaEntrega = garantiaEntrega;
+        this.prefixoTransacao = prefixoTransacao;
+    }
+
+    KafkaConfig(String bootstrapServers, GarantiaEntrega garantiaEntrega) {
+        this(bootstrapServers, FormatoMensagem.JSON, garantiaEntrega, PREFIXO_TRANSACAO_PADRAO);
+    }
+
+    KafkaConfig(String bootstrapServers) {
+        this(bootstrapServers, GarantiaEntrega.PELO_MENOS_UMA_VEZ);
+    }
+
+    KafkaConfig() {
+        this(BOOTSTRAP_SERVERS_PADRAO);
+    }
+
+    /**
+     * O valor é lido no formato do header pedido-formato (JSON quando ausente, binário compacto quando BINARIO)
+     * dentro de um ErrorHandlingDeserializer: uma mensagem inválida chega ao listener como falha de desserialização
+     * (enviada direto à DLT) em vez de travar o poll da partição.
+     * Com EXATAMENTE_UMA_VEZ lê só o que foi commitado: registros de transações abortadas não chegam ao listener.
+     */
     @Bean
     public ConsumerFactory<String, PedidoRequestDTO> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "kafka:9092");
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "pedido-service");
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class.getName());
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, PedidoRequestDTO.class);
         props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        if (isExatamenteUmaVez()) {
+            props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        }
 
         return new DefaultKafkaConsumerFactory<>(
                 props,
                 new StringDeserializer(),
-                new JsonDeserializer<>(PedidoRequestDTO.class, false)
+                new PedidoRequestErrorHandlingDeserializer(new PedidoRequestDeserializer())
+        );
+    }
+
+    /**
+     * Publica nos tópicos de retentativa e na DLT (pedidos no formato de pedido.kafka.formato-producao e, para mensagens
+     * que nem foram desserializadas, os bytes originais) e os resultados no tópico pedido-processado.
+     * Com EXATAMENTE_UMA_VEZ o produtor é transacional: o prefixo precisa ser único por instância, senão uma instância
+     * derruba (fencing) o produtor da outra.
+     */
+    @Bean
+    public ProducerFactory<String, Object> pedidoProducerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        if (isExatamenteUmaVez()) {
+            props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+            props.put(ProducerConfig.ACKS_CONFIG, "all");
+        }
+
+        DefaultKafkaProducerFactory<String, Object> producerFactory = new DefaultKafkaProducerFactory<>(
+                props,
+                new StringSerializer(),
+                new DelegatingByTypeSerializer(Map.of(
+                        byte[].class, new ByteArraySerializer(),
+                        PedidoRequestDTO.class, new PedidoRequestSerializer(formatoProducao),
+                        PedidoResponseDTO.class, new JsonSerializer<PedidoResponseDTO>().noTypeInfo()))
         );
+        if (isExatamenteUmaVez()) {
+            producerFactory.setTransactionIdPrefix(prefixoTransacao);
+        }
+        return producerFactory;
+    }
+
+    @Bean
+    public KafkaTemplate<String, Object> pedidoKafkaTemplate() {
+        return new KafkaTemplate<>(pedidoProducerFactory());
     }
 
+    /**
+     * Produtor dos eventos de status: idempotente (acks=all, sem duplicar nem reordenar em retentativas), com lotes
+     * acumulados por até linger.ms e comprimidos. max.block.ms curto: com o broker fora o relay do outbox não fica
+     * preso no send esperando metadados ou espaço no buffer, e tenta o lote de novo no próximo ciclo.
+     */
+    @Bean
+    public ProducerFactory<String, PedidoStatusAlterado> statusProducerFactory(
+            @Value("${pedido.kafka.status.linger-ms:20}") int lingerMs,
+            @Value("${pedido.kafka.status.batch-size:65536}") int batchSize,
+            @Value("${pedido.kafka.status.compressao:zstd}") String compressao,
+            @Value("${pedido.kafka.status.max-block-ms:100}") long maxBlockMs) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressao);
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+
+        return new DefaultKafkaProducerFactory<>(
+                props,
+                new StringSerializer(),
+                new JsonSerializer<PedidoStatusAlterado>().noTypeInfo()
+        );
+    }
+
+    @Bean
+    public KafkaTemplate<String, PedidoStatusAlterado> statusKafkaTemplate(
+            ProducerFactory<String, PedidoStatusAlterado> statusProducerFactory) {
+        return new KafkaTemplate<>(statusProducerFactory);
+    }
+
+    /**
+     * Modo unitário; também atende os tópicos de retentativa e a DLT. Com EXATAMENTE_UMA_VEZ cada registro roda em uma
+     * transação Kafka: resultado publicado, reenvio para retentativa e offset são commitados juntos ou descartados juntos.
+     */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, PedidoRequestDTO> pedidoKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, PedidoRequestDTO> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        configurarTransacao(factory);
         return factory;
     }
-}
\ No newline at end of file
+
+    /**
+     * Modo lote: cada invocação do listener recebe todos os registros de um poll (até max.poll.records)
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, PedidoRequestDTO> pedidoLoteKafkaListenerContainerFactory(
+            @Value("${pedido.kafka.lote.tamanho-maximo:500}") int tamanhoMaximo) {
+        ConcurrentKafkaListenerContainerFactory<String, PedidoRequestDTO> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+
+        Properties props = new Properties();
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(tamanhoMaximo));
+        factory.getContainerProperties().setKafkaConsumerProperties(props);
+        configurarTransacao(factory);
+        return factory;
+    }
+
+    /**
+     * Modo paralelo: o listener repassa cada registro a um worker e confirma ao terminar.
+     * Com asyncAcks as confirmações fora de ordem só são commitadas quando todos os offsets menores da partição
+     * também foram confirmados, ou seja, o commit avança até o menor offset ainda não concluído.
+     * Não combina com EXATAMENTE_UMA_VEZ: a transação é da thread do listener e os workers confirmam fora dela.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, PedidoRequestDTO> pedidoParaleloKafkaListenerContainerFactory(
+            @Value("${pedido.kafka.modo-consumo:UNITARIO}") String modoConsumo) {
+        if ("PARALELO".equalsIgnoreCase(modoConsumo) && isExatamenteUmaVez()) {
+            throw new IllegalStateException("Modo de consumo PARALELO não suporta garantia de entrega EXATAMENTE_UMA_VEZ");
+        }
+        ConcurrentKafkaListenerContainerFactory<String, PedidoRequestDTO> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+
+    /**
+     * O gerenciador de transação fica só nos containers (não é bean): um PlatformTransactionManager a mais
+     * no contexto tiraria do JPA o papel de gerenciador padrão dos @Transactional
+     */
+    private void configurarTransacao(ConcurrentKafkaListenerContainerFactory<String, PedidoRequestDTO> factory) {
+        if (isExatamenteUmaVez()) {
+            factory.getContainerProperties().setTransactionManager(new KafkaTransactionManager<>(pedidoProducerFactory()));
+        }
+    }
+
+    private boolean isExatamenteUmaVez() {
+        return garantiaEntrega == GarantiaEntrega.EXATAMENTE_UMA_VEZ;
+    }
+}
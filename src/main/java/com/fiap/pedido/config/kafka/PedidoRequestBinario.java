@@ -0,0 +1,226 @@
+package com.fiap.pedido.config.kafka;
+
+import com.fiap.pedido.dto.request.DadosPagamentoRequestDTO;
+import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Formato binário compacto do PedidoRequestDTO (versão 1):
+ * <pre>
+ * versão (1 byte) | campos presentes (1 byte, um bit por campo do pedido)
+ * id, clienteId         varint zigzag
+ * itens                 varint quantidade + (produtoId, quantidade) por item
+ * status                texto
+ * dataCriacao           varint zigzag dos segundos (UTC) + varint dos nanos
+ * dadosPagamento        metodoPagamento, numeroCartao
+ * </pre>
+ * Textos são gravados como varint (tamanho + 1, zero para nulo) seguido dos bytes UTF-8, e inteiros opcionais
+ * como varint (zigzag + 1, zero para nulo). Uma versão nova do formato precisa de um novo número de versão;
+ * a leitura recusa versões que não conhece.
+ */
+final class PedidoRequestBinario {
+
+    static final byte VERSAO = 1;
+
+    private static final int CAMPO_ID = 1;
+    private static final int CAMPO_CLIENTE_ID = 1 << 1;
+    private static final int CAMPO_ITENS = 1 << 2;
+    private static final int CAMPO_STATUS = 1 << 3;
+    private static final int CAMPO_DATA_CRIACAO = 1 << 4;
+    private static final int CAMPO_DADOS_PAGAMENTO = 1 << 5;
+
+    private PedidoRequestBinario() {
+    }
+
+    static byte[] escrever(PedidoRequestDTO pedido) {
+        Escrita escrita = new Escrita(64 + (pedido.getItens() != null ? pedido.getItens().size() * 24 : 0));
+        escrita.byteUnico(VERSAO);
+        escrita.byteUnico(camposPresentes(pedido));
+        if (pedido.getId() != null) {
+            escrita.varlong(zigzag(pedido.getId()));
+        }
+        if (pedido.getClienteId() != null) {
+            escrita.varlong(zigzag(pedido.getClienteId()));
+        }
+        if (pedido.getItens() != null) {
+            escrita.varlong(pedido.getItens().size());
+            for (ItemPedidoRequestDTO item : pedido.getItens()) {
+                escrita.texto(item.getProdutoId());
+                escrita.inteiroOpcional(item.getQuantidade());
+            }
+        }
+        if (pedido.getStatus() != null) {
+            escrita.texto(pedido.getStatus());
+        }
+        if (pedido.getDataCriacao() != null) {
+            escrita.varlong(zigzag(pedido.getDataCriacao().toEpochSecond(ZoneOffset.UTC)));
+            escrita.varlong(pedido.getDataCriacao().getNano());
+        }
+        if (pedido.getDadosPagamento() != null) {
+            escrita.texto(pedido.getDadosPagamento().getMetodoPagamento());
+            escrita.texto(pedido.getDadosPagamento().getNumeroCartao());
+        }
+        return escrita.bytes();
+    }
+
+    /**
+     * Lê direto do buffer do registro, sem copiar o payload: só os textos viram objetos novos
+     */
+    static PedidoRequestDTO ler(ByteBuffer buffer) {
+        try {
+            byte versao = buffer.get();
+            if (versao != VERSAO) {
+                throw new SerializationException("Versão do formato binário de pedido não suportada: " + versao);
+            }
+            int campos = buffer.get();
+            PedidoRequestDTO pedido = new PedidoRequestDTO();
+            if ((campos & CAMPO_ID) != 0) {
+                pedido.setId(desfazerZigzag(lerVarlong(buffer)));
+            }
+            if ((campos & CAMPO_CLIENTE_ID) != 0) {
+                pedido.setClienteId(desfazerZigzag(lerVarlong(buffer)));
+            }
+            if ((campos & CAMPO_ITENS) != 0) {
+                int quantidadeItens = (int) lerVarlong(buffer);
+                List<ItemPedidoRequestDTO> itens = new ArrayList<>(quantidadeItens);
+                for (int i = 0; i < quantidadeItens; i++) {
+                    itens.add(new ItemPedidoRequestDTO(lerTexto(buffer), lerInteiroOpcional(buffer)));
+                }
+                pedido.setItens(itens);
+            }
+            if ((campos & CAMPO_STATUS) != 0) {
+                pedido.setStatus(lerTexto(buffer));
+            }
+            if ((campos & CAMPO_DATA_CRIACAO) != 0) {
+                long segundos = desfazerZigzag(lerVarlong(buffer));
+                int nanos = (int) lerVarlong(buffer);
+                pedido.setDataCriacao(LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC));
+            }
+            if ((campos & CAMPO_DADOS_PAGAMENTO) != 0) {
+                pedido.setDadosPagamento(new DadosPagamentoRequestDTO(lerTexto(buffer), lerTexto(buffer)));
+            }
+            return pedido;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new SerializationException("Pedido em formato binário truncado ou inválido", e);
+        }
+    }
+
+    private static int camposPresentes(PedidoRequestDTO pedido) {
+        int campos = 0;
+        campos |= pedido.getId() != null ? CAMPO_ID : 0;
+        campos |= pedido.getClienteId() != null ? CAMPO_CLIENTE_ID : 0;
+        campos |= pedido.getItens() != null ? CAMPO_ITENS : 0;
+        campos |= pedido.getStatus() != null ? CAMPO_STATUS : 0;
+        campos |= pedido.getDataCriacao() != null ? CAMPO_DATA_CRIACAO : 0;
+        campos |= pedido.getDadosPagamento() != null ? CAMPO_DADOS_PAGAMENTO : 0;
+        return campos;
+    }
+
+    private static String lerTexto(ByteBuffer buffer) {
+        int tamanho = (int) lerVarlong(buffer) - 1;
+        if (tamanho < 0) {
+            return null;
+        }
+        if (tamanho > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String texto;
+        if (buffer.hasArray()) {
+            texto = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), tamanho, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[tamanho];
+            buffer.get(buffer.position(), bytes);
+            texto = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + tamanho);
+        return texto;
+    }
+
+    private static Integer lerInteiroOpcional(ByteBuffer buffer) {
+        long valor = lerVarlong(buffer);
+        return valor == 0 ? null : Math.toIntExact(desfazerZigzag(valor - 1));
+    }
+
+    private static long lerVarlong(ByteBuffer buffer) {
+        long valor = 0;
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+            byte b = buffer.get();
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IllegalArgumentException("Varint com mais de 10 bytes");
+    }
+
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    private static long desfazerZigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    /**
+     * Buffer de escrita que cresce sob demanda, sem ByteArrayOutputStream (sincronizado) nem streams intermediários
+     */
+    private static final class Escrita {
+
+        private byte[] bytes;
+        private int posicao;
+
+        Escrita(int capacidadeInicial) {
+            this.bytes = new byte[capacidadeInicial];
+        }
+
+        void byteUnico(int valor) {
+            garantir(1);
+            bytes[posicao++] = (byte) valor;
+        }
+
+        void varlong(long valor) {
+            garantir(10);
+            while ((valor & ~0x7FL) != 0) {
+                bytes[posicao++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            bytes[posicao++] = (byte) valor;
+        }
+
+        void inteiroOpcional(Integer valor) {
+            varlong(valor == null ? 0 : zigzag(valor) + 1);
+        }
+
+        void texto(String texto) {
+            if (texto == null) {
+                varlong(0);
+                return;
+            }
+            byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+            varlong(utf8.length + 1L);
+            garantir(utf8.length);
+            System.arraycopy(utf8, 0, bytes, posicao, utf8.length);
+            posicao += utf8.length;
+        }
+
+        byte[] bytes() {
+            return posicao == bytes.length ? bytes : Arrays.copyOf(bytes, posicao);
+        }
+
+        private void garantir(int adicional) {
+            if (posicao + adicional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, posicao + adicional));
+            }
+        }
+    }
+}
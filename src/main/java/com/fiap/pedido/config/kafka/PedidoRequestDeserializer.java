@@ -0,0 +1,66 @@
+package com.fiap.pedido.config.kafka;
+
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.enuns.FormatoMensagem;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lê o pedido no formato indicado pelo header pedido-formato: BINARIO é decodificado direto do buffer do registro;
+ * JSON, ou mensagem sem o header (produtores antigos), vai para o JsonDeserializer
+ */
+public class PedidoRequestDeserializer implements Deserializer<PedidoRequestDTO> {
+
+    private static final byte[] BINARIO = FormatoMensagem.BINARIO.name().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] JSON = FormatoMensagem.JSON.name().getBytes(StandardCharsets.UTF_8);
+
+    private final JsonDeserializer<PedidoRequestDTO> json = new JsonDeserializer<>(PedidoRequestDTO.class, false);
+
+    @Override
+    public PedidoRequestDTO deserialize(String topic, byte[] data) {
+        return json.deserialize(topic, data);
+    }
+
+    @Override
+    public PedidoRequestDTO deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return isBinario(headers) ? PedidoRequestBinario.ler(ByteBuffer.wrap(data)) : json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public PedidoRequestDTO deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        if (isBinario(headers)) {
+            return PedidoRequestBinario.ler(data);
+        }
+        return json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+
+    private static boolean isBinario(Headers headers) {
+        Header formato = headers != null ? headers.lastHeader(PedidoRequestSerializer.HEADER_FORMATO) : null;
+        if (formato == null || Arrays.equals(formato.value(), JSON)) {
+            return false;
+        }
+        if (Arrays.equals(formato.value(), BINARIO)) {
+            return true;
+        }
+        throw new SerializationException("Formato de pedido desconhecido: "
+                + new String(formato.value(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,34 @@
+package com.fiap.pedido.config.kafka;
+
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ErrorHandlingDeserializer que repassa o buffer do registro ao PedidoRequestDeserializer. O original só implementa
+ * a variante com byte[], e a conversão padrão copiaria todo payload; aqui a cópia só acontece quando a leitura falha,
+ * para registrar a falha pelo caminho normal (header de exceção e envio à DLT).
+ */
+public class PedidoRequestErrorHandlingDeserializer extends ErrorHandlingDeserializer<PedidoRequestDTO> {
+
+    private final PedidoRequestDeserializer pedidos;
+
+    public PedidoRequestErrorHandlingDeserializer(PedidoRequestDeserializer pedidos) {
+        super(pedidos);
+        this.pedidos = pedidos;
+    }
+
+    @Override
+    public PedidoRequestDTO deserialize(String topic, Headers headers, ByteBuffer data) {
+        headers.remove(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER);
+        try {
+            return pedidos.deserialize(topic, headers, data != null ? data.duplicate() : null);
+        } catch (Exception e) {
+            return deserialize(topic, headers, Utils.toNullableArray(data));
+        }
+    }
+}
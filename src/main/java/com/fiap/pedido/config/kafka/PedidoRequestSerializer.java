@@ -0,0 +1,47 @@
+package com.fiap.pedido.config.kafka;
+
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.enuns.FormatoMensagem;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializa o pedido no formato configurado e grava o formato no header pedido-formato, substituindo o header
+ * que o registro já trouxer (um reenvio à retentativa pode trocar de formato)
+ */
+public class PedidoRequestSerializer implements Serializer<PedidoRequestDTO> {
+
+    public static final String HEADER_FORMATO = "pedido-formato";
+
+    private final FormatoMensagem formato;
+    private final byte[] valorHeader;
+    private final JsonSerializer<PedidoRequestDTO> json = new JsonSerializer<PedidoRequestDTO>().noTypeInfo();
+
+    public PedidoRequestSerializer(FormatoMensagem formato) {
+        this.formato = formato;
+        this.valorHeader = formato.name().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] serialize(String topic, PedidoRequestDTO pedido) {
+        if (pedido == null) {
+            return null;
+        }
+        return formato == FormatoMensagem.BINARIO ? PedidoRequestBinario.escrever(pedido) : json.serialize(topic, pedido);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, PedidoRequestDTO pedido) {
+        headers.remove(HEADER_FORMATO);
+        headers.add(HEADER_FORMATO, valorHeader);
+        return serialize(topic, pedido);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
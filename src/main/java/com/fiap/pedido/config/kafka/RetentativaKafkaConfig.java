@@ -0,0 +1,76 @@
+package com.fiap.pedido.config.kafka;
+
+import com.fiap.pedido.message.FalhaProcessamentoPedidoException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationSupport;
+import org.springframework.kafka.retrytopic.RetryTopicSchedulerWrapper;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.Arrays;
+
+/**
+ * Infraestrutura dos tópicos de retentativa (@RetryableTopic): cada reenvio leva nos headers
+ * o progresso do pedido na tentativa que falhou
+ */
+@Configuration
+public class RetentativaKafkaConfig extends RetryTopicConfigurationSupport {
+
+    /**
+     * Agendador que retoma as partições pausadas dos tópicos de retentativa quando o atraso termina
+     */
+    @Bean
+    public RetryTopicSchedulerWrapper retentativaScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("pedido-retentativa-");
+        scheduler.initialize();
+        return new RetryTopicSchedulerWrapper(scheduler);
+    }
+
+    /**
+     * Os containers das retentativas e da DLT nascem do @KafkaListener do modo unitário e herdam o autoStartup dele.
+     * Os modos LOTE e PARALELO também reenviam falhas a novo-pedido-retry-0, então neles eles sobem junto com o contexto.
+     */
+    @Bean
+    public ApplicationListener<ContextRefreshedEvent> retentativasForaDoModoUnitario(
+            @Value("${pedido.kafka.modo-consumo:UNITARIO}") String modoConsumo, KafkaListenerEndpointRegistry registry) {
+        return evento -> {
+            if ("UNITARIO".equalsIgnoreCase(modoConsumo)) {
+                return;
+            }
+            for (MessageListenerContainer container : registry.getListenerContainers()) {
+                if (!container.isRunning() && isRetentativaOuDlt(container)) {
+                    container.start();
+                }
+            }
+        };
+    }
+
+    private static boolean isRetentativaOuDlt(MessageListenerContainer container) {
+        String[] topicos = container.getContainerProperties().getTopics();
+        return topicos != null && Arrays.stream(topicos)
+                .anyMatch(topico -> topico.startsWith("novo-pedido-retry-") || topico.equals("novo-pedido-dlt"));
+    }
+
+    @Override
+    protected void configureCustomizers(CustomizersConfigurer customizersConfigurer) {
+        customizersConfigurer.customizeDeadLetterPublishingRecoverer(recoverer ->
+                recoverer.addHeadersFunction(RetentativaKafkaConfig::headersDeProgresso));
+    }
+
+    static Headers headersDeProgresso(ConsumerRecord<?, ?> registro, Exception erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof FalhaProcessamentoPedidoException falha) {
+                return falha.getProgresso().paraHeaders();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.fiap.pedido.controller;
+
+import com.fiap.pedido.dto.response.PedidoPaginaResponseDTO;
+import com.fiap.pedido.usecase.service.PedidoUseCase;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/clientes")
+@RequiredArgsConstructor
+public class ClienteController {
+
+    private final PedidoUseCase pedidoUseCase;
+
+    @GetMapping("/{id}/pedidos")
+    public ResponseEntity<PedidoPaginaResponseDTO> listarPedidosDoCliente(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho) {
+        log.info("Requisição para listar pedidos do cliente id: {} cursor: {} tamanho: {}", id, cursor, tamanho);
+        try {
+            return ResponseEntity.ok(pedidoUseCase.listarPedidosDoCliente(id, cursor, tamanho));
+        } catch (IllegalArgumentException e) {
+            log.warn("Parâmetros inválidos ao listar pedidos do cliente {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Erro ao listar pedidos do cliente id: {}", id, e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+}
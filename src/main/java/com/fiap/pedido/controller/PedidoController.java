@@ -1,14 +1,28 @@
 package com.fiap.pedido.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fiap.pedido.domain.PedidoFiltro;
 import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.dto.response.PedidoEstatisticasResponseDTO;
+import com.fiap.pedido.dto.response.PedidoPaginaResponseDTO;
 import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.dto.response.TransicaoStatusResponseDTO;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.usecase.service.PedidoNaoEncontradoException;
 import com.fiap.pedido.usecase.service.PedidoUseCase;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 
 @Slf4j
 @RestController
@@ -17,7 +31,10 @@ import java.util.List;
 public class PedidoController {
 
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final PedidoUseCase pedidoUseCase;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<PedidoResponseDTO> criarPedido(@RequestBody PedidoRequestDTO pedidoRequest) {
@@ -45,23 +62,110 @@ public class PedidoController {
     }
 
     @GetMapping
-    public ResponseEntity<List<PedidoResponseDTO>> listarPedidos() {
-        log.info("Requisição para listar pedidos");
+    public ResponseEntity<PedidoPaginaResponseDTO> listarPedidos(
+            @RequestParam(required = false) StatusPedido status,
+            @RequestParam(required = false) Long clienteId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataFim,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho) {
+        log.info("Requisição para listar pedidos - status: {} clienteId: {} cursor: {} tamanho: {}", status, clienteId, cursor, tamanho);
         try {
-            List<PedidoResponseDTO> pedidos = pedidoUseCase.listarPedidos();
-            return ResponseEntity.ok(pedidos);
+            PedidoFiltro filtro = PedidoFiltro.builder()
+                    .status(status)
+                    .clienteId(clienteId)
+                    .dataInicio(dataInicio)
+                    .dataFim(dataFim)
+                    .build();
+            PedidoPaginaResponseDTO pagina = pedidoUseCase.listarPedidos(filtro, cursor, tamanho);
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            log.warn("Parâmetros inválidos ao listar pedidos: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Erro ao listar pedidos", e);
             return ResponseEntity.status(500).build();
         }
     }
 
+    /**
+     * Quantidade e receita por status e por hora, lidas dos contadores em memória (não consulta o banco)
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<PedidoEstatisticasResponseDTO> consultarEstatisticas() {
+        log.info("Requisição para consultar estatísticas de pedidos");
+        try {
+            return ResponseEntity.ok(pedidoUseCase.consultarEstatisticas());
+        } catch (Exception e) {
+            log.error("Erro ao consultar estatísticas de pedidos", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * Pedidos ainda ABERTOS criados antes da data informada (mais recentes primeiro, paginado por cursor)
+     */
+    @GetMapping("/abertos")
+    public ResponseEntity<PedidoPaginaResponseDTO> listarPedidosAbertosAntesDe(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime anterioresA,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho) {
+        log.info("Requisição para listar pedidos abertos antes de: {} cursor: {} tamanho: {}", anterioresA, cursor, tamanho);
+        try {
+            return ResponseEntity.ok(pedidoUseCase.listarPedidosAbertosAntesDe(anterioresA, cursor, tamanho));
+        } catch (IllegalArgumentException e) {
+            log.warn("Parâmetros inválidos ao listar pedidos abertos: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Erro ao listar pedidos abertos", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * Exporta todos os pedidos em NDJSON (um pedido por linha), escrevendo cada linha assim que é lida do banco
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportarPedidos() {
+        log.info("Requisição para exportar pedidos");
+        StreamingResponseBody corpo = saida -> {
+            long total = pedidoUseCase.exportarPedidos(pedido -> escreverLinha(saida, pedido));
+            log.info("Exportação finalizada - {} pedidos enviados", total);
+        };
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(corpo);
+    }
+
+    private void escreverLinha(OutputStream saida, PedidoResponseDTO pedido) {
+        try {
+            // writeValue(OutputStream) fecharia a resposta, por isso serializa a linha antes
+            saida.write(objectMapper.writeValueAsBytes(pedido));
+            saida.write('\n');
+            saida.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao escrever pedido na exportação", e);
+        }
+    }
+
     @PatchMapping("/{id}/status")
-    public ResponseEntity<PedidoResponseDTO> atualizarStatus(@PathVariable Long id, @RequestParam String status) {
-        log.info("Requisição para atualizar status do pedido id: {} para status: {}", id, status);
+    public ResponseEntity<TransicaoStatusResponseDTO> atualizarStatus(@PathVariable Long id,
+                                                                      @RequestParam String status,
+                                                                      @RequestParam(required = false) String statusEsperado) {
+        log.info("Requisição para atualizar status do pedido id: {} para status: {} (esperado: {})", id, status, statusEsperado);
         try {
-            PedidoResponseDTO response = pedidoUseCase.atualizarStatus(id, status);
+            TransicaoStatusResponseDTO response = pedidoUseCase.atualizarStatus(id, status, statusEsperado);
+            if (!response.isTransicionado()) {
+                log.warn("Status do pedido id: {} não foi alterado, status atual: {}", id, response.getStatusAtual());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
             return ResponseEntity.ok(response);
+        } catch (PedidoNaoEncontradoException e) {
+            log.warn("Pedido id: {} não encontrado para atualizar status", id);
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Status inválido para o pedido id: {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Erro ao atualizar status do pedido id: {}", id, e);
             return ResponseEntity.status(500).build();
@@ -17,4 +17,5 @@ public class Pedido {
     private List<ItemPedido> itens;
     private StatusPedido status;
     private LocalDateTime dataCriacao;
+    private String chaveIdempotencia;
 }
@@ -0,0 +1,53 @@
+package com.fiap.pedido.domain;
+
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import lombok.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Posição da última linha entregue em uma página de pedidos (keyset em dataCriacao + id).
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class PedidoCursor {
+
+    private static final String SEPARADOR = "|";
+
+    private final LocalDateTime dataCriacao;
+    private final Long id;
+
+    public static PedidoCursor de(Pedido pedido) {
+        return new PedidoCursor(pedido.getDataCriacao(), pedido.getId());
+    }
+
+    public static PedidoCursor de(PedidoResponseDTO pedido) {
+        return new PedidoCursor(pedido.getDataCriacao(), pedido.getId());
+    }
+
+    /**
+     * Converte o cursor em um token opaco para ser devolvido ao cliente
+     */
+    public String codificar() {
+        String valor = dataCriacao + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reconstrói o cursor a partir do token recebido do cliente
+     */
+    public static PedidoCursor decodificar(String token) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int posicao = valor.lastIndexOf(SEPARADOR);
+            return new PedidoCursor(
+                    LocalDateTime.parse(valor.substring(0, posicao)),
+                    Long.valueOf(valor.substring(posicao + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + token, e);
+        }
+    }
+}
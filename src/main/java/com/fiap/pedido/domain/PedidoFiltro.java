@@ -0,0 +1,19 @@
+package com.fiap.pedido.domain;
+
+import com.fiap.pedido.enuns.StatusPedido;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoFiltro {
+
+    private StatusPedido status;
+    private Long clienteId;
+    private LocalDateTime dataInicio;
+    private LocalDateTime dataFim;
+}
@@ -0,0 +1,17 @@
+package com.fiap.pedido.domain;
+
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoPagina {
+
+    private List<PedidoResponseDTO> pedidos;
+    private PedidoCursor proximoCursor;
+}
@@ -0,0 +1,25 @@
+package com.fiap.pedido.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fiap.pedido.enuns.StatusPedido;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Evento publicado a cada mudança de status de um pedido. Na criação o status anterior é nulo;
+ * em transições posteriores o cliente não é informado.
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PedidoStatusAlterado {
+
+    private Long pedidoId;
+    private Long clienteId;
+    private StatusPedido statusAnterior;
+    private StatusPedido statusAtual;
+    private Instant ocorridoEm;
+}
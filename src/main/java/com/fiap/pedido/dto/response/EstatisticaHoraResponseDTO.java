@@ -0,0 +1,17 @@
+package com.fiap.pedido.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstatisticaHoraResponseDTO {
+
+    private LocalDateTime hora;
+    private Map<String, EstatisticaStatusResponseDTO> porStatus;
+}
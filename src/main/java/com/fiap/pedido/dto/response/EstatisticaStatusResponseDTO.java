@@ -0,0 +1,16 @@
+package com.fiap.pedido.dto.response;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstatisticaStatusResponseDTO {
+
+    private long quantidade;
+    private BigDecimal receita;
+}
@@ -0,0 +1,20 @@
+package com.fiap.pedido.dto.response;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoEstatisticasResponseDTO {
+
+    private long totalPedidos;
+    private BigDecimal receitaTotal;
+    private Map<String, EstatisticaStatusResponseDTO> porStatus;
+    private List<EstatisticaHoraResponseDTO> porHora;
+}
@@ -0,0 +1,17 @@
+package com.fiap.pedido.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoPaginaResponseDTO {
+    private List<PedidoResponseDTO> pedidos;
+    private String proximoCursor;
+    private boolean temMais;
+    private int tamanho;
+}
@@ -0,0 +1,13 @@
+package com.fiap.pedido.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaEstoqueResponseDTO {
+
+    private String reservaId;
+}
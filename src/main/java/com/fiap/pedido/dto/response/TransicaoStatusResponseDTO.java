@@ -0,0 +1,15 @@
+package com.fiap.pedido.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransicaoStatusResponseDTO {
+    private Long id;
+    private String statusEsperado;
+    private String statusAtual;
+    private boolean transicionado;
+}
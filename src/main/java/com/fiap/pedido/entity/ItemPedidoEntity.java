@@ -4,7 +4,7 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "itens_pedido")
+@Table(name = "itens_pedido", indexes = @Index(name = "idx_itens_pedido_pedido_id", columnList = "pedido_id"))
 @Getter
 @Setter
 @Builder
@@ -13,7 +13,8 @@ import lombok.*;
 public class ItemPedidoEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "itens_pedido_seq")
+    @SequenceGenerator(name = "itens_pedido_seq", sequenceName = "itens_pedido_seq", allocationSize = 50)
     private Long id;
 
     private String produtoId;
@@ -8,7 +8,17 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "pedidos")
+@Table(name = "pedidos", indexes = {
+        // Pedidos do cliente em ordem de criação (também atende buscas só por cliente_id)
+        @Index(name = "idx_pedidos_cliente_data", columnList = "cliente_id, data_criacao"),
+        // Pedidos por status e idade, ex.: ABERTO criados antes de T (também atende buscas só por status)
+        @Index(name = "idx_pedidos_status_data", columnList = "status, data_criacao"),
+        // Listagem sem filtro, ordenada por data de criação
+        @Index(name = "idx_pedidos_data_criacao", columnList = "data_criacao")
+}, uniqueConstraints = {
+        // Última barreira contra pedido duplicado por reentrega do Kafka (nulo para pedidos criados via API)
+        @UniqueConstraint(name = "uk_pedidos_chave_idempotencia", columnNames = "chave_idempotencia")
+})
 @Getter
 @Setter
 @Builder
@@ -17,7 +27,8 @@ import java.util.List;
 public class PedidoEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedidos_seq")
+    @SequenceGenerator(name = "pedidos_seq", sequenceName = "pedidos_seq", allocationSize = 50)
     private Long id;
 
     private Long clienteId;
@@ -29,4 +40,7 @@ public class PedidoEntity {
     private StatusPedido status;
 
     private LocalDateTime dataCriacao;
+
+    @Column(name = "chave_idempotencia", length = 100)
+    private String chaveIdempotencia;
 }
\ No newline at end of file
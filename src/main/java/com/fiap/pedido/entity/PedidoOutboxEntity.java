@@ -0,0 +1,47 @@
+package com.fiap.pedido.entity;
+
+import com.fiap.pedido.enuns.StatusPedido;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Evento de mudança de status ainda não publicado no Kafka. Gravado na mesma transação do pedido
+ * e excluído pelo relay assim que o broker confirma o envio.
+ */
+@Entity
+@Table(name = "pedido_outbox")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoOutboxEntity {
+
+    // Ordem de gravação: o relay drena pela chave primária, sem índice extra
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_outbox_seq")
+    @SequenceGenerator(name = "pedido_outbox_seq", sequenceName = "pedido_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long pedidoId;
+
+    private Long clienteId;
+
+    @Enumerated(EnumType.STRING)
+    private StatusPedido statusAnterior;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatusPedido statusAtual;
+
+    @Column(nullable = false)
+    private Instant ocorridoEm;
+
+    // Reserva do relay que está publicando o evento; vencida, outra instância pode assumir
+    private String reservadoPor;
+
+    private Instant reservadoAte;
+}
@@ -0,0 +1,10 @@
+package com.fiap.pedido.enuns;
+
+/**
+ * Origem das consultas de produto feitas pelo ProdutoCache: o mock local ou o produto-service (REST).
+ */
+public enum CatalogoProdutos {
+
+    MOCK,
+    SERVICO
+}
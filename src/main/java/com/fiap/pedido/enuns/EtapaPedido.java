@@ -0,0 +1,15 @@
+package com.fiap.pedido.enuns;
+
+/**
+ * Etapas do processamento de um pedido recebido pelo Kafka, na ordem em que são executadas
+ */
+public enum EtapaPedido {
+
+    CLIENTE,
+    RESERVA_ESTOQUE,
+    PAGAMENTO,
+    BAIXA_ESTOQUE,
+    ESTORNO_PAGAMENTO,
+    ESTORNO_ESTOQUE,
+    GRAVACAO
+}
@@ -0,0 +1,11 @@
+package com.fiap.pedido.enuns;
+
+/**
+ * Formato do payload das mensagens de pedido no Kafka, informado no header pedido-formato.
+ * Mensagens sem o header são JSON.
+ */
+public enum FormatoMensagem {
+
+    JSON,
+    BINARIO
+}
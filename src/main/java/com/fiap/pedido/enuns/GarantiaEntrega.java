@@ -0,0 +1,12 @@
+package com.fiap.pedido.enuns;
+
+/**
+ * Garantia do consumo do tópico novo-pedido em relação aos resultados publicados (pedido-processado).
+ * PELO_MENOS_UMA_VEZ confirma o offset depois de publicar, podendo repetir resultados após uma queda;
+ * EXATAMENTE_UMA_VEZ publica os resultados e confirma o offset na mesma transação Kafka.
+ */
+public enum GarantiaEntrega {
+
+    PELO_MENOS_UMA_VEZ,
+    EXATAMENTE_UMA_VEZ
+}
@@ -0,0 +1,180 @@
+package com.fiap.pedido.estatistica;
+
+import com.fiap.pedido.dto.response.EstatisticaHoraResponseDTO;
+import com.fiap.pedido.dto.response.EstatisticaStatusResponseDTO;
+import com.fiap.pedido.dto.response.PedidoEstatisticasResponseDTO;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.repository.PedidoEstatisticaLinha;
+import com.fiap.pedido.repository.PedidoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores em memória de pedidos e receita por status e por hora de criação.
+ * Atualizados a cada gravação/transição e semeados na subida por uma única consulta agregada,
+ * de forma que a leitura nunca consulta a tabela de pedidos.
+ */
+@Slf4j
+@Component
+public class PedidoEstatisticas implements SmartInitializingSingleton {
+
+    static final int HORAS_RETIDAS = 168;
+
+    private final PedidoRepository pedidoRepository;
+    private final Clock clock;
+
+    private final Map<StatusPedido, Contador> porStatus = criarContadores();
+    private final ConcurrentMap<LocalDateTime, Map<StatusPedido, Contador>> porHora = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PedidoEstatisticas(PedidoRepository pedidoRepository) {
+        this(pedidoRepository, Clock.systemDefaultZone());
+    }
+
+    PedidoEstatisticas(PedidoRepository pedidoRepository, Clock clock) {
+        this.pedidoRepository = pedidoRepository;
+        this.clock = clock;
+    }
+
+    /**
+     * Executado antes de os listeners Kafka e o servidor web iniciarem, evitando contar pedidos duas vezes
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        semear();
+    }
+
+    void semear() {
+        try {
+            List<PedidoEstatisticaLinha> linhas = pedidoRepository.agregarPorStatusEHora();
+            for (PedidoEstatisticaLinha linha : linhas) {
+                if (linha.getStatus() == null || linha.getData() == null) {
+                    continue;
+                }
+                adicionar(linha.getStatus(), linha.getData().atTime(linha.getHora(), 0),
+                        linha.getQuantidade(), centavos(linha.getReceita()));
+            }
+            log.info("📊 Estatísticas de pedidos semeadas com {} agregados", linhas.size());
+        } catch (Exception e) {
+            log.error("❌ Erro ao semear estatísticas de pedidos", e);
+        }
+    }
+
+    public void registrarCriacao(StatusPedido status, LocalDateTime dataCriacao, double valor) {
+        if (status == null) {
+            return;
+        }
+        adicionar(status, dataCriacao, 1, centavos(valor));
+    }
+
+    public void registrarTransicao(StatusPedido statusAnterior, StatusPedido novoStatus, LocalDateTime dataCriacao, double valor) {
+        if (statusAnterior == novoStatus) {
+            return;
+        }
+        long receita = centavos(valor);
+        adicionar(statusAnterior, dataCriacao, -1, -receita);
+        adicionar(novoStatus, dataCriacao, 1, receita);
+    }
+
+    public PedidoEstatisticasResponseDTO resumo() {
+        removerHorasExpiradas();
+
+        long totalPedidos = 0;
+        long receitaTotal = 0;
+        for (Contador contador : porStatus.values()) {
+            totalPedidos += contador.quantidade.sum();
+            receitaTotal += contador.receitaCentavos.sum();
+        }
+
+        List<EstatisticaHoraResponseDTO> horas = new ArrayList<>(porHora.size());
+        porHora.forEach((hora, contadores) -> horas.add(EstatisticaHoraResponseDTO.builder()
+                .hora(hora)
+                .porStatus(paraResposta(contadores))
+                .build()));
+        horas.sort(Comparator.comparing(EstatisticaHoraResponseDTO::getHora).reversed());
+
+        return PedidoEstatisticasResponseDTO.builder()
+                .totalPedidos(totalPedidos)
+                .receitaTotal(reais(receitaTotal))
+                .porStatus(paraResposta(porStatus))
+                .porHora(horas)
+                .build();
+    }
+
+    private void adicionar(StatusPedido status, LocalDateTime dataCriacao, long quantidade, long receitaCentavos) {
+        porStatus.get(status).adicionar(quantidade, receitaCentavos);
+
+        if (dataCriacao == null) {
+            return;
+        }
+        LocalDateTime hora = dataCriacao.truncatedTo(ChronoUnit.HOURS);
+        if (hora.isBefore(limiteRetencao())) {
+            return;
+        }
+        porHora.computeIfAbsent(hora, h -> criarContadores()).get(status).adicionar(quantidade, receitaCentavos);
+    }
+
+    private void removerHorasExpiradas() {
+        LocalDateTime limite = limiteRetencao();
+        porHora.keySet().removeIf(hora -> hora.isBefore(limite));
+    }
+
+    private LocalDateTime limiteRetencao() {
+        return LocalDateTime.now(clock).truncatedTo(ChronoUnit.HOURS).minusHours(HORAS_RETIDAS - 1L);
+    }
+
+    private static Map<String, EstatisticaStatusResponseDTO> paraResposta(Map<StatusPedido, Contador> contadores) {
+        Map<String, EstatisticaStatusResponseDTO> resposta = new LinkedHashMap<>();
+        contadores.forEach((status, contador) -> resposta.put(status.name(), EstatisticaStatusResponseDTO.builder()
+                .quantidade(contador.quantidade.sum())
+                .receita(reais(contador.receitaCentavos.sum()))
+                .build()));
+        return resposta;
+    }
+
+    private static Map<StatusPedido, Contador> criarContadores() {
+        Map<StatusPedido, Contador> contadores = new EnumMap<>(StatusPedido.class);
+        for (StatusPedido status : StatusPedido.values()) {
+            contadores.put(status, new Contador());
+        }
+        return contadores;
+    }
+
+    private static long centavos(Double valor) {
+        return valor == null ? 0 : Math.round(valor * 100);
+    }
+
+    private static BigDecimal reais(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    /**
+     * LongAdder espalha as atualizações concorrentes em células por thread (striping), sem disputa por um único CAS
+     */
+    private static final class Contador {
+
+        private final LongAdder quantidade = new LongAdder();
+        private final LongAdder receitaCentavos = new LongAdder();
+
+        void adicionar(long quantidade, long receitaCentavos) {
+            this.quantidade.add(quantidade);
+            this.receitaCentavos.add(receitaCentavos);
+        }
+    }
+}
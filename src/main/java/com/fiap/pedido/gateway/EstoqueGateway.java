@@ -1,5 +1,22 @@
 package com.fiap.pedido.gateway;
 
+import java.util.Map;
+import java.util.Optional;
+
 public interface EstoqueGateway {
     boolean baixarEstoque(String produtoId, int quantidade);
-}
\ No newline at end of file
+
+    /**
+     * Reserva o pedido inteiro (SKU -> quantidade) em uma chamada: ou todos os itens, ou nenhum. Devolve o ID da
+     * reserva, ou vazio quando o estoque recusa o lote (nada foi reservado).
+     */
+    Optional<String> reservarEstoque(Map<String, Integer> itens);
+
+    /**
+     * Operações sobre uma reserva, identificada pelo ID devolvido na reserva: baixa (a quantidade sai do estoque)
+     * e liberação (a reserva ainda não baixada volta ao disponível). Devolvem false quando o estoque recusa.
+     */
+    boolean baixarReserva(String reservaId);
+
+    boolean liberarReserva(String reservaId);
+}
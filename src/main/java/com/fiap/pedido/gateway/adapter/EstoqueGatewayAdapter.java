@@ -1,10 +1,17 @@
 package com.fiap.pedido.gateway.adapter;
 
 import com.fiap.pedido.adapter.EstoqueServiceClient;
+import com.fiap.pedido.dto.response.ReservaEstoqueResponseDTO;
 import com.fiap.pedido.gateway.EstoqueGateway;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class EstoqueGatewayAdapter implements EstoqueGateway {
@@ -20,4 +27,42 @@ public class EstoqueGatewayAdapter implements EstoqueGateway {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Resposta sem ID conta como recusa: sem ele não há como baixar nem liberar a reserva depois
+     */
+    @Override
+    public Optional<String> reservarEstoque(Map<String, Integer> itens) {
+        try {
+            ReservaEstoqueResponseDTO reserva = estoqueServiceClient.reservarEstoque(itens);
+            if (reserva == null || reserva.getReservaId() == null) {
+                log.warn("Estoque reservou lote de {} SKUs sem devolver o ID da reserva", itens.size());
+                return Optional.empty();
+            }
+            return Optional.of(reserva.getReservaId());
+        } catch (Exception e) {
+            log.warn("Estoque recusou reserva em lote de {} SKUs: {}", itens.size(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean baixarReserva(String reservaId) {
+        return enviar("baixa", reservaId, estoqueServiceClient::baixarReserva);
+    }
+
+    @Override
+    public boolean liberarReserva(String reservaId) {
+        return enviar("liberação", reservaId, estoqueServiceClient::liberarReserva);
+    }
+
+    private boolean enviar(String operacao, String reservaId, Consumer<String> chamada) {
+        try {
+            chamada.accept(reservaId);
+            return true;
+        } catch (Exception e) {
+            log.warn("Estoque recusou {} da reserva {}: {}", operacao, reservaId, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -16,6 +16,11 @@ import java.util.List;
 @Mapper(componentModel = "spring")
 public interface PedidoMapper {
 
+    /**
+     * Pedido novo: o ID vem da sequence no INSERT e a chave de idempotência é definida por quem grava, nunca pelo payload
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "chaveIdempotencia", ignore = true)
     Pedido toDomain(PedidoRequestDTO dto);
 
     PedidoResponseDTO toResponse(Pedido domain);
@@ -0,0 +1,250 @@
+package com.fiap.pedido.message;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Contrapressão do consumo do tópico novo-pedido. Acompanha os pedidos em andamento e a latência das etapas
+ * externas (cliente, estoque, pagamento) e, acima da marca alta, pausa as partições atribuídas aos listeners
+ * do tópico principal; o poll continua (sem estourar max.poll.interval.ms nem provocar rebalance), mas sem trazer
+ * registros novos. As partições são retomadas quando os dois sinais voltam para baixo da marca baixa.
+ * Retentativas e DLT ficam de fora: suas partições são pausadas e retomadas pelo atraso de cada tentativa.
+ */
+@Slf4j
+@Component
+public class ContrapressaoConsumo implements DisposableBean {
+
+    static final String METRICA_PAUSADO = "pedido.kafka.contrapressao.pausado";
+    static final String METRICA_EM_ANDAMENTO = "pedido.kafka.contrapressao.em.andamento";
+    static final String METRICA_LATENCIA = "pedido.kafka.contrapressao.latencia";
+    static final String METRICA_LIMITE = "pedido.kafka.contrapressao.limite";
+    static final String METRICA_PAUSAS = "pedido.kafka.contrapressao.pausas";
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final boolean habilitada;
+    private final int emAndamentoAlto;
+    private final int emAndamentoBaixo;
+    private final long latenciaAlta;
+    private final long latenciaBaixa;
+    private final long janelaLatencia;
+    private final LongSupplier relogio;
+    private final Counter pausas;
+    private final ScheduledExecutorService avaliador;
+
+    private final AtomicInteger emAndamento = new AtomicInteger();
+    private volatile boolean pausado;
+
+    // Latência média em duas janelas consecutivas: a atual e a anterior (amostras antigas saem sozinhas)
+    private long inicioJanela;
+    private long somaAtual;
+    private long amostrasAtual;
+    private long somaAnterior;
+    private long amostrasAnterior;
+
+    @Autowired
+    public ContrapressaoConsumo(KafkaListenerEndpointRegistry registry,
+                                @Value("${pedido.kafka.contrapressao.habilitada:true}") boolean habilitada,
+                                @Value("${pedido.kafka.contrapressao.em-andamento-alto:64}") int emAndamentoAlto,
+                                @Value("${pedido.kafka.contrapressao.em-andamento-baixo:16}") int emAndamentoBaixo,
+                                @Value("${pedido.kafka.contrapressao.latencia-alta:PT2S}") Duration latenciaAlta,
+                                @Value("${pedido.kafka.contrapressao.latencia-baixa:PT0.5S}") Duration latenciaBaixa,
+                                @Value("${pedido.kafka.contrapressao.janela-latencia:PT10S}") Duration janelaLatencia,
+                                @Value("${pedido.kafka.contrapressao.intervalo-avaliacao:PT1S}") Duration intervaloAvaliacao,
+                                @Value("${pedido.kafka.modo-consumo:UNITARIO}") String modoConsumo,
+                                @Value("${pedido.kafka.lote.tamanho-maximo:500}") int tamanhoLote,
+                                @Value("${pedido.kafka.paralelo.em-voo-maximo:256}") int emVooMaximo,
+                                MeterRegistry meterRegistry) {
+        this(registry, habilitada, emAndamentoAlto, emAndamentoBaixo, latenciaAlta, latenciaBaixa, janelaLatencia,
+                meterRegistry, System::nanoTime,
+                Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("pedido-contrapressao-")));
+        validarMarcas(modoConsumo, emAndamentoAlto, tamanhoLote, emVooMaximo);
+        // Sem registros chegando (partições pausadas) é a avaliação periódica que percebe a latência baixando
+        avaliador.scheduleWithFixedDelay(this::avaliar, intervaloAvaliacao.toMillis(), intervaloAvaliacao.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    ContrapressaoConsumo(KafkaListenerEndpointRegistry registry, boolean habilitada, int emAndamentoAlto,
+                         int emAndamentoBaixo, Duration latenciaAlta, Duration latenciaBaixa, Duration janelaLatencia,
+                         MeterRegistry meterRegistry, LongSupplier relogio, ScheduledExecutorService avaliador) {
+        if (emAndamentoBaixo >= emAndamentoAlto || latenciaBaixa.compareTo(latenciaAlta) >= 0) {
+            throw new IllegalArgumentException("Marcas baixas da contrapressão devem ser menores que as altas");
+        }
+        this.registry = registry;
+        this.habilitada = habilitada;
+        this.emAndamentoAlto = emAndamentoAlto;
+        this.emAndamentoBaixo = emAndamentoBaixo;
+        this.latenciaAlta = latenciaAlta.toNanos();
+        this.latenciaBaixa = latenciaBaixa.toNanos();
+        this.janelaLatencia = janelaLatencia.toNanos();
+        this.relogio = relogio;
+        this.avaliador = avaliador;
+        this.inicioJanela = relogio.getAsLong();
+
+        Gauge.builder(METRICA_PAUSADO, this, c -> c.pausado ? 1 : 0).register(meterRegistry);
+        Gauge.builder(METRICA_EM_ANDAMENTO, emAndamento, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder(METRICA_LATENCIA, this, c -> c.latenciaMedia() / 1_000_000.0).baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder(METRICA_LIMITE, () -> emAndamentoAlto).tag("limite", "em-andamento-alto").register(meterRegistry);
+        Gauge.builder(METRICA_LIMITE, () -> emAndamentoBaixo).tag("limite", "em-andamento-baixo").register(meterRegistry);
+        Gauge.builder(METRICA_LIMITE, latenciaAlta::toMillis).tag("limite", "latencia-alta").baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder(METRICA_LIMITE, latenciaBaixa::toMillis).tag("limite", "latencia-baixa").baseUnit("milliseconds").register(meterRegistry);
+        this.pausas = Counter.builder(METRICA_PAUSAS).register(meterRegistry);
+
+        log.info("🚦 Contrapressão do consumo - Habilitada: {} Em andamento: {}/{} Latência: {}/{}",
+                habilitada, emAndamentoBaixo, emAndamentoAlto, latenciaBaixa, latenciaAlta);
+    }
+
+    /**
+     * A unidade contada depende do modo: um registro no UNITARIO e no PARALELO, um poll inteiro (até
+     * pedido.kafka.lote.tamanho-maximo pedidos) no LOTE. A marca alta precisa ficar acima de uma unidade, senão
+     * cada registro ou lote pausaria o consumo sozinho, e no PARALELO dentro do limite de pedidos em voo, que
+     * segura o listener antes e faria a marca nunca ser atingida.
+     */
+    static void validarMarcas(String modoConsumo, int emAndamentoAlto, int tamanhoLote, int emVooMaximo) {
+        if (emAndamentoAlto <= 1) {
+            throw new IllegalArgumentException("Marca alta de pedidos em andamento (" + emAndamentoAlto + ") pausaria o consumo a cada "
+                    + ("LOTE".equalsIgnoreCase(modoConsumo) ? "lote de até " + tamanhoLote + " pedidos" : "registro"));
+        }
+        if ("PARALELO".equalsIgnoreCase(modoConsumo) && emAndamentoAlto > emVooMaximo) {
+            throw new IllegalArgumentException("Marca alta de pedidos em andamento (" + emAndamentoAlto
+                    + ") acima do limite de pedidos em voo do modo PARALELO (" + emVooMaximo + ") nunca seria atingida");
+        }
+    }
+
+    /**
+     * Registros recebidos do Kafka que começaram (ou entraram na fila de um worker) e ainda não terminaram;
+     * no modo LOTE cada poll conta como uma unidade
+     */
+    public void iniciar(int pedidos) {
+        if (emAndamento.addAndGet(pedidos) >= emAndamentoAlto && !pausado) {
+            avaliar();
+        }
+    }
+
+    public void concluir(int pedidos) {
+        if (emAndamento.addAndGet(-pedidos) <= emAndamentoBaixo && pausado) {
+            avaliar();
+        }
+    }
+
+    /**
+     * Duração de uma etapa externa do pedido
+     */
+    public synchronized void registrarLatencia(long nanos) {
+        girarJanela();
+        somaAtual += nanos;
+        amostrasAtual++;
+    }
+
+    public boolean isPausado() {
+        return pausado;
+    }
+
+    /**
+     * Pausa acima de qualquer marca alta e retoma só com os dois sinais abaixo das marcas baixas;
+     * entre as marcas o estado atual se mantém, evitando alternar a cada pedido
+     */
+    synchronized void avaliar() {
+        if (!habilitada) {
+            return;
+        }
+        int pedidos = emAndamento.get();
+        long latencia = latenciaMedia();
+        if (pedidos >= emAndamentoAlto || latencia >= latenciaAlta) {
+            if (!pausado) {
+                pausado = true;
+                pausas.increment();
+                log.warn("⏸️ Pausando consumo do novo-pedido - Em andamento: {} Latência média: {} ms",
+                        pedidos, TimeUnit.NANOSECONDS.toMillis(latencia));
+            }
+            // Reaplicado a cada avaliação para cobrir partições recebidas em um rebalance durante a pausa
+            pausarParticoes();
+        } else if (pausado && pedidos <= emAndamentoBaixo && latencia <= latenciaBaixa) {
+            pausado = false;
+            log.info("▶️ Retomando consumo do novo-pedido - Em andamento: {} Latência média: {} ms",
+                    pedidos, TimeUnit.NANOSECONDS.toMillis(latencia));
+            retomarParticoes();
+        }
+    }
+
+    synchronized long latenciaMedia() {
+        girarJanela();
+        long amostras = amostrasAtual + amostrasAnterior;
+        return amostras == 0 ? 0 : (somaAtual + somaAnterior) / amostras;
+    }
+
+    private void girarJanela() {
+        long agora = relogio.getAsLong();
+        long janelasPassadas = (agora - inicioJanela) / janelaLatencia;
+        if (janelasPassadas == 0) {
+            return;
+        }
+        if (janelasPassadas == 1) {
+            somaAnterior = somaAtual;
+            amostrasAnterior = amostrasAtual;
+        } else {
+            somaAnterior = 0;
+            amostrasAnterior = 0;
+        }
+        somaAtual = 0;
+        amostrasAtual = 0;
+        inicioJanela += janelasPassadas * janelaLatencia;
+    }
+
+    private void pausarParticoes() {
+        for (MessageListenerContainer container : containersNovoPedido()) {
+            for (TopicPartition particao : particoes(container)) {
+                if (!container.isPartitionPauseRequested(particao)) {
+                    container.pausePartition(particao);
+                }
+            }
+        }
+    }
+
+    private void retomarParticoes() {
+        for (MessageListenerContainer container : containersNovoPedido()) {
+            for (TopicPartition particao : particoes(container)) {
+                container.resumePartition(particao);
+            }
+        }
+    }
+
+    /**
+     * Só os containers do tópico novo-pedido (um por modo de consumo, buscados pelo ID do listener)
+     */
+    private List<MessageListenerContainer> containersNovoPedido() {
+        return PedidoConsumer.LISTENERS_NOVO_PEDIDO.stream()
+                .map(registry::getListenerContainer)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static Collection<TopicPartition> particoes(MessageListenerContainer container) {
+        Collection<TopicPartition> particoes = container.isRunning() ? container.getAssignedPartitions() : null;
+        return particoes != null ? particoes : List.of();
+    }
+
+    @Override
+    public void destroy() {
+        avaliador.shutdownNow();
+    }
+}
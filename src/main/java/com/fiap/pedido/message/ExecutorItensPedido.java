@@ -0,0 +1,238 @@
+package com.fiap.pedido.message;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Executa a chamada externa de cada item do pedido (a consulta do produto) em paralelo, com no máximo
+ * {@code paralelismo} chamadas do mesmo pedido em voo e um tempo limite único para a etapa inteira.
+ * Na primeira recusa ou falha os itens que ainda não começaram são cancelados; as chamadas em voo não são
+ * interrompidas (uma chamada cortada no meio pode ter sido feita do outro lado sem que se saiba) e a etapa
+ * espera por elas, para devolver exatamente o que foi concluído.
+ */
+@Slf4j
+@Component
+public class ExecutorItensPedido implements DisposableBean {
+
+    private final Executor executor;
+    private final int paralelismo;
+    private final long tempoLimite;
+
+    @Autowired
+    public ExecutorItensPedido(@Value("${pedido.itens.paralelismo:8}") int paralelismo,
+                               @Value("${pedido.itens.tempo-limite:PT10S}") Duration tempoLimite,
+                               Environment environment) {
+        this(paralelismo, tempoLimite, Threading.VIRTUAL.isActive(environment));
+    }
+
+    /**
+     * O limite de chamadas em voo é por pedido; o pool (ou uma thread virtual por chamada) é compartilhado
+     * entre os pedidos processados ao mesmo tempo
+     */
+    ExecutorItensPedido(int paralelismo, Duration tempoLimite, boolean threadsVirtuais) {
+        if (paralelismo < 1) {
+            throw new IllegalArgumentException("Paralelismo por pedido deve ser ao menos 1: " + paralelismo);
+        }
+        this.paralelismo = paralelismo;
+        this.tempoLimite = tempoLimite.toNanos();
+        this.executor = threadsVirtuais
+                ? new VirtualThreadTaskExecutor("pedido-itens-")
+                : Executors.newCachedThreadPool(new CustomizableThreadFactory("pedido-itens-"));
+        log.info("🧵 Executor de itens criado - Paralelismo por pedido: {} Tempo limite: {} Threads virtuais: {}",
+                paralelismo, tempoLimite, threadsVirtuais);
+    }
+
+    /**
+     * Chama {@code chamada} para cada item e devolve os resultados aceitos, o primeiro item recusado ou o
+     * primeiro erro. Esgotado o tempo limite, o erro é uma IllegalStateException com causa TimeoutException e
+     * as chamadas que ainda terminarem com sucesso são desfeitas por {@code compensacao} (pode ser nula),
+     * já que ninguém mais vai registrá-las.
+     */
+    public <E, R> Resultado<R> executar(List<E> itens, Function<E, R> chamada, Predicate<R> aceito,
+                                        BiConsumer<E, R> compensacao) {
+        Execucao<E, R> execucao = new Execucao<>(itens, chamada, aceito, compensacao);
+        for (int i = 0; i < Math.min(paralelismo, itens.size()); i++) {
+            executor.execute(execucao::trabalhar);
+        }
+        return execucao.aguardar(tempoLimite);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (executor instanceof ExecutorService pool) {
+            pool.shutdown();
+            if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("⚠️ Executor de itens encerrado com chamadas pendentes");
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Resultado da etapa: {@code resultados} tem o valor de cada item concluído (na posição do item) e nulo nos
+     * demais; {@code recusado} é a posição do primeiro item recusado ou -1
+     */
+    public record Resultado<R>(List<R> resultados, BitSet concluidos, int recusado, RuntimeException erro) {
+
+        public boolean isConcluido(int indice) {
+            return concluidos.get(indice);
+        }
+    }
+
+    /**
+     * Estado compartilhado entre os workers de uma etapa; cada worker pega o próximo item livre até acabarem
+     * os itens ou a etapa ser interrompida. Lock explícito em vez de monitor: a thread do pedido espera pela
+     * etapa inteira e, sendo virtual, não pode prender a carrier thread enquanto espera.
+     */
+    private static final class Execucao<E, R> {
+
+        private final List<E> itens;
+        private final Function<E, R> chamada;
+        private final Predicate<R> aceito;
+        private final BiConsumer<E, R> compensacao;
+        private final Object[] resultados;
+        private final BitSet concluidos = new BitSet();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition itemTerminado = lock.newCondition();
+        private int proximo;
+        private int emAndamento;
+        private int recusado = -1;
+        private RuntimeException erro;
+        private boolean interrompida;
+        private boolean encerrada;
+
+        private Execucao(List<E> itens, Function<E, R> chamada, Predicate<R> aceito, BiConsumer<E, R> compensacao) {
+            this.itens = itens;
+            this.chamada = chamada;
+            this.aceito = aceito;
+            this.compensacao = compensacao;
+            this.resultados = new Object[itens.size()];
+        }
+
+        private void trabalhar() {
+            while (true) {
+                int indice;
+                lock.lock();
+                try {
+                    if (interrompida || proximo >= itens.size()) {
+                        return;
+                    }
+                    indice = proximo++;
+                    emAndamento++;
+                } finally {
+                    lock.unlock();
+                }
+                E item = itens.get(indice);
+                R resultado = null;
+                RuntimeException falha = null;
+                try {
+                    resultado = chamada.apply(item);
+                } catch (RuntimeException e) {
+                    falha = e;
+                }
+                boolean sucesso = falha == null && aceito.test(resultado);
+                boolean atrasada;
+                lock.lock();
+                try {
+                    emAndamento--;
+                    atrasada = encerrada;
+                    if (!atrasada) {
+                        registrar(indice, resultado, sucesso, falha);
+                    }
+                    itemTerminado.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (atrasada && sucesso) {
+                    compensarAtrasada(item, resultado);
+                }
+                if (!sucesso) {
+                    return;
+                }
+            }
+        }
+
+        private void registrar(int indice, R resultado, boolean sucesso, RuntimeException falha) {
+            if (sucesso) {
+                resultados[indice] = resultado;
+                concluidos.set(indice);
+                return;
+            }
+            interrompida = true;
+            if (erro == null && recusado < 0) {
+                if (falha != null) {
+                    erro = falha;
+                } else {
+                    recusado = indice;
+                }
+            }
+        }
+
+        private void compensarAtrasada(E item, R resultado) {
+            if (compensacao == null) {
+                return;
+            }
+            log.warn("⏱️ Chamada do item {} concluída depois do tempo limite da etapa, desfazendo", item);
+            try {
+                compensacao.accept(item, resultado);
+            } catch (RuntimeException e) {
+                log.error("💥 Falha ao desfazer chamada atrasada do item {}", item, e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Resultado<R> aguardar(long tempoLimite) {
+            lock.lock();
+            try {
+                long restante = tempoLimite;
+                while (emAndamento > 0 || !(interrompida || proximo >= itens.size())) {
+                    if (restante <= 0) {
+                        interromper(new IllegalStateException("Tempo limite da etapa esgotado com " + emAndamento
+                                + " chamadas em andamento", new TimeoutException()));
+                        break;
+                    }
+                    try {
+                        restante = itemTerminado.awaitNanos(restante);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        interromper(new IllegalStateException("Interrompido aguardando chamadas dos itens", e));
+                        break;
+                    }
+                }
+                encerrada = true;
+                return new Resultado<>((List<R>) Arrays.asList(resultados), (BitSet) concluidos.clone(), recusado, erro);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void interromper(IllegalStateException motivo) {
+            interrompida = true;
+            if (erro == null && recusado < 0) {
+                erro = motivo;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.fiap.pedido.message;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool de workers que executa tarefas da mesma chave em sequência e de chaves diferentes em paralelo.
+ * Cada chave guarda apenas o futuro da última tarefa enfileirada; a próxima é encadeada nele.
+ * O total de tarefas em voo (em execução ou na fila) é limitado: acima do limite quem enfileira espera.
+ */
+@Slf4j
+@Component
+public class ExecutorPorChave implements DisposableBean {
+
+    private final Executor executor;
+    private final int emVooMaximo;
+    private final Semaphore emVoo;
+    private final ConcurrentMap<Object, CompletableFuture<Void>> ultimaPorChave = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ExecutorPorChave(@Value("${pedido.kafka.paralelo.concorrencia-maxima:16}") int concorrenciaMaxima,
+                            @Value("${pedido.kafka.paralelo.em-voo-maximo:256}") int emVooMaximo,
+                            Environment environment) {
+        this(concorrenciaMaxima, emVooMaximo, Threading.VIRTUAL.isActive(environment));
+    }
+
+    /**
+     * Com threads virtuais (Java 21 + spring.threads.virtual.enabled) cada tarefa ganha sua própria thread virtual
+     * e a concorrência é limitada por semáforo; sem elas, por um pool fixo de threads de plataforma
+     */
+    ExecutorPorChave(int concorrenciaMaxima, int emVooMaximo, boolean threadsVirtuais) {
+        if (emVooMaximo < concorrenciaMaxima) {
+            throw new IllegalArgumentException("Limite de pedidos em voo (" + emVooMaximo
+                    + ") menor que a concorrência máxima (" + concorrenciaMaxima + ")");
+        }
+        this.emVooMaximo = emVooMaximo;
+        this.emVoo = new Semaphore(emVooMaximo);
+        if (threadsVirtuais) {
+            this.executor = new ExecutorLimitado(new VirtualThreadTaskExecutor("pedido-paralelo-"), new Semaphore(concorrenciaMaxima));
+        } else {
+            this.executor = Executors.newFixedThreadPool(concorrenciaMaxima, new CustomizableThreadFactory("pedido-paralelo-"));
+        }
+        log.info("🧵 Executor por chave criado - Concorrência máxima: {} Em voo máximo: {} Threads virtuais: {}",
+                concorrenciaMaxima, emVooMaximo, threadsVirtuais);
+    }
+
+    /**
+     * Enfileira a tarefa atrás das anteriores da mesma chave (chave nula não tem ordem).
+     * A falha de uma tarefa não impede as seguintes da mesma chave.
+     * Com o limite de tarefas em voo atingido, bloqueia quem chama (a thread do listener, que deixa de buscar
+     * registros) até alguma tarefa terminar.
+     */
+    public CompletableFuture<Void> executar(Object chave, Runnable tarefa) {
+        try {
+            emVoo.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando vaga para tarefa da chave " + chave, e);
+        }
+        CompletableFuture<Void> execucao;
+        try {
+            execucao = encadear(chave, tarefa);
+        } catch (RuntimeException e) {
+            emVoo.release();
+            throw e;
+        }
+        execucao.whenComplete((resultado, erro) -> emVoo.release());
+        return execucao;
+    }
+
+    private CompletableFuture<Void> encadear(Object chave, Runnable tarefa) {
+        if (chave == null) {
+            return CompletableFuture.runAsync(tarefa, executor);
+        }
+        CompletableFuture<Void> execucao = ultimaPorChave.compute(chave, (k, anterior) -> anterior == null
+                ? CompletableFuture.runAsync(tarefa, executor)
+                : anterior.handle((resultado, erro) -> null).thenRunAsync(tarefa, executor));
+        // Remove a chave só se nenhuma tarefa foi encadeada depois desta, mantendo o mapa do tamanho das chaves ativas
+        execucao.whenComplete((resultado, erro) -> ultimaPorChave.remove(chave, execucao));
+        return execucao;
+    }
+
+    public int chavesAtivas() {
+        return ultimaPorChave.size();
+    }
+
+    public int emVoo() {
+        return emVooMaximo - emVoo.availablePermits();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (executor instanceof ExecutorService pool) {
+            pool.shutdown();
+            if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("⚠️ Executor por chave encerrado com {} chaves pendentes", ultimaPorChave.size());
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Threads virtuais não são reaproveitadas em pool: o limite de concorrência fica em um semáforo adquirido
+     * pela própria thread virtual (que só estaciona enquanto espera, sem ocupar thread de plataforma)
+     */
+    private record ExecutorLimitado(Executor threadsVirtuais, Semaphore permissoes) implements Executor {
+
+        @Override
+        public void execute(Runnable tarefa) {
+            threadsVirtuais.execute(() -> {
+                permissoes.acquireUninterruptibly();
+                try {
+                    tarefa.run();
+                } finally {
+                    permissoes.release();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.fiap.pedido.message;
+
+import lombok.Getter;
+
+/**
+ * Falha em uma etapa do pedido, levando o progresso até ali para a próxima tentativa
+ */
+@Getter
+public class FalhaProcessamentoPedidoException extends RuntimeException {
+
+    private final transient ProgressoPedido progresso;
+
+    public FalhaProcessamentoPedidoException(ProgressoPedido progresso, Throwable causa) {
+        super("Falha na etapa " + progresso.getEtapa() + " do pedido", causa);
+        this.progresso = progresso;
+    }
+}
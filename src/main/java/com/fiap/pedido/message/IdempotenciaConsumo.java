@@ -0,0 +1,102 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.pots.PedidoRepositoryPort;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Deduplicação do consumo do tópico novo-pedido. As chaves recebidas ficam em uma janela em memória
+ * limitada por tamanho e tempo; fora dela a resposta exata vem do índice único chave_idempotencia no banco.
+ */
+@Slf4j
+@Component
+public class IdempotenciaConsumo {
+
+    /**
+     * De onde vem a chave: o ID do pedido no payload ou a chave da mensagem Kafka (que precisa ser única por pedido)
+     */
+    public enum OrigemChave {
+        ID_PEDIDO,
+        CHAVE_MENSAGEM
+    }
+
+    static final String METRICA_DUPLICADOS = "pedido.kafka.duplicados";
+
+    private final PedidoRepositoryPort pedidoRepositoryPort;
+    private final OrigemChave origemChave;
+    private final Cache<String, Boolean> recebidas;
+    private final Counter duplicadosNaJanela;
+    private final Counter duplicadosNoBanco;
+
+    @Autowired
+    public IdempotenciaConsumo(PedidoRepositoryPort pedidoRepositoryPort,
+                               @Value("${pedido.kafka.idempotencia.origem-chave:ID_PEDIDO}") OrigemChave origemChave,
+                               @Value("${pedido.kafka.idempotencia.janela:PT1H}") Duration janela,
+                               @Value("${pedido.kafka.idempotencia.tamanho-maximo:100000}") long tamanhoMaximo,
+                               MeterRegistry meterRegistry) {
+        this(pedidoRepositoryPort, origemChave, janela, tamanhoMaximo, meterRegistry, Ticker.systemTicker());
+    }
+
+    IdempotenciaConsumo(PedidoRepositoryPort pedidoRepositoryPort, OrigemChave origemChave, Duration janela,
+                        long tamanhoMaximo, MeterRegistry meterRegistry, Ticker ticker) {
+        this.pedidoRepositoryPort = pedidoRepositoryPort;
+        this.origemChave = origemChave;
+        this.recebidas = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterWrite(janela)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .build();
+        this.duplicadosNaJanela = Counter.builder(METRICA_DUPLICADOS).tag("origem", "janela").register(meterRegistry);
+        this.duplicadosNoBanco = Counter.builder(METRICA_DUPLICADOS).tag("origem", "banco").register(meterRegistry);
+        log.info("🔁 Idempotência do consumo - Chave: {} Janela: {} Tamanho máximo: {}", origemChave, janela, tamanhoMaximo);
+    }
+
+    /**
+     * Chave de idempotência da mensagem, ou null quando a origem configurada não está preenchida
+     */
+    public String chave(String chaveMensagem, PedidoRequestDTO pedido) {
+        if (origemChave == OrigemChave.CHAVE_MENSAGEM) {
+            return chaveMensagem == null || chaveMensagem.isBlank() ? null : chaveMensagem;
+        }
+        return pedido == null || pedido.getId() == null ? null : String.valueOf(pedido.getId());
+    }
+
+    /**
+     * Marca a chave como recebida e devolve true se ela já havia sido recebida (na janela ou gravada no banco).
+     * Mensagens sem chave nunca são consideradas duplicadas.
+     */
+    public boolean isDuplicado(String chave) {
+        if (chave == null) {
+            return false;
+        }
+        if (recebidas.asMap().putIfAbsent(chave, Boolean.TRUE) != null) {
+            duplicadosNaJanela.increment();
+            return true;
+        }
+        if (pedidoRepositoryPort.existsByChaveIdempotencia(chave)) {
+            duplicadosNoBanco.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove a chave da janela quando o pedido não chegou a ser gravado, permitindo reprocessar uma reentrega
+     */
+    public void liberar(String chave) {
+        if (chave != null) {
+            recebidas.invalidate(chave);
+        }
+    }
+}
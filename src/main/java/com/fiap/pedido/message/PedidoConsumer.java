@@ -1,6 +1,7 @@
 package com.fiap.pedido.message;
 
 import com.fiap.pedido.adapter.ServicoExternoMockAdapter;
+import com.fiap.pedido.cache.ProdutoCache;
 // CORREÇÃO: Removidas importações incorretas de classes internas do adapter
 import com.fiap.pedido.dto.ClienteDTO;
 import com.fiap.pedido.dto.ProdutoDTO;
@@ -8,12 +9,32 @@ import com.fiap.pedido.dto.StatusPagamentoDTO;
 import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
 import com.fiap.pedido.dto.request.PedidoRequestDTO;
 import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.EtapaPedido;
+import com.fiap.pedido.enuns.StatusPedido;
 import com.fiap.pedido.usecase.service.PedidoUseCaseImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Consumer Kafka para processar pedidos recebidos do tópico 'novo-pedido'.
  */
@@ -22,118 +43,454 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class PedidoConsumer {
 
+    // IDs dos containers do tópico principal; retentativas e DLT ganham IDs próprios, derivados do unitário
+    static final String LISTENER_UNITARIO = "novo-pedido-unitario";
+    static final String LISTENER_LOTE = "novo-pedido-lote";
+    static final String LISTENER_PARALELO = "novo-pedido-paralelo";
+    static final List<String> LISTENERS_NOVO_PEDIDO = List.of(LISTENER_UNITARIO, LISTENER_LOTE, LISTENER_PARALELO);
+
     private final PedidoUseCaseImpl pedidoUseCase;
     private final ServicoExternoMockAdapter servicoExternoAdapter;
+    private final ExecutorPorChave executorPorChave;
+    private final IdempotenciaConsumo idempotenciaConsumo;
+    private final ContrapressaoConsumo contrapressaoConsumo;
+    private final PedidoResultadoProducer pedidoResultadoProducer;
+    private final ExecutorItensPedido executorItensPedido;
+    private final ProdutoCache produtoCache;
+    private final PedidoRetentativaProducer pedidoRetentativaProducer;
 
-    @KafkaListener(topics = "novo-pedido", groupId = "pedido-service", containerFactory = "pedidoKafkaListenerContainerFactory")
     public void consumirPedido(PedidoRequestDTO pedidoRequestDTO) {
-        log.info("=== INICIANDO PROCESSAMENTO DO PEDIDO KAFKA: {} ===", pedidoRequestDTO);
+        consumirPedido(pedidoRequestDTO, null);
+    }
 
+    /**
+     * Processa o pedido do início e apenas registra a falha, sem devolver o registro ao Kafka
+     */
+    public void consumirPedido(PedidoRequestDTO pedidoRequestDTO, String chaveMensagem) {
         try {
+            processarPedido(pedidoRequestDTO, chaveMensagem, new ProgressoPedido());
+        } catch (Exception e) {
+            log.error("💥 ERRO CRÍTICO ao processar pedido: {}", pedidoRequestDTO, e);
+        }
+    }
 
-            if (pedidoRequestDTO.getDadosPagamento() == null ||
-                    pedidoRequestDTO.getDadosPagamento().getNumeroCartao() == null) {
-                log.error("❌ ERRO: Dados de pagamento inválidos no pedido: {}", pedidoRequestDTO);
-                return;
-            }
-
-            log.info("📝 ETAPA 1: Criando pedido no banco com status ABERTO");
-            var pedidoResponse = pedidoUseCase.criarPedido(pedidoRequestDTO);
-            log.info("✅ Pedido criado com ID: {} e status: {}", pedidoResponse.getId(), pedidoResponse.getStatus());
+    /**
+     * Modo unitário (padrão). A falha de uma etapa envia o registro ao próximo tópico de retentativa
+     * (novo-pedido-retry-0, -1, ... com atraso exponencial), sem bloquear a partição principal, e a nova tentativa
+     * continua da etapa que falhou. Esgotadas as tentativas, ou se a mensagem nem puder ser desserializada,
+     * o registro vai para novo-pedido-dlt.
+     */
+    @RetryableTopic(attempts = "${pedido.kafka.retentativa.tentativas:4}",
+            backoff = @Backoff(delayExpression = "${pedido.kafka.retentativa.atraso-inicial:1000}",
+                    multiplierExpression = "${pedido.kafka.retentativa.multiplicador:2.0}",
+                    maxDelayExpression = "${pedido.kafka.retentativa.atraso-maximo:30000}"),
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            dltStrategy = DltStrategy.FAIL_ON_ERROR,
+            kafkaTemplate = "pedidoKafkaTemplate")
+    @KafkaListener(id = LISTENER_UNITARIO, topics = "novo-pedido", groupId = "pedido-service",
+            containerFactory = "pedidoKafkaListenerContainerFactory",
+            autoStartup = "#{'${pedido.kafka.modo-consumo:UNITARIO}'.equalsIgnoreCase('UNITARIO')}")
+    public void consumirRegistro(ConsumerRecord<String, PedidoRequestDTO> registro) {
+        ProgressoPedido progresso = ProgressoPedido.lerDe(registro.headers());
+        if (progresso.isRetomada()) {
+            log.info("🔁 Retomando pedido do tópico {} na etapa {}", registro.topic(), progresso);
+        }
+        contrapressaoConsumo.iniciar(1);
+        try {
+            processarPedido(registro.value(), registro.key(), progresso);
+        } finally {
+            contrapressaoConsumo.concluir(1);
+        }
+    }
 
-            log.info("📝 ETAPA 2: Consultando cliente ID: {}", pedidoRequestDTO.getClienteId());
-            ClienteDTO cliente = servicoExternoAdapter.consultarCliente(String.valueOf(pedidoRequestDTO.getClienteId()));
-            log.info("✅ Cliente consultado: {}", cliente.getNome());
+    @DltHandler
+    public void tratarPedidoNaDlt(ConsumerRecord<String, PedidoRequestDTO> registro,
+                                  @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String erro) {
+        log.error("☠️ Pedido enviado à DLT - Chave: {} Etapa: {} Erro: {} Pedido: {}",
+                registro.key(), ProgressoPedido.lerDe(registro.headers()), erro, registro.value());
+    }
 
-            log.info("📝 ETAPA 3: Verificando e reservando estoque");
-            double valorTotal = 0.0;
-            boolean todoEstoqueReservado = true;
+    /**
+     * Modo lote (pedido.kafka.modo-consumo=LOTE): recebe todos os pedidos de um poll, consulta cada cliente
+     * e produto uma única vez por lote e grava os pedidos em uma única transação. Reserva de estoque e pagamento
+     * seguem uma chamada por pedido: cada pedido tem a própria reserva, cobrança e compensação, e o progresso
+     * de cada um vai sozinho para a retentativa.
+     * A falha de um pedido não interrompe os demais: ele é reenviado a novo-pedido-retry-0 com o progresso até ali,
+     * como no modo paralelo, então reserva e cobrança já feitas seguem para baixa, compensação ou gravação na
+     * retentativa. Se nem o reenvio for aceito, a exceção sobe e o lote inteiro é entregue de novo.
+     */
+    @KafkaListener(id = LISTENER_LOTE, topics = "novo-pedido", groupId = "pedido-service",
+            containerFactory = "pedidoLoteKafkaListenerContainerFactory",
+            autoStartup = "#{'${pedido.kafka.modo-consumo:UNITARIO}'.equalsIgnoreCase('LOTE')}")
+    public void consumirLote(List<ConsumerRecord<String, PedidoRequestDTO>> registros) {
+        // O lote conta como uma unidade: contado por pedido, um poll cheio passaria sozinho da marca alta
+        contrapressaoConsumo.iniciar(1);
+        try {
+            processarLote(registros);
+        } finally {
+            contrapressaoConsumo.concluir(1);
+        }
+    }
 
-            for (ItemPedidoRequestDTO item : pedidoRequestDTO.getItens()) {
-                log.info("🔍 Consultando produto: {}", item.getProdutoId());
-                ProdutoDTO produto = servicoExternoAdapter.consultarProduto(item.getProdutoId());
-                log.info("📦 Produto encontrado: {} - Preço: {}", produto.getNome(), produto.getPreco());
+    private void processarLote(List<ConsumerRecord<String, PedidoRequestDTO>> registros) {
+        log.info("=== INICIANDO LOTE KAFKA COM {} PEDIDOS ===", registros.size());
 
-                log.info("📋 Reservando estoque - Produto: {} Quantidade: {}", item.getProdutoId(), item.getQuantidade());
-                boolean estoqueReservado = servicoExternoAdapter.reservarEstoque(item.getProdutoId(), item.getQuantidade());
+        Map<Long, ClienteDTO> clientes = new HashMap<>();
+        Map<String, ProdutoDTO> produtos = new HashMap<>();
+        List<ConsumerRecord<String, PedidoRequestDTO>> processados = new ArrayList<>(registros.size());
+        List<ProgressoPedido> progressos = new ArrayList<>(registros.size());
+        List<String> chaves = new ArrayList<>(registros.size());
+        List<PedidoResponseDTO> resultados = new ArrayList<>(registros.size());
+        int falhas = 0;
+        int duplicados = 0;
 
-                if (!estoqueReservado) {
-                    log.error("❌ ESTOQUE INSUFICIENTE para produto: {}", item.getProdutoId());
-                    todoEstoqueReservado = false;
-                    break;
+        for (ConsumerRecord<String, PedidoRequestDTO> registro : registros) {
+            PedidoRequestDTO pedido = registro.value();
+            ProgressoPedido progresso = new ProgressoPedido();
+            String chave = null;
+            try {
+                // Também descarta a repetição do mesmo pedido dentro do próprio lote
+                chave = idempotenciaConsumo.chave(registro.key(), pedido);
+                if (idempotenciaConsumo.isDuplicado(chave)) {
+                    log.warn("🔁 Pedido duplicado ignorado no offset {} - Chave: {}", registro.offset(), chave);
+                    buscarResultadoGravado(chave).ifPresent(resultados::add);
+                    duplicados++;
+                    continue;
                 }
-
-                valorTotal += produto.getPreco() * item.getQuantidade();
-                log.info("💰 Valor acumulado: {}", valorTotal);
+                if (!dadosPagamentoValidos(pedido)) {
+                    log.error("❌ ERRO: Dados de pagamento inválidos no pedido do offset {}: {}", registro.offset(), pedido);
+                    falhas++;
+                    continue;
+                }
+                processarEtapas(pedido, clientes, produtos, progresso);
+                processados.add(registro);
+                progressos.add(progresso);
+                chaves.add(chave);
+            } catch (Exception e) {
+                idempotenciaConsumo.liberar(chave);
+                log.error("💥 Falha no pedido do offset {} na etapa {}, seguindo com o restante do lote: {}",
+                        registro.offset(), progresso, pedido, e);
+                pedidoRetentativaProducer.enviar(registro, new FalhaProcessamentoPedidoException(progresso, e));
+                falhas++;
             }
+        }
 
-            if (!todoEstoqueReservado) {
-                log.info("📝 ATUALIZANDO STATUS PARA: FECHADO_SEM_ESTOQUE");
-                PedidoResponseDTO pedidoAtualizado = pedidoUseCase.atualizarStatus(pedidoResponse.getId(), "FECHADO_SEM_ESTOQUE");
-                log.info("✅ Status atualizado para: {}", pedidoAtualizado.getStatus());
-                return;
+        int naoGravados = gravarLote(processados, progressos, chaves, resultados);
+        pedidoResultadoProducer.publicar(resultados);
+        log.info("🎉 === LOTE PROCESSADO === Gravados: {} Falhas: {} Duplicados: {} | Clientes consultados: {} Produtos consultados: {}",
+                processados.size() - naoGravados, falhas + naoGravados, duplicados, clientes.size(), produtos.size());
+    }
+
+    /**
+     * Modo paralelo (pedido.kafka.modo-consumo=PARALELO): pedidos do mesmo cliente são processados em sequência
+     * e de clientes diferentes em paralelo; o offset é confirmado quando o processamento do pedido termina.
+     * A falha de uma etapa reenvia o registro a novo-pedido-retry-0, como no modo unitário, antes de confirmar;
+     * se nem o reenvio for aceito, o offset fica sem confirmação e o registro é entregue de novo após rebalance.
+     */
+    @KafkaListener(id = LISTENER_PARALELO, topics = "novo-pedido", groupId = "pedido-service",
+            containerFactory = "pedidoParaleloKafkaListenerContainerFactory",
+            autoStartup = "#{'${pedido.kafka.modo-consumo:UNITARIO}'.equalsIgnoreCase('PARALELO')}")
+    public void consumirEmParalelo(ConsumerRecord<String, PedidoRequestDTO> registro, Acknowledgment ack) {
+        PedidoRequestDTO pedido = registro.value();
+        Long clienteId = pedido != null ? pedido.getClienteId() : null;
+        log.debug("🧵 Offset {} da partição {} enviado ao worker do cliente {}", registro.offset(), registro.partition(), clienteId);
+
+        // Conta desde a entrada na fila do worker: é a fila que cresce quando estoque ou pagamento ficam lentos
+        contrapressaoConsumo.iniciar(1);
+        CompletableFuture<Void> execucao;
+        try {
+            // Com o limite de pedidos em voo atingido, espera aqui: a thread do listener deixa de buscar registros
+            execucao = executorPorChave.executar(clienteId, () -> processarEmParalelo(registro));
+        } catch (RuntimeException e) {
+            contrapressaoConsumo.concluir(1);
+            throw e;
+        }
+        execucao.whenComplete((resultado, erro) -> {
+            contrapressaoConsumo.concluir(1);
+            if (erro == null) {
+                ack.acknowledge();
+            } else {
+                log.error("💥 Offset {} da partição {} não confirmado: pedido não processado nem reenviado para retentativa",
+                        registro.offset(), registro.partition(), erro);
             }
+        });
+    }
+
+    private void processarEmParalelo(ConsumerRecord<String, PedidoRequestDTO> registro) {
+        try {
+            processarPedido(registro.value(), registro.key(), ProgressoPedido.lerDe(registro.headers()));
+        } catch (FalhaProcessamentoPedidoException e) {
+            log.error("💥 Falha ao processar pedido do offset {} no modo paralelo: {}", registro.offset(), registro.value(), e);
+            pedidoRetentativaProducer.enviar(registro, e);
+        }
+    }
 
-            log.info("📝 ETAPA 4: Processando pagamento - Cartão: {} Valor: {}",
-                    pedidoRequestDTO.getDadosPagamento().getNumeroCartao(), valorTotal);
+    /**
+     * Pedido já recebido (reentrega após rebalance, reenvio do produtor) é descartado antes de qualquer chamada
+     * externa ou gravação e tem o offset confirmado normalmente. Em caso de falha a chave é liberada para a
+     * próxima tentativa e o progresso segue na exceção.
+     */
+    private void processarPedido(PedidoRequestDTO pedidoRequestDTO, String chaveMensagem, ProgressoPedido progresso) {
+        log.info("=== INICIANDO PROCESSAMENTO DO PEDIDO KAFKA: {} ===", pedidoRequestDTO);
 
-            StatusPagamentoDTO statusPagamento = servicoExternoAdapter.processarPagamento(
-                    pedidoRequestDTO.getDadosPagamento().getNumeroCartao(), valorTotal);
+        String chave = idempotenciaConsumo.chave(chaveMensagem, pedidoRequestDTO);
+        try {
+            if (idempotenciaConsumo.isDuplicado(chave)) {
+                log.warn("🔁 Pedido duplicado ignorado - Chave: {}", chave);
+                republicarResultado(chave);
+                return;
+            }
 
-            log.info("💳 Status do pagamento recebido: {}", statusPagamento.getStatus());
+            if (!dadosPagamentoValidos(pedidoRequestDTO)) {
+                log.error("❌ ERRO: Dados de pagamento inválidos no pedido: {}", pedidoRequestDTO);
+                return;
+            }
 
-            if (!"APROVADO".equalsIgnoreCase(statusPagamento.getStatus())) {
-                log.error("❌ PAGAMENTO RECUSADO para pedido ID: {}", pedidoResponse.getId());
+            StatusPedido statusFinal = processarEtapas(pedidoRequestDTO, new HashMap<>(), new HashMap<>(), progresso);
 
-                log.info("🔄 Iniciando rollback do estoque");
-                for (ItemPedidoRequestDTO item : pedidoRequestDTO.getItens()) {
-                    boolean estornoOk = servicoExternoAdapter.estornarEstoque(item.getProdutoId(), item.getQuantidade());
-                    log.info("🔄 Estorno estoque produto {}: {}", item.getProdutoId(), estornoOk ? "✅ SUCESSO" : "❌ FALHA");
-                }
+            // O pedido é gravado uma única vez, já com o status final decidido pelas etapas acima
+            log.info("📝 ETAPA FINAL: Gravando pedido com status: {}", statusFinal);
+            PedidoResponseDTO pedidoResponse = pedidoUseCase.registrarPedido(pedidoRequestDTO, statusFinal, chave);
+            log.info("🎉 === PEDIDO PROCESSADO === ID: {} Status Final: {}",
+                    pedidoResponse.getId(), pedidoResponse.getStatus());
+            pedidoResultadoProducer.publicar(pedidoResponse);
 
-                log.info("📝 ATUALIZANDO STATUS PARA: FECHADO_SEM_CREDITO");
-                PedidoResponseDTO pedidoAtualizado = pedidoUseCase.atualizarStatus(pedidoResponse.getId(), "FECHADO_SEM_CREDITO");
-                log.info("✅ Status atualizado para: {}", pedidoAtualizado.getStatus());
+        } catch (Exception e) {
+            if (isDuplicadoNoBanco(chave, e)) {
+                log.warn("🔁 Pedido com chave {} gravado por outra entrega em paralelo, descartado pelo índice único", chave);
+                republicarResultado(chave);
                 return;
             }
+            idempotenciaConsumo.liberar(chave);
+            throw new FalhaProcessamentoPedidoException(progresso, e);
+        }
+    }
 
-            log.info("📝 ETAPA 5: Efetuando baixa definitiva no estoque");
-            boolean todoBaixado = true;
-            for (ItemPedidoRequestDTO item : pedidoRequestDTO.getItens()) {
-                log.info("📦 Baixando estoque produto: {} quantidade: {}", item.getProdutoId(), item.getQuantidade());
-                boolean estoqueBaixado = servicoExternoAdapter.baixarEstoque(item.getProdutoId(), item.getQuantidade());
+    /**
+     * Grava o lote em uma transação; se ela falhar, grava pedido a pedido para isolar o registro com problema.
+     * Os pedidos gravados (e os duplicados já existentes) entram em resultados; o que ainda assim não grava é
+     * reenviado para retentativa já na etapa de gravação, com o status final decidido. Devolve a quantidade de
+     * pedidos não gravados (inclusive duplicados barrados pelo índice único).
+     */
+    private int gravarLote(List<ConsumerRecord<String, PedidoRequestDTO>> registros, List<ProgressoPedido> progressos,
+                           List<String> chaves, List<PedidoResponseDTO> resultados) {
+        if (registros.isEmpty()) {
+            return 0;
+        }
+        List<PedidoRequestDTO> pedidos = registros.stream().map(ConsumerRecord::value).toList();
+        List<StatusPedido> statusFinais = progressos.stream().map(ProgressoPedido::getStatusFinal).toList();
+        try {
+            resultados.addAll(pedidoUseCase.registrarPedidos(pedidos, statusFinais, chaves));
+            return 0;
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao gravar lote de {} pedidos em transação única, gravando individualmente", pedidos.size(), e);
+        }
 
-                if (!estoqueBaixado) {
-                    log.error("❌ FALHA ao baixar estoque para produto: {}", item.getProdutoId());
-                    todoBaixado = false;
-                    break;
+        int naoGravados = 0;
+        for (int i = 0; i < pedidos.size(); i++) {
+            ConsumerRecord<String, PedidoRequestDTO> registro = registros.get(i);
+            try {
+                resultados.add(pedidoUseCase.registrarPedido(pedidos.get(i), statusFinais.get(i), chaves.get(i)));
+            } catch (Exception e) {
+                if (isDuplicadoNoBanco(chaves.get(i), e)) {
+                    log.warn("🔁 Pedido do offset {} com chave {} já gravado, descartado pelo índice único", registro.offset(), chaves.get(i));
+                    buscarResultadoGravado(chaves.get(i)).ifPresent(resultados::add);
+                } else {
+                    idempotenciaConsumo.liberar(chaves.get(i));
+                    log.error("💥 Falha ao gravar pedido do offset {}: {}", registro.offset(), pedidos.get(i), e);
+                    pedidoRetentativaProducer.enviar(registro, new FalhaProcessamentoPedidoException(progressos.get(i), e));
                 }
-                log.info("✅ Estoque baixado com sucesso para produto: {}", item.getProdutoId());
+                naoGravados++;
             }
+        }
+        return naoGravados;
+    }
+
+    /**
+     * Reentrega de um pedido já gravado: o resultado é publicado de novo a partir do banco. Se a entrega anterior
+     * caiu entre o commit no banco e o commit no Kafka, o resultado dela nunca ficou visível e este é o único.
+     */
+    private void republicarResultado(String chave) {
+        buscarResultadoGravado(chave).ifPresent(pedidoResultadoProducer::publicar);
+    }
+
+    private Optional<PedidoResponseDTO> buscarResultadoGravado(String chave) {
+        Optional<PedidoResponseDTO> resultado = pedidoUseCase.consultarPedidoPorChaveIdempotencia(chave);
+        if (resultado.isEmpty()) {
+            log.warn("⚠️ Pedido com chave {} ainda não gravado, resultado não republicado", chave);
+        }
+        return resultado;
+    }
 
-            if (!todoBaixado) {
-                log.error("❌ Falha na baixa de estoque - Iniciando rollback completo");
+    /**
+     * Violação de integridade em pedido com chave: outra entrega do mesmo pedido venceu a corrida até o INSERT
+     */
+    private boolean isDuplicadoNoBanco(String chave, Exception e) {
+        return chave != null && e instanceof DataIntegrityViolationException;
+    }
 
-                log.info("🔄 Estornando pagamento: {}", statusPagamento.getPagamentoId());
-                servicoExternoAdapter.estornarPagamento(statusPagamento.getPagamentoId());
+    private boolean dadosPagamentoValidos(PedidoRequestDTO pedidoRequestDTO) {
+        return pedidoRequestDTO != null
+                && pedidoRequestDTO.getDadosPagamento() != null
+                && pedidoRequestDTO.getDadosPagamento().getNumeroCartao() != null;
+    }
 
-                for (ItemPedidoRequestDTO item : pedidoRequestDTO.getItens()) {
-                    servicoExternoAdapter.estornarEstoque(item.getProdutoId(), item.getQuantidade());
+    /**
+     * Executa cliente, estoque e pagamento (com compensações) a partir da etapa em que o progresso parou
+     * e devolve o status final do pedido. Clientes e produtos já consultados (no mesmo pedido ou lote)
+     * são reaproveitados dos mapas informados.
+     */
+    private StatusPedido processarEtapas(PedidoRequestDTO pedidoRequestDTO, Map<Long, ClienteDTO> clientes,
+                                         Map<String, ProdutoDTO> produtos, ProgressoPedido progresso) {
+        List<ItemPedidoRequestDTO> itens = pedidoRequestDTO.getItens();
+        while (progresso.getEtapa() != EtapaPedido.GRAVACAO) {
+            long inicio = System.nanoTime();
+            try {
+                switch (progresso.getEtapa()) {
+                    case CLIENTE -> consultarCliente(pedidoRequestDTO, clientes, progresso);
+                    case RESERVA_ESTOQUE -> reservarEstoque(itens, produtos, progresso);
+                    case PAGAMENTO -> processarPagamento(pedidoRequestDTO, progresso);
+                    case BAIXA_ESTOQUE -> baixarEstoque(itens, progresso);
+                    case ESTORNO_PAGAMENTO -> estornarPagamento(progresso);
+                    case ESTORNO_ESTOQUE -> estornarEstoque(progresso);
+                    default -> throw new IllegalStateException("Etapa inesperada: " + progresso.getEtapa());
                 }
+            } finally {
+                // Etapas que falham (timeout, indisponibilidade) também contam na latência observada
+                contrapressaoConsumo.registrarLatencia(System.nanoTime() - inicio);
+            }
+        }
+        return progresso.getStatusFinal();
+    }
 
-                log.info("📝 ATUALIZANDO STATUS PARA: FECHADO_SEM_ESTOQUE");
-                pedidoUseCase.atualizarStatus(pedidoResponse.getId(), "FECHADO_SEM_ESTOQUE");
-                return;
+    private void consultarCliente(PedidoRequestDTO pedidoRequestDTO, Map<Long, ClienteDTO> clientes, ProgressoPedido progresso) {
+        log.info("📝 ETAPA 1: Consultando cliente ID: {}", pedidoRequestDTO.getClienteId());
+        ClienteDTO cliente = clientes.computeIfAbsent(pedidoRequestDTO.getClienteId(),
+                clienteId -> servicoExternoAdapter.consultarCliente(String.valueOf(clienteId)));
+        log.info("✅ Cliente consultado: {}", cliente.getNome());
+        progresso.avancar(EtapaPedido.RESERVA_ESTOQUE);
+    }
+
+    /**
+     * Consulta em paralelo os produtos que ainda não estão no mapa e reserva o estoque do pedido inteiro em uma
+     * única chamada: ou todos os itens são reservados, ou nenhum, então um pedido sem estoque não tem o que estornar.
+     * O ID da reserva fica no progresso: baixa e estorno mexem só nela, inclusive numa retentativa.
+     */
+    private void reservarEstoque(List<ItemPedidoRequestDTO> itens, Map<String, ProdutoDTO> produtos, ProgressoPedido progresso) {
+        log.info("📝 ETAPA 2: Verificando e reservando estoque de {} itens", itens.size());
+        consultarProdutos(itens, produtos);
+        double valorItens = 0;
+        for (ItemPedidoRequestDTO item : itens) {
+            ProdutoDTO produto = produtos.get(item.getProdutoId());
+            log.info("📦 Produto encontrado: {} - Preço: {}", produto.getNome(), produto.getPreco());
+            valorItens += produto.getPreco() * item.getQuantidade();
+        }
+
+        Map<String, Integer> quantidades = quantidadesPorProduto(itens);
+        log.info("📋 Reservando estoque de {} produtos em uma única chamada", quantidades.size());
+        Optional<String> idReserva = servicoExternoAdapter.reservarEstoque(quantidades);
+        if (idReserva.isEmpty()) {
+            log.error("❌ ESTOQUE INSUFICIENTE para o pedido: {}", quantidades);
+            progresso.encerrar(StatusPedido.FECHADO_SEM_ESTOQUE, EtapaPedido.GRAVACAO);
+            return;
+        }
+        progresso.registrarReservaEstoque(idReserva.get());
+        progresso.somarValor(valorItens);
+        log.info("💰 Valor acumulado: {}", progresso.getValorTotal());
+        progresso.avancar(EtapaPedido.PAGAMENTO);
+    }
+
+    /**
+     * Produtos já consultados (no mesmo pedido ou lote) não são consultados de novo
+     */
+    private void consultarProdutos(List<ItemPedidoRequestDTO> itens, Map<String, ProdutoDTO> produtos) {
+        List<String> faltantes = itens.stream()
+                .map(ItemPedidoRequestDTO::getProdutoId)
+                .distinct()
+                .filter(produtoId -> !produtos.containsKey(produtoId))
+                .toList();
+        ExecutorItensPedido.Resultado<ProdutoDTO> consultas = executorItensPedido.executar(faltantes,
+                this::consultarProduto,
+                produto -> produto != null,
+                null);
+        for (int k = 0; k < faltantes.size(); k++) {
+            if (consultas.isConcluido(k)) {
+                produtos.put(faltantes.get(k), consultas.resultados().get(k));
             }
+        }
+        if (consultas.erro() != null) {
+            throw consultas.erro();
+        }
+    }
 
-            log.info("📝 ETAPA 6: FINALIZANDO PEDIDO COM SUCESSO");
-            PedidoResponseDTO pedidoFinalizado = pedidoUseCase.atualizarStatus(pedidoResponse.getId(), "FECHADO_COM_SUCESSO");
-            log.info("🎉 === PEDIDO PROCESSADO COM SUCESSO === ID: {} Status Final: {}",
-                    pedidoFinalizado.getId(), pedidoFinalizado.getStatus());
+    private ProdutoDTO consultarProduto(String produtoId) {
+        log.info("🔍 Consultando produto: {}", produtoId);
+        return produtoCache.buscar(produtoId)
+                .orElseThrow(() -> new IllegalStateException("Produto não encontrado no catálogo: " + produtoId));
+    }
 
-        } catch (Exception e) {
-            log.error("💥 ERRO CRÍTICO ao processar pedido: {}", pedidoRequestDTO, e);
-            log.error("Stack trace completo:", e);
+    private void processarPagamento(PedidoRequestDTO pedidoRequestDTO, ProgressoPedido progresso) {
+        String numeroCartao = pedidoRequestDTO.getDadosPagamento().getNumeroCartao();
+        log.info("📝 ETAPA 3: Processando pagamento - Cartão: {} Valor: {}", numeroCartao, progresso.getValorTotal());
+
+        StatusPagamentoDTO statusPagamento = servicoExternoAdapter.processarPagamento(numeroCartao, progresso.getValorTotal());
+        log.info("💳 Status do pagamento recebido: {}", statusPagamento.getStatus());
+
+        if (!"APROVADO".equalsIgnoreCase(statusPagamento.getStatus())) {
+            log.error("❌ PAGAMENTO RECUSADO para cliente ID: {}", pedidoRequestDTO.getClienteId());
+            log.info("🔄 Iniciando rollback do estoque");
+            progresso.encerrar(StatusPedido.FECHADO_SEM_CREDITO, EtapaPedido.ESTORNO_ESTOQUE);
+            return;
+        }
+        progresso.registrarPagamento(statusPagamento.getPagamentoId());
+        progresso.avancar(EtapaPedido.BAIXA_ESTOQUE);
+    }
+
+    /**
+     * Confirma a reserva do pedido inteiro em uma única chamada. Progresso sem reserva (gravado antes de a reserva
+     * ir nos headers) não tem o que confirmar e segue como baixa recusada.
+     */
+    private void baixarEstoque(List<ItemPedidoRequestDTO> itens, ProgressoPedido progresso) {
+        String idReserva = progresso.getReservaEstoqueId();
+        log.info("📝 ETAPA 4: Efetuando baixa definitiva no estoque - Reserva: {}", idReserva);
+        if (idReserva == null || !servicoExternoAdapter.baixarEstoque(idReserva)) {
+            log.error("❌ Falha na baixa de estoque - Iniciando rollback completo");
+            progresso.encerrar(StatusPedido.FECHADO_SEM_ESTOQUE, EtapaPedido.ESTORNO_PAGAMENTO);
+            return;
+        }
+        log.info("✅ Estoque baixado com sucesso para {} itens", itens.size());
+        progresso.encerrar(StatusPedido.FECHADO_COM_SUCESSO, EtapaPedido.GRAVACAO);
+    }
+
+    private void estornarPagamento(ProgressoPedido progresso) {
+        log.info("🔄 Estornando pagamento: {}", progresso.getPagamentoId());
+        servicoExternoAdapter.estornarPagamento(progresso.getPagamentoId());
+        progresso.avancar(EtapaPedido.ESTORNO_ESTOQUE);
+    }
+
+    /**
+     * Estorna só a reserva do pedido. Um estorno recusado (reserva já estornada numa tentativa anterior) é
+     * registrado e não impede a gravação; só uma falha na chamada faz a etapa ser repetida
+     */
+    private void estornarEstoque(ProgressoPedido progresso) {
+        String idReserva = progresso.getReservaEstoqueId();
+        if (idReserva == null) {
+            log.warn("⚠️ Pedido sem reserva de estoque registrada, nada a estornar");
+        } else {
+            boolean estornoOk = servicoExternoAdapter.estornarEstoque(idReserva);
+            log.info("🔄 Estorno da reserva {}: {}", idReserva, estornoOk ? "✅ SUCESSO" : "❌ FALHA");
+        }
+        progresso.avancar(EtapaPedido.GRAVACAO);
+    }
+
+    /**
+     * SKU -> quantidade total, somando itens repetidos do mesmo produto
+     */
+    private static Map<String, Integer> quantidadesPorProduto(List<ItemPedidoRequestDTO> itens) {
+        Map<String, Integer> quantidades = new LinkedHashMap<>();
+        for (ItemPedidoRequestDTO item : itens) {
+            quantidades.merge(item.getProdutoId(), item.getQuantidade(), Integer::sum);
         }
+        return quantidades;
     }
-}
\ No newline at end of file
+}
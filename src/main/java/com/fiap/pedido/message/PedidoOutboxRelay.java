@@ -0,0 +1,255 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.domain.PedidoStatusAlterado;
+import com.fiap.pedido.entity.PedidoOutboxEntity;
+import com.fiap.pedido.pots.PedidoEventoPort;
+import com.fiap.pedido.repository.PedidoOutboxPrimeiroLinha;
+import com.fiap.pedido.repository.PedidoOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Relay do outbox de eventos de status. A cada ciclo reserva um lote dos eventos mais antigos em uma transação curta
+ * (FOR UPDATE SKIP LOCKED e um UPDATE com a reserva: várias instâncias drenam a tabela ao mesmo tempo, cada uma com
+ * linhas diferentes), publica o lote fora de transação, espera as confirmações do broker e exclui os confirmados em
+ * um único DELETE. Nenhuma trava do banco fica presa esperando o broker.
+ * Entrega pelo menos uma vez: se a instância cair no meio, a reserva vence e o lote é publicado de novo.
+ */
+@Slf4j
+@Component
+public class PedidoOutboxRelay implements DisposableBean {
+
+    static final String METRICA_PUBLICADOS = "pedido.outbox.publicados";
+    static final String METRICA_FALHAS = "pedido.outbox.falhas";
+    static final String METRICA_LOTE = "pedido.outbox.lote";
+    static final String METRICA_ATRASO = "pedido.outbox.atraso";
+    static final String METRICA_LIMITE = "pedido.outbox.limite";
+
+    private final PedidoOutboxRepository pedidoOutboxRepository;
+    private final PedidoEventoPort pedidoEventoPort;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanhoLote;
+    private final int lotesPorCiclo;
+    private final long tempoLimiteEnvio;
+    private final Duration reserva;
+    private final String instancia = UUID.randomUUID().toString();
+    private final Counter publicados;
+    private final Counter falhas;
+    private final DistributionSummary lote;
+    private final Timer atraso;
+    private final ScheduledExecutorService agendador;
+
+    @Autowired
+    public PedidoOutboxRelay(PedidoOutboxRepository pedidoOutboxRepository,
+                             PedidoEventoPort pedidoEventoPort,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${pedido.outbox.relay.habilitado:true}") boolean habilitado,
+                             @Value("${pedido.outbox.relay.tamanho-lote:500}") int tamanhoLote,
+                             @Value("${pedido.outbox.relay.lotes-por-ciclo:20}") int lotesPorCiclo,
+                             @Value("${pedido.outbox.relay.intervalo:PT0.2S}") Duration intervalo,
+                             @Value("${pedido.outbox.relay.tempo-limite-envio:PT10S}") Duration tempoLimiteEnvio,
+                             @Value("${pedido.outbox.relay.reserva:PT30S}") Duration reserva,
+                             MeterRegistry meterRegistry) {
+        this(pedidoOutboxRepository, pedidoEventoPort, new TransactionTemplate(transactionManager), tamanhoLote,
+                lotesPorCiclo, tempoLimiteEnvio, reserva, meterRegistry,
+                Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("pedido-outbox-")));
+        if (habilitado) {
+            agendador.scheduleWithFixedDelay(this::drenar, intervalo.toMillis(), intervalo.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        log.info("📤 Relay do outbox - Habilitado: {} Lote: {} Lotes por ciclo: {} Intervalo: {}",
+                habilitado, tamanhoLote, lotesPorCiclo, intervalo);
+    }
+
+    PedidoOutboxRelay(PedidoOutboxRepository pedidoOutboxRepository, PedidoEventoPort pedidoEventoPort,
+                      TransactionTemplate transactionTemplate, int tamanhoLote, int lotesPorCiclo,
+                      Duration tempoLimiteEnvio, Duration reserva, MeterRegistry meterRegistry,
+                      ScheduledExecutorService agendador) {
+        if (tamanhoLote <= 0 || lotesPorCiclo <= 0) {
+            throw new IllegalArgumentException("Tamanho do lote e lotes por ciclo do outbox devem ser positivos");
+        }
+        // Vencida durante o envio, outra instância assumiria o lote e poderia publicar um evento fora de ordem
+        if (reserva.compareTo(tempoLimiteEnvio) <= 0) {
+            throw new IllegalArgumentException("Reserva do outbox (" + reserva + ") deve ser maior que o tempo limite de envio ("
+                    + tempoLimiteEnvio + ")");
+        }
+        this.pedidoOutboxRepository = pedidoOutboxRepository;
+        this.pedidoEventoPort = pedidoEventoPort;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanhoLote = tamanhoLote;
+        this.lotesPorCiclo = lotesPorCiclo;
+        this.tempoLimiteEnvio = tempoLimiteEnvio.toNanos();
+        this.reserva = reserva;
+        this.agendador = agendador;
+
+        this.publicados = Counter.builder(METRICA_PUBLICADOS).register(meterRegistry);
+        this.falhas = Counter.builder(METRICA_FALHAS).register(meterRegistry);
+        this.lote = DistributionSummary.builder(METRICA_LOTE).register(meterRegistry);
+        this.atraso = Timer.builder(METRICA_ATRASO).register(meterRegistry);
+        Gauge.builder(METRICA_LIMITE, () -> tamanhoLote).tag("limite", "tamanho-lote").register(meterRegistry);
+        Gauge.builder(METRICA_LIMITE, () -> lotesPorCiclo).tag("limite", "lotes-por-ciclo").register(meterRegistry);
+    }
+
+    /**
+     * Um ciclo do relay: drena lotes cheios em sequência, até lotesPorCiclo; para no primeiro lote incompleto
+     * (tabela vazia para esta instância) ou com falha de envio (espera o próximo ciclo para tentar de novo)
+     */
+    void drenar() {
+        try {
+            for (int i = 0; i < lotesPorCiclo; i++) {
+                if (drenarLote() < tamanhoLote) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("❌ Erro ao drenar outbox de eventos de status", e);
+        }
+    }
+
+    /**
+     * Publica um lote e devolve quantos eventos foram confirmados e excluídos
+     */
+    int drenarLote() {
+        List<PedidoOutboxEntity> reservados = transactionTemplate.execute(status -> reservarLote());
+        if (reservados == null || reservados.isEmpty()) {
+            return 0;
+        }
+        lote.record(reservados.size());
+
+        List<CompletableFuture<Void>> envios = new ArrayList<>(reservados.size());
+        for (PedidoOutboxEntity reservado : reservados) {
+            envios.add(pedidoEventoPort.publicarStatusAlterado(paraEvento(reservado)));
+        }
+        List<Long> confirmados = aguardarConfirmacoes(reservados, envios);
+
+        Set<Long> confirmadosSet = new HashSet<>(confirmados);
+        List<Long> naoConfirmados = reservados.stream().map(PedidoOutboxEntity::getId)
+                .filter(id -> !confirmadosSet.contains(id)).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!confirmados.isEmpty()) {
+                pedidoOutboxRepository.excluirPorIds(confirmados);
+            }
+            if (!naoConfirmados.isEmpty()) {
+                pedidoOutboxRepository.liberar(naoConfirmados, instancia);
+            }
+        });
+        log.debug("📤 Outbox: {} de {} eventos publicados", confirmados.size(), reservados.size());
+        return confirmados.size();
+    }
+
+    /**
+     * Trava os eventos livres mais antigos e reserva os que podem ser publicados já. De cada pedido fica só a sequência
+     * inicial dos seus eventos: se um evento mais antigo do mesmo pedido está com outra instância (travado ou
+     * reservado), os seguintes esperam, senão seriam publicados antes dele.
+     */
+    private List<PedidoOutboxEntity> reservarLote() {
+        Instant agora = Instant.now();
+        List<PedidoOutboxEntity> travados = pedidoOutboxRepository.travarPendentes(agora, Limit.of(tamanhoLote));
+        if (travados.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> pedidoIds = new HashSet<>();
+        List<Long> ids = new ArrayList<>(travados.size());
+        for (PedidoOutboxEntity travado : travados) {
+            pedidoIds.add(travado.getPedidoId());
+            ids.add(travado.getId());
+        }
+        Map<Long, Long> primeiroDeOutro = new HashMap<>();
+        for (PedidoOutboxPrimeiroLinha linha : pedidoOutboxRepository.primeirosForaDe(pedidoIds, ids)) {
+            primeiroDeOutro.put(linha.getPedidoId(), linha.getId());
+        }
+        List<PedidoOutboxEntity> reservados = travados.stream()
+                .filter(travado -> travado.getId() < primeiroDeOutro.getOrDefault(travado.getPedidoId(), Long.MAX_VALUE))
+                .toList();
+        if (reservados.size() < travados.size()) {
+            log.debug("📤 Outbox: {} eventos aguardam evento anterior do mesmo pedido em outra instância",
+                    travados.size() - reservados.size());
+        }
+        if (!reservados.isEmpty()) {
+            pedidoOutboxRepository.reservar(reservados.stream().map(PedidoOutboxEntity::getId).toList(), instancia,
+                    agora.plus(reserva));
+        }
+        return reservados;
+    }
+
+    /**
+     * IDs dos eventos que podem sair do outbox. Depois de uma falha, os eventos seguintes do mesmo pedido
+     * ficam para o próximo ciclo mesmo que confirmados: serão reenviados depois do que falhou, e o último
+     * evento publicado de cada pedido continua sendo o status mais recente.
+     */
+    private List<Long> aguardarConfirmacoes(List<PedidoOutboxEntity> pendentes, List<CompletableFuture<Void>> envios) {
+        long limite = System.nanoTime() + tempoLimiteEnvio;
+        Set<Long> pedidosComFalha = new HashSet<>();
+        List<Long> confirmados = new ArrayList<>(pendentes.size());
+        for (int i = 0; i < pendentes.size(); i++) {
+            PedidoOutboxEntity pendente = pendentes.get(i);
+            if (confirmar(envios.get(i), limite) && !pedidosComFalha.contains(pendente.getPedidoId())) {
+                confirmados.add(pendente.getId());
+                publicados.increment();
+                atraso.record(Duration.between(pendente.getOcorridoEm(), Instant.now()));
+            } else {
+                pedidosComFalha.add(pendente.getPedidoId());
+            }
+        }
+        int pendentesMantidos = pendentes.size() - confirmados.size();
+        if (pendentesMantidos > 0) {
+            falhas.increment(pendentesMantidos);
+            log.warn("⚠️ Outbox: {} eventos não confirmados ficam para o próximo ciclo", pendentesMantidos);
+        }
+        return confirmados;
+    }
+
+    private boolean confirmar(CompletableFuture<Void> envio, long limite) {
+        try {
+            envio.get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    private static PedidoStatusAlterado paraEvento(PedidoOutboxEntity pendente) {
+        return PedidoStatusAlterado.builder()
+                .pedidoId(pendente.getPedidoId())
+                .clienteId(pendente.getClienteId())
+                .statusAnterior(pendente.getStatusAnterior())
+                .statusAtual(pendente.getStatusAtual())
+                .ocorridoEm(pendente.getOcorridoEm())
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        agendador.shutdownNow();
+    }
+}
@@ -0,0 +1,75 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publica o resultado de cada pedido recebido do tópico novo-pedido (pedido gravado, com o status final) no tópico
+ * pedido-processado, com o ID do pedido como chave. Usa o mesmo template das retentativas: com a garantia
+ * EXATAMENTE_UMA_VEZ os envios entram na transação do listener, junto com o commit do offset.
+ */
+@Slf4j
+@Component
+public class PedidoResultadoProducer {
+
+    static final String METRICA_PUBLICADOS = "pedido.kafka.resultado.publicados";
+
+    private final KafkaTemplate<String, Object> pedidoKafkaTemplate;
+    private final String topico;
+    private final long tempoLimite;
+    private final Counter publicados;
+
+    public PedidoResultadoProducer(@Qualifier("pedidoKafkaTemplate") KafkaTemplate<String, Object> pedidoKafkaTemplate,
+                                   @Value("${pedido.kafka.resultado.topico:pedido-processado}") String topico,
+                                   @Value("${pedido.kafka.resultado.tempo-limite:PT10S}") Duration tempoLimite,
+                                   MeterRegistry meterRegistry) {
+        this.pedidoKafkaTemplate = pedidoKafkaTemplate;
+        this.topico = topico;
+        this.tempoLimite = tempoLimite.toMillis();
+        this.publicados = Counter.builder(METRICA_PUBLICADOS).register(meterRegistry);
+    }
+
+    public void publicar(PedidoResponseDTO resultado) {
+        publicar(List.of(resultado));
+    }
+
+    /**
+     * Envia todos e espera as confirmações do broker: o offset do registro só avança com os resultados gravados.
+     * Uma falha é lançada para o registro (ou lote) ser processado de novo; a nova entrega encontra o pedido
+     * já gravado e publica o resultado outra vez.
+     */
+    public void publicar(List<PedidoResponseDTO> resultados) {
+        if (resultados.isEmpty()) {
+            return;
+        }
+        CompletableFuture<?>[] envios = new CompletableFuture<?>[resultados.size()];
+        for (int i = 0; i < resultados.size(); i++) {
+            PedidoResponseDTO resultado = resultados.get(i);
+            envios[i] = pedidoKafkaTemplate.send(topico, String.valueOf(resultado.getId()), resultado);
+        }
+        try {
+            CompletableFuture.allOf(envios).get(tempoLimite, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando confirmação dos resultados", e);
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("❌ Falha ao publicar {} resultados de pedido no tópico {}", resultados.size(), topico, e);
+            throw new IllegalStateException("Falha ao publicar resultados de pedido", e);
+        }
+        publicados.increment(resultados.size());
+        log.debug("📨 {} resultados de pedido publicados no tópico {}", resultados.size(), topico);
+    }
+}
@@ -0,0 +1,83 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reenvia ao primeiro tópico de retentativa o pedido que falhou no modo PARALELO, onde o worker confirma o offset
+ * por conta própria e o @RetryableTopic do modo unitário não atua. Os headers são os que o reenvio do
+ * @RetryableTopic gravaria (tentativa, instante da próxima tentativa, origem e progresso do pedido), então dali
+ * em diante a retentativa e a DLT seguem exatamente como no modo unitário.
+ */
+@Slf4j
+@Component
+public class PedidoRetentativaProducer {
+
+    static final String TOPICO_RETENTATIVA = "novo-pedido-retry-0";
+
+    private final KafkaTemplate<String, Object> pedidoKafkaTemplate;
+    private final long atrasoInicial;
+    private final long tempoLimite;
+    private final Clock relogio;
+
+    @Autowired
+    public PedidoRetentativaProducer(@Qualifier("pedidoKafkaTemplate") KafkaTemplate<String, Object> pedidoKafkaTemplate,
+                                     @Value("${pedido.kafka.retentativa.atraso-inicial:1000}") long atrasoInicial,
+                                     @Value("${pedido.kafka.resultado.tempo-limite:PT10S}") Duration tempoLimite) {
+        this(pedidoKafkaTemplate, atrasoInicial, tempoLimite, Clock.systemUTC());
+    }
+
+    PedidoRetentativaProducer(KafkaTemplate<String, Object> pedidoKafkaTemplate, long atrasoInicial, Duration tempoLimite,
+                              Clock relogio) {
+        this.pedidoKafkaTemplate = pedidoKafkaTemplate;
+        this.atrasoInicial = atrasoInicial;
+        this.tempoLimite = tempoLimite.toMillis();
+        this.relogio = relogio;
+    }
+
+    /**
+     * Envia e espera a confirmação do broker: quem chama só confirma o offset original depois disso.
+     * Uma falha no envio é lançada para o offset não ser confirmado.
+     */
+    public void enviar(ConsumerRecord<String, PedidoRequestDTO> registro, FalhaProcessamentoPedidoException falha) {
+        Headers headers = falha.getProgresso().paraHeaders();
+        // Mesmos formatos que o DeadLetterPublishingRecoverer grava: inteiros de 4 bytes, offset de 8 e instante em BigInteger
+        headers.add(RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS, ByteBuffer.allocate(Integer.BYTES).putInt(2).array());
+        headers.add(RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP,
+                BigInteger.valueOf(relogio.millis() + atrasoInicial).toByteArray());
+        headers.add(KafkaHeaders.ORIGINAL_TOPIC, registro.topic().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(registro.partition()).array());
+        headers.add(KafkaHeaders.ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(registro.offset()).array());
+
+        try {
+            pedidoKafkaTemplate.send(new ProducerRecord<>(TOPICO_RETENTATIVA, null, registro.key(), registro.value(), headers))
+                    .get(tempoLimite, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando confirmação do reenvio para retentativa", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Falha ao reenviar pedido ao tópico " + TOPICO_RETENTATIVA, e);
+        }
+        log.warn("🔁 Pedido do offset {} da partição {} reenviado a {} na etapa {}",
+                registro.offset(), registro.partition(), TOPICO_RETENTATIVA, falha.getProgresso());
+    }
+}
@@ -0,0 +1,73 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.domain.PedidoStatusAlterado;
+import com.fiap.pedido.pots.PedidoEventoPort;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publica as mudanças de status dos pedidos no tópico pedido-status-alterado, com o ID do pedido como chave
+ * (eventos do mesmo pedido ficam na mesma partição, em ordem). O envio é assíncrono: o produtor acumula
+ * os eventos em lotes comprimidos e a confirmação do broker completa o future devolvido.
+ */
+@Slf4j
+@Component
+public class PedidoStatusProducer implements PedidoEventoPort {
+
+    static final String METRICA_PUBLICADOS = "pedido.kafka.status.publicados";
+
+    private final KafkaTemplate<String, PedidoStatusAlterado> statusKafkaTemplate;
+    private final String topico;
+    private final boolean habilitado;
+    private final Counter publicados;
+    private final Counter falhas;
+
+    public PedidoStatusProducer(@Qualifier("statusKafkaTemplate") KafkaTemplate<String, PedidoStatusAlterado> statusKafkaTemplate,
+                                @Value("${pedido.kafka.status.topico:pedido-status-alterado}") String topico,
+                                @Value("${pedido.kafka.status.habilitado:true}") boolean habilitado,
+                                MeterRegistry meterRegistry) {
+        this.statusKafkaTemplate = statusKafkaTemplate;
+        this.topico = topico;
+        this.habilitado = habilitado;
+        this.publicados = Counter.builder(METRICA_PUBLICADOS).tag("resultado", "sucesso").register(meterRegistry);
+        this.falhas = Counter.builder(METRICA_PUBLICADOS).tag("resultado", "falha").register(meterRegistry);
+    }
+
+    /**
+     * Nunca lança: com o broker fora o send falha em até max.block.ms e o future é completado com o erro.
+     * Desabilitado, o evento é descartado e o future já vem completo.
+     */
+    @Override
+    public CompletableFuture<Void> publicarStatusAlterado(PedidoStatusAlterado evento) {
+        if (!habilitado) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return statusKafkaTemplate.send(topico, String.valueOf(evento.getPedidoId()), evento)
+                    .whenComplete((resultado, erro) -> {
+                        if (erro == null) {
+                            publicados.increment();
+                        } else {
+                            registrarFalha(evento, erro);
+                        }
+                    })
+                    .thenApply(resultado -> null);
+        } catch (Exception e) {
+            registrarFalha(evento, e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void registrarFalha(PedidoStatusAlterado evento, Throwable erro) {
+        falhas.increment();
+        log.error("❌ Falha ao publicar mudança de status do pedido ID: {} ({} → {})",
+                evento.getPedidoId(), evento.getStatusAnterior(), evento.getStatusAtual(), erro);
+    }
+}
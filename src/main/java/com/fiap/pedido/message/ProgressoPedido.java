@@ -0,0 +1,104 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.enuns.EtapaPedido;
+import com.fiap.pedido.enuns.StatusPedido;
+import lombok.Getter;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Até onde o processamento de um pedido chegou: a etapa em andamento e o que as etapas anteriores produziram.
+ * Cada etapa de estoque é uma única chamada para o pedido inteiro, então não há progresso por item. Viaja nos
+ * headers do registro reenviado ao tópico de retentativa, para que a nova tentativa continue da etapa que falhou
+ * em vez de repetir reservas e cobranças.
+ */
+@Getter
+public class ProgressoPedido {
+
+    static final String HEADER_ETAPA = "pedido-etapa";
+    static final String HEADER_VALOR_TOTAL = "pedido-valor-total";
+    static final String HEADER_RESERVA_ESTOQUE_ID = "pedido-reserva-estoque-id";
+    static final String HEADER_PAGAMENTO_ID = "pedido-pagamento-id";
+    static final String HEADER_STATUS_FINAL = "pedido-status-final";
+
+    private EtapaPedido etapa = EtapaPedido.CLIENTE;
+    private double valorTotal;
+    private String reservaEstoqueId;
+    private String pagamentoId;
+    private StatusPedido statusFinal;
+
+    /**
+     * Lê o progresso gravado em uma tentativa anterior; sem headers o pedido começa do zero.
+     * Quando um header se repete (várias retentativas), vale o último.
+     */
+    public static ProgressoPedido lerDe(Headers headers) {
+        ProgressoPedido progresso = new ProgressoPedido();
+        if (headers == null || ler(headers, HEADER_ETAPA) == null) {
+            return progresso;
+        }
+        progresso.etapa = EtapaPedido.valueOf(ler(headers, HEADER_ETAPA));
+        progresso.valorTotal = Double.parseDouble(ler(headers, HEADER_VALOR_TOTAL));
+        progresso.reservaEstoqueId = ler(headers, HEADER_RESERVA_ESTOQUE_ID);
+        progresso.pagamentoId = ler(headers, HEADER_PAGAMENTO_ID);
+        String statusFinal = ler(headers, HEADER_STATUS_FINAL);
+        progresso.statusFinal = statusFinal != null ? StatusPedido.valueOf(statusFinal) : null;
+        return progresso;
+    }
+
+    public Headers paraHeaders() {
+        Headers headers = new RecordHeaders();
+        escrever(headers, HEADER_ETAPA, etapa.name());
+        escrever(headers, HEADER_VALOR_TOTAL, String.valueOf(valorTotal));
+        escrever(headers, HEADER_RESERVA_ESTOQUE_ID, reservaEstoqueId);
+        escrever(headers, HEADER_PAGAMENTO_ID, pagamentoId);
+        escrever(headers, HEADER_STATUS_FINAL, statusFinal != null ? statusFinal.name() : null);
+        return headers;
+    }
+
+    public boolean isRetomada() {
+        return etapa != EtapaPedido.CLIENTE;
+    }
+
+    void avancar(EtapaPedido proximaEtapa) {
+        this.etapa = proximaEtapa;
+    }
+
+    void somarValor(double valor) {
+        valorTotal += valor;
+    }
+
+    void registrarReservaEstoque(String reservaEstoqueId) {
+        this.reservaEstoqueId = reservaEstoqueId;
+    }
+
+    void registrarPagamento(String pagamentoId) {
+        this.pagamentoId = pagamentoId;
+    }
+
+    /**
+     * Decide o status final do pedido e segue para a próxima etapa (compensações ou gravação)
+     */
+    void encerrar(StatusPedido statusFinal, EtapaPedido proximaEtapa) {
+        this.statusFinal = statusFinal;
+        avancar(proximaEtapa);
+    }
+
+    @Override
+    public String toString() {
+        return etapa + " (status final: " + statusFinal + ")";
+    }
+
+    private static String ler(Headers headers, String nome) {
+        Header header = headers.lastHeader(nome);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private static void escrever(Headers headers, String nome, String valor) {
+        if (valor != null) {
+            headers.add(nome, valor.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
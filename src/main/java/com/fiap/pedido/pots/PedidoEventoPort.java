@@ -0,0 +1,13 @@
+package com.fiap.pedido.pots;
+
+import com.fiap.pedido.domain.PedidoStatusAlterado;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publicação dos eventos de pedido para outros serviços. Não lança exceção: o resultado (confirmação do broker
+ * ou falha) chega pelo future, para quem publica decidir se o evento pode ser descartado.
+ */
+public interface PedidoEventoPort {
+    CompletableFuture<Void> publicarStatusAlterado(PedidoStatusAlterado evento);
+}
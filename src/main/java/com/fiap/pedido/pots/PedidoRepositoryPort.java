@@ -1,13 +1,27 @@
 package com.fiap.pedido.pots;
 
 import com.fiap.pedido.domain.Pedido;
+import com.fiap.pedido.domain.PedidoCursor;
+import com.fiap.pedido.domain.PedidoFiltro;
+import com.fiap.pedido.domain.PedidoPagina;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.StatusPedido;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface PedidoRepositoryPort {
     Pedido save(Pedido pedido);
-    Optional<Pedido> findById(Long id);
-    List<Pedido> findAll();
-    Pedido atualizarStatus(Long id, String status);
-}
\ No newline at end of file
+    List<Pedido> saveAll(List<Pedido> pedidos);
+    Optional<PedidoResponseDTO> findResponseById(Long id);
+    PedidoPagina findPagina(PedidoFiltro filtro, PedidoCursor cursor, int tamanho);
+    PedidoPagina findPaginaPorCliente(Long clienteId, PedidoCursor cursor, int tamanho);
+    PedidoPagina findPaginaPorStatusAntesDe(StatusPedido status, LocalDateTime limite, PedidoCursor cursor, int tamanho);
+    long exportarTodos(Consumer<Pedido> consumidor);
+    Optional<StatusPedido> findStatusById(Long id);
+    boolean existsByChaveIdempotencia(String chaveIdempotencia);
+    Optional<PedidoResponseDTO> findResponseByChaveIdempotencia(String chaveIdempotencia);
+    boolean transicionarStatus(Long id, StatusPedido statusEsperado, StatusPedido novoStatus);
+}
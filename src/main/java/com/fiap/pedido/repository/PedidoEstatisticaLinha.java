@@ -0,0 +1,21 @@
+package com.fiap.pedido.repository;
+
+import com.fiap.pedido.enuns.StatusPedido;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Agregado de pedidos por status e hora de criação, usado para semear as estatísticas em memória
+ */
+@Getter
+@AllArgsConstructor
+public class PedidoEstatisticaLinha {
+
+    private final StatusPedido status;
+    private final LocalDate data;
+    private final Integer hora;
+    private final Long quantidade;
+    private final Double receita;
+}
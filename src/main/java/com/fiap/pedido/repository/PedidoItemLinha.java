@@ -0,0 +1,25 @@
+package com.fiap.pedido.repository;
+
+import com.fiap.pedido.enuns.StatusPedido;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Linha plana pedido + item lida direto do resultado da consulta (constructor expression),
+ * sem entidade gerenciada nem objeto de domínio intermediário
+ */
+@Getter
+@AllArgsConstructor
+public class PedidoItemLinha {
+
+    private final Long pedidoId;
+    private final Long clienteId;
+    private final StatusPedido status;
+    private final LocalDateTime dataCriacao;
+    private final Long itemId;
+    private final String produtoId;
+    private final Integer quantidade;
+    private final Double precoUnitario;
+}
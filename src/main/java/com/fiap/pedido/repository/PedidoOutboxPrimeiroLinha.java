@@ -0,0 +1,15 @@
+package com.fiap.pedido.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento mais antigo (menor ID) de um pedido no outbox
+ */
+@Getter
+@AllArgsConstructor
+public class PedidoOutboxPrimeiroLinha {
+
+    private final Long pedidoId;
+    private final Long id;
+}
@@ -0,0 +1,60 @@
+package com.fiap.pedido.repository;
+
+import com.fiap.pedido.entity.PedidoOutboxEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface PedidoOutboxRepository extends JpaRepository<PedidoOutboxEntity, Long> {
+
+    /**
+     * Trava os eventos livres mais antigos (sem reserva ou com a reserva vencida) com SELECT ... FOR UPDATE SKIP LOCKED
+     * (timeout -2): linhas já travadas por outra instância do relay são puladas em vez de esperadas.
+     * Deve ser chamado dentro de uma transação.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM PedidoOutboxEntity o WHERE o.reservadoAte IS NULL OR o.reservadoAte < :agora ORDER BY o.id")
+    List<PedidoOutboxEntity> travarPendentes(@Param("agora") Instant agora, Limit limite);
+
+    /**
+     * Evento mais antigo de cada pedido entre os que não estão em ids (travados ou reservados por outra instância,
+     * ou gravados depois da trava)
+     */
+    @Query("SELECT new com.fiap.pedido.repository.PedidoOutboxPrimeiroLinha(o.pedidoId, MIN(o.id)) " +
+            "FROM PedidoOutboxEntity o WHERE o.pedidoId IN :pedidoIds AND o.id NOT IN :ids GROUP BY o.pedidoId")
+    List<PedidoOutboxPrimeiroLinha> primeirosForaDe(@Param("pedidoIds") Collection<Long> pedidoIds,
+                                                    @Param("ids") Collection<Long> ids);
+
+    /**
+     * Reserva os eventos para uma instância do relay em um único UPDATE
+     */
+    @Modifying
+    @Query("UPDATE PedidoOutboxEntity o SET o.reservadoPor = :instancia, o.reservadoAte = :ate WHERE o.id IN :ids")
+    int reservar(@Param("ids") Collection<Long> ids, @Param("instancia") String instancia, @Param("ate") Instant ate);
+
+    /**
+     * Devolve os eventos não publicados, se a reserva ainda for desta instância
+     */
+    @Modifying
+    @Query("UPDATE PedidoOutboxEntity o SET o.reservadoPor = NULL, o.reservadoAte = NULL " +
+            "WHERE o.id IN :ids AND o.reservadoPor = :instancia")
+    int liberar(@Param("ids") Collection<Long> ids, @Param("instancia") String instancia);
+
+    /**
+     * Exclui os eventos já publicados em um único DELETE
+     */
+    @Modifying
+    @Query("DELETE FROM PedidoOutboxEntity o WHERE o.id IN :ids")
+    int excluirPorIds(@Param("ids") Collection<Long> ids);
+}
@@ -1,14 +1,86 @@
 package com.fiap.pedido.repository;
 
 import com.fiap.pedido.entity.PedidoEntity;
+import com.fiap.pedido.enuns.StatusPedido;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface PedidoRepository extends JpaRepository<PedidoEntity, Long> {
+public interface PedidoRepository extends JpaRepository<PedidoEntity, Long>, PedidoRepositoryCustom {
 
     @Query("SELECT p FROM PedidoEntity p LEFT JOIN FETCH p.itens WHERE p.id = :id")
     Optional<PedidoEntity> findByIdWithItens(@Param("id") Long id);
-}
\ No newline at end of file
+
+    @Query("SELECT DISTINCT p FROM PedidoEntity p LEFT JOIN FETCH p.itens WHERE p.id IN :ids")
+    List<PedidoEntity> findAllWithItensByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Projeção das leituras (consulta por ID e listagem): uma linha por item, sem hidratar entidades
+     */
+    @Query("SELECT new com.fiap.pedido.repository.PedidoItemLinha(" +
+            "p.id, p.clienteId, p.status, p.dataCriacao, i.id, i.produtoId, i.quantidade, i.precoUnitario) " +
+            "FROM PedidoEntity p LEFT JOIN p.itens i WHERE p.id IN :ids ORDER BY p.id, i.id")
+    List<PedidoItemLinha> findLinhasByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.fiap.pedido.repository.PedidoItemLinha(" +
+            "p.id, p.clienteId, p.status, p.dataCriacao, i.id, i.produtoId, i.quantidade, i.precoUnitario) " +
+            "FROM PedidoEntity p LEFT JOIN p.itens i WHERE p.id = :id ORDER BY i.id")
+    @Transactional(readOnly = true)
+    List<PedidoItemLinha> findLinhasById(@Param("id") Long id);
+
+    /**
+     * Uma única agregação (status × dia × hora) com quantidade e receita, para semear as estatísticas
+     */
+    @Query("SELECT new com.fiap.pedido.repository.PedidoEstatisticaLinha(" +
+            "p.status, cast(p.dataCriacao as LocalDate), extract(hour from p.dataCriacao), " +
+            "count(distinct p.id), coalesce(sum(i.quantidade * i.precoUnitario), 0.0)) " +
+            "FROM PedidoEntity p LEFT JOIN p.itens i " +
+            "GROUP BY p.status, cast(p.dataCriacao as LocalDate), extract(hour from p.dataCriacao)")
+    List<PedidoEstatisticaLinha> agregarPorStatusEHora();
+
+    @Query("SELECT new com.fiap.pedido.repository.PedidoValorLinha(" +
+            "p.dataCriacao, coalesce(sum(i.quantidade * i.precoUnitario), 0.0)) " +
+            "FROM PedidoEntity p LEFT JOIN p.itens i WHERE p.id = :id GROUP BY p.id, p.dataCriacao")
+    Optional<PedidoValorLinha> findValorById(@Param("id") Long id);
+
+    boolean existsByChaveIdempotencia(String chaveIdempotencia);
+
+    @Query("SELECT p.id FROM PedidoEntity p WHERE p.chaveIdempotencia = :chave")
+    Optional<Long> findIdByChaveIdempotencia(@Param("chave") String chaveIdempotencia);
+
+    @Query("SELECT p.status FROM PedidoEntity p WHERE p.id = :id")
+    Optional<StatusPedido> findStatusById(@Param("id") Long id);
+
+    /**
+     * Altera apenas a coluna status, e somente se o pedido ainda estiver no status esperado (compare-and-set).
+     * Retorna a quantidade de linhas alteradas: 1 se a transição ocorreu, 0 caso contrário.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE PedidoEntity p SET p.status = :novoStatus WHERE p.id = :id AND p.status = :statusEsperado")
+    int updateStatusIfMatches(@Param("id") Long id,
+                              @Param("statusEsperado") StatusPedido statusEsperado,
+                              @Param("novoStatus") StatusPedido novoStatus);
+
+    /**
+     * Percorre todos os pedidos com cursor do banco (somente avanço), sem carregar a tabela em memória.
+     * Deve ser consumido dentro de uma transação e fechado ao final.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM PedidoEntity p LEFT JOIN FETCH p.itens ORDER BY p.id")
+    Stream<PedidoEntity> streamAllWithItens();
+}
@@ -0,0 +1,15 @@
+package com.fiap.pedido.repository;
+
+import com.fiap.pedido.domain.PedidoCursor;
+import com.fiap.pedido.domain.PedidoFiltro;
+
+import java.util.List;
+
+public interface PedidoRepositoryCustom {
+
+    /**
+     * Busca os IDs da próxima página de pedidos ordenados por dataCriacao e id decrescentes,
+     * aplicando os filtros informados e continuando a partir do cursor (keyset)
+     */
+    List<Long> findIdsPagina(PedidoFiltro filtro, PedidoCursor cursor, int limite);
+}
@@ -0,0 +1,60 @@
+package com.fiap.pedido.repository;
+
+import com.fiap.pedido.domain.PedidoCursor;
+import com.fiap.pedido.domain.PedidoFiltro;
+import com.fiap.pedido.entity.PedidoEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PedidoRepositoryCustomImpl implements PedidoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findIdsPagina(PedidoFiltro filtro, PedidoCursor cursor, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<PedidoEntity> pedido = query.from(PedidoEntity.class);
+
+        List<Predicate> predicados = new ArrayList<>();
+        if (filtro != null) {
+            if (filtro.getStatus() != null) {
+                predicados.add(cb.equal(pedido.get("status"), filtro.getStatus()));
+            }
+            if (filtro.getClienteId() != null) {
+                predicados.add(cb.equal(pedido.get("clienteId"), filtro.getClienteId()));
+            }
+            if (filtro.getDataInicio() != null) {
+                predicados.add(cb.greaterThanOrEqualTo(pedido.<LocalDateTime>get("dataCriacao"), filtro.getDataInicio()));
+            }
+            if (filtro.getDataFim() != null) {
+                predicados.add(cb.lessThan(pedido.<LocalDateTime>get("dataCriacao"), filtro.getDataFim()));
+            }
+        }
+        if (cursor != null) {
+            // (dataCriacao, id) < (cursor.dataCriacao, cursor.id)
+            predicados.add(cb.or(
+                    cb.lessThan(pedido.<LocalDateTime>get("dataCriacao"), cursor.getDataCriacao()),
+                    cb.and(
+                            cb.equal(pedido.get("dataCriacao"), cursor.getDataCriacao()),
+                            cb.lessThan(pedido.<Long>get("id"), cursor.getId()))));
+        }
+
+        query.select(pedido.get("id"))
+                .where(predicados.toArray(new Predicate[0]))
+                .orderBy(cb.desc(pedido.get("dataCriacao")), cb.desc(pedido.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+}
@@ -0,0 +1,17 @@
+package com.fiap.pedido.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data de criação e valor total (soma dos itens) de um pedido
+ */
+@Getter
+@AllArgsConstructor
+public class PedidoValorLinha {
+
+    private final LocalDateTime dataCriacao;
+    private final Double valor;
+}
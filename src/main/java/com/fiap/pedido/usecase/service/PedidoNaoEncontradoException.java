@@ -0,0 +1,11 @@
+package com.fiap.pedido.usecase.service;
+
+/**
+ * Pedido inexistente para o ID informado; o controller responde 404
+ */
+public class PedidoNaoEncontradoException extends RuntimeException {
+
+    public PedidoNaoEncontradoException(Long id) {
+        super("Pedido não encontrado: " + id);
+    }
+}
@@ -1,14 +1,32 @@
 package com.fiap.pedido.usecase.service;
 
 
+import com.fiap.pedido.domain.PedidoFiltro;
 import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.dto.response.PedidoEstatisticasResponseDTO;
+import com.fiap.pedido.dto.response.PedidoPaginaResponseDTO;
 import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.dto.response.TransicaoStatusResponseDTO;
+import com.fiap.pedido.enuns.StatusPedido;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface PedidoUseCase {
     PedidoResponseDTO criarPedido(PedidoRequestDTO pedidoRequest);
+    PedidoResponseDTO abrirPedido(PedidoRequestDTO pedidoRequest);
+    PedidoResponseDTO registrarPedido(PedidoRequestDTO pedidoRequest, StatusPedido status, String chaveIdempotencia);
+    List<PedidoResponseDTO> registrarPedidos(List<PedidoRequestDTO> pedidosRequest, List<StatusPedido> status,
+                                             List<String> chavesIdempotencia);
     PedidoResponseDTO consultarPedido(Long id);
-    List<PedidoResponseDTO> listarPedidos();
-    PedidoResponseDTO atualizarStatus(Long id, String status);
+    Optional<PedidoResponseDTO> consultarPedidoPorChaveIdempotencia(String chaveIdempotencia);
+    PedidoPaginaResponseDTO listarPedidos(PedidoFiltro filtro, String cursor, Integer tamanho);
+    PedidoPaginaResponseDTO listarPedidosDoCliente(Long clienteId, String cursor, Integer tamanho);
+    PedidoPaginaResponseDTO listarPedidosAbertosAntesDe(LocalDateTime limite, String cursor, Integer tamanho);
+    long exportarPedidos(Consumer<PedidoResponseDTO> consumidor);
+    PedidoEstatisticasResponseDTO consultarEstatisticas();
+    TransicaoStatusResponseDTO atualizarStatus(Long id, String status, String statusEsperado);
+    boolean transicionarStatus(Long id, StatusPedido statusEsperado, StatusPedido novoStatus);
 }
\ No newline at end of file
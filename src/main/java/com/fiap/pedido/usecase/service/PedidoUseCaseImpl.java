@@ -2,114 +2,274 @@ package com.fiap.pedido.usecase.service;
 
 import com.fiap.pedido.domain.Pedido;
 import com.fiap.pedido.domain.ItemPedido;
+import com.fiap.pedido.domain.PedidoCursor;
+import com.fiap.pedido.domain.PedidoFiltro;
+import com.fiap.pedido.domain.PedidoPagina;
 import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.estatistica.PedidoEstatisticas;
 import com.fiap.pedido.mapper.PedidoMapper;
 import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.dto.response.PedidoEstatisticasResponseDTO;
+import com.fiap.pedido.dto.response.PedidoPaginaResponseDTO;
 import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.dto.response.TransicaoStatusResponseDTO;
 import com.fiap.pedido.pots.PedidoRepositoryPort;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PedidoUseCaseImpl implements PedidoUseCase {
 
+    static final int TAMANHO_PAGINA_PADRAO = 20;
+    static final int TAMANHO_PAGINA_MAXIMO = 100;
+
     private final PedidoRepositoryPort pedidoRepositoryPort;
     private final PedidoMapper mapper;
+    private final PedidoEstatisticas pedidoEstatisticas;
 
     @Override
     public PedidoResponseDTO criarPedido(PedidoRequestDTO request) {
         log.info("🆕 Iniciando criação de pedido para cliente: {}", request.getClienteId());
-
         Pedido pedido = mapper.toDomain(request);
-        pedido.setStatus(StatusPedido.ABERTO);
         pedido.setDataCriacao(LocalDateTime.now());
 
-        log.info("📝 Dados do pedido mapeados - Status: {} Data: {}",
-                pedido.getStatus(), pedido.getDataCriacao());
+        // Regras de estoque e crédito avaliadas antes do INSERT: o pedido é gravado uma única vez
+        pedido.setStatus(decidirStatus(pedido));
+
+        Pedido pedidoSalvo = pedidoRepositoryPort.save(pedido);
+        log.info("✅ Pedido processado - ID: {} Status Final: {}",
+                pedidoSalvo.getId(), pedidoSalvo.getStatus());
+
+        return mapper.toResponse(pedidoSalvo);
+    }
+
+    @Override
+    public PedidoResponseDTO abrirPedido(PedidoRequestDTO request) {
+        log.info("🆕 Abrindo pedido com status ABERTO para cliente: {}", request.getClienteId());
+        return registrarPedido(request, StatusPedido.ABERTO, null);
+    }
+
+    /**
+     * Grava o pedido com o status informado; a chave de idempotência (opcional) é protegida pelo índice único
+     */
+    @Override
+    public PedidoResponseDTO registrarPedido(PedidoRequestDTO request, StatusPedido status, String chaveIdempotencia) {
+        Pedido pedido = mapper.toDomain(request);
+        pedido.setStatus(status);
+        pedido.setDataCriacao(LocalDateTime.now());
+        pedido.setChaveIdempotencia(chaveIdempotencia);
 
         Pedido pedidoSalvo = pedidoRepositoryPort.save(pedido);
         log.info("💾 Pedido salvo no banco - ID: {} Status: {}",
                 pedidoSalvo.getId(), pedidoSalvo.getStatus());
 
-        Pedido pedidoProcessado = processarPedido(pedidoSalvo);
+        return mapper.toResponse(pedidoSalvo);
+    }
 
-        PedidoResponseDTO response = mapper.toResponse(pedidoProcessado);
-        log.info("✅ Pedido processado - ID: {} Status Final: {}",
-                pedidoProcessado.getId(), pedidoProcessado.getStatus());
+    /**
+     * Grava um lote de pedidos, cada um com o status final e a chave de idempotência (lista opcional)
+     * informados na mesma posição, em uma única transação
+     */
+    @Override
+    public List<PedidoResponseDTO> registrarPedidos(List<PedidoRequestDTO> requests, List<StatusPedido> status,
+                                                    List<String> chavesIdempotencia) {
+        if (requests.size() != status.size()) {
+            throw new IllegalArgumentException("Quantidade de status difere da quantidade de pedidos");
+        }
+        if (chavesIdempotencia != null && chavesIdempotencia.size() != requests.size()) {
+            throw new IllegalArgumentException("Quantidade de chaves de idempotência difere da quantidade de pedidos");
+        }
+        LocalDateTime agora = LocalDateTime.now();
+        List<Pedido> pedidos = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            Pedido pedido = mapper.toDomain(requests.get(i));
+            pedido.setStatus(status.get(i));
+            pedido.setDataCriacao(agora);
+            pedido.setChaveIdempotencia(chavesIdempotencia != null ? chavesIdempotencia.get(i) : null);
+            pedidos.add(pedido);
+        }
+
+        List<Pedido> salvos = pedidoRepositoryPort.saveAll(pedidos);
+        log.info("💾 Lote de {} pedidos salvo no banco", salvos.size());
 
-        return response;
+        List<PedidoResponseDTO> respostas = new ArrayList<>(salvos.size());
+        for (Pedido salvo : salvos) {
+            respostas.add(mapper.toResponse(salvo));
+        }
+        return respostas;
     }
 
     @Override
     public PedidoResponseDTO consultarPedido(Long id) {
         log.info("🔍 Consultando pedido por ID: {}", id);
-        Pedido pedido = pedidoRepositoryPort.findById(id)
+        // Leitura direto na projeção de resposta (com cache), sem entidade nem domínio intermediário
+        PedidoResponseDTO pedido = pedidoRepositoryPort.findResponseById(id)
                 .orElseThrow(() -> {
                     log.error("❌ Pedido não encontrado com ID: {}", id);
-                    return new RuntimeException("Pedido não encontrado");
+                    return new PedidoNaoEncontradoException(id);
                 });
 
         log.info("✅ Pedido encontrado - ID: {} Status: {}", pedido.getId(), pedido.getStatus());
-        return mapper.toResponse(pedido);
+        return pedido;
     }
 
+    /**
+     * Pedido gravado a partir de uma mensagem do Kafka, pela chave de idempotência da mensagem
+     */
     @Override
-    public List<PedidoResponseDTO> listarPedidos() {
-        log.info("📋 Listando todos os pedidos");
-        List<Pedido> pedidos = pedidoRepositoryPort.findAll();
-        log.info("📊 Encontrados {} pedidos", pedidos.size());
-        return mapper.toResponseList(pedidos);
+    public Optional<PedidoResponseDTO> consultarPedidoPorChaveIdempotencia(String chaveIdempotencia) {
+        log.info("🔍 Consultando pedido pela chave de idempotência: {}", chaveIdempotencia);
+        return pedidoRepositoryPort.findResponseByChaveIdempotencia(chaveIdempotencia);
     }
 
     @Override
-    public PedidoResponseDTO atualizarStatus(Long id, String status) {
-        log.info("🔄 Atualizando status do pedido ID: {} para: {}", id, status);
+    public PedidoPaginaResponseDTO listarPedidos(PedidoFiltro filtro, String cursor, Integer tamanho) {
+        int tamanhoPagina = normalizarTamanhoPagina(tamanho);
+        log.info("📋 Listando pedidos - Tamanho: {} Cursor: {}", tamanhoPagina, cursor);
+        return montarPagina(pedidoRepositoryPort.findPagina(filtro, decodificarCursor(cursor), tamanhoPagina), tamanhoPagina);
+    }
 
-        Pedido pedido = pedidoRepositoryPort.findById(id)
+    @Override
+    public PedidoPaginaResponseDTO listarPedidosDoCliente(Long clienteId, String cursor, Integer tamanho) {
+        int tamanhoPagina = normalizarTamanhoPagina(tamanho);
+        log.info("📋 Listando pedidos do cliente: {} - Tamanho: {} Cursor: {}", clienteId, tamanhoPagina, cursor);
+        return montarPagina(pedidoRepositoryPort.findPaginaPorCliente(clienteId, decodificarCursor(cursor), tamanhoPagina),
+                tamanhoPagina);
+    }
+
+    @Override
+    public PedidoPaginaResponseDTO listarPedidosAbertosAntesDe(LocalDateTime limite, String cursor, Integer tamanho) {
+        if (limite == null) {
+            throw new IllegalArgumentException("Data limite é obrigatória");
+        }
+        int tamanhoPagina = normalizarTamanhoPagina(tamanho);
+        log.info("📋 Listando pedidos ABERTOS criados antes de: {} - Tamanho: {} Cursor: {}", limite, tamanhoPagina, cursor);
+        return montarPagina(pedidoRepositoryPort.findPaginaPorStatusAntesDe(
+                StatusPedido.ABERTO, limite, decodificarCursor(cursor), tamanhoPagina), tamanhoPagina);
+    }
+
+    @Override
+    public long exportarPedidos(Consumer<PedidoResponseDTO> consumidor) {
+        log.info("📤 Exportando todos os pedidos");
+        long total = pedidoRepositoryPort.exportarTodos(pedido -> consumidor.accept(mapper.toResponse(pedido)));
+        log.info("📊 Exportados {} pedidos", total);
+        return total;
+    }
+
+    @Override
+    public PedidoEstatisticasResponseDTO consultarEstatisticas() {
+        log.info("📊 Consultando estatísticas de pedidos");
+        return pedidoEstatisticas.resumo();
+    }
+
+    @Override
+    public TransicaoStatusResponseDTO atualizarStatus(Long id, String status, String statusEsperado) {
+        log.info("🔄 Atualizando status do pedido ID: {} para: {} (esperado: {})", id, status, statusEsperado);
+
+        StatusPedido novoStatus = converterStatus(status);
+        StatusPedido esperado = statusEsperado != null
+                ? converterStatus(statusEsperado)
+                : buscarStatusAtual(id);
+
+        if (transicionarStatus(id, esperado, novoStatus)) {
+            return TransicaoStatusResponseDTO.builder()
+                    .id(id)
+                    .statusEsperado(esperado.name())
+                    .statusAtual(novoStatus.name())
+                    .transicionado(true)
+                    .build();
+        }
+
+        return TransicaoStatusResponseDTO.builder()
+                .id(id)
+                .statusEsperado(esperado.name())
+                .statusAtual(buscarStatusAtual(id).name())
+                .transicionado(false)
+                .build();
+    }
+
+    @Override
+    public boolean transicionarStatus(Long id, StatusPedido statusEsperado, StatusPedido novoStatus) {
+        boolean transicionado = pedidoRepositoryPort.transicionarStatus(id, statusEsperado, novoStatus);
+        if (transicionado) {
+            log.info("✅ Status atualizado com sucesso - ID: {} | {} → {}", id, statusEsperado, novoStatus);
+        } else {
+            log.warn("⚠️ Status do pedido ID: {} não foi alterado: status atual difere de {}", id, statusEsperado);
+        }
+        return transicionado;
+    }
+
+    private StatusPedido buscarStatusAtual(Long id) {
+        return pedidoRepositoryPort.findStatusById(id)
                 .orElseThrow(() -> {
                     log.error("❌ Pedido não encontrado para atualização - ID: {}", id);
-                    return new RuntimeException("Pedido não encontrado");
+                    return new PedidoNaoEncontradoException(id);
                 });
+    }
 
-        StatusPedido novoStatus = StatusPedido.valueOf(status.toUpperCase());
-        pedido.setStatus(novoStatus);
-        Pedido pedidoAtualizado = pedidoRepositoryPort.save(pedido);
+    private StatusPedido converterStatus(String status) {
+        try {
+            return StatusPedido.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.error("❌ Status inválido: {}", status);
+            throw new IllegalArgumentException("Status inválido: " + status, e);
+        }
+    }
 
-        log.info("✅ Status atualizado com sucesso - ID: {} Novo Status: {}", id, novoStatus);
-        return mapper.toResponse(pedidoAtualizado);
+    private PedidoCursor decodificarCursor(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : PedidoCursor.decodificar(cursor);
+    }
+
+    private PedidoPaginaResponseDTO montarPagina(PedidoPagina pagina, int tamanhoPagina) {
+        log.info("📊 Encontrados {} pedidos na página", pagina.getPedidos().size());
+        return PedidoPaginaResponseDTO.builder()
+                .pedidos(pagina.getPedidos())
+                .proximoCursor(pagina.getProximoCursor() != null ? pagina.getProximoCursor().codificar() : null)
+                .temMais(pagina.getProximoCursor() != null)
+                .tamanho(tamanhoPagina)
+                .build();
     }
 
     /**
-     * Processa o pedido aplicando as regras de negócio
+     * Aplica o tamanho padrão quando não informado e limita ao tamanho máximo permitido
      */
-    private Pedido processarPedido(Pedido pedido) {
-        log.info("⚙️ Iniciando processamento do pedido ID: {}", pedido.getId());
+    private int normalizarTamanhoPagina(Integer tamanho) {
+        if (tamanho == null || tamanho <= 0) {
+            return TAMANHO_PAGINA_PADRAO;
+        }
+        return Math.min(tamanho, TAMANHO_PAGINA_MAXIMO);
+    }
+
+    /**
+     * Aplica as regras de negócio e devolve o status final do pedido, sem gravar nada
+     */
+    private StatusPedido decidirStatus(Pedido pedido) {
+        log.info("⚙️ Iniciando processamento do pedido do cliente: {}", pedido.getClienteId());
 
         // 1. Verificar estoque
         if (!verificarEstoqueDisponivel(pedido)) {
-            log.warn("❌ Pedido rejeitado por falta de estoque - ID: {}", pedido.getId());
-            pedido.setStatus(StatusPedido.FECHADO_SEM_ESTOQUE);
-            return pedidoRepositoryPort.save(pedido);
+            log.warn("❌ Pedido rejeitado por falta de estoque - Cliente: {}", pedido.getClienteId());
+            return StatusPedido.FECHADO_SEM_ESTOQUE;
         }
 
         // 2. Verificar crédito do cliente
         if (!verificarCreditoCliente(pedido)) {
-            log.warn("❌ Pedido rejeitado por crédito insuficiente - ID: {}", pedido.getId());
-            pedido.setStatus(StatusPedido.FECHADO_SEM_CREDITO);
-            return pedidoRepositoryPort.save(pedido);
+            log.warn("❌ Pedido rejeitado por crédito insuficiente - Cliente: {}", pedido.getClienteId());
+            return StatusPedido.FECHADO_SEM_CREDITO;
         }
 
         // 3. Pedido aprovado
-        log.info("✅ Pedido aprovado e processado com sucesso - ID: {}", pedido.getId());
-        pedido.setStatus(StatusPedido.FECHADO_COM_SUCESSO);
-
-        return pedidoRepositoryPort.save(pedido);
+        log.info("✅ Pedido aprovado - Cliente: {}", pedido.getClienteId());
+        return StatusPedido.FECHADO_COM_SUCESSO;
     }
 
     /**
@@ -5,6 +5,7 @@ import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
 import com.fiap.pedido.dto.request.PedidoRequestDTO;
 import com.fiap.pedido.dto.response.PagamentoResponseDTO;
 import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.StatusPedido;
 import com.fiap.pedido.gateway.PagamentoServiceClient;
 import com.fiap.pedido.gateway.EstoqueGateway;
 import lombok.RequiredArgsConstructor;
@@ -12,6 +13,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @Component
@@ -25,25 +29,22 @@ public class ProcessarPedidoUseCaseImpl implements ProcessarPedidoUseCase {
     @Override
     public void processarPedido(PedidoRequestDTO pedidoRequestDTO) {
         PedidoResponseDTO pedidoResponse = null;
+        // Reserva feita e ainda não baixada nem liberada: é liberada se o processamento falhar
+        String reservaAberta = null;
         try {
-            // 1. Criar pedido com status ABERTO
-            pedidoResponse = pedidoUseCase.criarPedido(pedidoRequestDTO);
-
-            // 2. Baixar estoque para cada item
-            boolean estoqueBaixado = true;
-            for (ItemPedidoRequestDTO item : pedidoRequestDTO.getItens()) {
-                boolean baixado = estoqueGateway.baixarEstoque(item.getProdutoId(), item.getQuantidade());
-                if (!baixado) {
-                    estoqueBaixado = false;
-                    break;
-                }
-            }
+            // 1. Criar pedido com status ABERTO (o ID é enviado ao serviço de pagamento)
+            pedidoResponse = pedidoUseCase.abrirPedido(pedidoRequestDTO);
+
+            // 2. Reservar estoque de todos os itens em uma única chamada: ou reserva tudo, ou nada
+            Map<String, Integer> quantidades = quantidadesPorProduto(pedidoRequestDTO);
+            Optional<String> reserva = estoqueGateway.reservarEstoque(quantidades);
 
-            if (!estoqueBaixado) {
+            if (reserva.isEmpty()) {
                 log.error("Estoque insuficiente para pedido: {}", pedidoRequestDTO);
-                pedidoUseCase.atualizarStatus(pedidoResponse.getId(), "FECHADO_SEM_ESTOQUE");
+                pedidoUseCase.transicionarStatus(pedidoResponse.getId(), StatusPedido.ABERTO, StatusPedido.FECHADO_SEM_ESTOQUE);
                 return;
             }
+            reservaAberta = reserva.get();
 
             // 3. Calcular valor total do pedido
             double valorTotal = pedidoRequestDTO.getItens().stream()
@@ -63,20 +64,51 @@ public class ProcessarPedidoUseCaseImpl implements ProcessarPedidoUseCase {
 
             if (!"APROVADO".equalsIgnoreCase(pagamentoResponse.getStatus())) {
                 log.error("Pagamento recusado para pedido: {}", pedidoRequestDTO);
-                // Atualizar status do pedido para FECHADO_SEM_CREDITO
-                pedidoUseCase.atualizarStatus(pedidoResponse.getId(), "FECHADO_SEM_CREDITO");
+                // Liberar a reserva e atualizar status do pedido para FECHADO_SEM_CREDITO
+                liberarReserva(reservaAberta, pedidoResponse.getId());
+                reservaAberta = null;
+                pedidoUseCase.transicionarStatus(pedidoResponse.getId(), StatusPedido.ABERTO, StatusPedido.FECHADO_SEM_CREDITO);
                 return;
             }
 
-            // 5. Atualizar status do pedido para FECHADO_COM_SUCESSO
-            pedidoUseCase.atualizarStatus(pedidoResponse.getId(), "FECHADO_COM_SUCESSO");
+            // 5. Baixar o estoque reservado: a reserva garante a quantidade, então uma recusa aqui é erro
+            if (!estoqueGateway.baixarReserva(reservaAberta)) {
+                throw new IllegalStateException("Baixa do estoque reservado recusada para pedido ID: " + pedidoResponse.getId());
+            }
+            reservaAberta = null;
+
+            // 6. Atualizar status do pedido para FECHADO_COM_SUCESSO
+            pedidoUseCase.transicionarStatus(pedidoResponse.getId(), StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO);
             log.info("Pedido processado com sucesso para pedido: {}", pedidoRequestDTO);
 
         } catch (Exception e) {
+            // Não existe status de erro: o pedido permanece ABERTO e a falha é propagada para quem pode retentar
             log.error("Erro ao processar pedido recebido: {}", pedidoRequestDTO, e);
-            if (pedidoResponse != null) {
-                pedidoUseCase.atualizarStatus(pedidoResponse.getId(), "ERRO_PROCESSAMENTO");
+            if (reservaAberta != null) {
+                liberarReserva(reservaAberta, pedidoResponse.getId());
             }
+            throw new RuntimeException("Erro ao processar pedido"
+                    + (pedidoResponse != null ? " ID: " + pedidoResponse.getId() : ""), e);
+        }
+    }
+
+    /**
+     * Devolve ao disponível a reserva ainda não baixada; uma recusa só é registrada
+     */
+    private void liberarReserva(String reservaId, Long pedidoId) {
+        if (!estoqueGateway.liberarReserva(reservaId)) {
+            log.warn("Liberação da reserva {} recusada para pedido ID: {}", reservaId, pedidoId);
+        }
+    }
+
+    /**
+     * SKU -> quantidade total, somando itens repetidos do mesmo produto
+     */
+    private Map<String, Integer> quantidadesPorProduto(PedidoRequestDTO pedidoRequestDTO) {
+        Map<String, Integer> quantidades = new LinkedHashMap<>();
+        for (ItemPedidoRequestDTO item : pedidoRequestDTO.getItens()) {
+            quantidades.merge(item.getProdutoId(), item.getQuantidade(), Integer::sum);
         }
+        return quantidades;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.fiap.pedido.adapter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsultasEmVooTest {
+
+    private static final int CONCORRENTES = 8;
+
+    private final AtomicInteger chamadas = new AtomicInteger();
+    private final CountDownLatch liberarChamada = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry;
+    private ConsultasEmVoo consultasEmVoo;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        consultasEmVoo = new ConsultasEmVoo(meterRegistry);
+        pool = Executors.newFixedThreadPool(CONCORRENTES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void deveJuntarConsultasSimultaneasDaMesmaChaveEmUmaChamada() throws Exception {
+        List<Future<String>> resultados = consultarEmParalelo("SKU001", () -> {
+            chamadas.incrementAndGet();
+            aguardarLiberacao();
+            return "Produto SKU001";
+        });
+
+        for (Future<String> resultado : resultados) {
+            assertEquals("Produto SKU001", resultado.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, chamadas.get());
+        assertEquals(1.0, contador(ConsultasEmVoo.METRICA_REMOTAS));
+        assertEquals(CONCORRENTES - 1.0, contador(ConsultasEmVoo.METRICA_COALESCIDAS));
+        assertEquals(0, consultasEmVoo.emAndamento());
+    }
+
+    @Test
+    void deveRepassarFalhaDaChamadaATodosQueEsperavam() throws Exception {
+        List<Future<String>> resultados = consultarEmParalelo("SKU001", () -> {
+            chamadas.incrementAndGet();
+            aguardarLiberacao();
+            throw new IllegalStateException("Catálogo indisponível");
+        });
+
+        for (Future<String> resultado : resultados) {
+            ExecutionException erro = assertThrows(ExecutionException.class, () -> resultado.get(5, TimeUnit.SECONDS));
+            assertEquals("Catálogo indisponível", erro.getCause().getMessage());
+        }
+        assertEquals(1, chamadas.get());
+    }
+
+    @Test
+    void naoDeveGuardarResultadoDepoisDaChamada() {
+        consultasEmVoo.executar("consultarProduto", "SKU001", chamadas::incrementAndGet);
+        consultasEmVoo.executar("consultarProduto", "SKU001", chamadas::incrementAndGet);
+
+        assertEquals(2, chamadas.get());
+        assertEquals(0.0, contador(ConsultasEmVoo.METRICA_COALESCIDAS));
+    }
+
+    @Test
+    void naoDeveJuntarConsultasDiferentesComAMesmaChave() {
+        consultasEmVoo.executar("consultarCliente", "1", () -> {
+            assertEquals("Produto 1", consultasEmVoo.executar("consultarProduto", "1", () -> "Produto 1"));
+            return "Cliente 1";
+        });
+
+        assertEquals(1.0, meterRegistry.get(ConsultasEmVoo.METRICA_REMOTAS).tag("consulta", "consultarCliente").counter().count());
+        assertEquals(1.0, meterRegistry.get(ConsultasEmVoo.METRICA_REMOTAS).tag("consulta", "consultarProduto").counter().count());
+    }
+
+    /**
+     * Dispara as consultas e só libera a chamada remota quando todas as outras já estão esperando por ela
+     */
+    private List<Future<String>> consultarEmParalelo(String chave, Supplier<String> chamada) throws InterruptedException {
+        List<Future<String>> resultados = new ArrayList<>();
+        for (int i = 0; i < CONCORRENTES; i++) {
+            resultados.add(pool.submit(() -> consultasEmVoo.executar("consultarProduto", chave, chamada)));
+        }
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (contador(ConsultasEmVoo.METRICA_COALESCIDAS) < CONCORRENTES - 1 && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+        liberarChamada.countDown();
+        return resultados;
+    }
+
+    private double contador(String metrica) {
+        Counter contador = meterRegistry.find(metrica).tag("consulta", "consultarProduto").counter();
+        return contador != null ? contador.count() : 0;
+    }
+
+    private void aguardarLiberacao() {
+        try {
+            liberarChamada.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.fiap.pedido.adapter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LivroEstoqueTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERACOES_POR_THREAD = 20_000;
+
+    private LivroEstoque livroEstoque;
+
+    @BeforeEach
+    void setUp() {
+        livroEstoque = new LivroEstoque();
+        livroEstoque.abastecer("SKU001", 5);
+    }
+
+    @Test
+    void deveSepararQuantidadeReservadaAteConfirmar() {
+        String idReserva = livroEstoque.reservar("SKU001", 3).orElseThrow();
+
+        assertEquals(2, livroEstoque.disponivel("SKU001"));
+        assertEquals(3, livroEstoque.reservado("SKU001"));
+        assertTrue(livroEstoque.confirmar(idReserva));
+        assertEquals(2, livroEstoque.disponivel("SKU001"));
+        assertEquals(0, livroEstoque.reservado("SKU001"));
+        assertEquals(3, livroEstoque.vendido("SKU001"));
+    }
+
+    @Test
+    void deveDevolverReservaLiberadaAoDisponivel() {
+        String idReserva = livroEstoque.reservar("SKU001", 3).orElseThrow();
+
+        assertTrue(livroEstoque.liberar(idReserva));
+
+        assertEquals(5, livroEstoque.disponivel("SKU001"));
+        assertEquals(0, livroEstoque.reservado("SKU001"));
+        assertEquals(0, livroEstoque.vendido("SKU001"));
+    }
+
+    @Test
+    void naoDeveTerminarAMesmaReservaDuasVezes() {
+        String idReserva = livroEstoque.reservar("SKU001", 2).orElseThrow();
+
+        assertTrue(livroEstoque.confirmar(idReserva));
+        assertFalse(livroEstoque.liberar(idReserva));
+        // Confirmação repetida responde como confirmada, sem vender de novo
+        assertTrue(livroEstoque.confirmar(idReserva));
+        assertEquals(3, livroEstoque.disponivel("SKU001"));
+        assertEquals(2, livroEstoque.vendido("SKU001"));
+    }
+
+    @Test
+    void deveEstornarReservaConfirmadaUmaUnicaVez() {
+        String idReserva = livroEstoque.reservar("SKU001", 2).orElseThrow();
+        livroEstoque.confirmar(idReserva);
+
+        assertTrue(livroEstoque.estornar(idReserva));
+        assertFalse(livroEstoque.estornar(idReserva));
+        assertFalse(livroEstoque.confirmar(idReserva));
+
+        assertEquals(5, livroEstoque.disponivel("SKU001"));
+        assertEquals(0, livroEstoque.vendido("SKU001"));
+    }
+
+    @Test
+    void naoDeveEstornarReservaAbertaNemLiberarDuasVezes() {
+        String idReserva = livroEstoque.reservar("SKU001", 2).orElseThrow();
+
+        assertFalse(livroEstoque.estornar(idReserva));
+        assertTrue(livroEstoque.liberar(idReserva));
+        assertFalse(livroEstoque.liberar(idReserva));
+
+        assertEquals(5, livroEstoque.disponivel("SKU001"));
+        assertEquals(0, livroEstoque.reservado("SKU001"));
+    }
+
+    @Test
+    void naoDeveMexerNoEstoqueComReservaDesconhecida() {
+        assertFalse(livroEstoque.confirmar("SKU001-99"));
+        assertFalse(livroEstoque.liberar("SKU001-99"));
+        assertFalse(livroEstoque.estornar("SKU001-99"));
+
+        assertEquals(5, livroEstoque.disponivel("SKU001"));
+        assertEquals(0, livroEstoque.vendido("SKU001"));
+    }
+
+    @Test
+    void naoDeveReservarAlemDoDisponivel() {
+        livroEstoque.reservar("SKU001", 4).orElseThrow();
+
+        assertTrue(livroEstoque.reservar("SKU001", 2).isEmpty());
+        assertTrue(livroEstoque.reservar("SKU001", 1).isPresent());
+        assertEquals(0, livroEstoque.disponivel("SKU001"));
+    }
+
+    @Test
+    void naoDeveReservarSkuDesconhecido() {
+        assertTrue(livroEstoque.reservar("SKU999", 1).isEmpty());
+        assertEquals(0, livroEstoque.disponivel("SKU999"));
+    }
+
+    @Test
+    void deveReservarTodosOsSkusOuNenhum() {
+        livroEstoque.abastecer("SKU002", 1);
+        Map<String, Integer> semEstoque = new LinkedHashMap<>();
+        semEstoque.put("SKU001", 3);
+        semEstoque.put("SKU002", 2);
+
+        assertTrue(livroEstoque.reservar(semEstoque).isEmpty());
+        assertEquals(5, livroEstoque.disponivel("SKU001"));
+
+        String idReserva = livroEstoque.reservar(Map.of("SKU001", 3, "SKU002", 1)).orElseThrow();
+        assertTrue(livroEstoque.confirmar(idReserva));
+        assertEquals(3, livroEstoque.vendido("SKU001"));
+        assertEquals(1, livroEstoque.vendido("SKU002"));
+    }
+
+    @Test
+    void naoDeveReservarQuantidadeZeroOuNegativa() {
+        Map<String, Integer> comNegativo = new LinkedHashMap<>();
+        comNegativo.put("SKU001", 1);
+        comNegativo.put("SKU002", -5);
+
+        assertThrows(IllegalArgumentException.class, () -> livroEstoque.reservar("SKU001", 0));
+        assertThrows(IllegalArgumentException.class, () -> livroEstoque.reservar("SKU001", -5));
+        assertThrows(IllegalArgumentException.class, () -> livroEstoque.reservar(comNegativo));
+
+        assertEquals(5, livroEstoque.disponivel("SKU001"));
+        assertEquals(0, livroEstoque.reservado("SKU001"));
+        assertEquals(0, livroEstoque.reservasGuardadas());
+    }
+
+    @Test
+    void naoDeveAbastecerQuantidadeZeroOuNegativa() {
+        assertThrows(IllegalArgumentException.class, () -> livroEstoque.abastecer("SKU001", 0));
+        assertThrows(IllegalArgumentException.class, () -> livroEstoque.abastecer("SKU001", -5));
+
+        assertEquals(5, livroEstoque.disponivel("SKU001"));
+    }
+
+    @Test
+    void deveEsquecerReservaConfirmadaDepoisDaRetencaoSemMexerNaVenda() {
+        AtomicLong agora = new AtomicLong();
+        LivroEstoque comRetencao = new LivroEstoque(Duration.ofMinutes(10), 100, agora::get);
+        comRetencao.abastecer("SKU001", 5);
+        String idReserva = comRetencao.reservar("SKU001", 2).orElseThrow();
+        comRetencao.confirmar(idReserva);
+
+        agora.addAndGet(Duration.ofMinutes(9).toNanos());
+        assertTrue(comRetencao.confirmar(idReserva));
+        assertEquals(1, comRetencao.reservasGuardadas());
+
+        agora.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertFalse(comRetencao.estornar(idReserva));
+        assertFalse(comRetencao.confirmar(idReserva));
+        assertEquals(0, comRetencao.reservasGuardadas());
+        assertEquals(3, comRetencao.disponivel("SKU001"));
+        assertEquals(2, comRetencao.vendido("SKU001"));
+    }
+
+    @Test
+    void deveLimitarReservasConfirmadasGuardadas() {
+        LivroEstoque limitado = new LivroEstoque(Duration.ofHours(1), 2, System::nanoTime);
+        limitado.abastecer("SKU001", 10);
+        for (int i = 0; i < 10; i++) {
+            limitado.confirmar(limitado.reservar("SKU001", 1).orElseThrow());
+        }
+
+        assertTrue(limitado.reservasGuardadas() <= 2, "Reservas guardadas: " + limitado.reservasGuardadas());
+        assertEquals(10, limitado.vendido("SKU001"));
+        assertEquals(0, limitado.disponivel("SKU001"));
+    }
+
+    @Test
+    void naoDeveGuardarReservasLiberadasNemEstornadas() {
+        String liberada = livroEstoque.reservar("SKU001", 1).orElseThrow();
+        String estornada = livroEstoque.reservar("SKU001", 1).orElseThrow();
+        livroEstoque.liberar(liberada);
+        livroEstoque.confirmar(estornada);
+        livroEstoque.estornar(estornada);
+
+        assertEquals(0, livroEstoque.reservasGuardadas());
+    }
+
+    /**
+     * Várias threads disputam poucas unidades do mesmo SKU com reservas, confirmações, liberações, vendas diretas
+     * (reserva já confirmada) e estornos misturados. Enquanto rodam, o disponível nunca fica negativo; no fim, o que
+     * saiu do estoque é exatamente o que foi confirmado e não estornado, e a soma dos saldos continua igual ao
+     * abastecido.
+     */
+    @Test
+    void naoDeveVenderMaisDoQueOEstoqueSobConcorrencia() throws Exception {
+        int estoqueInicial = 10;
+        livroEstoque.abastecer("SKU002", estoqueInicial);
+        AtomicInteger vendidas = new AtomicInteger();
+        AtomicInteger menorDisponivel = new AtomicInteger(estoqueInicial);
+        AtomicBoolean rodando = new AtomicBoolean(true);
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            Future<?> observador = pool.submit(() -> {
+                while (rodando.get()) {
+                    menorDisponivel.accumulateAndGet(livroEstoque.disponivel("SKU002"), Math::min);
+                }
+            });
+            List<Future<?>> trabalhadores = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                trabalhadores.add(pool.submit(() -> {
+                    largada.await();
+                    operarAleatoriamente("SKU002", vendidas);
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> trabalhador : trabalhadores) {
+                trabalhador.get(60, TimeUnit.SECONDS);
+            }
+            rodando.set(false);
+            observador.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(menorDisponivel.get() >= 0, "Disponível ficou negativo: " + menorDisponivel.get());
+        assertEquals(0, livroEstoque.reservado("SKU002"));
+        assertEquals(vendidas.get(), livroEstoque.vendido("SKU002"));
+        assertTrue(vendidas.get() <= estoqueInicial);
+        assertEquals(estoqueInicial, livroEstoque.disponivel("SKU002") + livroEstoque.vendido("SKU002"));
+    }
+
+    /**
+     * Cada thread só estorna o que ela mesma confirmou e termina todas as reservas que abriu
+     */
+    private void operarAleatoriamente(String sku, AtomicInteger vendidas) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        List<ReservaAberta> reservasAbertas = new ArrayList<>();
+        List<ReservaAberta> confirmadas = new ArrayList<>();
+        for (int i = 0; i < OPERACOES_POR_THREAD; i++) {
+            int quantidade = 1 + aleatorio.nextInt(3);
+            switch (aleatorio.nextInt(5)) {
+                case 0 -> livroEstoque.reservar(sku, quantidade)
+                        .ifPresent(id -> reservasAbertas.add(new ReservaAberta(id, quantidade)));
+                case 1 -> terminarReserva(reservasAbertas, confirmadas, true, vendidas);
+                case 2 -> terminarReserva(reservasAbertas, confirmadas, false, vendidas);
+                case 3 -> livroEstoque.reservar(sku, quantidade).ifPresent(id -> {
+                    assertTrue(livroEstoque.confirmar(id));
+                    confirmadas.add(new ReservaAberta(id, quantidade));
+                    vendidas.addAndGet(quantidade);
+                });
+                default -> {
+                    if (!confirmadas.isEmpty()) {
+                        ReservaAberta estornada = confirmadas.remove(confirmadas.size() - 1);
+                        assertTrue(livroEstoque.estornar(estornada.id()));
+                        assertFalse(livroEstoque.estornar(estornada.id()));
+                        vendidas.addAndGet(-estornada.quantidade());
+                    }
+                }
+            }
+        }
+        while (!reservasAbertas.isEmpty()) {
+            terminarReserva(reservasAbertas, confirmadas, false, vendidas);
+        }
+    }
+
+    private void terminarReserva(List<ReservaAberta> reservasAbertas, List<ReservaAberta> confirmadas, boolean confirmar,
+                                 AtomicInteger vendidas) {
+        if (reservasAbertas.isEmpty()) {
+            return;
+        }
+        ReservaAberta reserva = reservasAbertas.remove(reservasAbertas.size() - 1);
+        if (confirmar) {
+            assertTrue(livroEstoque.confirmar(reserva.id()));
+            confirmadas.add(reserva);
+            vendidas.addAndGet(reserva.quantidade());
+        } else {
+            assertTrue(livroEstoque.liberar(reserva.id()));
+        }
+    }
+
+    private record ReservaAberta(String id, int quantidade) {
+    }
+}
@@ -1,25 +1,44 @@
 package com.fiap.pedido.adapter;
 
+import com.fiap.pedido.cache.PedidoCache;
+import com.fiap.pedido.config.datasource.EscritasRecentes;
 import com.fiap.pedido.domain.ItemPedido;
 import com.fiap.pedido.domain.Pedido;
+import com.fiap.pedido.domain.PedidoFiltro;
+import com.fiap.pedido.domain.PedidoPagina;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
 import com.fiap.pedido.entity.ItemPedidoEntity;
 import com.fiap.pedido.entity.PedidoEntity;
+import com.fiap.pedido.entity.PedidoOutboxEntity;
 import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.estatistica.PedidoEstatisticas;
 import com.fiap.pedido.mapper.PedidoMapper;
+import com.fiap.pedido.repository.PedidoItemLinha;
+import com.fiap.pedido.repository.PedidoOutboxRepository;
+import com.fiap.pedido.repository.PedidoValorLinha;
 import com.fiap.pedido.repository.PedidoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +50,21 @@ class PedidoRepositoryAdapterTest {
     @Mock
     private PedidoMapper pedidoMapper;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PedidoEstatisticas pedidoEstatisticas;
+
+    @Mock
+    private PedidoOutboxRepository pedidoOutboxRepository;
+
+    @Spy
+    private PedidoCache pedidoCache = new PedidoCache(100, Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+    @Spy
+    private EscritasRecentes escritasRecentes = new EscritasRecentes(Duration.ofSeconds(2));
+
     @InjectMocks
     private PedidoRepositoryAdapter pedidoRepositoryAdapter;
 
@@ -57,6 +91,26 @@ class PedidoRepositoryAdapterTest {
         verify(pedidoMapper).toDomain(pedidoSalvo);
     }
 
+    @Test
+    void deveSalvarLoteEmUmaUnicaChamadaAoRepositorio() {
+        Pedido pedidoDomain = criarPedidoDomain();
+        PedidoEntity pedidoEntity = criarPedidoEntity();
+        PedidoEntity pedidoSalvo = criarPedidoEntitySalvo();
+
+        when(pedidoMapper.toEntity(pedidoDomain)).thenReturn(pedidoEntity);
+        when(pedidoRepository.saveAll(List.of(pedidoEntity))).thenReturn(List.of(pedidoSalvo));
+        when(pedidoMapper.toDomain(pedidoSalvo)).thenReturn(criarPedidoDomainSalvo());
+
+        List<Pedido> resultado = pedidoRepositoryAdapter.saveAll(List.of(pedidoDomain));
+
+        assertEquals(1, resultado.size());
+        verify(pedidoRepository, never()).save(any());
+        verify(pedidoCache).invalidar(pedidoSalvo.getId());
+        verify(pedidoEstatisticas).registrarCriacao(eq(pedidoSalvo.getStatus()), any(), anyDouble());
+        assertTrue(escritasRecentes.isRecente(pedidoSalvo.getId()));
+        pedidoEntity.getItens().forEach(item -> assertSame(pedidoEntity, item.getPedido()));
+    }
+
     @Test
     void deveLancarExcecaoQuandoErroAoSalvar() {
         Pedido pedidoDomain = criarPedidoDomain();
@@ -73,146 +127,395 @@ class PedidoRepositoryAdapterTest {
     }
 
     @Test
-    void deveBuscarPedidoPorIdComSucesso() {
-        Long pedidoId = 1L;
-        PedidoEntity pedidoEntity = criarPedidoEntitySalvo();
-        Pedido pedidoDomain = criarPedidoDomainSalvo();
-
-        when(pedidoRepository.findByIdWithItens(pedidoId)).thenReturn(Optional.of(pedidoEntity));
-        when(pedidoMapper.toDomain(pedidoEntity)).thenReturn(pedidoDomain);
+    void deveMontarRespostaDiretoDaProjecao() {
+        when(pedidoRepository.findLinhasById(1L))
+                .thenReturn(List.of(criarLinha(1L, 10L, "SKU001"), criarLinha(1L, 11L, "SKU002")));
 
-        Optional<Pedido> resultado = pedidoRepositoryAdapter.findById(pedidoId);
+        Optional<PedidoResponseDTO> resultado = pedidoRepositoryAdapter.findResponseById(1L);
 
         assertTrue(resultado.isPresent());
-        assertEquals(pedidoId, resultado.get().getId());
-        assertEquals(StatusPedido.ABERTO, resultado.get().getStatus());
+        assertEquals(1L, resultado.get().getId());
+        assertEquals("ABERTO", resultado.get().getStatus());
+        assertEquals(2, resultado.get().getItens().size());
+        assertEquals("SKU002", resultado.get().getItens().get(1).getProdutoId());
+        verify(pedidoRepository, never()).findByIdWithItens(any());
+        verifyNoInteractions(pedidoMapper);
+    }
+
+    @Test
+    void deveMontarRespostaSemItensQuandoPedidoNaoPossuiItens() {
+        when(pedidoRepository.findLinhasById(1L)).thenReturn(List.of(criarLinha(1L, null, null)));
+
+        Optional<PedidoResponseDTO> resultado = pedidoRepositoryAdapter.findResponseById(1L);
 
-        verify(pedidoRepository).findByIdWithItens(pedidoId);
-        verify(pedidoMapper).toDomain(pedidoEntity);
+        assertTrue(resultado.orElseThrow().getItens().isEmpty());
     }
 
     @Test
-    void deveRetornarVazioQuandoPedidoNaoEncontrado() {
-        Long pedidoId = 1L;
+    void deveBuscarRespostaPelaChaveDeIdempotencia() {
+        when(pedidoRepository.findIdByChaveIdempotencia("pedido-1")).thenReturn(Optional.of(1L));
+        when(pedidoRepository.findLinhasById(1L)).thenReturn(List.of(criarLinha(1L, 10L, "SKU001")));
 
-        when(pedidoRepository.findByIdWithItens(pedidoId)).thenReturn(Optional.empty());
+        Optional<PedidoResponseDTO> resultado = pedidoRepositoryAdapter.findResponseByChaveIdempotencia("pedido-1");
 
-        Optional<Pedido> resultado = pedidoRepositoryAdapter.findById(pedidoId);
+        assertEquals(1L, resultado.orElseThrow().getId());
+    }
 
-        assertFalse(resultado.isPresent());
+    @Test
+    void deveRetornarVazioQuandoChaveDeIdempotenciaNaoGravada() {
+        when(pedidoRepository.findIdByChaveIdempotencia("pedido-1")).thenReturn(Optional.empty());
 
-        verify(pedidoRepository).findByIdWithItens(pedidoId);
-        verify(pedidoMapper, never()).toDomain(any(PedidoEntity.class));
+        assertFalse(pedidoRepositoryAdapter.findResponseByChaveIdempotencia("pedido-1").isPresent());
+        verify(pedidoRepository, never()).findLinhasById(any());
     }
 
     @Test
-    void deveLancarExcecaoQuandoErroAoBuscarPorId() {
-        Long pedidoId = 1L;
+    void deveRetornarVazioQuandoProjecaoNaoEncontraPedido() {
+        when(pedidoRepository.findLinhasById(1L)).thenReturn(List.of());
 
-        when(pedidoRepository.findByIdWithItens(pedidoId)).thenThrow(new RuntimeException("Erro ao buscar"));
+        assertFalse(pedidoRepositoryAdapter.findResponseById(1L).isPresent());
+    }
 
-        assertThrows(RuntimeException.class, () -> pedidoRepositoryAdapter.findById(pedidoId));
+    @Test
+    void deveServirSegundaConsultaDoCache() {
+        when(pedidoRepository.findLinhasById(1L)).thenReturn(List.of(criarLinha(1L, 10L, "SKU001")));
 
-        verify(pedidoRepository).findByIdWithItens(pedidoId);
-        verify(pedidoMapper, never()).toDomain(any(PedidoEntity.class));
+        pedidoRepositoryAdapter.findResponseById(1L);
+        Optional<PedidoResponseDTO> resultado = pedidoRepositoryAdapter.findResponseById(1L);
+
+        assertTrue(resultado.isPresent());
+        verify(pedidoRepository, times(1)).findLinhasById(1L);
+        assertEquals(1, pedidoCache.estatisticas().hitCount());
     }
 
     @Test
-    void deveListarTodosPedidosComSucesso() {
-        List<PedidoEntity> entidades = Arrays.asList(criarPedidoEntitySalvo());
-        List<Pedido> dominios = Arrays.asList(criarPedidoDomainSalvo());
+    void deveInvalidarCacheAoSalvarPedido() {
+        Pedido pedidoDomain = criarPedidoDomain();
+        PedidoEntity pedidoEntity = criarPedidoEntity();
+        PedidoEntity pedidoSalvo = criarPedidoEntitySalvo();
 
-        when(pedidoRepository.findAll()).thenReturn(entidades);
-        when(pedidoMapper.toDomain(any(PedidoEntity.class))).thenReturn(dominios.get(0));
+        when(pedidoRepository.findLinhasById(1L)).thenReturn(List.of(criarLinha(1L, 10L, "SKU001")));
+        when(pedidoMapper.toEntity(pedidoDomain)).thenReturn(pedidoEntity);
+        when(pedidoRepository.save(pedidoEntity)).thenReturn(pedidoSalvo);
+        when(pedidoMapper.toDomain(pedidoSalvo)).thenReturn(criarPedidoDomainSalvo());
 
-        List<Pedido> resultado = pedidoRepositoryAdapter.findAll();
+        pedidoRepositoryAdapter.findResponseById(1L);
+        pedidoRepositoryAdapter.save(pedidoDomain);
+        pedidoRepositoryAdapter.findResponseById(1L);
 
-        assertNotNull(resultado);
-        assertEquals(1, resultado.size());
-        assertEquals(StatusPedido.ABERTO, resultado.get(0).getStatus());
+        verify(pedidoCache).invalidar(1L);
+        verify(pedidoRepository, times(2)).findLinhasById(1L);
+    }
+
+    @Test
+    void deveInvalidarCacheAoTransicionarStatus() {
+        Long pedidoId = 1L;
 
-        verify(pedidoRepository).findAll();
-        verify(pedidoMapper).toDomain(any(PedidoEntity.class));
+        when(pedidoRepository.findLinhasById(pedidoId)).thenReturn(List.of(criarLinha(pedidoId, 10L, "SKU001")));
+        when(pedidoRepository.updateStatusIfMatches(pedidoId, StatusPedido.ABERTO, StatusPedido.CANCELADO)).thenReturn(1);
+
+        pedidoRepositoryAdapter.findResponseById(pedidoId);
+        pedidoRepositoryAdapter.transicionarStatus(pedidoId, StatusPedido.ABERTO, StatusPedido.CANCELADO);
+        pedidoRepositoryAdapter.findResponseById(pedidoId);
+
+        verify(pedidoCache).invalidar(pedidoId);
+        verify(pedidoRepository, times(2)).findLinhasById(pedidoId);
     }
 
     @Test
-    void deveLancarExcecaoQuandoErroAoListarTodos() {
-        when(pedidoRepository.findAll()).thenThrow(new RuntimeException("Erro ao listar"));
+    void deveBuscarPaginaComItensEmConsultaUnica() {
+        PedidoFiltro filtro = PedidoFiltro.builder().status(StatusPedido.ABERTO).build();
+
+        when(pedidoRepository.findIdsPagina(filtro, null, 3)).thenReturn(List.of(3L, 2L));
+        when(pedidoRepository.findLinhasByIdIn(List.of(3L, 2L))).thenReturn(List.of(
+                criarLinha(2L, 20L, "SKU001"), criarLinha(3L, 30L, "SKU001"), criarLinha(3L, 31L, "SKU002")));
+
+        PedidoPagina resultado = pedidoRepositoryAdapter.findPagina(filtro, null, 2);
+
+        assertEquals(2, resultado.getPedidos().size());
+        assertEquals(3L, resultado.getPedidos().get(0).getId());
+        assertEquals(2, resultado.getPedidos().get(0).getItens().size());
+        assertEquals(2L, resultado.getPedidos().get(1).getId());
+        assertNull(resultado.getProximoCursor());
+        verify(pedidoRepository).findLinhasByIdIn(List.of(3L, 2L));
+        verify(pedidoRepository, never()).findAll();
+        verifyNoInteractions(pedidoMapper);
+    }
 
-        assertThrows(RuntimeException.class, () -> pedidoRepositoryAdapter.findAll());
+    @Test
+    void deveRetornarCursorQuandoExistemMaisPedidos() {
+        PedidoItemLinha linha = criarLinha(3L, 30L, "SKU001");
 
-        verify(pedidoRepository).findAll();
-        verify(pedidoMapper, never()).toDomain(any(PedidoEntity.class));
+        when(pedidoRepository.findIdsPagina(any(), any(), eq(2))).thenReturn(List.of(3L, 2L));
+        when(pedidoRepository.findLinhasByIdIn(List.of(3L))).thenReturn(List.of(linha));
+
+        PedidoPagina resultado = pedidoRepositoryAdapter.findPagina(new PedidoFiltro(), null, 1);
+
+        assertEquals(1, resultado.getPedidos().size());
+        assertNotNull(resultado.getProximoCursor());
+        assertEquals(3L, resultado.getProximoCursor().getId());
+        assertEquals(linha.getDataCriacao(), resultado.getProximoCursor().getDataCriacao());
     }
 
     @Test
-    void deveAtualizarStatusComSucesso() {
-        Long pedidoId = 1L;
-        String novoStatus = "FECHADO_COM_SUCESSO";
-        PedidoEntity entity = criarPedidoEntitySalvo();
-        PedidoEntity entityAtualizada = criarPedidoEntityComStatus(StatusPedido.FECHADO_COM_SUCESSO);
-        Pedido pedidoAtualizado = criarPedidoDomainComStatus(StatusPedido.FECHADO_COM_SUCESSO);
+    void deveRetornarPaginaVaziaSemBuscarItens() {
+        when(pedidoRepository.findIdsPagina(any(), any(), anyInt())).thenReturn(List.of());
 
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(entity));
-        when(pedidoRepository.save(any(PedidoEntity.class))).thenReturn(entityAtualizada);
-        when(pedidoMapper.toDomain(entityAtualizada)).thenReturn(pedidoAtualizado);
+        PedidoPagina resultado = pedidoRepositoryAdapter.findPagina(new PedidoFiltro(), null, 20);
 
-        Pedido resultado = pedidoRepositoryAdapter.atualizarStatus(pedidoId, novoStatus);
+        assertTrue(resultado.getPedidos().isEmpty());
+        assertNull(resultado.getProximoCursor());
+        verify(pedidoRepository, never()).findLinhasByIdIn(any());
+    }
 
-        assertNotNull(resultado);
-        assertEquals(StatusPedido.FECHADO_COM_SUCESSO, resultado.getStatus());
-        assertEquals(pedidoId, resultado.getId());
+    @Test
+    void deveBuscarPaginaPorClienteFiltrandoSomenteCliente() {
+        when(pedidoRepository.findIdsPagina(any(), isNull(), eq(21))).thenReturn(List.of());
+
+        pedidoRepositoryAdapter.findPaginaPorCliente(7L, null, 20);
 
-        verify(pedidoRepository).findById(pedidoId);
-        verify(pedidoRepository).save(any(PedidoEntity.class));
-        verify(pedidoMapper).toDomain(entityAtualizada);
+        verify(pedidoRepository).findIdsPagina(argThat(filtro -> filtro.getClienteId().equals(7L)
+                && filtro.getStatus() == null && filtro.getDataFim() == null), isNull(), eq(21));
     }
 
     @Test
-    void deveLancarExcecaoQuandoPedidoNaoEncontradoParaAtualizarStatus() {
-        Long pedidoId = 1L;
-        String novoStatus = "FECHADO_COM_SUCESSO";
+    void deveBuscarPaginaPorStatusCriadosAntesDoLimite() {
+        LocalDateTime limite = LocalDateTime.of(2025, 1, 1, 12, 0);
+        when(pedidoRepository.findIdsPagina(any(), isNull(), eq(11))).thenReturn(List.of());
 
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.empty());
+        pedidoRepositoryAdapter.findPaginaPorStatusAntesDe(StatusPedido.ABERTO, limite, null, 10);
+
+        verify(pedidoRepository).findIdsPagina(argThat(filtro -> filtro.getStatus() == StatusPedido.ABERTO
+                && limite.equals(filtro.getDataFim()) && filtro.getClienteId() == null), isNull(), eq(11));
+    }
+
+    @Test
+    void deveLancarExcecaoQuandoErroAoBuscarPagina() {
+        when(pedidoRepository.findIdsPagina(any(), any(), anyInt())).thenThrow(new RuntimeException("Erro ao listar"));
 
         assertThrows(RuntimeException.class,
-                () -> pedidoRepositoryAdapter.atualizarStatus(pedidoId, novoStatus));
+                () -> pedidoRepositoryAdapter.findPagina(new PedidoFiltro(), null, 20));
 
-        verify(pedidoRepository).findById(pedidoId);
-        verify(pedidoRepository, never()).save(any());
-        verify(pedidoMapper, never()).toDomain(any(PedidoEntity.class));
+        verify(pedidoRepository, never()).findLinhasByIdIn(any());
     }
 
     @Test
-    void deveLancarExcecaoQuandoStatusInvalido() {
-        Long pedidoId = 1L;
-        String statusInvalido = "STATUS_INEXISTENTE";
-        PedidoEntity entity = criarPedidoEntitySalvo();
+    void deveExportarTodosDesanexandoCadaLinha() {
+        PedidoEntity pedido1 = criarPedidoEntityComId(1L);
+        PedidoEntity pedido2 = criarPedidoEntityComId(2L);
+        Pedido dominio1 = criarPedidoDomainComId(1L);
+        Pedido dominio2 = criarPedidoDomainComId(2L);
+        List<Pedido> exportados = new ArrayList<>();
+
+        when(pedidoRepository.streamAllWithItens()).thenReturn(Stream.of(pedido1, pedido2));
+        when(pedidoMapper.toDomain(pedido1)).thenReturn(dominio1);
+        when(pedidoMapper.toDomain(pedido2)).thenReturn(dominio2);
+
+        long total = pedidoRepositoryAdapter.exportarTodos(exportados::add);
+
+        assertEquals(2L, total);
+        assertEquals(List.of(dominio1, dominio2), exportados);
+        verify(entityManager).detach(pedido1);
+        verify(entityManager).detach(pedido2);
+    }
 
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(entity));
+    @Test
+    void deveFecharStreamQuandoErroNaExportacao() {
+        PedidoEntity pedido1 = criarPedidoEntityComId(1L);
+        AtomicBoolean fechado = new AtomicBoolean(false);
 
-        assertThrows(RuntimeException.class,
-                () -> pedidoRepositoryAdapter.atualizarStatus(pedidoId, statusInvalido));
+        when(pedidoRepository.streamAllWithItens()).thenReturn(Stream.of(pedido1).onClose(() -> fechado.set(true)));
+        when(pedidoMapper.toDomain(pedido1)).thenReturn(criarPedidoDomainComId(1L));
+
+        assertThrows(RuntimeException.class, () -> pedidoRepositoryAdapter.exportarTodos(pedido -> {
+            throw new RuntimeException("Cliente desconectou");
+        }));
+
+        assertTrue(fechado.get());
+    }
+
+    @Test
+    void deveTransicionarStatusComUpdateDireto() {
+        when(pedidoRepository.updateStatusIfMatches(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO)).thenReturn(1);
 
-        verify(pedidoRepository).findById(pedidoId);
+        boolean resultado = pedidoRepositoryAdapter.transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO);
+
+        assertTrue(resultado);
+        verify(pedidoRepository, never()).findById(any());
+        verify(pedidoRepository, never()).findByIdWithItens(any());
         verify(pedidoRepository, never()).save(any());
-        verify(pedidoMapper, never()).toDomain(any(PedidoEntity.class));
     }
 
     @Test
-    void deveLancarExcecaoQuandoErroAoAtualizarStatus() {
-        Long pedidoId = 1L;
-        String novoStatus = "CANCELADO";
-        PedidoEntity entity = criarPedidoEntitySalvo();
+    void deveInformarQuandoStatusAtualDifereDoEsperado() {
+        when(pedidoRepository.updateStatusIfMatches(1L, StatusPedido.ABERTO, StatusPedido.CANCELADO)).thenReturn(0);
+
+        boolean resultado = pedidoRepositoryAdapter.transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.CANCELADO);
 
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(entity));
-        when(pedidoRepository.save(any(PedidoEntity.class))).thenThrow(new RuntimeException("Erro ao salvar"));
+        assertFalse(resultado);
+        assertFalse(escritasRecentes.isRecente(1L));
+    }
+
+    @Test
+    void deveMarcarPedidoComoEscritaRecenteAoSalvarETransicionar() {
+        Pedido pedidoDomain = criarPedidoDomain();
+        PedidoEntity pedidoEntity = criarPedidoEntity();
+        PedidoEntity pedidoSalvo = criarPedidoEntitySalvo();
+
+        when(pedidoMapper.toEntity(pedidoDomain)).thenReturn(pedidoEntity);
+        when(pedidoRepository.save(pedidoEntity)).thenReturn(pedidoSalvo);
+        when(pedidoMapper.toDomain(pedidoSalvo)).thenReturn(criarPedidoDomainSalvo());
+        when(pedidoRepository.updateStatusIfMatches(2L, StatusPedido.ABERTO, StatusPedido.CANCELADO)).thenReturn(1);
+
+        pedidoRepositoryAdapter.save(pedidoDomain);
+        pedidoRepositoryAdapter.transicionarStatus(2L, StatusPedido.ABERTO, StatusPedido.CANCELADO);
+
+        verify(escritasRecentes).registrar(1L);
+        verify(escritasRecentes).registrar(2L);
+        assertTrue(escritasRecentes.isRecente(1L));
+        assertTrue(escritasRecentes.isRecente(2L));
+    }
+
+    @Test
+    void deveLancarExcecaoQuandoErroAoTransicionarStatus() {
+        when(pedidoRepository.updateStatusIfMatches(any(), any(), any())).thenThrow(new RuntimeException("Erro ao salvar"));
 
         assertThrows(RuntimeException.class,
-                () -> pedidoRepositoryAdapter.atualizarStatus(pedidoId, novoStatus));
+                () -> pedidoRepositoryAdapter.transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.CANCELADO));
+    }
+
+    @Test
+    void deveRegistrarEstatisticaAoSalvarPedidoNovo() {
+        Pedido pedidoDomain = criarPedidoDomain();
+        PedidoEntity pedidoEntity = criarPedidoEntity();
+        PedidoEntity pedidoSalvo = criarPedidoEntitySalvo();
+
+        when(pedidoMapper.toEntity(pedidoDomain)).thenReturn(pedidoEntity);
+        when(pedidoRepository.save(pedidoEntity)).thenReturn(pedidoSalvo);
+        when(pedidoMapper.toDomain(pedidoSalvo)).thenReturn(criarPedidoDomainSalvo());
+
+        pedidoRepositoryAdapter.save(pedidoDomain);
+
+        verify(pedidoEstatisticas).registrarCriacao(pedidoSalvo.getStatus(), pedidoSalvo.getDataCriacao(),
+                pedidoSalvo.getItens().stream().mapToDouble(i -> i.getQuantidade() * i.getPrecoUnitario()).sum());
+    }
+
+    @Test
+    void naoDeveSalvarPedidoQueJaTemId() {
+        Pedido pedidoDomain = criarPedidoDomainSalvo();
+
+        assertThrows(IllegalArgumentException.class, () -> pedidoRepositoryAdapter.save(pedidoDomain));
+
+        verifyNoInteractions(pedidoRepository, pedidoEstatisticas, pedidoOutboxRepository);
+    }
+
+    @Test
+    void naoDeveSalvarLoteComPedidoQueJaTemId() {
+        List<Pedido> lote = List.of(criarPedidoDomain(), criarPedidoDomainSalvo());
+
+        assertThrows(IllegalArgumentException.class, () -> pedidoRepositoryAdapter.saveAll(lote));
+
+        verifyNoInteractions(pedidoRepository, pedidoEstatisticas, pedidoOutboxRepository);
+    }
+
+    @Test
+    void deveRegistrarEstatisticaQuandoTransicaoAplicada() {
+        LocalDateTime dataCriacao = LocalDateTime.of(2025, 1, 1, 10, 30);
+        when(pedidoRepository.updateStatusIfMatches(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO)).thenReturn(1);
+        when(pedidoRepository.findValorById(1L)).thenReturn(Optional.of(new PedidoValorLinha(dataCriacao, 250.0)));
+
+        pedidoRepositoryAdapter.transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO);
+
+        verify(pedidoEstatisticas).registrarTransicao(StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO, dataCriacao, 250.0);
+    }
+
+    @Test
+    void naoDeveRegistrarEstatisticaQuandoTransicaoNaoAplicada() {
+        when(pedidoRepository.updateStatusIfMatches(1L, StatusPedido.ABERTO, StatusPedido.CANCELADO)).thenReturn(0);
 
-        verify(pedidoRepository).findById(pedidoId);
-        verify(pedidoRepository).save(any(PedidoEntity.class));
+        pedidoRepositoryAdapter.transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.CANCELADO);
+
+        verify(pedidoRepository, never()).findValorById(any());
+        verifyNoInteractions(pedidoEstatisticas);
+    }
+
+    @Test
+    void deveGravarEventoDeCriacaoNoOutboxAoSalvarPedidoNovo() {
+        Pedido pedidoDomain = criarPedidoDomain();
+        PedidoEntity pedidoEntity = criarPedidoEntity();
+        PedidoEntity pedidoSalvo = criarPedidoEntitySalvo();
+
+        when(pedidoMapper.toEntity(pedidoDomain)).thenReturn(pedidoEntity);
+        when(pedidoRepository.save(pedidoEntity)).thenReturn(pedidoSalvo);
+        when(pedidoMapper.toDomain(pedidoSalvo)).thenReturn(criarPedidoDomainSalvo());
+
+        pedidoRepositoryAdapter.save(pedidoDomain);
+
+        verify(pedidoOutboxRepository).save(argThat(evento -> evento.getPedidoId().equals(pedidoSalvo.getId())
+                && evento.getClienteId().equals(pedidoSalvo.getClienteId())
+                && evento.getStatusAnterior() == null
+                && evento.getStatusAtual() == pedidoSalvo.getStatus()
+                && evento.getOcorridoEm() != null));
+    }
+
+    @Test
+    void deveGravarEventosDoLoteNoOutboxEmUmaChamada() {
+        Pedido pedidoDomain = criarPedidoDomain();
+        PedidoEntity pedidoEntity = criarPedidoEntity();
+        PedidoEntity pedidoSalvo = criarPedidoEntitySalvo();
+
+        when(pedidoMapper.toEntity(pedidoDomain)).thenReturn(pedidoEntity);
+        when(pedidoRepository.saveAll(List.of(pedidoEntity))).thenReturn(List.of(pedidoSalvo));
+        when(pedidoMapper.toDomain(pedidoSalvo)).thenReturn(criarPedidoDomainSalvo());
+
+        pedidoRepositoryAdapter.saveAll(List.of(pedidoDomain));
+
+        verify(pedidoOutboxRepository, never()).save(any());
+        verify(pedidoOutboxRepository).saveAll(argThat((List<PedidoOutboxEntity> eventos) -> eventos.size() == 1
+                && eventos.get(0).getPedidoId().equals(pedidoSalvo.getId())));
+    }
+
+    @Test
+    void deveGravarTransicaoNoOutboxSomenteQuandoAplicada() {
+        when(pedidoRepository.updateStatusIfMatches(1L, StatusPedido.ABERTO, StatusPedido.CANCELADO)).thenReturn(1);
+        when(pedidoRepository.updateStatusIfMatches(2L, StatusPedido.ABERTO, StatusPedido.CANCELADO)).thenReturn(0);
+
+        pedidoRepositoryAdapter.transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.CANCELADO);
+        pedidoRepositoryAdapter.transicionarStatus(2L, StatusPedido.ABERTO, StatusPedido.CANCELADO);
+
+        verify(pedidoOutboxRepository, times(1)).save(any());
+        verify(pedidoOutboxRepository).save(argThat(evento -> evento.getPedidoId() == 1L
+                && evento.getStatusAnterior() == StatusPedido.ABERTO
+                && evento.getStatusAtual() == StatusPedido.CANCELADO
+                && evento.getClienteId() == null));
+    }
+
+    @Test
+    void deveInvalidarCacheSomenteAposCommit() {
+        when(pedidoRepository.updateStatusIfMatches(1L, StatusPedido.ABERTO, StatusPedido.CANCELADO)).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            pedidoRepositoryAdapter.transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.CANCELADO);
+
+            verify(pedidoCache, never()).invalidar(any());
+            assertFalse(escritasRecentes.isRecente(1L));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            verify(pedidoCache).invalidar(1L);
+            assertTrue(escritasRecentes.isRecente(1L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void deveBuscarSomenteStatusDoPedido() {
+        when(pedidoRepository.findStatusById(1L)).thenReturn(Optional.of(StatusPedido.CANCELADO));
+
+        Optional<StatusPedido> resultado = pedidoRepositoryAdapter.findStatusById(1L);
+
+        assertEquals(Optional.of(StatusPedido.CANCELADO), resultado);
         verify(pedidoMapper, never()).toDomain(any(PedidoEntity.class));
     }
 
@@ -235,12 +538,12 @@ class PedidoRepositoryAdapterTest {
                 .build();
     }
 
-    private Pedido criarPedidoDomainComStatus(StatusPedido status) {
+    private Pedido criarPedidoDomainComId(Long id) {
         return Pedido.builder()
-                .id(1L)
+                .id(id)
                 .clienteId(1L)
-                .status(status)
-                .dataCriacao(LocalDateTime.now())
+                .status(StatusPedido.ABERTO)
+                .dataCriacao(LocalDateTime.of(2025, 1, 1, 10, 0).plusMinutes(id))
                 .itens(Arrays.asList(criarItemPedidoDomain()))
                 .build();
     }
@@ -272,12 +575,12 @@ class PedidoRepositoryAdapterTest {
                 .build();
     }
 
-    private PedidoEntity criarPedidoEntityComStatus(StatusPedido status) {
+    private PedidoEntity criarPedidoEntityComId(Long id) {
         return PedidoEntity.builder()
-                .id(1L)
+                .id(id)
                 .clienteId(1L)
-                .status(status)
-                .dataCriacao(LocalDateTime.now())
+                .status(StatusPedido.ABERTO)
+                .dataCriacao(LocalDateTime.of(2025, 1, 1, 10, 0).plusMinutes(id))
                 .itens(Arrays.asList(criarItemPedidoEntity()))
                 .build();
     }
@@ -290,4 +593,9 @@ class PedidoRepositoryAdapterTest {
                 .precoUnitario(25.50)
                 .build();
     }
-}
\ No newline at end of file
+
+    private PedidoItemLinha criarLinha(Long pedidoId, Long itemId, String produtoId) {
+        return new PedidoItemLinha(pedidoId, 1L, StatusPedido.ABERTO, LocalDateTime.of(2025, 1, 1, 10, 0).plusMinutes(pedidoId),
+                itemId, produtoId, itemId != null ? 1 : null, itemId != null ? 100.0 : null);
+    }
+}
@@ -3,6 +3,7 @@ package com.fiap.pedido.adapter;
 import com.fiap.pedido.dto.ClienteDTO;
 import com.fiap.pedido.dto.ProdutoDTO;
 import com.fiap.pedido.dto.StatusPagamentoDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,8 +11,18 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ServicoExternoAdapterTest {
@@ -22,9 +33,13 @@ class ServicoExternoAdapterTest {
     @Mock
     private Logger log;
 
+    @Mock
+    private RestTemplate restTemplate;
+
     @BeforeEach
     void setUp() {
-        servicoExternoAdapter = new ServicoExternoAdapter();
+        servicoExternoAdapter = new ServicoExternoAdapter(new ConsultasEmVoo(new SimpleMeterRegistry()), restTemplate,
+                "http://produto-service:8080");
     }
 
     @Test
@@ -58,27 +73,33 @@ class ServicoExternoAdapterTest {
     @Test
     void deveConsultarProdutoComSucesso() {
         String produtoId = "PROD123";
+        when(restTemplate.getForObject("http://produto-service:8080/produtos/{produtoId}", ProdutoDTO.class, produtoId))
+                .thenReturn(produto(produtoId));
 
-        ProdutoDTO resultado = servicoExternoAdapter.consultarProduto(produtoId);
+        Optional<ProdutoDTO> resultado = servicoExternoAdapter.consultarProduto(produtoId);
 
-        assertNotNull(resultado);
-        assertEquals("PROD123", resultado.getId());
-        assertEquals("Produto Mock", resultado.getNome());
-        assertEquals("PROD123", resultado.getSku());
-        assertEquals(100.0, resultado.getPreco());
+        assertTrue(resultado.isPresent());
+        assertEquals("PROD123", resultado.get().getId());
+        assertEquals("PROD123", resultado.get().getSku());
+        assertEquals(100.0, resultado.get().getPreco());
     }
 
     @Test
-    void deveConsultarProdutoComIdDiferente() {
-        String produtoId = "PROD456";
+    void deveDevolverVazioQuandoProdutoNaoExisteNoCatalogo() {
+        when(restTemplate.getForObject(anyString(), eq(ProdutoDTO.class), eq("PROD404")))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
 
-        ProdutoDTO resultado = servicoExternoAdapter.consultarProduto(produtoId);
+        Optional<ProdutoDTO> resultado = servicoExternoAdapter.consultarProduto("PROD404");
 
-        assertNotNull(resultado);
-        assertEquals("PROD456", resultado.getId());
-        assertEquals("Produto Mock", resultado.getNome());
-        assertEquals("PROD456", resultado.getSku());
-        assertEquals(100.0, resultado.getPreco());
+        assertTrue(resultado.isEmpty());
+    }
+
+    @Test
+    void devePropagarFalhaDoCatalogoQueNaoSejaNaoEncontrado() {
+        when(restTemplate.getForObject(anyString(), eq(ProdutoDTO.class), any(Object[].class)))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+
+        assertThrows(ResourceAccessException.class, () -> servicoExternoAdapter.consultarProduto("PROD123"));
     }
 
     @Test
@@ -245,4 +266,13 @@ class ServicoExternoAdapterTest {
 
         assertTrue(resultado);
     }
-}
\ No newline at end of file
+
+    private static ProdutoDTO produto(String produtoId) {
+        ProdutoDTO produto = new ProdutoDTO();
+        produto.setId(produtoId);
+        produto.setNome("Produto");
+        produto.setSku(produtoId);
+        produto.setPreco(100.0);
+        return produto;
+    }
+}
@@ -3,11 +3,16 @@ package com.fiap.pedido.adapter;
 import com.fiap.pedido.dto.ClienteDTO;
 import com.fiap.pedido.dto.ProdutoDTO;
 import com.fiap.pedido.dto.StatusPagamentoDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -17,7 +22,7 @@ class ServicoExternoMockAdapterTest {
 
     @BeforeEach
     void setUp() {
-        servicoExternoMockAdapter = new ServicoExternoMockAdapter();
+        servicoExternoMockAdapter = new ServicoExternoMockAdapter(new ConsultasEmVoo(new SimpleMeterRegistry()));
     }
 
     @Test
@@ -76,138 +81,162 @@ class ServicoExternoMockAdapterTest {
 
     @Test
     void deveReservarEstoqueComSucessoQuandoTemEstoqueDisponivel() {
-        String produtoId = "SKU001";
-        Integer quantidade = 2;
-
-        boolean resultado = servicoExternoMockAdapter.reservarEstoque(produtoId, quantidade);
+        Optional<String> resultado = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 2));
 
-        assertTrue(resultado);
+        assertTrue(resultado.isPresent());
     }
 
     @Test
     void deveReservarEstoqueComSucessoQuandoQuantidadeMenorQueDisponivel() {
-        String produtoId = "SKU002";
-        Integer quantidade = 1;
-
-        boolean resultado = servicoExternoMockAdapter.reservarEstoque(produtoId, quantidade);
+        Optional<String> resultado = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU002", 1));
 
-        assertTrue(resultado);
+        assertTrue(resultado.isPresent());
     }
 
     @Test
     void deveFalharAoReservarEstoqueQuandoQuantidadeMaiorQueDisponivel() {
-        String produtoId = "SKU003";
-        Integer quantidade = 5;
+        Optional<String> resultado = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU003", 5));
 
-        boolean resultado = servicoExternoMockAdapter.reservarEstoque(produtoId, quantidade);
-
-        assertFalse(resultado);
+        assertTrue(resultado.isEmpty());
     }
 
     @Test
     void deveFalharAoReservarEstoqueQuandoProdutoNaoExiste() {
-        String produtoId = "SKU999";
-        Integer quantidade = 1;
+        Optional<String> resultado = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU999", 1));
 
-        boolean resultado = servicoExternoMockAdapter.reservarEstoque(produtoId, quantidade);
+        assertTrue(resultado.isEmpty());
+    }
 
-        assertFalse(resultado);
+    @Test
+    void naoDeveReservarEstoqueComQuantidadeZeroOuNegativa() {
+        assertThrows(IllegalArgumentException.class, () -> servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 0)));
+        assertThrows(IllegalArgumentException.class, () -> servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", -5)));
+
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU001"));
     }
 
     @Test
-    void deveReservarEstoqueComQuantidadeZero() {
-        String produtoId = "SKU001";
-        Integer quantidade = 0;
+    void deveDevolverIdsDiferentesParaReservasIguais() {
+        String primeira = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 1)).orElseThrow();
+        String segunda = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 1)).orElseThrow();
 
-        boolean resultado = servicoExternoMockAdapter.reservarEstoque(produtoId, quantidade);
+        assertNotEquals(primeira, segunda);
+    }
 
-        assertTrue(resultado);
+    @Test
+    void deveSegurarEstoqueReservadoAteBaixa() {
+        String idReserva = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 2)).orElseThrow();
+
+        assertTrue(servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 1)).isEmpty());
+        assertTrue(servicoExternoMockAdapter.baixarEstoque(idReserva));
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU001"));
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().reservado("SKU001"));
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().vendido("SKU001"));
     }
 
     @Test
-    void deveBaixarEstoqueComSucessoQuandoTemEstoqueDisponivel() {
-        String produtoId = "SKU001";
-        Integer quantidade = 1;
+    void deveBaixarSomenteAReservaInformada() {
+        String primeira = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 1)).orElseThrow();
+        String segunda = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 1)).orElseThrow();
 
-        boolean resultado = servicoExternoMockAdapter.baixarEstoque(produtoId, quantidade);
+        assertTrue(servicoExternoMockAdapter.baixarEstoque(segunda));
+        assertTrue(servicoExternoMockAdapter.estornarEstoque(primeira));
 
-        assertTrue(resultado);
+        assertEquals(1, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU001"));
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().reservado("SKU001"));
+        assertEquals(1, servicoExternoMockAdapter.getLivroEstoque().vendido("SKU001"));
     }
 
     @Test
-    void deveBaixarEstoqueEAtualizarEstoqueDisponivel() {
-        String produtoId = "SKU001";
-        Integer quantidade = 2;
+    void deveRepetirBaixaSemBaixarDeNovo() {
+        String idReserva = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 2)).orElseThrow();
 
-        boolean resultado = servicoExternoMockAdapter.baixarEstoque(produtoId, quantidade);
+        assertTrue(servicoExternoMockAdapter.baixarEstoque(idReserva));
+        assertTrue(servicoExternoMockAdapter.baixarEstoque(idReserva));
 
-        assertTrue(resultado);
-        boolean segundaOperacao = servicoExternoMockAdapter.baixarEstoque(produtoId, 1);
-        assertFalse(segundaOperacao);
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().vendido("SKU001"));
     }
 
     @Test
-    void deveFalharAoBaixarEstoqueQuandoQuantidadeMaiorQueDisponivel() {
-        String produtoId = "SKU002";
-        Integer quantidade = 5;
+    void deveFalharAoBaixarReservaDesconhecida() {
+        assertFalse(servicoExternoMockAdapter.baixarEstoque("SKU001-99"));
 
-        boolean resultado = servicoExternoMockAdapter.baixarEstoque(produtoId, quantidade);
-
-        assertFalse(resultado);
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU001"));
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().vendido("SKU001"));
     }
 
     @Test
-    void deveFalharAoBaixarEstoqueQuandoProdutoNaoExiste() {
-        String produtoId = "SKU999";
-        Integer quantidade = 1;
+    void deveLiberarReservaNoEstornoSemAumentarEstoque() {
+        String idReserva = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU002", 2)).orElseThrow();
 
-        boolean resultado = servicoExternoMockAdapter.baixarEstoque(produtoId, quantidade);
+        assertTrue(servicoExternoMockAdapter.estornarEstoque(idReserva));
 
-        assertFalse(resultado);
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU002"));
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().reservado("SKU002"));
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().vendido("SKU002"));
     }
 
     @Test
-    void deveBaixarEstoqueComQuantidadeZero() {
-        String produtoId = "SKU001";
-        Integer quantidade = 0;
+    void deveDevolverAoDisponivelReservaJaBaixada() {
+        String idReserva = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU003", 2)).orElseThrow();
+        servicoExternoMockAdapter.baixarEstoque(idReserva);
 
-        boolean resultado = servicoExternoMockAdapter.baixarEstoque(produtoId, quantidade);
+        assertTrue(servicoExternoMockAdapter.estornarEstoque(idReserva));
 
-        assertTrue(resultado);
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU003"));
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().vendido("SKU003"));
+        assertFalse(servicoExternoMockAdapter.baixarEstoque(idReserva));
     }
 
     @Test
-    void deveEstornarEstoqueComSucesso() {
-        String produtoId = "SKU001";
-        Integer quantidade = 3;
+    void naoDeveAumentarEstoqueComEstornoRepetido() {
+        String idReserva = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 2)).orElseThrow();
+        servicoExternoMockAdapter.baixarEstoque(idReserva);
+
+        assertTrue(servicoExternoMockAdapter.estornarEstoque(idReserva));
+        assertFalse(servicoExternoMockAdapter.estornarEstoque(idReserva));
+
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU001"));
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().vendido("SKU001"));
+    }
 
-        boolean resultado = servicoExternoMockAdapter.estornarEstoque(produtoId, quantidade);
+    @Test
+    void naoDeveAumentarEstoqueComEstornoDeReservaDesconhecida() {
+        assertFalse(servicoExternoMockAdapter.estornarEstoque("SKU999-1"));
 
-        assertTrue(resultado);
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU999"));
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU001"));
     }
 
     @Test
-    void deveEstornarEstoqueParaProdutoInexistente() {
-        String produtoId = "SKU999";
-        Integer quantidade = 5;
+    void deveDevolverReservasDoLoteQuandoUmProdutoNaoTemEstoque() {
+        Map<String, Integer> lote = new LinkedHashMap<>();
+        lote.put("SKU001", 2);
+        lote.put("SKU003", 3);
+
+        assertTrue(servicoExternoMockAdapter.reservarEstoque(lote).isEmpty());
 
-        boolean resultado = servicoExternoMockAdapter.estornarEstoque(produtoId, quantidade);
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU001"));
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().reservado("SKU001"));
+    }
 
-        assertTrue(resultado);
+    @Test
+    void deveReservarLoteSomenteQuandoTodosOsProdutosTemEstoque() {
+        assertTrue(servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 2, "SKU002", 1)).isPresent());
+        assertTrue(servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 1, "SKU003", 3)).isEmpty());
     }
 
     @Test
-    void deveEstornarEstoqueEAumentarEstoqueDisponivel() {
-        String produtoId = "SKU003";
-        Integer quantidadeBaixa = 2;
-        Integer quantidadeEstorno = 1;
+    void deveBaixarEEstornarLoteInteiroPelaReserva() {
+        String idReserva = servicoExternoMockAdapter.reservarEstoque(Map.of("SKU001", 2, "SKU002", 1)).orElseThrow();
 
-        servicoExternoMockAdapter.baixarEstoque(produtoId, quantidadeBaixa);
-        boolean resultado = servicoExternoMockAdapter.estornarEstoque(produtoId, quantidadeEstorno);
+        assertTrue(servicoExternoMockAdapter.baixarEstoque(idReserva));
+        assertEquals(0, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU001"));
+        assertEquals(1, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU002"));
 
-        assertTrue(resultado);
-        boolean novaReserva = servicoExternoMockAdapter.reservarEstoque(produtoId, 1);
-        assertTrue(novaReserva);
+        assertTrue(servicoExternoMockAdapter.estornarEstoque(idReserva));
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU001"));
+        assertEquals(2, servicoExternoMockAdapter.getLivroEstoque().disponivel("SKU002"));
     }
 
     @Test
@@ -0,0 +1,181 @@
+package com.fiap.pedido.cache;
+
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.StatusPedido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PedidoCacheTest {
+
+    private final AtomicLong relogio = new AtomicLong();
+    private final AtomicInteger carregamentos = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private PedidoCache pedidoCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pedidoCache = new PedidoCache(2, Duration.ofSeconds(5), meterRegistry, relogio::get);
+    }
+
+    @Test
+    void deveCarregarUmaVezERegistrarHitEMiss() {
+        pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.ABERTO));
+        Optional<PedidoResponseDTO> resultado = pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.ABERTO));
+
+        assertTrue(resultado.isPresent());
+        assertEquals(1, carregamentos.get());
+        assertEquals(1, pedidoCache.estatisticas().hitCount());
+        assertEquals(1, pedidoCache.estatisticas().missCount());
+    }
+
+    @Test
+    void naoDeveArmazenarPedidoInexistente() {
+        pedidoCache.buscar(1L, id -> contarVazio());
+        pedidoCache.buscar(1L, id -> contarVazio());
+
+        assertEquals(2, carregamentos.get());
+        assertEquals(0, pedidoCache.tamanho());
+    }
+
+    @Test
+    void deveExpirarPedidoNaoTerminalAposTtl() {
+        pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.ABERTO));
+
+        avancar(Duration.ofSeconds(6));
+        pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.ABERTO));
+
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    void naoDeveExpirarPedidoTerminalPorTempo() {
+        pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.FECHADO_COM_SUCESSO));
+
+        avancar(Duration.ofDays(30));
+        pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.FECHADO_COM_SUCESSO));
+
+        assertEquals(1, carregamentos.get());
+    }
+
+    @Test
+    void deveRecarregarAposInvalidacao() {
+        pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.ABERTO));
+        pedidoCache.invalidar(1L);
+
+        Optional<PedidoResponseDTO> resultado = pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.CANCELADO));
+
+        assertEquals("CANCELADO", resultado.orElseThrow().getStatus());
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    void deveSubstituirEntradaAoAtualizar() {
+        pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.ABERTO));
+        pedidoCache.atualizar(PedidoResponseDTO.builder().id(1L).status(StatusPedido.FECHADO_SEM_CREDITO.name()).build());
+
+        Optional<PedidoResponseDTO> resultado = pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.ABERTO));
+
+        assertEquals("FECHADO_SEM_CREDITO", resultado.orElseThrow().getStatus());
+        assertEquals(1, carregamentos.get());
+    }
+
+    @Test
+    void deveRespeitarTamanhoMaximoERegistrarEvicoes() {
+        for (long id = 1; id <= 5; id++) {
+            pedidoCache.buscar(id, chave -> carregar(chave, StatusPedido.FECHADO_COM_SUCESSO));
+        }
+
+        assertEquals(2, pedidoCache.tamanho());
+        assertEquals(3, pedidoCache.estatisticas().evictionCount());
+    }
+
+    @Test
+    void deveExporMetricasDoCacheNoRegistry() {
+        pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.ABERTO));
+        pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.ABERTO));
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "pedidos").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "pedidos").tag("result", "miss")
+                .functionCounter().count());
+        assertNotNull(meterRegistry.find("cache.evictions").tag("cache", "pedidos").functionCounter());
+    }
+
+    @Test
+    void deveCarregarUmaUnicaVezComConsultasConcorrentesDoMesmoPedido() throws Exception {
+        CountDownLatch carregando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        Future<Optional<PedidoResponseDTO>> primeira = executor.submit(() -> pedidoCache.buscar(1L, id -> {
+            carregando.countDown();
+            aguardar(liberar);
+            return carregar(id, StatusPedido.ABERTO);
+        }));
+        assertTrue(carregando.await(5, TimeUnit.SECONDS));
+        List<Future<Optional<PedidoResponseDTO>>> demais = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            demais.add(executor.submit(() -> pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.CANCELADO))));
+        }
+        liberar.countDown();
+
+        assertEquals("ABERTO", primeira.get(5, TimeUnit.SECONDS).orElseThrow().getStatus());
+        for (Future<Optional<PedidoResponseDTO>> consulta : demais) {
+            assertEquals("ABERTO", consulta.get(5, TimeUnit.SECONDS).orElseThrow().getStatus());
+        }
+        assertEquals(1, carregamentos.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void devePropagarErroDoCarregadorSemArmazenar() {
+        RuntimeException erro = new RuntimeException("Banco indisponível");
+
+        RuntimeException lancada = assertThrows(RuntimeException.class, () -> pedidoCache.buscar(1L, id -> {
+            throw erro;
+        }));
+        Optional<PedidoResponseDTO> resultado = pedidoCache.buscar(1L, id -> carregar(id, StatusPedido.ABERTO));
+
+        assertSame(erro, lancada);
+        assertTrue(resultado.isPresent());
+        assertEquals(1, pedidoCache.estatisticas().loadFailureCount());
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Optional<PedidoResponseDTO> carregar(Long id, StatusPedido status) {
+        carregamentos.incrementAndGet();
+        return Optional.of(PedidoResponseDTO.builder().id(id).status(status.name()).build());
+    }
+
+    private Optional<PedidoResponseDTO> contarVazio() {
+        carregamentos.incrementAndGet();
+        return Optional.empty();
+    }
+
+    private void avancar(Duration duracao) {
+        relogio.addAndGet(TimeUnit.NANOSECONDS.convert(duracao));
+    }
+}
@@ -0,0 +1,180 @@
+package com.fiap.pedido.cache;
+
+import com.fiap.pedido.adapter.ServicoExternoAdapter;
+import com.fiap.pedido.adapter.ServicoExternoMockAdapter;
+import com.fiap.pedido.dto.ProdutoDTO;
+import com.fiap.pedido.enuns.CatalogoProdutos;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProdutoCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(60);
+    private static final Duration ATUALIZAR_APOS = Duration.ofMinutes(45);
+    private static final Duration TTL_AUSENTE = Duration.ofMinutes(5);
+
+    private final AtomicLong relogio = new AtomicLong();
+    private final AtomicInteger carregamentos = new AtomicInteger();
+    private final ConcurrentHashMap<String, Double> catalogo = new ConcurrentHashMap<>();
+    private final List<Runnable> recargasPendentes = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private ProdutoCache produtoCache;
+
+    @BeforeEach
+    void setUp() {
+        catalogo.put("SKU001", 100.0);
+        meterRegistry = new SimpleMeterRegistry();
+        // Recargas ficam pendentes até o teste executá-las, como se o pool de atualização estivesse ocupado
+        Executor executorAtualizacao = recargasPendentes::add;
+        produtoCache = new ProdutoCache(this::consultarCatalogo, 100, TTL, ATUALIZAR_APOS, TTL_AUSENTE,
+                executorAtualizacao, meterRegistry, relogio::get);
+    }
+
+    @Test
+    void deveConsultarCatalogoUmaVezERegistrarHitEMiss() {
+        produtoCache.buscar("SKU001");
+        Optional<ProdutoDTO> produto = produtoCache.buscar("SKU001");
+
+        assertEquals(100.0, produto.orElseThrow().getPreco());
+        assertEquals(1, carregamentos.get());
+        assertEquals(1, produtoCache.estatisticas().hitCount());
+        assertEquals(1, produtoCache.estatisticas().missCount());
+    }
+
+    @Test
+    void deveServirValorAtualEnquantoRecarregaEmSegundoPlano() {
+        produtoCache.buscar("SKU001");
+        catalogo.put("SKU001", 120.0);
+        avancar(ATUALIZAR_APOS.plusMinutes(1));
+
+        Optional<ProdutoDTO> durante = produtoCache.buscar("SKU001");
+
+        assertEquals(100.0, durante.orElseThrow().getPreco(), "A leitura não espera a recarga");
+        assertEquals(1, carregamentos.get());
+        executarRecargas();
+        assertEquals(2, carregamentos.get());
+        assertEquals(120.0, produtoCache.buscar("SKU001").orElseThrow().getPreco());
+    }
+
+    @Test
+    void deveConsultarDeNovoDepoisDoTtlSemLeituras() {
+        produtoCache.buscar("SKU001");
+        avancar(TTL.plusMinutes(1));
+
+        produtoCache.buscar("SKU001");
+
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    void deveGuardarSkuDesconhecidoPeloTtlDeAusencia() {
+        assertTrue(produtoCache.buscar("SKU999").isEmpty());
+        assertTrue(produtoCache.buscar("SKU999").isEmpty());
+        assertEquals(1, carregamentos.get());
+
+        catalogo.put("SKU999", 10.0);
+        avancar(TTL_AUSENTE.plusSeconds(1));
+
+        assertEquals(10.0, produtoCache.buscar("SKU999").orElseThrow().getPreco());
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    void deveGuardarProdutoNaoEncontradoNoProdutoServiceQuandoCatalogoEhOServico() throws Exception {
+        ServicoExternoMockAdapter mockLocal = mock(ServicoExternoMockAdapter.class);
+        ServicoExternoAdapter produtoService = mock(ServicoExternoAdapter.class);
+        when(produtoService.consultarProduto("SKU404")).thenReturn(Optional.empty());
+        ProdutoCache cacheDoServico = new ProdutoCache(mockLocal, produtoService, CatalogoProdutos.SERVICO, 100, TTL,
+                ATUALIZAR_APOS, TTL_AUSENTE, 1, new SimpleMeterRegistry());
+        try {
+            assertTrue(cacheDoServico.buscar("SKU404").isEmpty());
+            assertTrue(cacheDoServico.buscar("SKU404").isEmpty());
+        } finally {
+            cacheDoServico.destroy();
+        }
+
+        verify(produtoService, times(1)).consultarProduto("SKU404");
+        verifyNoInteractions(mockLocal);
+    }
+
+    @Test
+    void naoDeveGuardarFalhaDeConsulta() {
+        catalogo.put("SKU500", -1.0);
+
+        assertThrows(IllegalStateException.class, () -> produtoCache.buscar("SKU500"));
+        catalogo.put("SKU500", 50.0);
+
+        assertEquals(50.0, produtoCache.buscar("SKU500").orElseThrow().getPreco());
+    }
+
+    @Test
+    void deveManterValorQuandoRecargaFalha() {
+        produtoCache.buscar("SKU001");
+        catalogo.put("SKU001", -1.0);
+        avancar(ATUALIZAR_APOS.plusMinutes(1));
+
+        produtoCache.buscar("SKU001");
+        executarRecargas();
+
+        assertEquals(100.0, produtoCache.buscar("SKU001").orElseThrow().getPreco());
+    }
+
+    @Test
+    void deveRegistrarLatenciaDosCarregamentosPorResultado() {
+        produtoCache.buscar("SKU001");
+        produtoCache.buscar("SKU999");
+
+        assertEquals(1, meterRegistry.get(ProdutoCache.METRICA_CARREGAMENTO).tag("resultado", "encontrado").timer().count());
+        assertEquals(1, meterRegistry.get(ProdutoCache.METRICA_CARREGAMENTO).tag("resultado", "ausente").timer().count());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", ProdutoCache.NOME_CACHE).tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void naoDeveAceitarRecargaDepoisDoTtl() {
+        assertThrows(IllegalArgumentException.class, () -> new ProdutoCache(this::consultarCatalogo, 100, TTL, TTL,
+                TTL_AUSENTE, Runnable::run, meterRegistry, relogio::get));
+    }
+
+    /**
+     * Preço negativo simula indisponibilidade do catálogo
+     */
+    private Optional<ProdutoDTO> consultarCatalogo(String produtoId) {
+        carregamentos.incrementAndGet();
+        Double preco = catalogo.get(produtoId);
+        if (preco == null) {
+            return Optional.empty();
+        }
+        if (preco < 0) {
+            throw new IllegalStateException("Catálogo indisponível");
+        }
+        ProdutoDTO produto = new ProdutoDTO();
+        produto.setId(produtoId);
+        produto.setSku(produtoId);
+        produto.setPreco(preco);
+        return Optional.of(produto);
+    }
+
+    private void avancar(Duration tempo) {
+        relogio.addAndGet(tempo.toNanos());
+    }
+
+    private void executarRecargas() {
+        List<Runnable> recargas = new ArrayList<>(recargasPendentes);
+        recargasPendentes.clear();
+        recargas.forEach(Runnable::run);
+    }
+}
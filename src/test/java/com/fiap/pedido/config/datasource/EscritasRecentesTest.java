@@ -0,0 +1,42 @@
+package com.fiap.pedido.config.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EscritasRecentesTest {
+
+    private final AtomicLong relogio = new AtomicLong();
+    private final EscritasRecentes escritasRecentes = new EscritasRecentes(Duration.ofSeconds(2), relogio::get);
+
+    @Test
+    void deveConsiderarRecenteDentroDaJanela() {
+        escritasRecentes.registrar(1L);
+        relogio.addAndGet(TimeUnit.MILLISECONDS.toNanos(1500));
+
+        assertTrue(escritasRecentes.isRecente(1L));
+        assertFalse(escritasRecentes.isRecente(2L));
+    }
+
+    @Test
+    void deveLiberarReplicaAposJanela() {
+        escritasRecentes.registrar(1L);
+        relogio.addAndGet(TimeUnit.SECONDS.toNanos(3));
+
+        assertFalse(escritasRecentes.isRecente(1L));
+    }
+
+    @Test
+    void naoDeveRegistrarNadaComJanelaZero() {
+        EscritasRecentes desativado = new EscritasRecentes(Duration.ZERO, relogio::get);
+
+        desativado.registrar(1L);
+
+        assertFalse(desativado.isRecente(1L));
+        assertFalse(escritasRecentes.isRecente(null));
+    }
+}
@@ -0,0 +1,140 @@
+package com.fiap.pedido.config.datasource;
+
+import com.fiap.pedido.adapter.PedidoRepositoryAdapter;
+import com.fiap.pedido.cache.PedidoCache;
+import com.fiap.pedido.domain.PedidoPagina;
+import com.fiap.pedido.entity.PedidoEntity;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.estatistica.PedidoEstatisticas;
+import com.fiap.pedido.mapper.PedidoMapperImpl;
+import com.fiap.pedido.repository.PedidoRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Primário e réplica em duas instâncias H2. A réplica recebe o mesmo schema, mas "atrasada":
+ * o pedido continua ABERTO nela enquanto no primário já foi fechado.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.url=jdbc:h2:mem:pedido-primario;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "pedido.datasource.replica.urls=" + ReplicaDataSourceConfigTest.URL_REPLICA,
+        "pedido.datasource.replica.janela-leitura-apos-escrita=PT1M",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.datasource.hikari.connection-timeout=2500"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReplicaDataSourceConfig.class, PedidoRepositoryAdapter.class, PedidoMapperImpl.class, PedidoCache.class,
+        PedidoEstatisticas.class, EscritasRecentes.class, ReplicaDataSourceConfigTest.Metricas.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaDataSourceConfigTest {
+
+    static final String URL_REPLICA = "jdbc:h2:mem:pedido-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private PedidoRepositoryAdapter pedidoRepositoryAdapter;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private RoteadorDataSource roteadorDataSource;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(URL_REPLICA, "sa", ""));
+    private Long pedidoId;
+
+    @BeforeEach
+    void setUp() {
+        pedidoRepository.deleteAll();
+        pedidoId = pedidoRepository.save(PedidoEntity.builder()
+                .clienteId(7L)
+                .status(StatusPedido.FECHADO_COM_SUCESSO)
+                .dataCriacao(LocalDateTime.now())
+                .itens(new ArrayList<>())
+                .build()).getId();
+
+        // Copia o schema do primário e grava uma versão desatualizada do pedido na réplica
+        JdbcTemplate primario = new JdbcTemplate(roteadorDataSource);
+        replica.execute("DROP ALL OBJECTS");
+        for (String comando : primario.queryForList("SCRIPT NODATA", String.class)) {
+            replica.execute(comando);
+        }
+        replica.update("INSERT INTO pedidos (id, cliente_id, status, data_criacao) VALUES (?, 7, 'ABERTO', ?)",
+                pedidoId, LocalDateTime.now());
+    }
+
+    @Test
+    void deveListarPedidosPelaReplica() {
+        PedidoPagina pagina = pedidoRepositoryAdapter.findPaginaPorCliente(7L, null, 10);
+
+        assertEquals(1, pagina.getPedidos().size());
+        assertEquals("ABERTO", pagina.getPedidos().get(0).getStatus());
+    }
+
+    @Test
+    void deveConsultarPedidoSemEscritaRecentePelaReplica() {
+        Long idSomenteNaReplica = pedidoId + 1000;
+        replica.update("INSERT INTO pedidos (id, cliente_id, status, data_criacao) VALUES (?, 8, 'CANCELADO', ?)",
+                idSomenteNaReplica, LocalDateTime.now());
+
+        assertEquals("CANCELADO", pedidoRepositoryAdapter.findResponseById(idSomenteNaReplica).orElseThrow().getStatus());
+    }
+
+    @Test
+    void deveLerDoPrimarioAposEscritaDentroDaJanela() {
+        assertTrue(pedidoRepositoryAdapter.transicionarStatus(pedidoId, StatusPedido.FECHADO_COM_SUCESSO, StatusPedido.CANCELADO));
+
+        assertEquals("CANCELADO", pedidoRepositoryAdapter.findResponseById(pedidoId).orElseThrow().getStatus());
+        assertEquals(List.of("ABERTO"), replica.queryForList("SELECT status FROM pedidos WHERE id = ?", String.class, pedidoId));
+    }
+
+    @Test
+    void deveBuscarStatusParaTransicaoNoPrimario() {
+        assertEquals(StatusPedido.FECHADO_COM_SUCESSO, pedidoRepositoryAdapter.findStatusById(pedidoId).orElseThrow());
+    }
+
+    @Test
+    void deveAplicarConfiguracaoHikariCompartilhadaAoPrimarioEAsReplicas() {
+        Map<Object, DataSource> pools = roteadorDataSource.getResolvedDataSources();
+
+        assertEquals(2, pools.size());
+        for (Map.Entry<Object, DataSource> pool : pools.entrySet()) {
+            HikariDataSource hikari = assertInstanceOf(HikariDataSource.class, pool.getValue());
+            assertEquals(4, hikari.getMaximumPoolSize(), "Pool " + pool.getKey());
+            assertEquals(2500, hikari.getConnectionTimeout(), "Pool " + pool.getKey());
+            assertEquals(!RoteadorDataSource.PRIMARIO.equals(pool.getKey()), hikari.isReadOnly(), "Pool " + pool.getKey());
+        }
+    }
+
+    @TestConfiguration
+    static class Metricas {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
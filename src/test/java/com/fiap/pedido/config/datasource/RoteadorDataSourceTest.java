@@ -0,0 +1,104 @@
+package com.fiap.pedido.config.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Roteamento com instâncias H2 em memória distintas; cada uma identifica a si própria na tabela origem
+ */
+class RoteadorDataSourceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate escrita;
+    private TransactionTemplate leitura;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primario = criarBanco("primario");
+        List<DataSource> replicas = List.of(criarBanco("replica-a"), criarBanco("replica-b"));
+
+        RoteadorDataSource roteador = new RoteadorDataSource(primario, replicas);
+        roteador.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(roteador);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        escrita = new TransactionTemplate(transactionManager);
+        leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+    }
+
+    @Test
+    void deveEnviarTransacaoDeEscritaAoPrimario() {
+        assertEquals("primario", escrita.execute(status -> origem()));
+    }
+
+    @Test
+    void deveEnviarLeituraSemTransacaoAoPrimario() {
+        assertEquals("primario", origem());
+    }
+
+    @Test
+    void deveAlternarReplicasEmTransacoesSomenteLeitura() {
+        List<String> origens = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            origens.add(leitura.execute(status -> origem()));
+        }
+
+        assertEquals(List.of("replica-a", "replica-b", "replica-a", "replica-b"), origens);
+    }
+
+    @Test
+    void deveManterMesmaReplicaDuranteATransacao() {
+        List<String> origens = leitura.execute(status -> List.of(origem(), origem(), origem()));
+
+        assertEquals(List.of("replica-a", "replica-a", "replica-a"), origens);
+    }
+
+    @Test
+    void deveLerDoPrimarioQuandoForcado() {
+        String origem = RoteadorDataSource.noPrimario(() -> leitura.execute(status -> origem()));
+
+        assertEquals("primario", origem);
+        assertEquals("replica-a", leitura.execute(status -> origem()));
+    }
+
+    @Test
+    void deveUsarPrimarioQuandoNaoHaReplicas() {
+        RoteadorDataSource roteador = new RoteadorDataSource(criarBanco("somente-primario"), List.of());
+        roteador.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(roteador);
+        TransactionTemplate somenteLeitura = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        somenteLeitura.setReadOnly(true);
+
+        String origem = somenteLeitura.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT nome FROM origem", String.class));
+
+        assertEquals("somente-primario", origem);
+    }
+
+    private String origem() {
+        return jdbcTemplate.queryForObject("SELECT nome FROM origem", String.class);
+    }
+
+    private static DataSource criarBanco(String nome) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + nome + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE origem (nome VARCHAR(50))");
+        jdbc.update("INSERT INTO origem (nome) VALUES (?)", nome);
+        return dataSource;
+    }
+}
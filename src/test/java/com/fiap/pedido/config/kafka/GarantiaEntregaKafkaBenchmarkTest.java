@@ -0,0 +1,235 @@
+package com.fiap.pedido.config.kafka;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fiap.pedido.adapter.ServicoExternoMockAdapter;
+import com.fiap.pedido.cache.ProdutoCache;
+import com.fiap.pedido.dto.ClienteDTO;
+import com.fiap.pedido.dto.ProdutoDTO;
+import com.fiap.pedido.dto.StatusPagamentoDTO;
+import com.fiap.pedido.dto.request.DadosPagamentoRequestDTO;
+import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.CatalogoProdutos;
+import com.fiap.pedido.enuns.GarantiaEntrega;
+import com.fiap.pedido.message.ContrapressaoConsumo;
+import com.fiap.pedido.message.ExecutorItensPedido;
+import com.fiap.pedido.message.ExecutorPorChave;
+import com.fiap.pedido.message.IdempotenciaConsumo;
+import com.fiap.pedido.message.PedidoConsumer;
+import com.fiap.pedido.message.PedidoResultadoProducer;
+import com.fiap.pedido.message.PedidoRetentativaProducer;
+import com.fiap.pedido.usecase.service.PedidoUseCaseImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Pedidos/s do consumo com resultado publicado em pedido-processado: PELO_MENOS_UMA_VEZ contra EXATAMENTE_UMA_VEZ,
+ * nos modos unitário e lote, com broker embutido e serviços externos e gravação simulados (sem I/O).
+ * Mede só o custo do Kafka: no unitário cada registro espera a confirmação do resultado e, com transação, paga
+ * também o commit da transação; no lote os dois custos são por poll.
+ * Só roda quando pedido: mvn test -Dtest=GarantiaEntregaKafkaBenchmarkTest -Dkafka-benchmark=true
+ * Referência (1 vCPU, JDK 17, 2.000 pedidos): unitário ~95 pedidos/s pelo menos uma vez, ~37 exatamente uma vez;
+ * lote ~3.270 pelo menos uma vez, ~2.070 exatamente uma vez.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "kafka-benchmark", matches = "true")
+@EmbeddedKafka(partitions = 1,
+        brokerProperties = {"transaction.state.log.replication.factor=1", "transaction.state.log.min.isr=1"})
+class GarantiaEntregaKafkaBenchmarkTest {
+
+    private static final int PEDIDOS = 2_000;
+    private static final Duration ESPERA = Duration.ofMinutes(2);
+
+    private static final Logger LOGGER_APLICACAO = (Logger) LoggerFactory.getLogger("com.fiap.pedido");
+    private static final Logger LOGGER_KAFKA = (Logger) LoggerFactory.getLogger("org.apache.kafka");
+    private static final ExecutorItensPedido EXECUTOR_ITENS = new ExecutorItensPedido(8, Duration.ofSeconds(10), new StandardEnvironment());
+    private static Level nivelAplicacao;
+    private static Level nivelKafka;
+
+    /**
+     * Sem o contexto Spring o logback loga tudo em DEBUG no console, o que vira o gargalo da medição
+     */
+    @BeforeAll
+    static void silenciarLogs() {
+        nivelAplicacao = LOGGER_APLICACAO.getLevel();
+        nivelKafka = LOGGER_KAFKA.getLevel();
+        LOGGER_APLICACAO.setLevel(Level.WARN);
+        LOGGER_KAFKA.setLevel(Level.WARN);
+    }
+
+    @AfterAll
+    static void restaurarLogs() throws InterruptedException {
+        LOGGER_APLICACAO.setLevel(nivelAplicacao);
+        LOGGER_KAFKA.setLevel(nivelKafka);
+        EXECUTOR_ITENS.destroy();
+    }
+
+    @Test
+    void deveMedirCustoDaGarantiaExatamenteUmaVez(EmbeddedKafkaBroker broker) throws Exception {
+        Map<String, Double> pedidosPorSegundo = new LinkedHashMap<>();
+        for (boolean lote : new boolean[]{false, true}) {
+            for (GarantiaEntrega garantia : GarantiaEntrega.values()) {
+                String cenario = (lote ? "lote" : "unitario") + "-" + garantia.name().toLowerCase();
+                pedidosPorSegundo.put(cenario, medirPedidosPorSegundo(broker, cenario, garantia, lote));
+            }
+        }
+        log.warn("📊 Pedidos/s com {} pedidos: {}", PEDIDOS, pedidosPorSegundo);
+
+        assertTrue(pedidosPorSegundo.get("lote-exatamente_uma_vez") > pedidosPorSegundo.get("unitario-exatamente_uma_vez"),
+                "Esperado custo de transação diluído no lote: " + pedidosPorSegundo);
+    }
+
+    private double medirPedidosPorSegundo(EmbeddedKafkaBroker broker, String cenario, GarantiaEntrega garantia,
+                                          boolean lote) throws Exception {
+        String entrada = "bench-" + cenario;
+        String saida = "bench-" + cenario + "-processado";
+        broker.addTopics(entrada, saida);
+        publicarPedidos(broker, entrada);
+
+        KafkaConfig config = new KafkaConfig(broker.getBrokersAsString(), garantia);
+        // Fora do Spring cada chamada cria uma fábrica: transação do container e template precisam usar a mesma
+        ProducerFactory<String, Object> producerFactory = config.pedidoProducerFactory();
+        PedidoResultadoProducer resultados = new PedidoResultadoProducer(new KafkaTemplate<>(producerFactory), saida,
+                Duration.ofSeconds(10), new SimpleMeterRegistry());
+        PedidoConsumer pedidoConsumer = criarConsumer(resultados);
+
+        ConcurrentKafkaListenerContainerFactory<String, PedidoRequestDTO> containerFactory = lote
+                ? config.pedidoLoteKafkaListenerContainerFactory(500)
+                : config.pedidoKafkaListenerContainerFactory();
+        if (garantia == GarantiaEntrega.EXATAMENTE_UMA_VEZ) {
+            containerFactory.getContainerProperties().setTransactionManager(new KafkaTransactionManager<>(producerFactory));
+        }
+        ConcurrentMessageListenerContainer<String, PedidoRequestDTO> container = containerFactory.createContainer(entrada);
+        container.getContainerProperties().setGroupId("bench-" + cenario);
+        // Os pedidos já estão no tópico antes do container subir
+        container.getContainerProperties().getKafkaConsumerProperties()
+                .put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        container.getContainerProperties().setMessageListener(lote
+                ? (BatchMessageListener<String, PedidoRequestDTO>) pedidoConsumer::consumirLote
+                : (MessageListener<String, PedidoRequestDTO>) pedidoConsumer::consumirRegistro);
+
+        try (Consumer<String, String> confirmados = consumidorDeResultados(broker, saida)) {
+            long inicio = System.nanoTime();
+            container.start();
+            int lidos = contarResultados(confirmados);
+            double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+            assertEquals(PEDIDOS, lidos, "Resultados lidos no cenário " + cenario);
+            return PEDIDOS / segundos;
+        } finally {
+            container.stop();
+            ((DefaultKafkaProducerFactory<String, Object>) producerFactory).destroy();
+        }
+    }
+
+    private static void publicarPedidos(EmbeddedKafkaBroker broker, String topico) {
+        DefaultKafkaProducerFactory<String, Object> producerFactory =
+                (DefaultKafkaProducerFactory<String, Object>) new KafkaConfig(broker.getBrokersAsString()).pedidoProducerFactory();
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(producerFactory);
+        for (int i = 0; i < PEDIDOS; i++) {
+            template.send(topico, "pedido-" + i, criarPedido(i));
+        }
+        template.flush();
+        producerFactory.destroy();
+    }
+
+    private static int contarResultados(Consumer<String, String> consumidor) {
+        int lidos = 0;
+        long limite = System.nanoTime() + ESPERA.toNanos();
+        while (lidos < PEDIDOS && System.nanoTime() < limite) {
+            lidos += consumidor.poll(Duration.ofMillis(100)).count();
+        }
+        return lidos;
+    }
+
+    private static Consumer<String, String> consumidorDeResultados(EmbeddedKafkaBroker broker, String topico) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps(topico, "false", broker);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        Consumer<String, String> consumidor = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new StringDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(consumidor, topico);
+        return consumidor;
+    }
+
+    private static PedidoConsumer criarConsumer(PedidoResultadoProducer resultados) {
+        AtomicLong ids = new AtomicLong();
+        PedidoUseCaseImpl pedidoUseCase = mock(PedidoUseCaseImpl.class, withSettings().stubOnly());
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenAnswer(invocation -> gravado(ids.incrementAndGet()));
+        when(pedidoUseCase.registrarPedidos(anyList(), anyList(), anyList())).thenAnswer(invocation -> {
+            List<PedidoResponseDTO> gravados = new ArrayList<>();
+            for (int i = 0; i < invocation.<List<?>>getArgument(0).size(); i++) {
+                gravados.add(gravado(ids.incrementAndGet()));
+            }
+            return gravados;
+        });
+
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setNome("Cliente Benchmark");
+        ProdutoDTO produto = new ProdutoDTO();
+        produto.setPreco(100.0);
+        StatusPagamentoDTO pagamento = new StatusPagamentoDTO();
+        pagamento.setStatus("APROVADO");
+        pagamento.setPagamentoId("PAG1");
+        ServicoExternoMockAdapter servicoExterno = mock(ServicoExternoMockAdapter.class, withSettings().stubOnly());
+        when(servicoExterno.consultarCliente(anyString())).thenReturn(cliente);
+        when(servicoExterno.consultarProduto(anyString())).thenReturn(produto);
+        when(servicoExterno.reservarEstoque(anyMap())).thenReturn(Optional.of("SKU001-1"));
+        when(servicoExterno.processarPagamento(anyString(), anyDouble())).thenReturn(pagamento);
+        when(servicoExterno.baixarEstoque(anyString())).thenReturn(true);
+
+        IdempotenciaConsumo idempotencia = mock(IdempotenciaConsumo.class, withSettings().stubOnly());
+        when(idempotencia.chave(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        return new PedidoConsumer(pedidoUseCase, servicoExterno, mock(ExecutorPorChave.class, withSettings().stubOnly()),
+                idempotencia, mock(ContrapressaoConsumo.class, withSettings().stubOnly()), resultados, EXECUTOR_ITENS,
+                new ProdutoCache(servicoExterno, null, CatalogoProdutos.MOCK, 1_000, Duration.ofHours(1), Duration.ofMinutes(45), Duration.ofMinutes(5), 1,
+                        new SimpleMeterRegistry()), mock(PedidoRetentativaProducer.class, withSettings().stubOnly()));
+    }
+
+    private static PedidoResponseDTO gravado(long id) {
+        return PedidoResponseDTO.builder().id(id).clienteId(1L).status("FECHADO_COM_SUCESSO").build();
+    }
+
+    private static PedidoRequestDTO criarPedido(long numero) {
+        return PedidoRequestDTO.builder()
+                .clienteId(numero % 100)
+                .dadosPagamento(DadosPagamentoRequestDTO.builder().numeroCartao("1234567890123456").build())
+                .itens(List.of(ItemPedidoRequestDTO.builder().produtoId("SKU" + numero % 50).quantidade(1).build()))
+                .build();
+    }
+}
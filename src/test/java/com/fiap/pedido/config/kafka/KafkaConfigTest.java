@@ -1,7 +1,10 @@
 package com.fiap.pedido.config.kafka;
 
+import com.fiap.pedido.domain.PedidoStatusAlterado;
 import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.enuns.GarantiaEntrega;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +13,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 
 import java.util.Map;
@@ -57,6 +64,27 @@ class KafkaConfigTest {
         assertNotNull(result.getConsumerFactory());
     }
 
+    @Test
+    void deveCriarListenerFactoryEmModoLote() {
+        ConcurrentKafkaListenerContainerFactory<String, PedidoRequestDTO> result =
+                kafkaConfig.pedidoLoteKafkaListenerContainerFactory(250);
+
+        assertTrue(result.isBatchListener());
+        assertNotNull(result.getConsumerFactory());
+        assertEquals("250", result.getContainerProperties().getKafkaConsumerProperties()
+                .get(ConsumerConfig.MAX_POLL_RECORDS_CONFIG));
+    }
+
+    @Test
+    void deveCriarListenerFactoryParalelaComConfirmacaoManualForaDeOrdem() {
+        ConcurrentKafkaListenerContainerFactory<String, PedidoRequestDTO> result =
+                kafkaConfig.pedidoParaleloKafkaListenerContainerFactory("PARALELO");
+
+        assertEquals(ContainerProperties.AckMode.MANUAL, result.getContainerProperties().getAckMode());
+        assertTrue(result.getContainerProperties().isAsyncAcks());
+        assertNotNull(result.getConsumerFactory());
+    }
+
     @Test
     void deveConfigurarConsumerFactoryNaListenerFactory() {
         ConsumerFactory<String, PedidoRequestDTO> consumerFactory = kafkaConfig.consumerFactory();
@@ -97,6 +125,70 @@ class KafkaConfigTest {
         assertEquals("kafka:9092", props.get(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG));
     }
 
+    @Test
+    void deveEnvolverJsonDeserializerParaTratarMensagemInvalida() {
+        DefaultKafkaConsumerFactory<String, PedidoRequestDTO> consumerFactory =
+                (DefaultKafkaConsumerFactory<String, PedidoRequestDTO>) kafkaConfig.consumerFactory();
+
+        assertInstanceOf(ErrorHandlingDeserializer.class, consumerFactory.getValueDeserializer());
+    }
+
+    @Test
+    void deveUsarBootstrapServersConfiguradoNoConsumidorENoProdutor() {
+        KafkaConfig configurado = new KafkaConfig("localhost:19092");
+
+        assertEquals("localhost:19092", configurado.consumerFactory().getConfigurationProperties()
+                .get(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG));
+        assertEquals("localhost:19092", configurado.pedidoProducerFactory().getConfigurationProperties()
+                .get(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG));
+    }
+
+    @Test
+    void deveConfigurarProdutorDeStatusIdempotenteComLotesComprimidos() {
+        ProducerFactory<String, PedidoStatusAlterado> producerFactory = kafkaConfig.statusProducerFactory(20, 65536, "lz4", 100);
+        Map<String, Object> props = producerFactory.getConfigurationProperties();
+
+        assertEquals("kafka:9092", props.get(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG));
+        assertEquals(true, props.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        assertEquals("all", props.get(ProducerConfig.ACKS_CONFIG));
+        assertEquals(20, props.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(65536, props.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("lz4", props.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(100L, props.get(ProducerConfig.MAX_BLOCK_MS_CONFIG));
+    }
+
+    @Test
+    void naoDeveUsarTransacoesNaGarantiaPadrao() {
+        assertNull(kafkaConfig.consumerFactory().getConfigurationProperties().get(ConsumerConfig.ISOLATION_LEVEL_CONFIG));
+        assertFalse(kafkaConfig.pedidoProducerFactory().transactionCapable());
+        assertNull(kafkaConfig.pedidoKafkaListenerContainerFactory().getContainerProperties().getTransactionManager());
+        assertNull(kafkaConfig.pedidoLoteKafkaListenerContainerFactory(250).getContainerProperties().getTransactionManager());
+    }
+
+    @Test
+    void deveConfigurarTransacaoKafkaNaGarantiaExatamenteUmaVez() {
+        KafkaConfig transacional = new KafkaConfig("localhost:19092", GarantiaEntrega.EXATAMENTE_UMA_VEZ);
+
+        assertEquals("read_committed", transacional.consumerFactory().getConfigurationProperties()
+                .get(ConsumerConfig.ISOLATION_LEVEL_CONFIG));
+        ProducerFactory<String, Object> producerFactory = transacional.pedidoProducerFactory();
+        assertTrue(producerFactory.transactionCapable());
+        assertEquals(KafkaConfig.PREFIXO_TRANSACAO_PADRAO, producerFactory.getTransactionIdPrefix());
+        assertEquals(true, producerFactory.getConfigurationProperties().get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        assertInstanceOf(KafkaTransactionManager.class,
+                transacional.pedidoKafkaListenerContainerFactory().getContainerProperties().getTransactionManager());
+        assertInstanceOf(KafkaTransactionManager.class,
+                transacional.pedidoLoteKafkaListenerContainerFactory(250).getContainerProperties().getTransactionManager());
+    }
+
+    @Test
+    void naoDeveAceitarModoParaleloComGarantiaExatamenteUmaVez() {
+        KafkaConfig transacional = new KafkaConfig("localhost:19092", GarantiaEntrega.EXATAMENTE_UMA_VEZ);
+
+        assertThrows(IllegalStateException.class, () -> transacional.pedidoParaleloKafkaListenerContainerFactory("PARALELO"));
+        assertNotNull(transacional.pedidoParaleloKafkaListenerContainerFactory("UNITARIO"));
+    }
+
     @Test
     void deveValidarGroupIdConfig() {
         ConsumerFactory<String, PedidoRequestDTO> consumerFactory = kafkaConfig.consumerFactory();
@@ -0,0 +1,111 @@
+package com.fiap.pedido.config.kafka;
+
+import com.fiap.pedido.dto.request.DadosPagamentoRequestDTO;
+import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PedidoRequestBinarioTest {
+
+    @Test
+    void deveLerOMesmoPedidoQueFoiEscrito() {
+        PedidoRequestDTO pedido = criarPedido();
+
+        PedidoRequestDTO lido = PedidoRequestBinario.ler(ByteBuffer.wrap(PedidoRequestBinario.escrever(pedido)));
+
+        assertEquals(pedido.getId(), lido.getId());
+        assertEquals(pedido.getClienteId(), lido.getClienteId());
+        assertEquals(pedido.getStatus(), lido.getStatus());
+        assertEquals(pedido.getDataCriacao(), lido.getDataCriacao());
+        assertEquals("CARTAO", lido.getDadosPagamento().getMetodoPagamento());
+        assertEquals("1234567890123456", lido.getDadosPagamento().getNumeroCartao());
+        assertEquals(2, lido.getItens().size());
+        assertEquals("SKU-ÇÃO-001", lido.getItens().get(0).getProdutoId());
+        assertEquals(2, lido.getItens().get(0).getQuantidade());
+        assertEquals(-1, lido.getItens().get(1).getQuantidade());
+    }
+
+    @Test
+    void devePreservarCamposNulos() {
+        PedidoRequestDTO pedido = PedidoRequestDTO.builder()
+                .clienteId(7L)
+                .itens(List.of(new ItemPedidoRequestDTO(null, null)))
+                .dadosPagamento(new DadosPagamentoRequestDTO(null, "4111"))
+                .build();
+
+        PedidoRequestDTO lido = PedidoRequestBinario.ler(ByteBuffer.wrap(PedidoRequestBinario.escrever(pedido)));
+
+        assertNull(lido.getId());
+        assertNull(lido.getStatus());
+        assertNull(lido.getDataCriacao());
+        assertEquals(7L, lido.getClienteId());
+        assertNull(lido.getItens().get(0).getProdutoId());
+        assertNull(lido.getItens().get(0).getQuantidade());
+        assertNull(lido.getDadosPagamento().getMetodoPagamento());
+        assertEquals("4111", lido.getDadosPagamento().getNumeroCartao());
+    }
+
+    @Test
+    void deveLerDeBufferQueComecaNoMeioDoArray() {
+        byte[] payload = PedidoRequestBinario.escrever(criarPedido());
+        byte[] registro = new byte[payload.length + 10];
+        System.arraycopy(payload, 0, registro, 5, payload.length);
+
+        PedidoRequestDTO lido = PedidoRequestBinario.ler(ByteBuffer.wrap(registro, 5, payload.length).slice());
+
+        assertEquals("SKU-ÇÃO-001", lido.getItens().get(0).getProdutoId());
+        assertEquals("1234567890123456", lido.getDadosPagamento().getNumeroCartao());
+    }
+
+    @Test
+    void deveRecusarVersaoDesconhecida() {
+        byte[] payload = PedidoRequestBinario.escrever(criarPedido());
+        payload[0] = 2;
+
+        assertThrows(SerializationException.class, () -> PedidoRequestBinario.ler(ByteBuffer.wrap(payload)));
+    }
+
+    @Test
+    void deveRecusarPayloadTruncado() {
+        byte[] payload = PedidoRequestBinario.escrever(criarPedido());
+
+        assertThrows(SerializationException.class,
+                () -> PedidoRequestBinario.ler(ByteBuffer.wrap(Arrays.copyOf(payload, payload.length - 4))));
+    }
+
+    @Test
+    void deveOcuparMenosDaMetadeDoJson() {
+        List<ItemPedidoRequestDTO> itens = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            itens.add(new ItemPedidoRequestDTO("SKU00" + i, i + 1));
+        }
+        PedidoRequestDTO pedido = criarPedido();
+        pedido.setItens(itens);
+
+        int binario = PedidoRequestBinario.escrever(pedido).length;
+        int json = new JsonSerializer<PedidoRequestDTO>().noTypeInfo().serialize("novo-pedido", pedido).length;
+
+        assertTrue(binario * 2 < json, "Binário: " + binario + " bytes, JSON: " + json + " bytes");
+    }
+
+    private static PedidoRequestDTO criarPedido() {
+        return PedidoRequestDTO.builder()
+                .id(123456789L)
+                .clienteId(42L)
+                .status("ABERTO")
+                .dataCriacao(LocalDateTime.of(2024, 5, 10, 14, 30, 15, 123_456_789))
+                .dadosPagamento(new DadosPagamentoRequestDTO("CARTAO", "1234567890123456"))
+                .itens(List.of(new ItemPedidoRequestDTO("SKU-ÇÃO-001", 2), new ItemPedidoRequestDTO("SKU002", -1)))
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.fiap.pedido.config.kafka;
+
+import com.fiap.pedido.dto.request.DadosPagamentoRequestDTO;
+import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.enuns.FormatoMensagem;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PedidoRequestDeserializerTest {
+
+    private final PedidoRequestDeserializer deserializer = new PedidoRequestDeserializer();
+
+    @Test
+    void deveLerJsonQuandoMensagemNaoTemHeaderDeFormato() {
+        byte[] json = "{\"clienteId\":1,\"itens\":[{\"produtoId\":\"SKU001\",\"quantidade\":2}]}".getBytes(StandardCharsets.UTF_8);
+
+        PedidoRequestDTO pedido = deserializer.deserialize("novo-pedido", new RecordHeaders(), ByteBuffer.wrap(json));
+
+        assertEquals(1L, pedido.getClienteId());
+        assertEquals("SKU001", pedido.getItens().get(0).getProdutoId());
+    }
+
+    @Test
+    void deveLerBinarioIndicadoNoHeader() {
+        Headers headers = new RecordHeaders();
+        byte[] payload = new PedidoRequestSerializer(FormatoMensagem.BINARIO).serialize("novo-pedido", headers, criarPedido());
+
+        PedidoRequestDTO pedido = deserializer.deserialize("novo-pedido", headers, ByteBuffer.wrap(payload));
+
+        assertEquals(1L, pedido.getClienteId());
+        assertEquals("1234567890123456", pedido.getDadosPagamento().getNumeroCartao());
+        assertEquals(2, pedido.getItens().get(0).getQuantidade());
+    }
+
+    @Test
+    void deveTrocarHeaderDeFormatoAoReserializarEmOutroFormato() {
+        Headers headers = new RecordHeaders();
+        new PedidoRequestSerializer(FormatoMensagem.BINARIO).serialize("novo-pedido", headers, criarPedido());
+
+        byte[] json = new PedidoRequestSerializer(FormatoMensagem.JSON).serialize("novo-pedido-retry-0", headers, criarPedido());
+
+        assertEquals(1, headers.toArray().length);
+        assertEquals("JSON", new String(headers.lastHeader(PedidoRequestSerializer.HEADER_FORMATO).value(), StandardCharsets.UTF_8));
+        assertEquals(1L, deserializer.deserialize("novo-pedido-retry-0", headers, json).getClienteId());
+    }
+
+    @Test
+    void deveRecusarFormatoDesconhecido() {
+        Headers headers = new RecordHeaders().add(PedidoRequestSerializer.HEADER_FORMATO, "AVRO".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize("novo-pedido", headers, ByteBuffer.wrap(new byte[]{1, 2})));
+    }
+
+    @Test
+    void deveRegistrarFalhaNoHeaderSemInterromperOPoll() {
+        PedidoRequestErrorHandlingDeserializer errorHandling = new PedidoRequestErrorHandlingDeserializer(deserializer);
+        Headers headers = new RecordHeaders().add(PedidoRequestSerializer.HEADER_FORMATO, "BINARIO".getBytes(StandardCharsets.UTF_8));
+
+        PedidoRequestDTO pedido = errorHandling.deserialize("novo-pedido", headers, ByteBuffer.wrap(new byte[]{9}));
+
+        assertNull(pedido);
+        assertNotNull(headers.lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER));
+    }
+
+    private static PedidoRequestDTO criarPedido() {
+        return PedidoRequestDTO.builder()
+                .clienteId(1L)
+                .dadosPagamento(new DadosPagamentoRequestDTO(null, "1234567890123456"))
+                .itens(List.of(new ItemPedidoRequestDTO("SKU001", 2)))
+                .build();
+    }
+}
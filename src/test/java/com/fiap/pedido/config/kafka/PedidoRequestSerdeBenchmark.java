@@ -0,0 +1,97 @@
+package com.fiap.pedido.config.kafka;
+
+import com.fiap.pedido.dto.request.DadosPagamentoRequestDTO;
+import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.enuns.FormatoMensagem;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialização e desserialização do PedidoRequestDTO em JSON (Jackson) e no formato binário, pelo mesmo caminho
+ * do consumer: desserializer com headers lendo o ByteBuffer do registro. Executado pelo PedidoRequestSerdeBenchmarkTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PedidoRequestSerdeBenchmark {
+
+    @Param({"1", "10"})
+    public int itens;
+
+    private final PedidoRequestSerializer serializerJson = new PedidoRequestSerializer(FormatoMensagem.JSON);
+    private final PedidoRequestSerializer serializerBinario = new PedidoRequestSerializer(FormatoMensagem.BINARIO);
+    private final PedidoRequestDeserializer deserializer = new PedidoRequestDeserializer();
+
+    private PedidoRequestDTO pedido;
+    private Headers headersJson;
+    private Headers headersBinario;
+    private byte[] payloadJson;
+    private byte[] payloadBinario;
+
+    @Setup
+    public void preparar() {
+        pedido = criarPedido(itens);
+        headersJson = new RecordHeaders();
+        headersBinario = new RecordHeaders();
+        payloadJson = serializerJson.serialize("novo-pedido", headersJson, pedido);
+        payloadBinario = serializerBinario.serialize("novo-pedido", headersBinario, pedido);
+    }
+
+    @Benchmark
+    public byte[] serializarJson() {
+        return serializerJson.serialize("novo-pedido", pedido);
+    }
+
+    @Benchmark
+    public byte[] serializarBinario() {
+        return serializerBinario.serialize("novo-pedido", pedido);
+    }
+
+    @Benchmark
+    public PedidoRequestDTO desserializarJson() {
+        return deserializer.deserialize("novo-pedido", headersJson, ByteBuffer.wrap(payloadJson));
+    }
+
+    @Benchmark
+    public PedidoRequestDTO desserializarBinario() {
+        return deserializer.deserialize("novo-pedido", headersBinario, ByteBuffer.wrap(payloadBinario));
+    }
+
+    int tamanhoJson() {
+        return payloadJson.length;
+    }
+
+    int tamanhoBinario() {
+        return payloadBinario.length;
+    }
+
+    static PedidoRequestDTO criarPedido(int quantidadeItens) {
+        List<ItemPedidoRequestDTO> itens = new ArrayList<>(quantidadeItens);
+        for (int i = 0; i < quantidadeItens; i++) {
+            itens.add(new ItemPedidoRequestDTO("SKU" + String.format("%05d", i), i + 1));
+        }
+        return PedidoRequestDTO.builder()
+                .id(987654L)
+                .clienteId(12345L)
+                .status("ABERTO")
+                .dataCriacao(LocalDateTime.of(2024, 5, 10, 14, 30, 15))
+                .dadosPagamento(new DadosPagamentoRequestDTO("CARTAO_CREDITO", "1234567890123456"))
+                .itens(itens)
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.fiap.pedido.config.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Roda o PedidoRequestSerdeBenchmark (JMH) e compara o formato binário com o JSON atual.
+ * Só roda quando pedido: mvn test -Dtest=PedidoRequestSerdeBenchmarkTest -Djmh=true
+ * Referência (1 vCPU, JDK 17), ns/op com 1 e 10 itens:
+ * serializar JSON ~1.800 / ~3.700, binário ~220 / ~450; desserializar JSON ~4.100 / ~9.500, binário ~280 / ~640.
+ * Payload: JSON 222 / 583 bytes, binário 64 / 154 bytes.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "jmh", matches = "true")
+class PedidoRequestSerdeBenchmarkTest {
+
+    @Test
+    void binarioDeveSerMaisRapidoEMenorQueJson() throws Exception {
+        // Sem fork: o surefire monta o classpath por manifest, que a JVM filha do JMH não enxerga
+        Options opcoes = new OptionsBuilder()
+                .include(PedidoRequestSerdeBenchmark.class.getSimpleName())
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .build();
+
+        Collection<RunResult> resultados = new Runner(opcoes).run();
+        Map<String, Double> nsPorOperacao = resultados.stream().collect(Collectors.toMap(
+                r -> r.getParams().getBenchmark().replaceAll(".*\\.", "") + "/" + r.getParams().getParam("itens"),
+                r -> r.getPrimaryResult().getScore()));
+        log.warn("📊 ns/op: {}", nsPorOperacao);
+
+        for (String itens : new String[]{"1", "10"}) {
+            PedidoRequestSerdeBenchmark estado = new PedidoRequestSerdeBenchmark();
+            estado.itens = Integer.parseInt(itens);
+            estado.preparar();
+            log.warn("📦 {} itens - JSON: {} bytes, binário: {} bytes", itens, estado.tamanhoJson(), estado.tamanhoBinario());
+
+            assertTrue(estado.tamanhoBinario() * 2 < estado.tamanhoJson());
+            assertTrue(nsPorOperacao.get("desserializarBinario/" + itens) < nsPorOperacao.get("desserializarJson/" + itens));
+            assertTrue(nsPorOperacao.get("serializarBinario/" + itens) < nsPorOperacao.get("serializarJson/" + itens));
+        }
+    }
+}
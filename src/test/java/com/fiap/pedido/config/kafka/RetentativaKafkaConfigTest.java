@@ -0,0 +1,37 @@
+package com.fiap.pedido.config.kafka;
+
+import com.fiap.pedido.enuns.EtapaPedido;
+import com.fiap.pedido.message.FalhaProcessamentoPedidoException;
+import com.fiap.pedido.message.ProgressoPedido;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetentativaKafkaConfigTest {
+
+    private final ConsumerRecord<String, String> registro = new ConsumerRecord<>("novo-pedido", 0, 0L, null, "{}");
+
+    @Test
+    void deveCopiarProgressoDaFalhaParaOsHeadersDoReenvio() {
+        Headers gravados = new RecordHeaders();
+        gravados.add("pedido-etapa", EtapaPedido.PAGAMENTO.name().getBytes());
+        gravados.add("pedido-valor-total", "300.0".getBytes());
+        FalhaProcessamentoPedidoException falha =
+                new FalhaProcessamentoPedidoException(ProgressoPedido.lerDe(gravados), new RuntimeException("Timeout"));
+
+        Headers headers = RetentativaKafkaConfig.headersDeProgresso(registro,
+                new ListenerExecutionFailedException("Listener falhou", falha));
+
+        assertEquals(EtapaPedido.PAGAMENTO, ProgressoPedido.lerDe(headers).getEtapa());
+        assertEquals(300.0, ProgressoPedido.lerDe(headers).getValorTotal());
+    }
+
+    @Test
+    void naoDeveAdicionarHeadersParaOutrasFalhas() {
+        assertNull(RetentativaKafkaConfig.headersDeProgresso(registro, new RuntimeException("Erro qualquer")));
+    }
+}
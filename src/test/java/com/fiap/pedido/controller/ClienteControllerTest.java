@@ -0,0 +1,74 @@
+package com.fiap.pedido.controller;
+
+import com.fiap.pedido.dto.response.PedidoPaginaResponseDTO;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.usecase.service.PedidoUseCase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClienteControllerTest {
+
+    @Mock
+    private PedidoUseCase pedidoUseCase;
+
+    @InjectMocks
+    private ClienteController clienteController;
+
+    @Test
+    void deveListarPedidosDoClienteComSucesso() {
+        PedidoPaginaResponseDTO expectedPagina = PedidoPaginaResponseDTO.builder()
+                .pedidos(List.of(PedidoResponseDTO.builder()
+                        .id(1L)
+                        .clienteId(7L)
+                        .status("ABERTO")
+                        .dataCriacao(LocalDateTime.now())
+                        .build()))
+                .proximoCursor("abc")
+                .temMais(true)
+                .tamanho(1)
+                .build();
+
+        when(pedidoUseCase.listarPedidosDoCliente(7L, null, 1)).thenReturn(expectedPagina);
+
+        ResponseEntity<PedidoPaginaResponseDTO> response = clienteController.listarPedidosDoCliente(7L, null, 1);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(7L, response.getBody().getPedidos().get(0).getClienteId());
+        assertEquals("abc", response.getBody().getProximoCursor());
+        verify(pedidoUseCase).listarPedidosDoCliente(7L, null, 1);
+    }
+
+    @Test
+    void deveRetornarBadRequestAoListarPedidosDoClienteComCursorInvalido() {
+        when(pedidoUseCase.listarPedidosDoCliente(7L, "invalido", null))
+                .thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+        ResponseEntity<PedidoPaginaResponseDTO> response = clienteController.listarPedidosDoCliente(7L, "invalido", null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void deveRetornarErro500AoListarPedidosDoClienteComExcecao() {
+        when(pedidoUseCase.listarPedidosDoCliente(7L, null, null)).thenThrow(new RuntimeException("Erro interno"));
+
+        ResponseEntity<PedidoPaginaResponseDTO> response = clienteController.listarPedidosDoCliente(7L, null, null);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+}
@@ -1,20 +1,34 @@
 package com.fiap.pedido.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fiap.pedido.domain.PedidoFiltro;
 import com.fiap.pedido.dto.request.PedidoRequestDTO;
 import com.fiap.pedido.dto.response.ItemPedidoResponseDTO;
+import com.fiap.pedido.dto.response.PedidoEstatisticasResponseDTO;
+import com.fiap.pedido.dto.response.PedidoPaginaResponseDTO;
 import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.dto.response.TransicaoStatusResponseDTO;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.usecase.service.PedidoNaoEncontradoException;
 import com.fiap.pedido.usecase.service.PedidoUseCase;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -26,6 +40,10 @@ class PedidoControllerTest {
     @Mock
     private PedidoUseCase pedidoUseCase;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
     @InjectMocks
     private PedidoController pedidoController;
 
@@ -92,65 +110,198 @@ class PedidoControllerTest {
 
     @Test
     void deveListarPedidosComSucesso() {
-        List<PedidoResponseDTO> expectedPedidos = Arrays.asList(
-                criarPedidoResponse(),
-                criarSegundoPedidoResponse()
-        );
+        PedidoPaginaResponseDTO expectedPagina = PedidoPaginaResponseDTO.builder()
+                .pedidos(Arrays.asList(criarPedidoResponse(), criarSegundoPedidoResponse()))
+                .proximoCursor("abc")
+                .temMais(true)
+                .tamanho(2)
+                .build();
 
-        when(pedidoUseCase.listarPedidos()).thenReturn(expectedPedidos);
+        when(pedidoUseCase.listarPedidos(any(PedidoFiltro.class), eq("cursor"), eq(2))).thenReturn(expectedPagina);
 
-        ResponseEntity<List<PedidoResponseDTO>> response = pedidoController.listarPedidos();
+        ResponseEntity<PedidoPaginaResponseDTO> response =
+                pedidoController.listarPedidos(StatusPedido.ABERTO, 1L, null, null, "cursor", 2);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals(2, response.getBody().size());
-        assertEquals(expectedPedidos.get(0).getId(), response.getBody().get(0).getId());
-        assertEquals(expectedPedidos.get(1).getId(), response.getBody().get(1).getId());
-        verify(pedidoUseCase).listarPedidos();
+        assertEquals(2, response.getBody().getPedidos().size());
+        assertEquals("abc", response.getBody().getProximoCursor());
+        verify(pedidoUseCase).listarPedidos(argThat(filtro ->
+                filtro.getStatus() == StatusPedido.ABERTO && filtro.getClienteId().equals(1L)), eq("cursor"), eq(2));
+    }
+
+    @Test
+    void deveRetornarBadRequestAoListarPedidosComCursorInvalido() {
+        when(pedidoUseCase.listarPedidos(any(PedidoFiltro.class), eq("invalido"), isNull()))
+                .thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+        ResponseEntity<PedidoPaginaResponseDTO> response =
+                pedidoController.listarPedidos(null, null, null, null, "invalido", null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertNull(response.getBody());
     }
 
     @Test
     void deveRetornarErro500AoListarPedidosComExcecao() {
-        when(pedidoUseCase.listarPedidos())
+        when(pedidoUseCase.listarPedidos(any(PedidoFiltro.class), isNull(), isNull()))
                 .thenThrow(new RuntimeException("Erro interno"));
 
-        ResponseEntity<List<PedidoResponseDTO>> response = pedidoController.listarPedidos();
+        ResponseEntity<PedidoPaginaResponseDTO> response =
+                pedidoController.listarPedidos(null, null, null, null, null, null);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(pedidoUseCase).listarPedidos(any(PedidoFiltro.class), isNull(), isNull());
+    }
+
+    @Test
+    void deveConsultarEstatisticasComSucesso() {
+        PedidoEstatisticasResponseDTO estatisticas = PedidoEstatisticasResponseDTO.builder()
+                .totalPedidos(10)
+                .receitaTotal(new BigDecimal("1500.00"))
+                .build();
+        when(pedidoUseCase.consultarEstatisticas()).thenReturn(estatisticas);
+
+        ResponseEntity<PedidoEstatisticasResponseDTO> response = pedidoController.consultarEstatisticas();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(10, response.getBody().getTotalPedidos());
+    }
+
+    @Test
+    void deveRetornarErro500AoConsultarEstatisticasComExcecao() {
+        when(pedidoUseCase.consultarEstatisticas()).thenThrow(new RuntimeException("Erro interno"));
+
+        ResponseEntity<PedidoEstatisticasResponseDTO> response = pedidoController.consultarEstatisticas();
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
         assertNull(response.getBody());
-        verify(pedidoUseCase).listarPedidos();
+    }
+
+    @Test
+    void deveListarPedidosAbertosAntesDaDataInformada() {
+        LocalDateTime limite = LocalDateTime.of(2025, 1, 1, 12, 0);
+        PedidoPaginaResponseDTO expectedPagina = PedidoPaginaResponseDTO.builder()
+                .pedidos(List.of(criarPedidoResponse()))
+                .temMais(false)
+                .tamanho(20)
+                .build();
+
+        when(pedidoUseCase.listarPedidosAbertosAntesDe(limite, null, null)).thenReturn(expectedPagina);
+
+        ResponseEntity<PedidoPaginaResponseDTO> response = pedidoController.listarPedidosAbertosAntesDe(limite, null, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getPedidos().size());
+        verify(pedidoUseCase).listarPedidosAbertosAntesDe(limite, null, null);
+    }
+
+    @Test
+    void deveRetornarBadRequestAoListarPedidosAbertosComCursorInvalido() {
+        LocalDateTime limite = LocalDateTime.of(2025, 1, 1, 12, 0);
+        when(pedidoUseCase.listarPedidosAbertosAntesDe(limite, "invalido", null))
+                .thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+        ResponseEntity<PedidoPaginaResponseDTO> response = pedidoController.listarPedidosAbertosAntesDe(limite, "invalido", null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deveExportarPedidosEmNdjsonUmPorLinha() throws Exception {
+        when(pedidoUseCase.exportarPedidos(any())).thenAnswer(invocation -> {
+            Consumer<PedidoResponseDTO> consumidor = invocation.getArgument(0);
+            consumidor.accept(criarPedidoResponse());
+            consumidor.accept(criarSegundoPedidoResponse());
+            return 2L;
+        });
+
+        ResponseEntity<StreamingResponseBody> response = pedidoController.exportarPedidos();
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        response.getBody().writeTo(saida);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, linhas.length);
+        assertEquals(1L, objectMapper.readValue(linhas[0], PedidoResponseDTO.class).getId());
+        assertEquals(2L, objectMapper.readValue(linhas[1], PedidoResponseDTO.class).getId());
     }
 
     @Test
     void deveAtualizarStatusComSucesso() {
         Long pedidoId = 1L;
-        String novoStatus = "CONFIRMADO";
-        PedidoResponseDTO expectedResponse = criarPedidoResponseComStatus(novoStatus);
+        String novoStatus = "CANCELADO";
+        TransicaoStatusResponseDTO expectedResponse = criarTransicao(novoStatus, true);
 
-        when(pedidoUseCase.atualizarStatus(pedidoId, novoStatus)).thenReturn(expectedResponse);
+        when(pedidoUseCase.atualizarStatus(pedidoId, novoStatus, null)).thenReturn(expectedResponse);
 
-        ResponseEntity<PedidoResponseDTO> response = pedidoController.atualizarStatus(pedidoId, novoStatus);
+        ResponseEntity<TransicaoStatusResponseDTO> response = pedidoController.atualizarStatus(pedidoId, novoStatus, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(expectedResponse.getId(), response.getBody().getId());
-        assertEquals(novoStatus, response.getBody().getStatus());
-        verify(pedidoUseCase).atualizarStatus(pedidoId, novoStatus);
+        assertEquals(novoStatus, response.getBody().getStatusAtual());
+        verify(pedidoUseCase).atualizarStatus(pedidoId, novoStatus, null);
     }
 
     @Test
-    void deveRetornarErro500AoAtualizarStatusComExcecao() {
+    void deveRetornarConflitoQuandoStatusAtualDifereDoEsperado() {
+        Long pedidoId = 1L;
+        TransicaoStatusResponseDTO transicao = criarTransicao("FECHADO_COM_SUCESSO", false);
+
+        when(pedidoUseCase.atualizarStatus(pedidoId, "CANCELADO", "ABERTO")).thenReturn(transicao);
+
+        ResponseEntity<TransicaoStatusResponseDTO> response = pedidoController.atualizarStatus(pedidoId, "CANCELADO", "ABERTO");
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertFalse(response.getBody().isTransicionado());
+        assertEquals("FECHADO_COM_SUCESSO", response.getBody().getStatusAtual());
+    }
+
+    @Test
+    void deveRetornarBadRequestAoAtualizarStatusInvalido() {
         Long pedidoId = 1L;
         String novoStatus = "CONFIRMADO";
 
-        when(pedidoUseCase.atualizarStatus(pedidoId, novoStatus))
+        when(pedidoUseCase.atualizarStatus(pedidoId, novoStatus, null))
+                .thenThrow(new IllegalArgumentException("Status inválido: CONFIRMADO"));
+
+        ResponseEntity<TransicaoStatusResponseDTO> response = pedidoController.atualizarStatus(pedidoId, novoStatus, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void deveRetornarNotFoundAoAtualizarStatusDePedidoInexistente() {
+        Long pedidoId = 99L;
+
+        when(pedidoUseCase.atualizarStatus(pedidoId, "CANCELADO", null))
+                .thenThrow(new PedidoNaoEncontradoException(pedidoId));
+
+        ResponseEntity<TransicaoStatusResponseDTO> response = pedidoController.atualizarStatus(pedidoId, "CANCELADO", null);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void deveRetornarErro500AoAtualizarStatusComExcecao() {
+        Long pedidoId = 1L;
+        String novoStatus = "CANCELADO";
+
+        when(pedidoUseCase.atualizarStatus(pedidoId, novoStatus, null))
                 .thenThrow(new RuntimeException("Erro ao atualizar"));
 
-        ResponseEntity<PedidoResponseDTO> response = pedidoController.atualizarStatus(pedidoId, novoStatus);
+        ResponseEntity<TransicaoStatusResponseDTO> response = pedidoController.atualizarStatus(pedidoId, novoStatus, null);
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
         assertNull(response.getBody());
-        verify(pedidoUseCase).atualizarStatus(pedidoId, novoStatus);
+        verify(pedidoUseCase).atualizarStatus(pedidoId, novoStatus, null);
     }
 
     private PedidoRequestDTO criarPedidoRequest() {
@@ -179,13 +330,12 @@ class PedidoControllerTest {
                 .build();
     }
 
-    private PedidoResponseDTO criarPedidoResponseComStatus(String status) {
-        return PedidoResponseDTO.builder()
+    private TransicaoStatusResponseDTO criarTransicao(String statusAtual, boolean transicionado) {
+        return TransicaoStatusResponseDTO.builder()
                 .id(1L)
-                .clienteId(1L)
-                .status(status)
-                .dataCriacao(LocalDateTime.now())
-                .itens(Arrays.asList(criarItemPedido()))
+                .statusEsperado("ABERTO")
+                .statusAtual(statusAtual)
+                .transicionado(transicionado)
                 .build();
     }
 
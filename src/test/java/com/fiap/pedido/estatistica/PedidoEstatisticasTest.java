@@ -0,0 +1,134 @@
+package com.fiap.pedido.estatistica;
+
+import com.fiap.pedido.dto.response.EstatisticaHoraResponseDTO;
+import com.fiap.pedido.dto.response.PedidoEstatisticasResponseDTO;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.repository.PedidoEstatisticaLinha;
+import com.fiap.pedido.repository.PedidoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PedidoEstatisticasTest {
+
+    private static final LocalDateTime AGORA = LocalDateTime.of(2025, 6, 10, 15, 20);
+
+    @Mock
+    private PedidoRepository pedidoRepository;
+
+    private PedidoEstatisticas pedidoEstatisticas;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(AGORA.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        pedidoEstatisticas = new PedidoEstatisticas(pedidoRepository, clock);
+    }
+
+    @Test
+    void deveSemearContadoresComConsultaAgregada() {
+        when(pedidoRepository.agregarPorStatusEHora()).thenReturn(List.of(
+                new PedidoEstatisticaLinha(StatusPedido.ABERTO, AGORA.toLocalDate(), 14, 3L, 300.0),
+                new PedidoEstatisticaLinha(StatusPedido.FECHADO_COM_SUCESSO, AGORA.toLocalDate(), 15, 2L, 150.5)));
+
+        pedidoEstatisticas.afterSingletonsInstantiated();
+        PedidoEstatisticasResponseDTO resumo = pedidoEstatisticas.resumo();
+
+        assertEquals(5, resumo.getTotalPedidos());
+        assertEquals(new BigDecimal("450.50"), resumo.getReceitaTotal());
+        assertEquals(3, resumo.getPorStatus().get("ABERTO").getQuantidade());
+        assertEquals(2, resumo.getPorHora().size());
+        assertEquals(AGORA.withMinute(0), resumo.getPorHora().get(0).getHora());
+        verify(pedidoRepository, times(1)).agregarPorStatusEHora();
+    }
+
+    @Test
+    void naoDeveFalharQuandoSemeaduraLancaExcecao() {
+        when(pedidoRepository.agregarPorStatusEHora()).thenThrow(new RuntimeException("Banco indisponível"));
+
+        assertDoesNotThrow(() -> pedidoEstatisticas.afterSingletonsInstantiated());
+        assertEquals(0, pedidoEstatisticas.resumo().getTotalPedidos());
+    }
+
+    @Test
+    void deveContarCriacaoPorStatusEHora() {
+        pedidoEstatisticas.registrarCriacao(StatusPedido.FECHADO_COM_SUCESSO, AGORA, 99.9);
+        pedidoEstatisticas.registrarCriacao(StatusPedido.FECHADO_SEM_ESTOQUE, AGORA.minusHours(1), 10.0);
+
+        PedidoEstatisticasResponseDTO resumo = pedidoEstatisticas.resumo();
+
+        assertEquals(2, resumo.getTotalPedidos());
+        assertEquals(new BigDecimal("99.90"), resumo.getPorStatus().get("FECHADO_COM_SUCESSO").getReceita());
+        EstatisticaHoraResponseDTO horaAnterior = resumo.getPorHora().get(1);
+        assertEquals(AGORA.minusHours(1).withMinute(0), horaAnterior.getHora());
+        assertEquals(1, horaAnterior.getPorStatus().get("FECHADO_SEM_ESTOQUE").getQuantidade());
+        verifyNoInteractions(pedidoRepository);
+    }
+
+    @Test
+    void deveMoverPedidoEntreStatusNaTransicao() {
+        pedidoEstatisticas.registrarCriacao(StatusPedido.ABERTO, AGORA, 50.0);
+
+        pedidoEstatisticas.registrarTransicao(StatusPedido.ABERTO, StatusPedido.CANCELADO, AGORA, 50.0);
+        PedidoEstatisticasResponseDTO resumo = pedidoEstatisticas.resumo();
+
+        assertEquals(1, resumo.getTotalPedidos());
+        assertEquals(0, resumo.getPorStatus().get("ABERTO").getQuantidade());
+        assertEquals(1, resumo.getPorStatus().get("CANCELADO").getQuantidade());
+        assertEquals(new BigDecimal("50.00"), resumo.getPorHora().get(0).getPorStatus().get("CANCELADO").getReceita());
+    }
+
+    @Test
+    void deveManterSomenteHorasDentroDaRetencao() {
+        pedidoEstatisticas.registrarCriacao(StatusPedido.ABERTO, AGORA.minusHours(PedidoEstatisticas.HORAS_RETIDAS + 1L), 10.0);
+        pedidoEstatisticas.registrarCriacao(StatusPedido.ABERTO, AGORA, 10.0);
+
+        PedidoEstatisticasResponseDTO resumo = pedidoEstatisticas.resumo();
+
+        assertEquals(2, resumo.getTotalPedidos());
+        assertEquals(1, resumo.getPorHora().size());
+    }
+
+    @Test
+    void deveSomarCorretamenteComAtualizacoesConcorrentes() throws Exception {
+        int threads = 8;
+        int pedidosPorThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> tarefas = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            tarefas.add(executor.submit(() -> {
+                for (int i = 0; i < pedidosPorThread; i++) {
+                    pedidoEstatisticas.registrarCriacao(StatusPedido.ABERTO, AGORA, 1.0);
+                    pedidoEstatisticas.registrarTransicao(StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO, AGORA, 1.0);
+                }
+            }));
+        }
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        PedidoEstatisticasResponseDTO resumo = pedidoEstatisticas.resumo();
+        assertEquals(threads * pedidosPorThread, resumo.getPorStatus().get("FECHADO_COM_SUCESSO").getQuantidade());
+        assertEquals(0, resumo.getPorStatus().get("ABERTO").getQuantidade());
+        assertEquals(new BigDecimal("80000.00"), resumo.getReceitaTotal());
+    }
+}
@@ -1,6 +1,7 @@
 package com.fiap.pedido.gateway.adapter;
 
 import com.fiap.pedido.adapter.EstoqueServiceClient;
+import com.fiap.pedido.dto.response.ReservaEstoqueResponseDTO;
 import feign.FeignException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,8 +9,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -96,4 +100,52 @@ class EstoqueGatewayAdapterTest {
         assertTrue(resultado);
         verify(estoqueServiceClient).baixarEstoque(eq(produtoId), eq(quantidade));
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveReservarLoteEmUmaUnicaChamadaEDevolverOIdDaReserva() {
+        Map<String, Integer> lote = Map.of("SKU001", 2, "SKU002", 1);
+        when(estoqueServiceClient.reservarEstoque(lote)).thenReturn(new ReservaEstoqueResponseDTO("RES-1"));
+
+        assertEquals(Optional.of("RES-1"), estoqueGatewayAdapter.reservarEstoque(lote));
+
+        verify(estoqueServiceClient).reservarEstoque(lote);
+        verifyNoMoreInteractions(estoqueServiceClient);
+    }
+
+    @Test
+    void deveTratarReservaSemIdComoRecusada() {
+        when(estoqueServiceClient.reservarEstoque(anyMap())).thenReturn(new ReservaEstoqueResponseDTO());
+
+        assertTrue(estoqueGatewayAdapter.reservarEstoque(Map.of("SKU001", 2)).isEmpty());
+    }
+
+    @Test
+    void deveTratarFalhaNaReservaComoRecusada() {
+        when(estoqueServiceClient.reservarEstoque(anyMap())).thenThrow(mock(FeignException.class));
+
+        assertTrue(estoqueGatewayAdapter.reservarEstoque(Map.of("SKU001", 2)).isEmpty());
+    }
+
+    @Test
+    void deveBaixarSomenteAReservaInformada() {
+        assertTrue(estoqueGatewayAdapter.baixarReserva("RES-1"));
+
+        verify(estoqueServiceClient).baixarReserva("RES-1");
+        verifyNoMoreInteractions(estoqueServiceClient);
+    }
+
+    @Test
+    void deveRetornarFalsoQuandoEstoqueRecusaBaixaDaReserva() {
+        doThrow(mock(FeignException.class)).when(estoqueServiceClient).baixarReserva("RES-1");
+
+        assertFalse(estoqueGatewayAdapter.baixarReserva("RES-1"));
+    }
+
+    @Test
+    void deveLiberarSomenteAReservaInformada() {
+        assertTrue(estoqueGatewayAdapter.liberarReserva("RES-1"));
+
+        verify(estoqueServiceClient).liberarReserva("RES-1");
+        verifyNoMoreInteractions(estoqueServiceClient);
+    }
+}
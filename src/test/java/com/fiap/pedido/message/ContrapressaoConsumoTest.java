@@ -0,0 +1,177 @@
+package com.fiap.pedido.message;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContrapressaoConsumoTest {
+
+    private static final TopicPartition PARTICAO_0 = new TopicPartition("novo-pedido", 0);
+    private static final TopicPartition PARTICAO_1 = new TopicPartition("novo-pedido", 1);
+
+    private final AtomicLong relogio = new AtomicLong();
+
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    @Mock
+    private ScheduledExecutorService avaliador;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ContrapressaoConsumo contrapressao;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        contrapressao = criar(true);
+        lenient().when(registry.getListenerContainer(PedidoConsumer.LISTENER_UNITARIO)).thenReturn(container);
+        lenient().when(container.isRunning()).thenReturn(true);
+        lenient().when(container.getAssignedPartitions()).thenReturn(List.of(PARTICAO_0));
+    }
+
+    @Test
+    void devePausarParticoesAoAtingirMarcaAltaDePedidosEmAndamento() {
+        contrapressao.iniciar(3);
+        verify(container, never()).pausePartition(any());
+
+        contrapressao.iniciar(1);
+
+        assertTrue(contrapressao.isPausado());
+        verify(container).pausePartition(PARTICAO_0);
+        assertEquals(1.0, meterRegistry.get(ContrapressaoConsumo.METRICA_PAUSADO).gauge().value());
+        assertEquals(4.0, meterRegistry.get(ContrapressaoConsumo.METRICA_EM_ANDAMENTO).gauge().value());
+        assertEquals(1.0, meterRegistry.get(ContrapressaoConsumo.METRICA_PAUSAS).counter().count());
+    }
+
+    @Test
+    void deveRetomarSomenteAbaixoDaMarcaBaixa() {
+        contrapressao.iniciar(4);
+
+        contrapressao.concluir(2);
+        assertTrue(contrapressao.isPausado());
+        verify(container, never()).resumePartition(any());
+
+        contrapressao.concluir(1);
+
+        assertFalse(contrapressao.isPausado());
+        verify(container).resumePartition(PARTICAO_0);
+        assertEquals(0.0, meterRegistry.get(ContrapressaoConsumo.METRICA_PAUSADO).gauge().value());
+    }
+
+    @Test
+    void devePausarPorLatenciaERetomarQuandoAmostrasLentasSaemDaJanela() {
+        contrapressao.registrarLatencia(TimeUnit.SECONDS.toNanos(3));
+        contrapressao.avaliar();
+        assertTrue(contrapressao.isPausado());
+        assertEquals(3000.0, meterRegistry.get(ContrapressaoConsumo.METRICA_LATENCIA).gauge().value());
+
+        relogio.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        contrapressao.avaliar();
+        assertTrue(contrapressao.isPausado());
+
+        relogio.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        contrapressao.avaliar();
+
+        assertFalse(contrapressao.isPausado());
+        verify(container).resumePartition(PARTICAO_0);
+    }
+
+    @Test
+    void deveManterPausaEntreAsMarcas() {
+        contrapressao.registrarLatencia(TimeUnit.SECONDS.toNanos(3));
+        contrapressao.avaliar();
+        relogio.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        contrapressao.registrarLatencia(TimeUnit.SECONDS.toNanos(1));
+
+        contrapressao.avaliar();
+
+        assertTrue(contrapressao.isPausado());
+        verify(container, never()).resumePartition(any());
+    }
+
+    @Test
+    void devePausarParticaoRecebidaEmRebalanceDuranteAPausa() {
+        contrapressao.iniciar(4);
+        when(container.getAssignedPartitions()).thenReturn(List.of(PARTICAO_0, PARTICAO_1));
+        when(container.isPartitionPauseRequested(PARTICAO_0)).thenReturn(true);
+
+        contrapressao.avaliar();
+
+        verify(container, times(1)).pausePartition(PARTICAO_0);
+        verify(container).pausePartition(PARTICAO_1);
+        assertEquals(1.0, meterRegistry.get(ContrapressaoConsumo.METRICA_PAUSAS).counter().count());
+    }
+
+    @Test
+    void naoDeveMexerNasParticoesDeRetentativaNemDaDlt() {
+        MessageListenerContainer retentativa = mock(MessageListenerContainer.class);
+        lenient().when(registry.getListenerContainers()).thenReturn(List.of(container, retentativa));
+        lenient().when(registry.getListenerContainer(PedidoConsumer.LISTENER_UNITARIO + "-retry-0")).thenReturn(retentativa);
+
+        contrapressao.iniciar(4);
+        contrapressao.concluir(4);
+
+        verify(container).pausePartition(PARTICAO_0);
+        verify(container).resumePartition(PARTICAO_0);
+        verifyNoInteractions(retentativa);
+    }
+
+    @Test
+    void naoDevePausarQuandoDesabilitada() {
+        ContrapressaoConsumo desabilitada = criar(false);
+
+        desabilitada.iniciar(10);
+
+        assertFalse(desabilitada.isPausado());
+        verifyNoInteractions(container);
+    }
+
+    @Test
+    void deveRejeitarMarcaBaixaMaiorQueAlta() {
+        assertThrows(IllegalArgumentException.class, () -> new ContrapressaoConsumo(registry, true, 4, 4,
+                Duration.ofSeconds(2), Duration.ofMillis(500), Duration.ofSeconds(10), meterRegistry, relogio::get, avaliador));
+    }
+
+    @Test
+    void deveAceitarMarcasPadraoEmTodosOsModos() {
+        for (String modo : List.of("UNITARIO", "LOTE", "PARALELO")) {
+            assertDoesNotThrow(() -> ContrapressaoConsumo.validarMarcas(modo, 64, 500, 256));
+        }
+    }
+
+    @Test
+    void deveRejeitarMarcaAltaAtingidaPorUmUnicoLote() {
+        assertThrows(IllegalArgumentException.class, () -> ContrapressaoConsumo.validarMarcas("LOTE", 1, 500, 256));
+    }
+
+    @Test
+    void deveRejeitarMarcaAltaAcimaDoLimiteEmVooDoModoParalelo() {
+        assertThrows(IllegalArgumentException.class, () -> ContrapressaoConsumo.validarMarcas("PARALELO", 300, 500, 256));
+        assertDoesNotThrow(() -> ContrapressaoConsumo.validarMarcas("UNITARIO", 300, 500, 256));
+    }
+
+    private ContrapressaoConsumo criar(boolean habilitada) {
+        return new ContrapressaoConsumo(registry, habilitada, 4, 1, Duration.ofSeconds(2), Duration.ofMillis(500),
+                Duration.ofSeconds(10), meterRegistry, relogio::get, avaliador);
+    }
+}
@@ -0,0 +1,133 @@
+package com.fiap.pedido.message;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorItensPedidoTest {
+
+    private ExecutorItensPedido executor;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (executor != null) {
+            executor.destroy();
+        }
+    }
+
+    @Test
+    void deveExecutarItensEmParaleloSemPassarDoLimitePorPedido() {
+        executor = new ExecutorItensPedido(3, Duration.ofSeconds(5), false);
+        AtomicInteger emVoo = new AtomicInteger();
+        AtomicInteger maximoEmVoo = new AtomicInteger();
+        List<Integer> itens = IntStream.range(0, 12).boxed().toList();
+
+        ExecutorItensPedido.Resultado<Integer> resultado = executor.executar(itens, item -> {
+            maximoEmVoo.accumulateAndGet(emVoo.incrementAndGet(), Math::max);
+            dormir(30);
+            emVoo.decrementAndGet();
+            return item * 10;
+        }, valor -> true, null);
+
+        assertEquals(3, maximoEmVoo.get());
+        assertEquals(12, resultado.concluidos().cardinality());
+        assertEquals(110, resultado.resultados().get(11));
+        assertEquals(-1, resultado.recusado());
+        assertNull(resultado.erro());
+    }
+
+    @Test
+    void deveCancelarItensNaoIniciadosNaPrimeiraRecusa() {
+        executor = new ExecutorItensPedido(1, Duration.ofSeconds(5), false);
+        List<Integer> chamados = new CopyOnWriteArrayList<>();
+
+        ExecutorItensPedido.Resultado<Boolean> resultado = executor.executar(List.of(0, 1, 2, 3), item -> {
+            chamados.add(item);
+            return item != 1;
+        }, Boolean.TRUE::equals, null);
+
+        assertEquals(List.of(0, 1), chamados);
+        assertEquals(1, resultado.recusado());
+        assertTrue(resultado.isConcluido(0));
+        assertFalse(resultado.isConcluido(2));
+    }
+
+    @Test
+    void deveEsperarChamadasEmVooAntesDeDevolverARecusa() {
+        executor = new ExecutorItensPedido(3, Duration.ofSeconds(5), false);
+        CountDownLatch recusaFeita = new CountDownLatch(1);
+
+        ExecutorItensPedido.Resultado<Boolean> resultado = executor.executar(List.of(0, 1), item -> {
+            if (item == 1) {
+                recusaFeita.countDown();
+                return false;
+            }
+            aguardar(recusaFeita);
+            dormir(50);
+            return true;
+        }, Boolean.TRUE::equals, null);
+
+        assertEquals(1, resultado.recusado());
+        assertTrue(resultado.isConcluido(0), "Reserva em voo deve ser devolvida para ser compensada");
+    }
+
+    @Test
+    void deveDevolverErroDaChamada() {
+        executor = new ExecutorItensPedido(3, Duration.ofSeconds(5), false);
+        ExecutorItensPedido.Resultado<Boolean> resultado = executor.executar(List.of(0, 1), item -> {
+            if (item == 0) {
+                throw new IllegalStateException("Estoque indisponível");
+            }
+            return true;
+        }, Boolean.TRUE::equals, null);
+
+        assertEquals("Estoque indisponível", resultado.erro().getMessage());
+        assertEquals(-1, resultado.recusado());
+    }
+
+    @Test
+    void deveDesfazerChamadaQueTerminaDepoisDoTempoLimite() throws InterruptedException {
+        executor = new ExecutorItensPedido(2, Duration.ofMillis(50), false);
+        CountDownLatch desfeita = new CountDownLatch(1);
+
+        ExecutorItensPedido.Resultado<Boolean> resultado = executor.executar(List.of(0), item -> {
+            dormir(300);
+            return true;
+        }, Boolean.TRUE::equals, (item, reservado) -> desfeita.countDown());
+
+        assertInstanceOf(TimeoutException.class, resultado.erro().getCause());
+        assertFalse(resultado.isConcluido(0));
+        assertTrue(desfeita.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void naoDeveAceitarParalelismoMenorQueUm() {
+        assertThrows(IllegalArgumentException.class, () -> new ExecutorItensPedido(0, Duration.ofSeconds(1), false));
+    }
+
+    private static void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
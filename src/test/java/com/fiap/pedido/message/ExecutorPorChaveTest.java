@@ -0,0 +1,142 @@
+package com.fiap.pedido.message;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorPorChaveTest {
+
+    private final ExecutorPorChave executorPorChave = new ExecutorPorChave(4, 8, false);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executorPorChave.destroy();
+    }
+
+    @Test
+    void deveExecutarTarefasDaMesmaChaveEmOrdem() throws Exception {
+        List<Integer> ordem = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> execucoes = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            int indice = i;
+            execucoes.add(executorPorChave.executar(1L, () -> {
+                dormir(1);
+                ordem.add(indice);
+            }));
+        }
+        aguardar(execucoes);
+
+        List<Integer> esperado = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            esperado.add(i);
+        }
+        assertEquals(esperado, ordem);
+    }
+
+    @Test
+    void naoDeveBloquearChavesDiferentesAtrasDeUmaTarefaLenta() throws Exception {
+        CountDownLatch liberarLenta = new CountDownLatch(1);
+        CompletableFuture<Void> lenta = executorPorChave.executar(1L, () -> aguardarLatch(liberarLenta));
+
+        CompletableFuture<Void> outroCliente = executorPorChave.executar(2L, () -> { });
+        outroCliente.get(5, TimeUnit.SECONDS);
+
+        assertFalse(lenta.isDone());
+        liberarLenta.countDown();
+        lenta.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void deveLimitarExecucoesSimultaneasAConcorrenciaMaxima() throws Exception {
+        AtomicInteger emExecucao = new AtomicInteger();
+        AtomicInteger maximoObservado = new AtomicInteger();
+        List<CompletableFuture<Void>> execucoes = new ArrayList<>();
+
+        for (long cliente = 0; cliente < 20; cliente++) {
+            execucoes.add(executorPorChave.executar(cliente, () -> {
+                maximoObservado.accumulateAndGet(emExecucao.incrementAndGet(), Math::max);
+                dormir(20);
+                emExecucao.decrementAndGet();
+            }));
+        }
+        aguardar(execucoes);
+
+        assertTrue(maximoObservado.get() <= 4, "Concorrência observada: " + maximoObservado.get());
+        assertTrue(maximoObservado.get() > 1, "Clientes diferentes deveriam executar em paralelo");
+    }
+
+    @Test
+    void deveSeguirComProximaTarefaDaChaveQuandoAnteriorFalha() throws Exception {
+        CompletableFuture<Void> falha = executorPorChave.executar(1L, () -> {
+            throw new IllegalStateException("Erro simulado");
+        });
+        AtomicInteger executadas = new AtomicInteger();
+        CompletableFuture<Void> seguinte = executorPorChave.executar(1L, executadas::incrementAndGet);
+
+        seguinte.get(5, TimeUnit.SECONDS);
+
+        assertTrue(falha.isCompletedExceptionally());
+        assertEquals(1, executadas.get());
+    }
+
+    @Test
+    void deveLiberarChaveAoConcluirTodasAsTarefas() throws Exception {
+        aguardar(List.of(executorPorChave.executar(1L, () -> { }), executorPorChave.executar(null, () -> { })));
+
+        assertEquals(0, executorPorChave.chavesAtivas());
+    }
+
+    @Test
+    void deveBloquearQuemEnfileiraAoAtingirLimiteEmVoo() throws Exception {
+        CountDownLatch liberarLentas = new CountDownLatch(1);
+        List<CompletableFuture<Void>> execucoes = new ArrayList<>();
+        for (long cliente = 0; cliente < 8; cliente++) {
+            execucoes.add(executorPorChave.executar(cliente, () -> aguardarLatch(liberarLentas)));
+        }
+        assertEquals(8, executorPorChave.emVoo());
+
+        CompletableFuture<Void> excedente = CompletableFuture.runAsync(
+                () -> execucoes.add(executorPorChave.executar(99L, () -> { })));
+        Thread.sleep(100);
+        assertFalse(excedente.isDone(), "Deveria esperar vaga com 8 tarefas em voo");
+
+        liberarLentas.countDown();
+        excedente.get(5, TimeUnit.SECONDS);
+        aguardar(execucoes);
+    }
+
+    @Test
+    void naoDeveCriarComLimiteEmVooMenorQueConcorrencia() {
+        assertThrows(IllegalArgumentException.class, () -> new ExecutorPorChave(4, 2, false));
+    }
+
+    private static void aguardar(List<CompletableFuture<Void>> execucoes) throws Exception {
+        CompletableFuture.allOf(execucoes.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+    }
+
+    private static void aguardarLatch(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.pots.PedidoRepositoryPort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotenciaConsumoTest {
+
+    private final AtomicLong relogio = new AtomicLong();
+
+    @Mock
+    private PedidoRepositoryPort pedidoRepositoryPort;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotenciaConsumo idempotenciaConsumo;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        idempotenciaConsumo = criar(IdempotenciaConsumo.OrigemChave.ID_PEDIDO);
+    }
+
+    @Test
+    void deveDetectarDuplicadoNaJanelaSemConsultarBancoDeNovo() {
+        assertFalse(idempotenciaConsumo.isDuplicado("10"));
+        assertTrue(idempotenciaConsumo.isDuplicado("10"));
+
+        verify(pedidoRepositoryPort, times(1)).existsByChaveIdempotencia("10");
+        assertEquals(1.0, meterRegistry.get(IdempotenciaConsumo.METRICA_DUPLICADOS).tag("origem", "janela").counter().count());
+    }
+
+    @Test
+    void deveConsultarBancoQuandoChaveSaiDaJanela() {
+        idempotenciaConsumo.isDuplicado("10");
+        relogio.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        when(pedidoRepositoryPort.existsByChaveIdempotencia("10")).thenReturn(true);
+
+        assertTrue(idempotenciaConsumo.isDuplicado("10"));
+        assertEquals(1.0, meterRegistry.get(IdempotenciaConsumo.METRICA_DUPLICADOS).tag("origem", "banco").counter().count());
+    }
+
+    @Test
+    void devePermitirReprocessarChaveLiberada() {
+        idempotenciaConsumo.isDuplicado("10");
+
+        idempotenciaConsumo.liberar("10");
+
+        assertFalse(idempotenciaConsumo.isDuplicado("10"));
+    }
+
+    @Test
+    void naoDeveDeduplicarMensagemSemChave() {
+        assertFalse(idempotenciaConsumo.isDuplicado(null));
+        assertFalse(idempotenciaConsumo.isDuplicado(null));
+
+        verifyNoInteractions(pedidoRepositoryPort);
+    }
+
+    @Test
+    void deveUsarIdDoPedidoComoChavePorPadrao() {
+        PedidoRequestDTO pedido = PedidoRequestDTO.builder().id(42L).clienteId(1L).build();
+
+        assertEquals("42", idempotenciaConsumo.chave("1", pedido));
+        assertNull(idempotenciaConsumo.chave("1", PedidoRequestDTO.builder().clienteId(1L).build()));
+    }
+
+    @Test
+    void deveUsarChaveDaMensagemQuandoConfigurado() {
+        IdempotenciaConsumo porMensagem = criar(IdempotenciaConsumo.OrigemChave.CHAVE_MENSAGEM);
+        PedidoRequestDTO pedido = PedidoRequestDTO.builder().id(42L).build();
+
+        assertEquals("msg-1", porMensagem.chave("msg-1", pedido));
+        assertNull(porMensagem.chave(" ", pedido));
+        verify(pedidoRepositoryPort, never()).existsByChaveIdempotencia(any());
+    }
+
+    private IdempotenciaConsumo criar(IdempotenciaConsumo.OrigemChave origemChave) {
+        return new IdempotenciaConsumo(pedidoRepositoryPort, origemChave, Duration.ofMinutes(1), 1_000,
+                meterRegistry, relogio::get);
+    }
+}
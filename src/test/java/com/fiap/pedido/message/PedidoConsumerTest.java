@@ -1,6 +1,7 @@
 package com.fiap.pedido.message;
 
 import com.fiap.pedido.adapter.ServicoExternoMockAdapter;
+import com.fiap.pedido.cache.ProdutoCache;
 import com.fiap.pedido.dto.ClienteDTO;
 import com.fiap.pedido.dto.ProdutoDTO;
 import com.fiap.pedido.dto.StatusPagamentoDTO;
@@ -8,29 +9,67 @@ import com.fiap.pedido.dto.request.DadosPagamentoRequestDTO;
 import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
 import com.fiap.pedido.dto.request.PedidoRequestDTO;
 import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.EtapaPedido;
+import com.fiap.pedido.enuns.StatusPedido;
 import com.fiap.pedido.usecase.service.PedidoUseCaseImpl;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.kafka.support.Acknowledgment;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class PedidoConsumerTest {
 
+    private static final String ID_RESERVA = "SKU001-1";
+
     @Mock
     private PedidoUseCaseImpl pedidoUseCase;
 
     @Mock
     private ServicoExternoMockAdapter servicoExternoAdapter;
 
+    @Spy
+    private ExecutorPorChave executorPorChave = new ExecutorPorChave(2, 8, false);
+
+    @Mock
+    private IdempotenciaConsumo idempotenciaConsumo;
+
+    @Mock
+    private ContrapressaoConsumo contrapressaoConsumo;
+
+    @Mock
+    private PedidoResultadoProducer pedidoResultadoProducer;
+
+    @Spy
+    private ExecutorItensPedido executorItensPedido = new ExecutorItensPedido(4, Duration.ofSeconds(5), false);
+
+    @Mock
+    private ProdutoCache produtoCache;
+
+    @Mock
+    private PedidoRetentativaProducer pedidoRetentativaProducer;
+
     @InjectMocks
     private PedidoConsumer pedidoConsumer;
 
@@ -79,27 +118,36 @@ class PedidoConsumerTest {
         statusPagamentoDTO = new StatusPagamentoDTO();
         statusPagamentoDTO.setStatus("APROVADO");
         statusPagamentoDTO.setPagamentoId("PAG123");
+
+        // O cache repassa ao catálogo: os testes continuam verificando as consultas de produto
+        lenient().when(produtoCache.buscar(anyString())).thenAnswer(invocacao ->
+                Optional.ofNullable(servicoExternoAdapter.consultarProduto(invocacao.getArgument(0))));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executorPorChave.destroy();
+        executorItensPedido.destroy();
     }
 
     @Test
     void deveProcessarPedidoComSucesso() {
-        when(pedidoUseCase.criarPedido(any())).thenReturn(pedidoResponseDTO);
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
         when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
         when(servicoExternoAdapter.consultarProduto(anyString())).thenReturn(produtoDTO);
-        when(servicoExternoAdapter.reservarEstoque(anyString(), anyInt())).thenReturn(true);
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of(ID_RESERVA));
         when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenReturn(statusPagamentoDTO);
-        when(servicoExternoAdapter.baixarEstoque(anyString(), anyInt())).thenReturn(true);
-        when(pedidoUseCase.atualizarStatus(anyLong(), eq("FECHADO_COM_SUCESSO"))).thenReturn(pedidoResponseDTO);
+        when(servicoExternoAdapter.baixarEstoque(anyString())).thenReturn(true);
 
         pedidoConsumer.consumirPedido(pedidoRequestDTO);
 
-        verify(pedidoUseCase).criarPedido(pedidoRequestDTO);
+        verify(pedidoUseCase, never()).criarPedido(any());
         verify(servicoExternoAdapter).consultarCliente("1");
         verify(servicoExternoAdapter, times(2)).consultarProduto(anyString());
-        verify(servicoExternoAdapter, times(2)).reservarEstoque(anyString(), anyInt());
+        verify(servicoExternoAdapter).reservarEstoque(Map.of("SKU001", 2, "SKU002", 1));
         verify(servicoExternoAdapter).processarPagamento(eq("1234567890123456"), eq(300.0));
-        verify(servicoExternoAdapter, times(2)).baixarEstoque(anyString(), anyInt());
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_COM_SUCESSO");
+        verify(servicoExternoAdapter).baixarEstoque(ID_RESERVA);
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_COM_SUCESSO, null);
     }
 
     @Test
@@ -114,17 +162,65 @@ class PedidoConsumerTest {
 
     @Test
     void deveAtualizarStatusParaFechadoSemEstoqueQuandoReservaNaoDisponivel() {
-        when(pedidoUseCase.criarPedido(any())).thenReturn(pedidoResponseDTO);
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
         when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
         when(servicoExternoAdapter.consultarProduto(anyString())).thenReturn(produtoDTO);
-        when(servicoExternoAdapter.reservarEstoque("SKU001", 2)).thenReturn(true);
-        when(servicoExternoAdapter.reservarEstoque("SKU002", 1)).thenReturn(false);
-        when(pedidoUseCase.atualizarStatus(anyLong(), eq("FECHADO_SEM_ESTOQUE"))).thenReturn(pedidoResponseDTO);
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.empty());
 
         pedidoConsumer.consumirPedido(pedidoRequestDTO);
 
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_SEM_ESTOQUE");
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_SEM_ESTOQUE, null);
         verify(servicoExternoAdapter, never()).processarPagamento(anyString(), anyDouble());
+        // A reserva recusada não deixou nada reservado
+        verify(servicoExternoAdapter, never()).estornarEstoque(anyString());
+    }
+
+    @Test
+    void naoDeveGravarPedidoComProdutoForaDoCatalogo() {
+        // Catálogo sem os produtos do pedido
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
+
+        assertThrows(FalhaProcessamentoPedidoException.class, () -> pedidoConsumer.consumirRegistro(
+                new ConsumerRecord<>("novo-pedido", 0, 0L, null, pedidoRequestDTO)));
+
+        verify(servicoExternoAdapter, never()).reservarEstoque(anyMap());
+        verify(pedidoUseCase, never()).registrarPedido(any(), any(), any());
+    }
+
+    @Test
+    void deveReservarItensDoMesmoProdutoSomadosEmUmaUnicaChamada() {
+        pedidoRequestDTO.setItens(List.of(
+                ItemPedidoRequestDTO.builder().produtoId("SKU001").quantidade(2).build(),
+                ItemPedidoRequestDTO.builder().produtoId("SKU001").quantidade(3).build()));
+        stubEtapasComSucesso();
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+
+        pedidoConsumer.consumirPedido(pedidoRequestDTO);
+
+        verify(servicoExternoAdapter, times(1)).consultarProduto("SKU001");
+        verify(servicoExternoAdapter, times(1)).reservarEstoque(Map.of("SKU001", 5));
+        verify(servicoExternoAdapter, times(1)).baixarEstoque(ID_RESERVA);
+        verify(servicoExternoAdapter).processarPagamento("1234567890123456", 500.0);
+    }
+
+    @Test
+    void deveConsultarProdutosEmParalelo() {
+        CountDownLatch ambasEmAndamento = new CountDownLatch(2);
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
+        // Só responde quando as duas consultas estão em voo ao mesmo tempo
+        when(servicoExternoAdapter.consultarProduto(anyString())).thenAnswer(invocacao -> {
+            ambasEmAndamento.countDown();
+            return ambasEmAndamento.await(5, TimeUnit.SECONDS) ? produtoDTO : null;
+        });
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of(ID_RESERVA));
+        when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenReturn(statusPagamentoDTO);
+        when(servicoExternoAdapter.baixarEstoque(anyString())).thenReturn(true);
+
+        pedidoConsumer.consumirPedido(pedidoRequestDTO);
+
+        verify(servicoExternoAdapter).processarPagamento("1234567890123456", 300.0);
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_COM_SUCESSO, null);
     }
 
     @Test
@@ -133,48 +229,61 @@ class PedidoConsumerTest {
         pagamentoRecusado.setStatus("RECUSADO");
         pagamentoRecusado.setPagamentoId("PAG456");
 
-        when(pedidoUseCase.criarPedido(any())).thenReturn(pedidoResponseDTO);
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
         when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
         when(servicoExternoAdapter.consultarProduto(anyString())).thenReturn(produtoDTO);
-        when(servicoExternoAdapter.reservarEstoque(anyString(), anyInt())).thenReturn(true);
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of(ID_RESERVA));
         when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenReturn(pagamentoRecusado);
-        when(servicoExternoAdapter.estornarEstoque(anyString(), anyInt())).thenReturn(true);
-        when(pedidoUseCase.atualizarStatus(anyLong(), eq("FECHADO_SEM_CREDITO"))).thenReturn(pedidoResponseDTO);
+        when(servicoExternoAdapter.estornarEstoque(anyString())).thenReturn(true);
 
         pedidoConsumer.consumirPedido(pedidoRequestDTO);
 
-        verify(servicoExternoAdapter, times(2)).estornarEstoque(anyString(), anyInt());
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_SEM_CREDITO");
-        verify(servicoExternoAdapter, never()).baixarEstoque(anyString(), anyInt());
+        verify(servicoExternoAdapter).estornarEstoque(ID_RESERVA);
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_SEM_CREDITO, null);
+        verify(servicoExternoAdapter, never()).baixarEstoque(anyString());
     }
 
     @Test
     void deveEstornarPagamentoEEstoqueQuandoFalhaNaBaixaDeEstoque() {
-        when(pedidoUseCase.criarPedido(any())).thenReturn(pedidoResponseDTO);
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
         when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
         when(servicoExternoAdapter.consultarProduto(anyString())).thenReturn(produtoDTO);
-        when(servicoExternoAdapter.reservarEstoque(anyString(), anyInt())).thenReturn(true);
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of(ID_RESERVA));
         when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenReturn(statusPagamentoDTO);
-        when(servicoExternoAdapter.baixarEstoque("SKU001", 2)).thenReturn(true);
-        when(servicoExternoAdapter.baixarEstoque("SKU002", 1)).thenReturn(false);
-        when(servicoExternoAdapter.estornarEstoque(anyString(), anyInt())).thenReturn(true);
-        when(pedidoUseCase.atualizarStatus(anyLong(), eq("FECHADO_SEM_ESTOQUE"))).thenReturn(pedidoResponseDTO);
+        when(servicoExternoAdapter.baixarEstoque(anyString())).thenReturn(false);
+        when(servicoExternoAdapter.estornarEstoque(anyString())).thenReturn(true);
 
         pedidoConsumer.consumirPedido(pedidoRequestDTO);
 
         verify(servicoExternoAdapter).estornarPagamento("PAG123");
-        verify(servicoExternoAdapter, times(2)).estornarEstoque(anyString(), anyInt());
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_SEM_ESTOQUE");
+        verify(servicoExternoAdapter).estornarEstoque(ID_RESERVA);
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_SEM_ESTOQUE, null);
     }
 
     @Test
     void deveCapturarExcecaoGeralDuranteProcessamento() {
-        when(pedidoUseCase.criarPedido(any())).thenThrow(new RuntimeException("Erro simulado"));
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenThrow(new RuntimeException("Erro simulado"));
 
         pedidoConsumer.consumirPedido(pedidoRequestDTO);
 
-        verify(pedidoUseCase).criarPedido(pedidoRequestDTO);
+        verify(servicoExternoAdapter).consultarCliente("1");
         verifyNoMoreInteractions(servicoExternoAdapter);
+        verifyNoInteractions(pedidoUseCase);
+    }
+
+    @Test
+    void deveGravarPedidoUmaUnicaVezComStatusFinal() {
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
+        when(servicoExternoAdapter.consultarProduto(anyString())).thenReturn(produtoDTO);
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of(ID_RESERVA));
+        when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenReturn(statusPagamentoDTO);
+        when(servicoExternoAdapter.baixarEstoque(anyString())).thenReturn(true);
+
+        pedidoConsumer.consumirPedido(pedidoRequestDTO);
+
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_COM_SUCESSO, null);
+        verifyNoMoreInteractions(pedidoUseCase);
     }
 
     @Test
@@ -187,14 +296,13 @@ class PedidoConsumerTest {
         produto2.setId("SKU002");
         produto2.setPreco(75.0);
 
-        when(pedidoUseCase.criarPedido(any())).thenReturn(pedidoResponseDTO);
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
         when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
         when(servicoExternoAdapter.consultarProduto("SKU001")).thenReturn(produto1);
         when(servicoExternoAdapter.consultarProduto("SKU002")).thenReturn(produto2);
-        when(servicoExternoAdapter.reservarEstoque(anyString(), anyInt())).thenReturn(true);
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of(ID_RESERVA));
         when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenReturn(statusPagamentoDTO);
-        when(servicoExternoAdapter.baixarEstoque(anyString(), anyInt())).thenReturn(true);
-        when(pedidoUseCase.atualizarStatus(anyLong(), eq("FECHADO_COM_SUCESSO"))).thenReturn(pedidoResponseDTO);
+        when(servicoExternoAdapter.baixarEstoque(anyString())).thenReturn(true);
 
         pedidoConsumer.consumirPedido(pedidoRequestDTO);
 
@@ -210,19 +318,444 @@ class PedidoConsumerTest {
 
         pedidoRequestDTO.setItens(List.of(item));
 
-        when(pedidoUseCase.criarPedido(any())).thenReturn(pedidoResponseDTO);
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
         when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
         when(servicoExternoAdapter.consultarProduto(anyString())).thenReturn(produtoDTO);
-        when(servicoExternoAdapter.reservarEstoque(anyString(), anyInt())).thenReturn(true);
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of(ID_RESERVA));
         when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenReturn(statusPagamentoDTO);
-        when(servicoExternoAdapter.baixarEstoque(anyString(), anyInt())).thenReturn(true);
-        when(pedidoUseCase.atualizarStatus(anyLong(), eq("FECHADO_COM_SUCESSO"))).thenReturn(pedidoResponseDTO);
+        when(servicoExternoAdapter.baixarEstoque(anyString())).thenReturn(true);
 
         pedidoConsumer.consumirPedido(pedidoRequestDTO);
 
         verify(servicoExternoAdapter, times(1)).consultarProduto("SKU001");
-        verify(servicoExternoAdapter, times(1)).reservarEstoque("SKU001", 1);
-        verify(servicoExternoAdapter, times(1)).baixarEstoque("SKU001", 1);
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_COM_SUCESSO");
+        verify(servicoExternoAdapter, times(1)).reservarEstoque(Map.of("SKU001", 1));
+        verify(servicoExternoAdapter, times(1)).baixarEstoque(ID_RESERVA);
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_COM_SUCESSO, null);
+    }
+
+    @Test
+    void deveConsultarClienteEProdutoUmaVezPorLoteEGravarEmTransacaoUnica() {
+        PedidoRequestDTO outroPedido = PedidoRequestDTO.builder()
+                .clienteId(1L)
+                .dadosPagamento(pedidoRequestDTO.getDadosPagamento())
+                .itens(pedidoRequestDTO.getItens())
+                .build();
+        stubEtapasComSucesso();
+
+        pedidoConsumer.consumirLote(lote(List.of(pedidoRequestDTO, outroPedido), List.of(10L, 11L), null));
+
+        verify(servicoExternoAdapter, times(1)).consultarCliente("1");
+        verify(servicoExternoAdapter, times(1)).consultarProduto("SKU001");
+        verify(servicoExternoAdapter, times(1)).consultarProduto("SKU002");
+        verify(servicoExternoAdapter, times(2)).processarPagamento(anyString(), anyDouble());
+        verify(pedidoUseCase).registrarPedidos(List.of(pedidoRequestDTO, outroPedido),
+                List.of(StatusPedido.FECHADO_COM_SUCESSO, StatusPedido.FECHADO_COM_SUCESSO), Arrays.asList(null, null));
+        verify(pedidoUseCase, never()).registrarPedido(any(), any(), any());
+    }
+
+    @Test
+    void deveIsolarFalhaDeUmPedidoSemInterromperOLote() {
+        PedidoRequestDTO semPagamento = PedidoRequestDTO.builder().clienteId(2L).build();
+        PedidoRequestDTO clienteComErro = PedidoRequestDTO.builder()
+                .clienteId(3L)
+                .dadosPagamento(pedidoRequestDTO.getDadosPagamento())
+                .itens(pedidoRequestDTO.getItens())
+                .build();
+        stubEtapasComSucesso();
+        when(servicoExternoAdapter.consultarCliente("3")).thenThrow(new RuntimeException("Erro simulado"));
+
+        List<ConsumerRecord<String, PedidoRequestDTO>> registros =
+                lote(List.of(semPagamento, clienteComErro, pedidoRequestDTO), List.of(1L, 2L, 3L), null);
+
+        pedidoConsumer.consumirLote(registros);
+
+        verify(pedidoUseCase).registrarPedidos(List.of(pedidoRequestDTO), List.of(StatusPedido.FECHADO_COM_SUCESSO),
+                Collections.singletonList(null));
+        verify(pedidoRetentativaProducer).enviar(eq(registros.get(1)),
+                argThat(falha -> falha.getProgresso().getEtapa() == EtapaPedido.CLIENTE));
+        verifyNoMoreInteractions(pedidoRetentativaProducer);
+    }
+
+    @Test
+    void deveReenviarParaRetentativaPedidoDoLoteQueFalhaDepoisDaCobranca() {
+        stubEtapasComSucesso();
+        when(servicoExternoAdapter.baixarEstoque(anyString())).thenThrow(new RuntimeException("Timeout"));
+        List<ConsumerRecord<String, PedidoRequestDTO>> registros = lote(List.of(pedidoRequestDTO), List.of(60L), List.of("pedido-1"));
+        when(idempotenciaConsumo.chave("pedido-1", pedidoRequestDTO)).thenReturn("pedido-1");
+
+        pedidoConsumer.consumirLote(registros);
+
+        verify(idempotenciaConsumo).liberar("pedido-1");
+        verify(pedidoRetentativaProducer).enviar(eq(registros.get(0)), argThat(falha ->
+                falha.getProgresso().getEtapa() == EtapaPedido.BAIXA_ESTOQUE
+                        && "PAG123".equals(falha.getProgresso().getPagamentoId())
+                        && ID_RESERVA.equals(falha.getProgresso().getReservaEstoqueId())));
+        verifyNoInteractions(pedidoUseCase);
+    }
+
+    @Test
+    void deveReenviarParaRetentativaPedidoCobradoQueNaoGravaNemIndividualmente() {
+        stubEtapasComSucesso();
+        when(idempotenciaConsumo.chave("pedido-1", pedidoRequestDTO)).thenReturn("pedido-1");
+        when(pedidoUseCase.registrarPedidos(anyList(), anyList(), anyList())).thenThrow(new RuntimeException("Erro no lote"));
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenThrow(new RuntimeException("Erro no pedido"));
+        List<ConsumerRecord<String, PedidoRequestDTO>> registros = lote(List.of(pedidoRequestDTO), List.of(61L), List.of("pedido-1"));
+
+        pedidoConsumer.consumirLote(registros);
+
+        verify(servicoExternoAdapter).processarPagamento(anyString(), anyDouble());
+        verify(idempotenciaConsumo).liberar("pedido-1");
+        verify(pedidoRetentativaProducer).enviar(eq(registros.get(0)), argThat(falha ->
+                falha.getProgresso().getEtapa() == EtapaPedido.GRAVACAO
+                        && falha.getProgresso().getStatusFinal() == StatusPedido.FECHADO_COM_SUCESSO
+                        && "PAG123".equals(falha.getProgresso().getPagamentoId())));
+        verify(pedidoResultadoProducer).publicar(List.of());
+    }
+
+    @Test
+    void deveDevolverLoteAoKafkaQuandoReenvioParaRetentativaFalha() {
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenThrow(new RuntimeException("Erro simulado"));
+        doThrow(new IllegalStateException("Broker indisponível")).when(pedidoRetentativaProducer).enviar(any(), any());
+
+        assertThrows(IllegalStateException.class, () ->
+                pedidoConsumer.consumirLote(lote(List.of(pedidoRequestDTO), List.of(62L), null)));
+
+        verify(contrapressaoConsumo).concluir(1);
+        verifyNoInteractions(pedidoUseCase, pedidoResultadoProducer);
+    }
+
+    @Test
+    void deveGravarPedidoAPedidoQuandoTransacaoDoLoteFalha() {
+        PedidoRequestDTO outroPedido = PedidoRequestDTO.builder()
+                .clienteId(1L)
+                .dadosPagamento(pedidoRequestDTO.getDadosPagamento())
+                .itens(pedidoRequestDTO.getItens())
+                .build();
+        stubEtapasComSucesso();
+        when(pedidoUseCase.registrarPedidos(anyList(), anyList(), anyList())).thenThrow(new RuntimeException("Erro no lote"));
+        when(pedidoUseCase.registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_COM_SUCESSO, null))
+                .thenThrow(new RuntimeException("Erro no pedido"));
+        when(pedidoUseCase.registrarPedido(outroPedido, StatusPedido.FECHADO_COM_SUCESSO, null)).thenReturn(pedidoResponseDTO);
+
+        pedidoConsumer.consumirLote(lote(List.of(pedidoRequestDTO, outroPedido), List.of(20L, 21L), null));
+
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_COM_SUCESSO, null);
+        verify(pedidoUseCase).registrarPedido(outroPedido, StatusPedido.FECHADO_COM_SUCESSO, null);
+        verify(pedidoRetentativaProducer).enviar(argThat(registro -> registro.offset() == 20L), any());
+        verify(pedidoResultadoProducer).publicar(List.of(pedidoResponseDTO));
+    }
+
+    @Test
+    void naoDeveGravarQuandoNenhumPedidoDoLoteEValido() {
+        pedidoRequestDTO.setDadosPagamento(null);
+
+        pedidoConsumer.consumirLote(lote(List.of(pedidoRequestDTO), List.of(1L), null));
+
+        verifyNoInteractions(pedidoUseCase);
+        verifyNoInteractions(servicoExternoAdapter);
+    }
+
+    @Test
+    void deveProcessarNoWorkerDoClienteEConfirmarOffsetAoTerminar() {
+        stubEtapasComSucesso();
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+        Acknowledgment ack = mock(Acknowledgment.class);
+
+        pedidoConsumer.consumirEmParalelo(new ConsumerRecord<>("novo-pedido", 0, 42L, "1", pedidoRequestDTO), ack);
+
+        verify(ack, timeout(5000)).acknowledge();
+        verify(executorPorChave).executar(eq(1L), any());
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_COM_SUCESSO, null);
+    }
+
+    @Test
+    void deveReenviarParaRetentativaAntesDeConfirmarQuandoProcessamentoParaleloFalha() {
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenThrow(new RuntimeException("Erro simulado"));
+        Acknowledgment ack = mock(Acknowledgment.class);
+        ConsumerRecord<String, PedidoRequestDTO> registro = new ConsumerRecord<>("novo-pedido", 0, 43L, "1", pedidoRequestDTO);
+
+        pedidoConsumer.consumirEmParalelo(registro, ack);
+
+        verify(ack, timeout(5000)).acknowledge();
+        var ordem = inOrder(pedidoRetentativaProducer, ack);
+        ordem.verify(pedidoRetentativaProducer).enviar(eq(registro),
+                argThat(falha -> falha.getProgresso().getEtapa() == EtapaPedido.CLIENTE));
+        ordem.verify(ack).acknowledge();
+        verifyNoInteractions(pedidoUseCase);
+    }
+
+    @Test
+    void naoDeveConfirmarOffsetQuandoReenvioParaRetentativaFalha() {
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenThrow(new RuntimeException("Erro simulado"));
+        doThrow(new IllegalStateException("Broker indisponível")).when(pedidoRetentativaProducer).enviar(any(), any());
+        Acknowledgment ack = mock(Acknowledgment.class);
+
+        pedidoConsumer.consumirEmParalelo(new ConsumerRecord<>("novo-pedido", 0, 43L, "1", pedidoRequestDTO), ack);
+
+        verify(contrapressaoConsumo, timeout(5000)).concluir(1);
+        verify(ack, after(200).never()).acknowledge();
+    }
+
+    @Test
+    void deveContarPedidoParaleloEmAndamentoAteOWorkerTerminar() {
+        stubEtapasComSucesso();
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+        Acknowledgment ack = mock(Acknowledgment.class);
+
+        pedidoConsumer.consumirEmParalelo(new ConsumerRecord<>("novo-pedido", 0, 44L, "1", pedidoRequestDTO), ack);
+
+        verify(ack, timeout(5000)).acknowledge();
+        var ordem = inOrder(contrapressaoConsumo, pedidoUseCase, ack);
+        ordem.verify(contrapressaoConsumo).iniciar(1);
+        ordem.verify(pedidoUseCase).registrarPedido(any(), any(), any());
+        ordem.verify(contrapressaoConsumo).concluir(1);
+        ordem.verify(ack).acknowledge();
+    }
+
+    @Test
+    void deveRegistrarLatenciaDeCadaEtapaMesmoQuandoEtapaFalha() {
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
+        when(servicoExternoAdapter.consultarProduto(anyString())).thenReturn(produtoDTO);
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of(ID_RESERVA));
+        when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenThrow(new RuntimeException("Timeout"));
+
+        assertThrows(FalhaProcessamentoPedidoException.class, () ->
+                pedidoConsumer.consumirRegistro(new ConsumerRecord<>("novo-pedido", 0, 45L, "1", pedidoRequestDTO)));
+
+        // Cliente, reserva de estoque e o pagamento que falhou
+        verify(contrapressaoConsumo, times(3)).registrarLatencia(anyLong());
+        verify(contrapressaoConsumo).iniciar(1);
+        verify(contrapressaoConsumo).concluir(1);
+    }
+
+    @Test
+    void deveContarLoteInteiroComoUmaUnidadeEmAndamento() {
+        PedidoRequestDTO semPagamento = PedidoRequestDTO.builder().clienteId(2L).build();
+
+        pedidoConsumer.consumirLote(lote(List.of(semPagamento, semPagamento), List.of(1L, 2L), null));
+
+        verify(contrapressaoConsumo).iniciar(1);
+        verify(contrapressaoConsumo).concluir(1);
+    }
+
+    @Test
+    void deveIgnorarPedidoDuplicadoSemChamadasExternasNemGravacao() {
+        when(idempotenciaConsumo.chave("pedido-1", pedidoRequestDTO)).thenReturn("pedido-1");
+        when(idempotenciaConsumo.isDuplicado("pedido-1")).thenReturn(true);
+
+        pedidoConsumer.consumirPedido(pedidoRequestDTO, "pedido-1");
+
+        verifyNoInteractions(servicoExternoAdapter, pedidoResultadoProducer);
+        verify(pedidoUseCase, never()).registrarPedido(any(), any(), any());
+    }
+
+    @Test
+    void devePublicarResultadoDoPedidoGravado() {
+        stubEtapasComSucesso();
+        when(idempotenciaConsumo.chave("pedido-1", pedidoRequestDTO)).thenReturn("pedido-1");
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+
+        pedidoConsumer.consumirRegistro(new ConsumerRecord<>("novo-pedido", 0, 1L, "pedido-1", pedidoRequestDTO));
+
+        verify(pedidoResultadoProducer).publicar(pedidoResponseDTO);
+    }
+
+    @Test
+    void deveRepublicarResultadoGravadoQuandoPedidoDuplicado() {
+        when(idempotenciaConsumo.chave("pedido-1", pedidoRequestDTO)).thenReturn("pedido-1");
+        when(idempotenciaConsumo.isDuplicado("pedido-1")).thenReturn(true);
+        when(pedidoUseCase.consultarPedidoPorChaveIdempotencia("pedido-1")).thenReturn(Optional.of(pedidoResponseDTO));
+
+        pedidoConsumer.consumirRegistro(new ConsumerRecord<>("novo-pedido", 0, 1L, "pedido-1", pedidoRequestDTO));
+
+        verify(pedidoResultadoProducer).publicar(pedidoResponseDTO);
+        verifyNoInteractions(servicoExternoAdapter);
+    }
+
+    @Test
+    void deveRepublicarResultadoQuandoIndiceUnicoRejeitaPedidoDuplicado() {
+        stubEtapasComSucesso();
+        when(idempotenciaConsumo.chave("pedido-1", pedidoRequestDTO)).thenReturn("pedido-1");
+        when(pedidoUseCase.registrarPedido(any(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("uk_pedidos_chave_idempotencia"));
+        when(pedidoUseCase.consultarPedidoPorChaveIdempotencia("pedido-1")).thenReturn(Optional.of(pedidoResponseDTO));
+
+        pedidoConsumer.consumirRegistro(new ConsumerRecord<>("novo-pedido", 0, 1L, "pedido-1", pedidoRequestDTO));
+
+        verify(pedidoResultadoProducer).publicar(pedidoResponseDTO);
+    }
+
+    @Test
+    void deveDevolverRegistroAoKafkaQuandoPublicacaoDoResultadoFalha() {
+        stubEtapasComSucesso();
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+        doThrow(new IllegalStateException("Broker indisponível")).when(pedidoResultadoProducer).publicar(pedidoResponseDTO);
+
+        assertThrows(FalhaProcessamentoPedidoException.class, () ->
+                pedidoConsumer.consumirRegistro(new ConsumerRecord<>("novo-pedido", 0, 1L, null, pedidoRequestDTO)));
+    }
+
+    @Test
+    void devePublicarResultadosDoLoteDeUmaVezIncluindoDuplicados() {
+        PedidoResponseDTO gravadoAntes = PedidoResponseDTO.builder().id(2L).build();
+        stubEtapasComSucesso();
+        when(idempotenciaConsumo.chave(anyString(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(idempotenciaConsumo.isDuplicado("pedido-1")).thenReturn(false);
+        when(idempotenciaConsumo.isDuplicado("pedido-2")).thenReturn(true);
+        when(pedidoUseCase.consultarPedidoPorChaveIdempotencia("pedido-2")).thenReturn(Optional.of(gravadoAntes));
+        when(pedidoUseCase.registrarPedidos(anyList(), anyList(), anyList())).thenReturn(List.of(pedidoResponseDTO));
+
+        pedidoConsumer.consumirLote(lote(List.of(pedidoRequestDTO, pedidoRequestDTO), List.of(40L, 41L),
+                List.of("pedido-1", "pedido-2")));
+
+        verify(pedidoResultadoProducer).publicar(List.of(gravadoAntes, pedidoResponseDTO));
+    }
+
+    @Test
+    void deveGravarPedidoComChaveDeIdempotencia() {
+        stubEtapasComSucesso();
+        when(idempotenciaConsumo.chave("pedido-1", pedidoRequestDTO)).thenReturn("pedido-1");
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+
+        pedidoConsumer.consumirPedido(pedidoRequestDTO, "pedido-1");
+
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_COM_SUCESSO, "pedido-1");
+        verify(idempotenciaConsumo, never()).liberar(any());
+    }
+
+    @Test
+    void deveLiberarChaveQuandoProcessamentoFalhaAntesDeGravar() {
+        when(idempotenciaConsumo.chave("pedido-1", pedidoRequestDTO)).thenReturn("pedido-1");
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenThrow(new RuntimeException("Erro simulado"));
+
+        pedidoConsumer.consumirPedido(pedidoRequestDTO, "pedido-1");
+
+        verify(idempotenciaConsumo).liberar("pedido-1");
+        verifyNoInteractions(pedidoUseCase);
+    }
+
+    @Test
+    void deveManterChaveQuandoIndiceUnicoRejeitaPedidoDuplicado() {
+        stubEtapasComSucesso();
+        when(idempotenciaConsumo.chave("pedido-1", pedidoRequestDTO)).thenReturn("pedido-1");
+        when(pedidoUseCase.registrarPedido(any(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("uk_pedidos_chave_idempotencia"));
+
+        pedidoConsumer.consumirPedido(pedidoRequestDTO, "pedido-1");
+
+        verify(idempotenciaConsumo, never()).liberar(any());
+    }
+
+    @Test
+    void deveDescartarPedidoRepetidoDentroDoLote() {
+        stubEtapasComSucesso();
+        when(idempotenciaConsumo.chave(anyString(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(idempotenciaConsumo.isDuplicado("pedido-1")).thenReturn(false, true);
+
+        pedidoConsumer.consumirLote(lote(List.of(pedidoRequestDTO, pedidoRequestDTO), List.of(30L, 31L),
+                List.of("pedido-1", "pedido-1")));
+
+        verify(servicoExternoAdapter, times(1)).processarPagamento(anyString(), anyDouble());
+        verify(pedidoUseCase).registrarPedidos(List.of(pedidoRequestDTO), List.of(StatusPedido.FECHADO_COM_SUCESSO),
+                List.of("pedido-1"));
+    }
+
+    @Test
+    void deveUsarChaveDaMensagemNoConsumoParalelo() {
+        when(idempotenciaConsumo.chave("pedido-1", pedidoRequestDTO)).thenReturn("pedido-1");
+        when(idempotenciaConsumo.isDuplicado("pedido-1")).thenReturn(true);
+        Acknowledgment ack = mock(Acknowledgment.class);
+
+        pedidoConsumer.consumirEmParalelo(new ConsumerRecord<>("novo-pedido", 0, 44L, "pedido-1", pedidoRequestDTO), ack);
+
+        verify(ack, timeout(5000)).acknowledge();
+        verifyNoInteractions(servicoExternoAdapter);
+        verify(pedidoUseCase, never()).registrarPedido(any(), any(), any());
+    }
+
+    @Test
+    void deveLevarProgressoNaExcecaoQuandoEtapaFalhaNoModoUnitario() {
+        stubEtapasComSucesso();
+        when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenThrow(new RuntimeException("Timeout"));
+
+        FalhaProcessamentoPedidoException falha = assertThrows(FalhaProcessamentoPedidoException.class,
+                () -> pedidoConsumer.consumirRegistro(new ConsumerRecord<>("novo-pedido", 0, 50L, null, pedidoRequestDTO)));
+
+        assertEquals(EtapaPedido.PAGAMENTO, falha.getProgresso().getEtapa());
+        assertEquals(300.0, falha.getProgresso().getValorTotal());
+        verifyNoInteractions(pedidoUseCase);
+    }
+
+    @Test
+    void deveRetomarDaEtapaQueFalhouSemRepetirReservaNemCobranca() {
+        stubEtapasComSucesso();
+        when(servicoExternoAdapter.baixarEstoque(anyString())).thenThrow(new RuntimeException("Timeout")).thenReturn(true);
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+
+        FalhaProcessamentoPedidoException falha = assertThrows(FalhaProcessamentoPedidoException.class,
+                () -> pedidoConsumer.consumirRegistro(new ConsumerRecord<>("novo-pedido", 0, 51L, null, pedidoRequestDTO)));
+        ConsumerRecord<String, PedidoRequestDTO> retentativa =
+                new ConsumerRecord<>("novo-pedido-retry-0", 0, 0L, null, pedidoRequestDTO);
+        falha.getProgresso().paraHeaders().forEach(header -> retentativa.headers().add(header));
+        pedidoConsumer.consumirRegistro(retentativa);
+
+        verify(servicoExternoAdapter, times(1)).consultarCliente("1");
+        verify(servicoExternoAdapter, times(1)).reservarEstoque(anyMap());
+        verify(servicoExternoAdapter, times(1)).processarPagamento(anyString(), anyDouble());
+        verify(servicoExternoAdapter, times(2)).baixarEstoque(ID_RESERVA);
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_COM_SUCESSO, null);
+    }
+
+    @Test
+    void deveRetomarCompensacaoComPagamentoDaTentativaAnterior() {
+        when(servicoExternoAdapter.estornarEstoque(anyString())).thenReturn(true);
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+        ProgressoPedido progresso = new ProgressoPedido();
+        progresso.registrarReservaEstoque(ID_RESERVA);
+        progresso.registrarPagamento("PAG123");
+        progresso.encerrar(StatusPedido.FECHADO_SEM_ESTOQUE, EtapaPedido.ESTORNO_PAGAMENTO);
+        ConsumerRecord<String, PedidoRequestDTO> retentativa =
+                new ConsumerRecord<>("novo-pedido-retry-1", 0, 0L, null, pedidoRequestDTO);
+        progresso.paraHeaders().forEach(header -> retentativa.headers().add(header));
+
+        pedidoConsumer.consumirRegistro(retentativa);
+
+        verify(servicoExternoAdapter).estornarPagamento("PAG123");
+        verify(servicoExternoAdapter).estornarEstoque(ID_RESERVA);
+        verify(servicoExternoAdapter, never()).consultarCliente(anyString());
+        verify(servicoExternoAdapter, never()).processarPagamento(anyString(), anyDouble());
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_SEM_ESTOQUE, null);
+    }
+
+    @Test
+    void naoDeveEstornarEstoqueQuandoProgressoNaoTemReserva() {
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(pedidoResponseDTO);
+        ProgressoPedido progresso = new ProgressoPedido();
+        progresso.encerrar(StatusPedido.FECHADO_SEM_CREDITO, EtapaPedido.ESTORNO_ESTOQUE);
+        ConsumerRecord<String, PedidoRequestDTO> retentativa =
+                new ConsumerRecord<>("novo-pedido-retry-0", 0, 0L, null, pedidoRequestDTO);
+        progresso.paraHeaders().forEach(header -> retentativa.headers().add(header));
+
+        pedidoConsumer.consumirRegistro(retentativa);
+
+        verify(servicoExternoAdapter, never()).estornarEstoque(anyString());
+        verify(pedidoUseCase).registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_SEM_CREDITO, null);
+    }
+
+    private static List<ConsumerRecord<String, PedidoRequestDTO>> lote(List<PedidoRequestDTO> pedidos, List<Long> offsets,
+                                                                       List<String> chaves) {
+        List<ConsumerRecord<String, PedidoRequestDTO>> registros = new ArrayList<>();
+        for (int i = 0; i < pedidos.size(); i++) {
+            registros.add(new ConsumerRecord<>("novo-pedido", 0, offsets.get(i), chaves != null ? chaves.get(i) : null, pedidos.get(i)));
+        }
+        return registros;
+    }
+
+    private void stubEtapasComSucesso() {
+        lenient().when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(clienteDTO);
+        lenient().when(servicoExternoAdapter.consultarProduto(anyString())).thenReturn(produtoDTO);
+        lenient().when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of(ID_RESERVA));
+        lenient().when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenReturn(statusPagamentoDTO);
+        lenient().when(servicoExternoAdapter.baixarEstoque(anyString())).thenReturn(true);
     }
-}
\ No newline at end of file
+}
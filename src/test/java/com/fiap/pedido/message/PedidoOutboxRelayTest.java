@@ -0,0 +1,215 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.entity.PedidoOutboxEntity;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.pots.PedidoEventoPort;
+import com.fiap.pedido.repository.PedidoOutboxPrimeiroLinha;
+import com.fiap.pedido.repository.PedidoOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PedidoOutboxRelayTest {
+
+    private static final Duration RESERVA = Duration.ofSeconds(30);
+
+    @Mock
+    private PedidoOutboxRepository pedidoOutboxRepository;
+
+    @Mock
+    private PedidoEventoPort pedidoEventoPort;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ScheduledExecutorService agendador;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PedidoOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = criar(3, 2, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void deveExcluirEventosConfirmadosEmUmUnicoDelete() {
+        when(pedidoOutboxRepository.travarPendentes(any(), eq(Limit.of(3))))
+                .thenReturn(List.of(evento(10L, 1L), evento(11L, 2L)));
+        when(pedidoEventoPort.publicarStatusAlterado(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        int excluidos = relay.drenarLote();
+
+        assertEquals(2, excluidos);
+        verify(pedidoOutboxRepository).reservar(eq(List.of(10L, 11L)), anyString(), any());
+        verify(pedidoOutboxRepository).excluirPorIds(List.of(10L, 11L));
+        verify(pedidoOutboxRepository, never()).liberar(any(), any());
+        verify(pedidoEventoPort).publicarStatusAlterado(argThat(evento -> evento.getPedidoId() == 1L
+                && evento.getStatusAtual() == StatusPedido.FECHADO_COM_SUCESSO));
+        // Reserva e exclusão em transações próprias, com o envio entre elas
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(2.0, meterRegistry.get(PedidoOutboxRelay.METRICA_PUBLICADOS).counter().count());
+        assertEquals(1, meterRegistry.get(PedidoOutboxRelay.METRICA_LOTE).summary().count());
+        assertEquals(2, meterRegistry.get(PedidoOutboxRelay.METRICA_ATRASO).timer().count());
+    }
+
+    @Test
+    void deveManterEventoNaoConfirmadoEOsSeguintesDoMesmoPedido() {
+        when(pedidoOutboxRepository.travarPendentes(any(), any()))
+                .thenReturn(List.of(evento(10L, 1L), evento(11L, 2L), evento(12L, 1L)));
+        when(pedidoEventoPort.publicarStatusAlterado(any()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("Broker indisponível")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        int excluidos = relay.drenarLote();
+
+        assertEquals(1, excluidos);
+        verify(pedidoOutboxRepository).excluirPorIds(List.of(11L));
+        verify(pedidoOutboxRepository).liberar(eq(List.of(10L, 12L)), anyString());
+        assertEquals(2.0, meterRegistry.get(PedidoOutboxRelay.METRICA_FALHAS).counter().count());
+    }
+
+    @Test
+    void naoDeveReservarEventoComEventoAnteriorDoMesmoPedidoEmOutraInstancia() {
+        when(pedidoOutboxRepository.travarPendentes(any(), any()))
+                .thenReturn(List.of(evento(10L, 1L), evento(11L, 2L), evento(13L, 1L), evento(14L, 3L)));
+        // Pedido 1 tem o evento 12 com outra instância; o pedido 3 só tem evento mais novo, gravado depois da trava
+        when(pedidoOutboxRepository.primeirosForaDe(any(), any()))
+                .thenReturn(List.of(new PedidoOutboxPrimeiroLinha(1L, 12L), new PedidoOutboxPrimeiroLinha(3L, 20L)));
+        when(pedidoEventoPort.publicarStatusAlterado(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertEquals(3, relay.drenarLote());
+
+        verify(pedidoOutboxRepository).reservar(eq(List.of(10L, 11L, 14L)), anyString(), any());
+        verify(pedidoEventoPort, times(3)).publicarStatusAlterado(any());
+        verify(pedidoOutboxRepository).excluirPorIds(List.of(10L, 11L, 14L));
+    }
+
+    @Test
+    void naoDevePublicarQuandoTodosOsEventosTemEventoAnteriorEmOutraInstancia() {
+        when(pedidoOutboxRepository.travarPendentes(any(), any())).thenReturn(List.of(evento(13L, 1L)));
+        when(pedidoOutboxRepository.primeirosForaDe(any(), any())).thenReturn(List.of(new PedidoOutboxPrimeiroLinha(1L, 12L)));
+
+        assertEquals(0, relay.drenarLote());
+
+        verify(pedidoOutboxRepository, never()).reservar(any(), any(), any());
+        verifyNoInteractions(pedidoEventoPort);
+    }
+
+    @Test
+    void deveReservarAlemDoTempoLimiteDeEnvio() {
+        when(pedidoOutboxRepository.travarPendentes(any(), any())).thenReturn(List.of(evento(10L, 1L)));
+        when(pedidoEventoPort.publicarStatusAlterado(any())).thenReturn(CompletableFuture.completedFuture(null));
+        Instant antes = Instant.now();
+
+        relay.drenarLote();
+
+        verify(pedidoOutboxRepository).reservar(eq(List.of(10L)), anyString(),
+                argThat(ate -> !ate.isBefore(antes.plus(RESERVA))));
+    }
+
+    @Test
+    void naoDeveEsperarConfirmacaoAlemDoTempoLimite() {
+        relay = criar(3, 2, Duration.ofMillis(50));
+        when(pedidoOutboxRepository.travarPendentes(any(), any())).thenReturn(List.of(evento(10L, 1L)));
+        when(pedidoEventoPort.publicarStatusAlterado(any())).thenReturn(new CompletableFuture<>());
+
+        assertEquals(0, relay.drenarLote());
+
+        verify(pedidoOutboxRepository, never()).excluirPorIds(any());
+        verify(pedidoOutboxRepository).liberar(eq(List.of(10L)), anyString());
+        assertEquals(1.0, meterRegistry.get(PedidoOutboxRelay.METRICA_FALHAS).counter().count());
+    }
+
+    @Test
+    void deveDrenarLotesCheiosAteOLimiteDoCiclo() {
+        when(pedidoOutboxRepository.travarPendentes(any(), any()))
+                .thenReturn(List.of(evento(10L, 1L), evento(11L, 2L), evento(12L, 3L)));
+        when(pedidoEventoPort.publicarStatusAlterado(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.drenar();
+
+        verify(pedidoOutboxRepository, times(2)).travarPendentes(any(), any());
+    }
+
+    @Test
+    void devePararCicloNoPrimeiroLoteIncompleto() {
+        when(pedidoOutboxRepository.travarPendentes(any(), any())).thenReturn(List.of(evento(10L, 1L)));
+        when(pedidoEventoPort.publicarStatusAlterado(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.drenar();
+
+        verify(pedidoOutboxRepository, times(1)).travarPendentes(any(), any());
+    }
+
+    @Test
+    void naoDeveAbrirEnvioQuandoOutboxVazio() {
+        when(pedidoOutboxRepository.travarPendentes(any(), any())).thenReturn(List.of());
+
+        relay.drenar();
+
+        verifyNoInteractions(pedidoEventoPort);
+        verify(pedidoOutboxRepository, never()).excluirPorIds(any());
+        verify(pedidoOutboxRepository, never()).reservar(any(), any(), any());
+    }
+
+    @Test
+    void deveDesfazerTransacaoQuandoExclusaoFalha() {
+        when(pedidoOutboxRepository.travarPendentes(any(), any())).thenReturn(List.of(evento(10L, 1L)));
+        when(pedidoEventoPort.publicarStatusAlterado(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(pedidoOutboxRepository.excluirPorIds(any())).thenThrow(new IllegalStateException("Conexão perdida"));
+
+        assertDoesNotThrow(() -> relay.drenar());
+
+        // A reserva fica até vencer e o evento é publicado de novo
+        verify(transactionManager).commit(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void deveRecusarLoteSemTamanho() {
+        assertThrows(IllegalArgumentException.class, () -> criar(0, 1, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void deveRecusarReservaQueVenceDuranteOEnvio() {
+        assertThrows(IllegalArgumentException.class, () -> new PedidoOutboxRelay(pedidoOutboxRepository, pedidoEventoPort,
+                new TransactionTemplate(transactionManager), 3, 2, Duration.ofSeconds(10), Duration.ofSeconds(10),
+                meterRegistry, agendador));
+    }
+
+    private PedidoOutboxRelay criar(int tamanhoLote, int lotesPorCiclo, Duration tempoLimiteEnvio) {
+        return new PedidoOutboxRelay(pedidoOutboxRepository, pedidoEventoPort, new TransactionTemplate(transactionManager),
+                tamanhoLote, lotesPorCiclo, tempoLimiteEnvio, RESERVA, meterRegistry, agendador);
+    }
+
+    private static PedidoOutboxEntity evento(Long id, Long pedidoId) {
+        return PedidoOutboxEntity.builder()
+                .id(id)
+                .pedidoId(pedidoId)
+                .statusAnterior(StatusPedido.ABERTO)
+                .statusAtual(StatusPedido.FECHADO_COM_SUCESSO)
+                .ocorridoEm(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,179 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.adapter.ConsultasEmVoo;
+import com.fiap.pedido.adapter.ServicoExternoMockAdapter;
+import com.fiap.pedido.cache.ProdutoCache;
+import com.fiap.pedido.dto.ClienteDTO;
+import com.fiap.pedido.dto.ProdutoDTO;
+import com.fiap.pedido.dto.StatusPagamentoDTO;
+import com.fiap.pedido.dto.request.DadosPagamentoRequestDTO;
+import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.CatalogoProdutos;
+import com.fiap.pedido.usecase.service.PedidoUseCaseImpl;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Pedidos/s do consumo paralelo com o mesmo "tamanho de pod": 32 threads de plataforma (limite prático de memória
+ * por pod) contra threads virtuais com até 1.000 pedidos em voo. Cada pedido faz 6 chamadas bloqueantes de 10 ms
+ * (cliente, produto, reserva, pagamento, baixa e gravação), simulando Feign/RestTemplate/JDBC.
+ * Só roda em Java 21+ (mvn test com JDK 21 ativa o perfil java21).
+ * Referência (1 vCPU): plataforma ~470 pedidos/s; virtuais ~1.750 pedidos/s (limitado por CPU, cresce com os núcleos).
+ */
+@Slf4j
+@EnabledForJreRange(min = JRE.JAVA_21)
+class PedidoPipelineThreadsBenchmarkTest {
+
+    private static final int PEDIDOS = 4_000;
+    private static final int THREADS_PLATAFORMA = 32;
+    private static final int CONCORRENCIA_VIRTUAL = 1_000;
+    private static final long LATENCIA_IO_MS = 10;
+
+    private static final Logger LOGGER_APLICACAO = (Logger) LoggerFactory.getLogger("com.fiap.pedido");
+    private static Level nivelOriginal;
+
+    /**
+     * Sem o contexto Spring o logback loga tudo em DEBUG no console, o que vira o gargalo da medição
+     */
+    @BeforeAll
+    static void silenciarLogs() {
+        nivelOriginal = LOGGER_APLICACAO.getLevel();
+        LOGGER_APLICACAO.setLevel(Level.WARN);
+    }
+
+    @AfterAll
+    static void restaurarLogs() {
+        LOGGER_APLICACAO.setLevel(nivelOriginal);
+    }
+
+    @Test
+    void deveProcessarMaisPedidosPorSegundoComThreadsVirtuais() throws Exception {
+        double plataforma = medirPedidosPorSegundo(new ExecutorPorChave(THREADS_PLATAFORMA, PEDIDOS, false), false);
+        double virtuais = medirPedidosPorSegundo(new ExecutorPorChave(CONCORRENCIA_VIRTUAL, PEDIDOS, true), true);
+
+        log.warn("📊 Pedidos/s com {} pedidos e I/O de {} ms por chamada | Plataforma ({} threads): {} | Virtuais (até {} em voo): {}",
+                PEDIDOS, LATENCIA_IO_MS, THREADS_PLATAFORMA, Math.round(plataforma), CONCORRENCIA_VIRTUAL, Math.round(virtuais));
+
+        assertTrue(virtuais > plataforma * 2, "Esperado ganho de vazão com threads virtuais: " + virtuais + " <= " + plataforma);
+    }
+
+    private double medirPedidosPorSegundo(ExecutorPorChave executorPorChave, boolean threadsVirtuais) throws Exception {
+        ExecutorItensPedido executorItens = new ExecutorItensPedido(8, Duration.ofMinutes(1), threadsVirtuais);
+        PedidoUseCaseImpl pedidoUseCase = mock(PedidoUseCaseImpl.class, withSettings().stubOnly());
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenAnswer(invocation -> {
+            bloquear();
+            return PedidoResponseDTO.builder().id(1L).status("FECHADO_COM_SUCESSO").build();
+        });
+        ServicoExternoComLatencia servicoExterno = new ServicoExternoComLatencia();
+        ProdutoCache produtoCache = new ProdutoCache(servicoExterno, null, CatalogoProdutos.MOCK, 1_000, Duration.ofHours(1), Duration.ofMinutes(45),
+                Duration.ofMinutes(5), 1, new SimpleMeterRegistry());
+        PedidoConsumer pedidoConsumer = new PedidoConsumer(pedidoUseCase, servicoExterno, executorPorChave,
+                mock(IdempotenciaConsumo.class, withSettings().stubOnly()), mock(ContrapressaoConsumo.class, withSettings().stubOnly()),
+                mock(PedidoResultadoProducer.class, withSettings().stubOnly()), executorItens, produtoCache,
+                mock(PedidoRetentativaProducer.class, withSettings().stubOnly()));
+
+        CountDownLatch concluidos = new CountDownLatch(PEDIDOS);
+        Acknowledgment ack = concluidos::countDown;
+        try {
+            long inicio = System.nanoTime();
+            for (int i = 0; i < PEDIDOS; i++) {
+                pedidoConsumer.consumirEmParalelo(new ConsumerRecord<>("novo-pedido", 0, i, null, criarPedido(i)), ack);
+            }
+            assertTrue(concluidos.await(2, TimeUnit.MINUTES), "Pedidos não concluídos: " + concluidos.getCount());
+            return PEDIDOS / ((System.nanoTime() - inicio) / 1_000_000_000.0);
+        } finally {
+            executorPorChave.destroy();
+            executorItens.destroy();
+            produtoCache.destroy();
+        }
+    }
+
+    private static PedidoRequestDTO criarPedido(long clienteId) {
+        return PedidoRequestDTO.builder()
+                .clienteId(clienteId)
+                .dadosPagamento(DadosPagamentoRequestDTO.builder().numeroCartao("1234567890123456").build())
+                .itens(List.of(ItemPedidoRequestDTO.builder().produtoId("SKU001").quantidade(1).build()))
+                .build();
+    }
+
+    private static void bloquear() {
+        try {
+            Thread.sleep(LATENCIA_IO_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Serviços externos com latência fixa de I/O e sempre aprovados
+     */
+    private static class ServicoExternoComLatencia extends ServicoExternoMockAdapter {
+
+        ServicoExternoComLatencia() {
+            super(new ConsultasEmVoo(new SimpleMeterRegistry()));
+        }
+
+        @Override
+        public ClienteDTO consultarCliente(String clienteId) {
+            bloquear();
+            ClienteDTO cliente = new ClienteDTO();
+            cliente.setId(clienteId);
+            cliente.setNome("Cliente Benchmark");
+            return cliente;
+        }
+
+        @Override
+        public ProdutoDTO consultarProduto(String produtoId) {
+            bloquear();
+            ProdutoDTO produto = new ProdutoDTO();
+            produto.setId(produtoId);
+            produto.setNome("Produto Benchmark");
+            produto.setPreco(10.0);
+            return produto;
+        }
+
+        @Override
+        public Optional<String> reservarEstoque(Map<String, Integer> itens) {
+            bloquear();
+            return Optional.of("RESERVA");
+        }
+
+        @Override
+        public boolean baixarEstoque(String idReserva) {
+            bloquear();
+            return true;
+        }
+
+        @Override
+        public StatusPagamentoDTO processarPagamento(String numeroCartao, Double valorTotal) {
+            bloquear();
+            StatusPagamentoDTO status = new StatusPagamentoDTO();
+            status.setPagamentoId("PAG");
+            status.setStatus("APROVADO");
+            return status;
+        }
+    }
+}
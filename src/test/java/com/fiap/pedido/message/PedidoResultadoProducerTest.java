@@ -0,0 +1,73 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PedidoResultadoProducerTest {
+
+    @Mock
+    private KafkaTemplate<String, Object> pedidoKafkaTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PedidoResultadoProducer producer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        producer = new PedidoResultadoProducer(pedidoKafkaTemplate, "pedido-processado", Duration.ofMillis(50), meterRegistry);
+    }
+
+    @Test
+    void devePublicarResultadoComIdDoPedidoComoChave() {
+        PedidoResponseDTO resultado = PedidoResponseDTO.builder().id(42L).status("FECHADO_COM_SUCESSO").build();
+        when(pedidoKafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        producer.publicar(resultado);
+
+        verify(pedidoKafkaTemplate).send("pedido-processado", "42", resultado);
+        assertEquals(1.0, meterRegistry.get(PedidoResultadoProducer.METRICA_PUBLICADOS).counter().count());
+    }
+
+    @Test
+    void deveEnviarLoteInteiroAntesDeEsperarConfirmacoes() {
+        CompletableFuture<Object> pendente = new CompletableFuture<>();
+        doReturn(pendente).when(pedidoKafkaTemplate).send(anyString(), anyString(), any());
+
+        assertThrows(IllegalStateException.class, () -> producer.publicar(List.of(
+                PedidoResponseDTO.builder().id(1L).build(), PedidoResponseDTO.builder().id(2L).build())));
+
+        verify(pedidoKafkaTemplate, times(2)).send(eq("pedido-processado"), anyString(), any());
+        assertEquals(0.0, meterRegistry.get(PedidoResultadoProducer.METRICA_PUBLICADOS).counter().count());
+    }
+
+    @Test
+    void deveLancarExcecaoQuandoBrokerRecusaResultado() {
+        when(pedidoKafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("Broker indisponível")));
+
+        assertThrows(IllegalStateException.class, () -> producer.publicar(PedidoResponseDTO.builder().id(1L).build()));
+    }
+
+    @Test
+    void naoDeveEnviarListaVazia() {
+        producer.publicar(List.of());
+
+        verifyNoInteractions(pedidoKafkaTemplate);
+    }
+}
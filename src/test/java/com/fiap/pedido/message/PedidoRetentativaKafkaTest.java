@@ -0,0 +1,251 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.adapter.ServicoExternoMockAdapter;
+import com.fiap.pedido.cache.ProdutoCache;
+import com.fiap.pedido.config.kafka.KafkaConfig;
+import com.fiap.pedido.config.kafka.PedidoRequestSerializer;
+import com.fiap.pedido.config.kafka.RetentativaKafkaConfig;
+import com.fiap.pedido.dto.ClienteDTO;
+import com.fiap.pedido.dto.ProdutoDTO;
+import com.fiap.pedido.dto.StatusPagamentoDTO;
+import com.fiap.pedido.dto.request.DadosPagamentoRequestDTO;
+import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.FormatoMensagem;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.usecase.service.PedidoUseCaseImpl;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tópicos de retentativa e DLT com broker embutido: o consumo unitário de verdade (container, @RetryableTopic,
+ * reenvio com headers de progresso), com os serviços externos e a gravação simulados.
+ */
+@SpringJUnitConfig
+@DirtiesContext
+@EmbeddedKafka(partitions = 1, bootstrapServersProperty = "spring.kafka.bootstrap-servers",
+        topics = {"novo-pedido", "novo-pedido-retry-0", "novo-pedido-retry-1", "novo-pedido-dlt"})
+@TestPropertySource(properties = {
+        "pedido.kafka.retentativa.tentativas=3",
+        "pedido.kafka.retentativa.atraso-inicial=100",
+        "pedido.kafka.retentativa.multiplicador=2.0",
+        "pedido.kafka.retentativa.atraso-maximo=500"
+})
+class PedidoRetentativaKafkaTest {
+
+    private static final Duration ESPERA = Duration.ofSeconds(30);
+
+    @Configuration
+    @Import({KafkaConfig.class, RetentativaKafkaConfig.class, PedidoConsumer.class, ExecutorItensPedido.class})
+    static class Config {
+
+        /**
+         * Conversão de PT10S em Duration nos @Value, como no contexto do Spring Boot
+         */
+        @Bean
+        static ConversionService conversionService() {
+            return new ApplicationConversionService();
+        }
+    }
+
+    @MockBean
+    private PedidoUseCaseImpl pedidoUseCase;
+
+    @MockBean
+    private ServicoExternoMockAdapter servicoExternoAdapter;
+
+    @MockBean
+    private ExecutorPorChave executorPorChave;
+
+    @MockBean
+    private IdempotenciaConsumo idempotenciaConsumo;
+
+    @MockBean
+    private ContrapressaoConsumo contrapressaoConsumo;
+
+    @MockBean
+    private PedidoResultadoProducer pedidoResultadoProducer;
+
+    @MockBean
+    private ProdutoCache produtoCache;
+
+    @MockBean
+    private PedidoRetentativaProducer pedidoRetentativaProducer;
+
+    @Autowired
+    private KafkaTemplate<String, Object> pedidoKafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @BeforeEach
+    void aguardarParticoes() {
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (container.isRunning()) {
+                ContainerTestUtils.waitForAssignment(container, broker.getPartitionsPerTopic());
+            }
+        }
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setNome("Cliente Teste");
+        ProdutoDTO produto = new ProdutoDTO();
+        produto.setPreco(100.0);
+        StatusPagamentoDTO pagamento = new StatusPagamentoDTO();
+        pagamento.setStatus("APROVADO");
+        pagamento.setPagamentoId("PAG1");
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(cliente);
+        when(servicoExternoAdapter.consultarProduto(anyString())).thenReturn(produto);
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of("SKU001-1"));
+        when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenReturn(pagamento);
+        when(servicoExternoAdapter.baixarEstoque(anyString())).thenReturn(true);
+        when(pedidoUseCase.registrarPedido(any(), any(), any())).thenReturn(PedidoResponseDTO.builder().id(1L).build());
+        when(produtoCache.buscar(anyString())).thenAnswer(invocacao ->
+                Optional.ofNullable(servicoExternoAdapter.consultarProduto(invocacao.getArgument(0))));
+    }
+
+    @Test
+    void deveRetentarPorTopicoContinuandoDaEtapaQueFalhou() {
+        PedidoRequestDTO pedido = criarPedido(10L);
+        StatusPagamentoDTO aprovado = new StatusPagamentoDTO();
+        aprovado.setStatus("APROVADO");
+        aprovado.setPagamentoId("PAG1");
+        doThrow(new RuntimeException("Pagamento indisponível")).doReturn(aprovado)
+                .when(servicoExternoAdapter).processarPagamento(anyString(), anyDouble());
+
+        pedidoKafkaTemplate.send("novo-pedido", "10", pedido);
+
+        verify(pedidoUseCase, timeout(ESPERA.toMillis())).registrarPedido(any(), eq(StatusPedido.FECHADO_COM_SUCESSO), any());
+        verify(servicoExternoAdapter, times(1)).consultarCliente("10");
+        verify(servicoExternoAdapter, times(1)).reservarEstoque(Map.of("SKU001", 1));
+        verify(servicoExternoAdapter, times(2)).processarPagamento(anyString(), anyDouble());
+        verify(servicoExternoAdapter, times(1)).baixarEstoque("SKU001-1");
+    }
+
+    @Test
+    void deveEnviarParaDltAposEsgotarTentativas() {
+        when(servicoExternoAdapter.consultarCliente("20")).thenThrow(new RuntimeException("Cliente indisponível"));
+
+        try (Consumer<String, byte[]> dlt = consumidorDaDlt("teste-dlt-tentativas")) {
+            pedidoKafkaTemplate.send("novo-pedido", "20", criarPedido(20L));
+
+            ConsumerRecord<String, byte[]> registro = lerDaDlt(dlt, "20");
+
+            assertEquals("novo-pedido", texto(registro, KafkaHeaders.ORIGINAL_TOPIC));
+            assertEquals("CLIENTE", texto(registro, ProgressoPedido.HEADER_ETAPA));
+            verify(servicoExternoAdapter, times(3)).consultarCliente("20");
+            verify(pedidoUseCase, never()).registrarPedido(argThat(p -> p.getClienteId() == 20L), any(), any());
+        }
+    }
+
+    @Test
+    void deveIdentificarSoOContainerDoTopicoPrincipalPeloIdDoListener() {
+        MessageListenerContainer principal = registry.getListenerContainer(PedidoConsumer.LISTENER_UNITARIO);
+
+        assertArrayEquals(new String[]{"novo-pedido"}, principal.getContainerProperties().getTopics());
+        assertEquals("pedido-service", principal.getGroupId());
+        assertEquals(1, registry.getListenerContainers().stream()
+                .filter(container -> PedidoConsumer.LISTENERS_NOVO_PEDIDO.contains(container.getListenerId())
+                        && container.isRunning())
+                .count());
+    }
+
+    @Test
+    void deveEnviarMensagemInvalidaDiretoParaDlt() {
+        byte[] invalida = "{ isto não é um pedido".getBytes(StandardCharsets.UTF_8);
+
+        try (Consumer<String, byte[]> dlt = consumidorDaDlt("teste-dlt-invalida")) {
+            pedidoKafkaTemplate.send(new ProducerRecord<>("novo-pedido", "30", invalida));
+
+            ConsumerRecord<String, byte[]> registro = lerDaDlt(dlt, "30");
+
+            assertArrayEquals(invalida, registro.value());
+            assertEquals("novo-pedido", texto(registro, KafkaHeaders.ORIGINAL_TOPIC));
+            verify(servicoExternoAdapter, never()).consultarCliente("30");
+        }
+    }
+
+    @Test
+    void deveProcessarPedidoEmFormatoBinario() {
+        Headers headers = new RecordHeaders();
+        byte[] binario = new PedidoRequestSerializer(FormatoMensagem.BINARIO).serialize("novo-pedido", headers, criarPedido(40L));
+
+        pedidoKafkaTemplate.send(new ProducerRecord<>("novo-pedido", null, "40", binario, headers));
+
+        verify(pedidoUseCase, timeout(ESPERA.toMillis()))
+                .registrarPedido(argThat(p -> p.getClienteId() == 40L), eq(StatusPedido.FECHADO_COM_SUCESSO), any());
+    }
+
+    private Consumer<String, byte[]> consumidorDaDlt(String grupo) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps(grupo, "false", broker);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        Consumer<String, byte[]> consumidor = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new ByteArrayDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(consumidor, "novo-pedido-dlt");
+        return consumidor;
+    }
+
+    private static ConsumerRecord<String, byte[]> lerDaDlt(Consumer<String, byte[]> dlt, String chave) {
+        long limite = System.nanoTime() + ESPERA.toNanos();
+        while (System.nanoTime() < limite) {
+            for (ConsumerRecord<String, byte[]> registro : KafkaTestUtils.getRecords(dlt, Duration.ofMillis(500), 1)) {
+                if (chave.equals(registro.key())) {
+                    return registro;
+                }
+            }
+        }
+        return fail("Pedido " + chave + " não chegou à DLT");
+    }
+
+    private static String texto(ConsumerRecord<?, ?> registro, String header) {
+        assertNotNull(registro.headers().lastHeader(header), "Header " + header + " ausente: " + registro.headers());
+        return new String(registro.headers().lastHeader(header).value(), StandardCharsets.UTF_8);
+    }
+
+    private static PedidoRequestDTO criarPedido(long clienteId) {
+        return PedidoRequestDTO.builder()
+                .clienteId(clienteId)
+                .dadosPagamento(DadosPagamentoRequestDTO.builder().numeroCartao("1234567890123456").build())
+                .itens(List.of(ItemPedidoRequestDTO.builder().produtoId("SKU001").quantidade(1).build()))
+                .build();
+    }
+}
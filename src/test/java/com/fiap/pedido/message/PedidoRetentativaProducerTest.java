@@ -0,0 +1,88 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.enuns.EtapaPedido;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PedidoRetentativaProducerTest {
+
+    private static final Instant AGORA = Instant.parse("2024-06-01T10:00:00Z");
+
+    @Mock
+    private KafkaTemplate<String, Object> pedidoKafkaTemplate;
+
+    private PedidoRetentativaProducer producer;
+    private ConsumerRecord<String, PedidoRequestDTO> registro;
+    private FalhaProcessamentoPedidoException falha;
+
+    @BeforeEach
+    void setUp() {
+        producer = new PedidoRetentativaProducer(pedidoKafkaTemplate, 1000, Duration.ofMillis(50),
+                Clock.fixed(AGORA, ZoneOffset.UTC));
+        registro = new ConsumerRecord<>("novo-pedido", 3, 42L, "pedido-1", PedidoRequestDTO.builder().clienteId(1L).build());
+        ProgressoPedido progresso = new ProgressoPedido();
+        progresso.avancar(EtapaPedido.PAGAMENTO);
+        falha = new FalhaProcessamentoPedidoException(progresso, new RuntimeException("Timeout"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deveReenviarAoPrimeiroTopicoDeRetentativaComHeadersDoRetryableTopic() {
+        when(pedidoKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        producer.enviar(registro, falha);
+
+        ArgumentCaptor<ProducerRecord<String, Object>> enviado = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(pedidoKafkaTemplate).send(enviado.capture());
+        ProducerRecord<String, Object> reenvio = enviado.getValue();
+        assertEquals("novo-pedido-retry-0", reenvio.topic());
+        assertEquals("pedido-1", reenvio.key());
+        assertSame(registro.value(), reenvio.value());
+        assertEquals(EtapaPedido.PAGAMENTO, ProgressoPedido.lerDe(reenvio.headers()).getEtapa());
+        assertEquals(2, ByteBuffer.wrap(valor(reenvio, RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS)).getInt());
+        assertEquals(AGORA.toEpochMilli() + 1000,
+                new BigInteger(valor(reenvio, RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP)).longValue());
+        assertEquals("novo-pedido", new String(valor(reenvio, KafkaHeaders.ORIGINAL_TOPIC), StandardCharsets.UTF_8));
+        assertEquals(3, ByteBuffer.wrap(valor(reenvio, KafkaHeaders.ORIGINAL_PARTITION)).getInt());
+        assertEquals(42L, ByteBuffer.wrap(valor(reenvio, KafkaHeaders.ORIGINAL_OFFSET)).getLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deveLancarExcecaoQuandoBrokerRecusaReenvio() {
+        when(pedidoKafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("Broker indisponível")));
+
+        assertThrows(IllegalStateException.class, () -> producer.enviar(registro, falha));
+    }
+
+    private static byte[] valor(ProducerRecord<?, ?> registro, String header) {
+        assertNotNull(registro.headers().lastHeader(header), "Header " + header + " ausente");
+        return registro.headers().lastHeader(header).value();
+    }
+}
@@ -0,0 +1,90 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.domain.PedidoStatusAlterado;
+import com.fiap.pedido.enuns.StatusPedido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PedidoStatusProducerTest {
+
+    @Mock
+    private KafkaTemplate<String, PedidoStatusAlterado> statusKafkaTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PedidoStatusProducer producer;
+    private PedidoStatusAlterado evento;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        producer = new PedidoStatusProducer(statusKafkaTemplate, "pedido-status-alterado", true, meterRegistry);
+        evento = PedidoStatusAlterado.builder()
+                .pedidoId(42L)
+                .statusAnterior(StatusPedido.ABERTO)
+                .statusAtual(StatusPedido.FECHADO_COM_SUCESSO)
+                .ocorridoEm(Instant.now())
+                .build();
+    }
+
+    @Test
+    void devePublicarComIdDoPedidoComoChave() {
+        when(statusKafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<Void> envio = producer.publicarStatusAlterado(evento);
+
+        assertTrue(envio.isDone() && !envio.isCompletedExceptionally());
+        verify(statusKafkaTemplate).send("pedido-status-alterado", "42", evento);
+        assertEquals(1.0, contador("sucesso"));
+    }
+
+    @Test
+    void deveCompletarEnvioSomenteComConfirmacaoDoBroker() {
+        CompletableFuture<SendResult<String, PedidoStatusAlterado>> pendente = new CompletableFuture<>();
+        when(statusKafkaTemplate.send(anyString(), anyString(), any())).thenReturn(pendente);
+
+        CompletableFuture<Void> envio = producer.publicarStatusAlterado(evento);
+        assertFalse(envio.isDone());
+
+        pendente.completeExceptionally(new TimeoutException("Broker indisponível"));
+        assertTrue(envio.isCompletedExceptionally());
+        assertEquals(1.0, contador("falha"));
+    }
+
+    @Test
+    void naoDevePropagarFalhaAoEnviar() {
+        when(statusKafkaTemplate.send(anyString(), anyString(), any())).thenThrow(new TimeoutException("max.block.ms"));
+
+        CompletableFuture<Void> envio = assertDoesNotThrow(() -> producer.publicarStatusAlterado(evento));
+        assertTrue(envio.isCompletedExceptionally());
+        assertEquals(1.0, contador("falha"));
+    }
+
+    @Test
+    void naoDevePublicarQuandoDesabilitado() {
+        PedidoStatusProducer desabilitado = new PedidoStatusProducer(statusKafkaTemplate, "pedido-status-alterado", false,
+                meterRegistry);
+
+        assertTrue(desabilitado.publicarStatusAlterado(evento).isDone());
+
+        verifyNoInteractions(statusKafkaTemplate);
+    }
+
+    private double contador(String resultado) {
+        return meterRegistry.get(PedidoStatusProducer.METRICA_PUBLICADOS).tag("resultado", resultado).counter().count();
+    }
+}
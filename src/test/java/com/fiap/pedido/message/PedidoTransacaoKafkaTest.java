@@ -0,0 +1,269 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.adapter.ServicoExternoMockAdapter;
+import com.fiap.pedido.cache.ProdutoCache;
+import com.fiap.pedido.config.kafka.KafkaConfig;
+import com.fiap.pedido.config.kafka.RetentativaKafkaConfig;
+import com.fiap.pedido.dto.ClienteDTO;
+import com.fiap.pedido.dto.ProdutoDTO;
+import com.fiap.pedido.dto.StatusPagamentoDTO;
+import com.fiap.pedido.dto.request.DadosPagamentoRequestDTO;
+import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.usecase.service.PedidoUseCaseImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Garantia EXATAMENTE_UMA_VEZ com broker embutido: resultado publicado, reenvio para retentativa e offset
+ * na mesma transação Kafka, com os serviços externos e a gravação simulados.
+ */
+@SpringJUnitConfig
+@DirtiesContext
+@EmbeddedKafka(partitions = 1, bootstrapServersProperty = "spring.kafka.bootstrap-servers",
+        topics = {"novo-pedido", "novo-pedido-retry-0", "novo-pedido-retry-1", "novo-pedido-dlt", "pedido-processado"},
+        brokerProperties = {"transaction.state.log.replication.factor=1", "transaction.state.log.min.isr=1"})
+@TestPropertySource(properties = {
+        "pedido.kafka.garantia-entrega=EXATAMENTE_UMA_VEZ",
+        "pedido.kafka.retentativa.tentativas=3",
+        "pedido.kafka.retentativa.atraso-inicial=100",
+        "pedido.kafka.retentativa.multiplicador=2.0",
+        "pedido.kafka.retentativa.atraso-maximo=500"
+})
+class PedidoTransacaoKafkaTest {
+
+    private static final Duration ESPERA = Duration.ofSeconds(30);
+
+    @Configuration
+    @Import({KafkaConfig.class, RetentativaKafkaConfig.class, PedidoConsumer.class, PedidoResultadoProducer.class,
+            ExecutorItensPedido.class})
+    static class Config {
+
+        /**
+         * Conversão de PT10S em Duration nos @Value, como no contexto do Spring Boot
+         */
+        @Bean
+        static ConversionService conversionService() {
+            return new ApplicationConversionService();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockBean
+    private PedidoUseCaseImpl pedidoUseCase;
+
+    @MockBean
+    private ServicoExternoMockAdapter servicoExternoAdapter;
+
+    @MockBean
+    private ExecutorPorChave executorPorChave;
+
+    @MockBean
+    private IdempotenciaConsumo idempotenciaConsumo;
+
+    @MockBean
+    private ContrapressaoConsumo contrapressaoConsumo;
+
+    @MockBean
+    private ProdutoCache produtoCache;
+
+    @MockBean
+    private PedidoRetentativaProducer pedidoRetentativaProducer;
+
+    @Autowired
+    private KafkaTemplate<String, Object> pedidoKafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @BeforeEach
+    void aguardarParticoes() {
+        iniciarContainersParados();
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setNome("Cliente Teste");
+        ProdutoDTO produto = new ProdutoDTO();
+        produto.setPreco(100.0);
+        StatusPagamentoDTO pagamento = new StatusPagamentoDTO();
+        pagamento.setStatus("APROVADO");
+        pagamento.setPagamentoId("PAG1");
+        when(servicoExternoAdapter.consultarCliente(anyString())).thenReturn(cliente);
+        when(servicoExternoAdapter.consultarProduto(anyString())).thenReturn(produto);
+        when(servicoExternoAdapter.reservarEstoque(anyMap())).thenReturn(Optional.of("SKU001-1"));
+        when(servicoExternoAdapter.processarPagamento(anyString(), anyDouble())).thenReturn(pagamento);
+        when(servicoExternoAdapter.baixarEstoque(anyString())).thenReturn(true);
+        when(idempotenciaConsumo.chave(anyString(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(produtoCache.buscar(anyString())).thenAnswer(invocacao ->
+                Optional.ofNullable(servicoExternoAdapter.consultarProduto(invocacao.getArgument(0))));
+    }
+
+    /**
+     * Queda depois de publicar o resultado e antes do commit: a transação aborta, o registro é entregue de novo,
+     * encontra o pedido já gravado e publica o resultado gravado. Quem lê só o commitado vê um único resultado.
+     */
+    @Test
+    void devePublicarResultadoUmaUnicaVezQuandoConsumoCaiAntesDoCommit() throws Exception {
+        PedidoResponseDTO gravado = PedidoResponseDTO.builder().id(71L).status("FECHADO_COM_SUCESSO").build();
+        when(idempotenciaConsumo.isDuplicado("pedido-71")).thenReturn(false, true);
+        when(pedidoUseCase.registrarPedido(any(), any(), eq("pedido-71"))).thenReturn(gravado);
+        when(pedidoUseCase.consultarPedidoPorChaveIdempotencia("pedido-71")).thenReturn(Optional.of(gravado));
+        doThrow(new QuedaSimulada()).doNothing().when(contrapressaoConsumo).concluir(1);
+
+        try (Consumer<String, String> confirmados = consumidorDeResultados("resultados-committed", "read_committed");
+             Consumer<String, String> todos = consumidorDeResultados("resultados-uncommitted", "read_uncommitted")) {
+            enviar("pedido-71", criarPedido(71L));
+
+            verify(pedidoUseCase, timeout(ESPERA.toMillis())).registrarPedido(any(), any(), eq("pedido-71"));
+            aguardarQueda();
+            iniciarContainersParados();
+
+            verify(pedidoUseCase, timeout(ESPERA.toMillis())).consultarPedidoPorChaveIdempotencia("pedido-71");
+            assertEquals(1, lerResultados(confirmados, "71", 1).size());
+            assertEquals(2, lerResultados(todos, "71", 2).size());
+            verify(pedidoUseCase, times(1)).registrarPedido(any(), any(), eq("pedido-71"));
+        }
+    }
+
+    /**
+     * Falha de etapa: o reenvio para o tópico de retentativa é commitado junto com o offset, e o resultado sai
+     * só da tentativa que gravou o pedido
+     */
+    @Test
+    void deveCommitarReenvioParaRetentativaNaTransacaoDoRegistro() throws Exception {
+        PedidoResponseDTO gravado = PedidoResponseDTO.builder().id(72L).status("FECHADO_COM_SUCESSO").build();
+        StatusPagamentoDTO aprovado = new StatusPagamentoDTO();
+        aprovado.setStatus("APROVADO");
+        aprovado.setPagamentoId("PAG72");
+        ProdutoDTO produto = new ProdutoDTO();
+        produto.setPreco(72.0);
+        when(servicoExternoAdapter.consultarProduto("SKU72")).thenReturn(produto);
+        when(servicoExternoAdapter.processarPagamento(anyString(), eq(72.0)))
+                .thenThrow(new RuntimeException("Timeout no pagamento"))
+                .thenReturn(aprovado);
+        when(pedidoUseCase.registrarPedido(any(), any(), eq("pedido-72"))).thenReturn(gravado);
+
+        try (Consumer<String, String> confirmados = consumidorDeResultados("resultados-retentativa", "read_committed")) {
+            PedidoRequestDTO pedido = criarPedido(72L);
+            enviar("pedido-72", pedido);
+
+            assertEquals(1, lerResultados(confirmados, "72", 1).size());
+            verify(servicoExternoAdapter, times(2)).processarPagamento(anyString(), eq(72.0));
+            verify(pedidoUseCase, times(1)).registrarPedido(any(), any(), eq("pedido-72"));
+        }
+    }
+
+    private void enviar(String chave, PedidoRequestDTO pedido) {
+        pedidoKafkaTemplate.executeInTransaction(template -> template.send("novo-pedido", chave, pedido));
+    }
+
+    private void aguardarQueda() throws InterruptedException {
+        long limite = System.nanoTime() + ESPERA.toNanos();
+        while (registry.getListenerContainers().stream().allMatch(c -> !c.isAutoStartup() || c.isRunning())) {
+            assertTrue(System.nanoTime() < limite, "Nenhum container parou com a queda simulada");
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Um Error não passa pelo tratamento de erro do container: a transação aborta e o consumidor para, como em uma queda
+     */
+    private void iniciarContainersParados() {
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (container.isAutoStartup() && !container.isRunning()) {
+                container.start();
+            }
+            if (container.isRunning()) {
+                ContainerTestUtils.waitForAssignment(container, broker.getPartitionsPerTopic());
+            }
+        }
+    }
+
+    private Consumer<String, String> consumidorDeResultados(String grupo, String isolamento) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps(grupo, "false", broker);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, isolamento);
+        Consumer<String, String> consumidor = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new StringDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(consumidor, "pedido-processado");
+        return consumidor;
+    }
+
+    /**
+     * Lê até o tempo de espera ou até passar do esperado: depois de atingir o esperado, continua lendo por mais um
+     * intervalo para que uma publicação a mais apareça na contagem
+     */
+    private static List<ConsumerRecord<String, String>> lerResultados(Consumer<String, String> consumidor, String chave,
+                                                                      int esperados) {
+        List<ConsumerRecord<String, String>> resultados = new ArrayList<>();
+        long limite = System.nanoTime() + ESPERA.toNanos();
+        while (System.nanoTime() < limite && resultados.size() < esperados) {
+            for (ConsumerRecord<String, String> registro : KafkaTestUtils.getRecords(consumidor, Duration.ofMillis(500), 1)) {
+                if (chave.equals(registro.key())) {
+                    resultados.add(registro);
+                }
+            }
+        }
+        for (ConsumerRecord<String, String> registro : KafkaTestUtils.getRecords(consumidor, Duration.ofSeconds(2), 1)) {
+            if (chave.equals(registro.key())) {
+                resultados.add(registro);
+            }
+        }
+        return resultados;
+    }
+
+    private static PedidoRequestDTO criarPedido(long clienteId) {
+        return PedidoRequestDTO.builder()
+                .clienteId(clienteId)
+                .dadosPagamento(DadosPagamentoRequestDTO.builder().numeroCartao("1234567890123456").build())
+                .itens(List.of(ItemPedidoRequestDTO.builder().produtoId("SKU" + clienteId).quantidade(1).build()))
+                .build();
+    }
+
+    private static class QuedaSimulada extends Error {
+
+        QuedaSimulada() {
+            super("Queda simulada antes do commit");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.fiap.pedido.message;
+
+import com.fiap.pedido.enuns.EtapaPedido;
+import com.fiap.pedido.enuns.StatusPedido;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgressoPedidoTest {
+
+    @Test
+    void deveComecarDoInicioSemHeaders() {
+        ProgressoPedido progresso = ProgressoPedido.lerDe(new RecordHeaders());
+
+        assertEquals(EtapaPedido.CLIENTE, progresso.getEtapa());
+        assertFalse(progresso.isRetomada());
+        assertNull(progresso.getStatusFinal());
+    }
+
+    @Test
+    void deveLerOProgressoGravadoNosHeaders() {
+        ProgressoPedido progresso = new ProgressoPedido();
+        progresso.somarValor(150.5);
+        progresso.registrarReservaEstoque("SKU001-7");
+        progresso.registrarPagamento("PAG1");
+        progresso.avancar(EtapaPedido.BAIXA_ESTOQUE);
+
+        ProgressoPedido lido = ProgressoPedido.lerDe(progresso.paraHeaders());
+
+        assertEquals(EtapaPedido.BAIXA_ESTOQUE, lido.getEtapa());
+        assertEquals(150.5, lido.getValorTotal());
+        assertEquals("SKU001-7", lido.getReservaEstoqueId());
+        assertEquals("PAG1", lido.getPagamentoId());
+        assertTrue(lido.isRetomada());
+    }
+
+    @Test
+    void deveValerOUltimoHeaderQuandoHaVariasRetentativas() {
+        ProgressoPedido primeira = new ProgressoPedido();
+        primeira.avancar(EtapaPedido.PAGAMENTO);
+        ProgressoPedido segunda = new ProgressoPedido();
+        segunda.encerrar(StatusPedido.FECHADO_SEM_CREDITO, EtapaPedido.ESTORNO_ESTOQUE);
+        Headers headers = new RecordHeaders();
+        primeira.paraHeaders().forEach(headers::add);
+        segunda.paraHeaders().forEach(headers::add);
+
+        ProgressoPedido lido = ProgressoPedido.lerDe(headers);
+
+        assertEquals(EtapaPedido.ESTORNO_ESTOQUE, lido.getEtapa());
+        assertEquals(StatusPedido.FECHADO_SEM_CREDITO, lido.getStatusFinal());
+    }
+
+    @Test
+    void deveIgnorarHeadersDeItensConcluidosGravadosPorVersoesAnteriores() {
+        Headers headers = new RecordHeaders();
+        headers.add(ProgressoPedido.HEADER_ETAPA, "BAIXA_ESTOQUE".getBytes(StandardCharsets.UTF_8));
+        headers.add("pedido-itens-concluidos", "2".getBytes(StandardCharsets.UTF_8));
+        headers.add("pedido-itens-concluidos-indices", "0,1".getBytes(StandardCharsets.UTF_8));
+        headers.add(ProgressoPedido.HEADER_VALOR_TOTAL, "10.0".getBytes(StandardCharsets.UTF_8));
+
+        ProgressoPedido lido = ProgressoPedido.lerDe(headers);
+
+        assertEquals(EtapaPedido.BAIXA_ESTOQUE, lido.getEtapa());
+        assertEquals(10.0, lido.getValorTotal());
+    }
+}
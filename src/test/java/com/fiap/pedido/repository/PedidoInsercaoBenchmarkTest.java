@@ -0,0 +1,180 @@
+package com.fiap.pedido.repository;
+
+import com.fiap.pedido.adapter.PedidoRepositoryAdapter;
+import com.fiap.pedido.cache.PedidoCache;
+import com.fiap.pedido.config.datasource.EscritasRecentes;
+import com.fiap.pedido.domain.Pedido;
+import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.entity.ItemPedidoEntity;
+import com.fiap.pedido.entity.PedidoEntity;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.estatistica.PedidoEstatisticas;
+import com.fiap.pedido.mapper.PedidoMapper;
+import com.fiap.pedido.mapper.PedidoMapperImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.BaseSessionEventListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mede as idas ao banco (statements + batches JDBC executados) por pedido gravado.
+ * Com IDENTITY eram 1 + N idas por pedido com N itens (11,0 neste cenário); com sequence pooled
+ * e batch JDBC são 2 batches por pedido (pedido + itens) mais as chamadas de sequence amortizadas (~2,2).
+ * Gravando o lote inteiro em um único flush (modo lote do consumer) os batches cobrem vários pedidos (~0,45 por pedido).
+ * Pedidos vindos do Kafka com ID no payload também seguem por esse caminho: sem ID na entidade não há SELECT de merge.
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session.events.auto=com.fiap.pedido.repository.PedidoInsercaoBenchmarkTest$ContadorIdasAoBanco",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.orm.jdbc.bind=INFO"
+})
+class PedidoInsercaoBenchmarkTest {
+
+    private static final int PEDIDOS = 200;
+    private static final int ITENS_POR_PEDIDO = 10;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PedidoOutboxRepository pedidoOutboxRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void deveMedirIdasAoBancoPorPedido() {
+        ContadorIdasAoBanco.zerar();
+
+        for (int i = 0; i < PEDIDOS; i++) {
+            pedidoRepository.save(criarPedido(i));
+            entityManager.flush();
+            entityManager.clear();
+        }
+
+        double idasPorPedido = (double) ContadorIdasAoBanco.total() / PEDIDOS;
+        log.info("📊 Pedidos: {} | Itens/pedido: {} | Statements: {} | Batches: {} | Idas ao banco por pedido: {}",
+                PEDIDOS, ITENS_POR_PEDIDO, ContadorIdasAoBanco.STATEMENTS.get(), ContadorIdasAoBanco.BATCHES.get(), idasPorPedido);
+
+        assertTrue(idasPorPedido < 3, "Esperado no máximo 3 idas ao banco por pedido, obtido " + idasPorPedido);
+    }
+
+    @Test
+    void deveMedirIdasAoBancoPorPedidoGravadoEmLote() {
+        List<PedidoEntity> lote = new ArrayList<>();
+        for (int i = 0; i < PEDIDOS; i++) {
+            lote.add(criarPedido(i));
+        }
+        ContadorIdasAoBanco.zerar();
+
+        pedidoRepository.saveAll(lote);
+        entityManager.flush();
+        entityManager.clear();
+
+        double idasPorPedido = (double) ContadorIdasAoBanco.total() / PEDIDOS;
+        log.info("📊 Lote de {} pedidos | Itens/pedido: {} | Statements: {} | Batches: {} | Idas ao banco por pedido: {}",
+                PEDIDOS, ITENS_POR_PEDIDO, ContadorIdasAoBanco.STATEMENTS.get(), ContadorIdasAoBanco.BATCHES.get(), idasPorPedido);
+
+        assertTrue(idasPorPedido < 1, "Esperado menos de 1 ida ao banco por pedido no lote, obtido " + idasPorPedido);
+    }
+
+    @Test
+    void deveGravarLoteComIdsNoPayloadSemConsultaPorPedido() {
+        PedidoMapper pedidoMapper = new PedidoMapperImpl();
+        PedidoRepositoryAdapter adapter = new PedidoRepositoryAdapter(pedidoRepository, pedidoMapper,
+                entityManager.getEntityManager(), new PedidoCache(0, Duration.ZERO, new SimpleMeterRegistry()),
+                new PedidoEstatisticas(pedidoRepository), new EscritasRecentes(Duration.ZERO), pedidoOutboxRepository);
+        List<Pedido> lote = new ArrayList<>();
+        for (int i = 0; i < PEDIDOS; i++) {
+            Pedido pedido = pedidoMapper.toDomain(criarRequest(i));
+            pedido.setStatus(StatusPedido.FECHADO_COM_SUCESSO);
+            pedido.setDataCriacao(LocalDateTime.now());
+            lote.add(pedido);
+        }
+        ContadorIdasAoBanco.zerar();
+
+        adapter.saveAll(lote);
+        entityManager.flush();
+        entityManager.clear();
+
+        double idasPorPedido = (double) ContadorIdasAoBanco.total() / PEDIDOS;
+        log.info("📊 Lote de {} pedidos com ID no payload | Statements: {} | Batches: {} | Idas ao banco por pedido: {}",
+                PEDIDOS, ContadorIdasAoBanco.STATEMENTS.get(), ContadorIdasAoBanco.BATCHES.get(), idasPorPedido);
+
+        // Só as chamadas de sequence são statements avulsos; um merge custaria um SELECT por pedido
+        assertTrue(ContadorIdasAoBanco.STATEMENTS.get() < PEDIDOS,
+                "Esperado sem SELECT por pedido, obtidos " + ContadorIdasAoBanco.STATEMENTS.get() + " statements");
+        assertTrue(idasPorPedido < 1, "Esperado menos de 1 ida ao banco por pedido no lote, obtido " + idasPorPedido);
+        assertEquals(PEDIDOS, pedidoRepository.count());
+    }
+
+    private PedidoRequestDTO criarRequest(int indice) {
+        List<ItemPedidoRequestDTO> itens = new ArrayList<>();
+        for (int i = 0; i < ITENS_POR_PEDIDO; i++) {
+            itens.add(ItemPedidoRequestDTO.builder().produtoId("SKU" + i).quantidade(1).build());
+        }
+        return PedidoRequestDTO.builder()
+                .id(1_000L + indice)
+                .clienteId((long) indice % 10)
+                .itens(itens)
+                .build();
+    }
+
+    private PedidoEntity criarPedido(int indice) {
+        PedidoEntity pedido = PedidoEntity.builder()
+                .clienteId((long) indice % 10)
+                .status(StatusPedido.ABERTO)
+                .dataCriacao(LocalDateTime.now())
+                .itens(new ArrayList<>())
+                .build();
+        for (int i = 0; i < ITENS_POR_PEDIDO; i++) {
+            pedido.getItens().add(ItemPedidoEntity.builder()
+                    .produtoId("SKU" + i)
+                    .quantidade(1)
+                    .precoUnitario(100.0)
+                    .pedido(pedido)
+                    .build());
+        }
+        return pedido;
+    }
+
+    public static class ContadorIdasAoBanco extends BaseSessionEventListener {
+
+        static final AtomicLong STATEMENTS = new AtomicLong();
+        static final AtomicLong BATCHES = new AtomicLong();
+
+        static void zerar() {
+            STATEMENTS.set(0);
+            BATCHES.set(0);
+        }
+
+        static long total() {
+            return STATEMENTS.get() + BATCHES.get();
+        }
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            STATEMENTS.incrementAndGet();
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            BATCHES.incrementAndGet();
+        }
+    }
+}
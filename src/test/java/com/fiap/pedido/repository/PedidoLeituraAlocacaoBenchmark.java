@@ -0,0 +1,60 @@
+package com.fiap.pedido.repository;
+
+import com.fiap.pedido.adapter.PedidoRepositoryAdapter;
+import com.fiap.pedido.domain.PedidoFiltro;
+import com.fiap.pedido.domain.PedidoPagina;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.mapper.PedidoMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura de um pedido por ID e de uma página de 20 pedidos, pelo caminho entidade → domínio → resposta
+ * e pela projeção direta em PedidoResponseDTO. Executado pelo PedidoLeituraAlocacaoBenchmarkTest, que sobe o
+ * contexto JPA e preenche os campos estáticos (o JMH roda sem fork, na mesma JVM do teste).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PedidoLeituraAlocacaoBenchmark {
+
+    static final int TAMANHO_PAGINA = 20;
+
+    static PedidoRepository pedidoRepository;
+    static PedidoMapper pedidoMapper;
+    static PedidoRepositoryAdapter adapter;
+    static Long idConsulta;
+
+    @Benchmark
+    public PedidoResponseDTO consultaEntidade() {
+        return pedidoMapper.toResponse(pedidoMapper.toDomain(pedidoRepository.findByIdWithItens(idConsulta).orElseThrow()));
+    }
+
+    @Benchmark
+    public PedidoResponseDTO consultaProjecao() {
+        return adapter.findResponseById(idConsulta).orElseThrow();
+    }
+
+    @Benchmark
+    public List<PedidoResponseDTO> paginaEntidade() {
+        List<Long> ids = pedidoRepository.findIdsPagina(new PedidoFiltro(), null, TAMANHO_PAGINA + 1)
+                .subList(0, TAMANHO_PAGINA);
+        List<PedidoResponseDTO> pedidos = new ArrayList<>(TAMANHO_PAGINA);
+        pedidoRepository.findAllWithItensByIdIn(ids)
+                .forEach(entity -> pedidos.add(pedidoMapper.toResponse(pedidoMapper.toDomain(entity))));
+        return pedidos;
+    }
+
+    @Benchmark
+    public PedidoPagina paginaProjecao() {
+        return adapter.findPagina(new PedidoFiltro(), null, TAMANHO_PAGINA);
+    }
+}
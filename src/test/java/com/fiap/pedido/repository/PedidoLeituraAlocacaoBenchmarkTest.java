@@ -0,0 +1,148 @@
+package com.fiap.pedido.repository;
+
+import com.fiap.pedido.adapter.PedidoRepositoryAdapter;
+import com.fiap.pedido.cache.PedidoCache;
+import com.fiap.pedido.config.datasource.EscritasRecentes;
+import com.fiap.pedido.entity.ItemPedidoEntity;
+import com.fiap.pedido.entity.PedidoEntity;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.estatistica.PedidoEstatisticas;
+import com.fiap.pedido.mapper.PedidoMapper;
+import com.fiap.pedido.mapper.PedidoMapperImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Roda o PedidoLeituraAlocacaoBenchmark (JMH com -prof gc) e compara os bytes alocados por requisição de leitura
+ * (gc.alloc.rate.norm) entre o caminho entidade → domínio → resposta e a projeção direta em PedidoResponseDTO.
+ * Só roda quando pedido: mvn test -Dtest=PedidoLeituraAlocacaoBenchmarkTest -Djmh=true
+ * Referência (H2, 10 itens por pedido, contexto de persistência aberto a cada leitura):
+ * consulta ~66 KB → ~57 KB; página de 20 ~340 KB → ~257 KB.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "jmh", matches = "true")
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.orm.jdbc.bind=INFO",
+        "logging.level.com.fiap=WARN",
+        "logging.level.com.fiap.pedido.repository=INFO"
+})
+// Sem a transação do teste: os dados precisam estar commitados para a thread do JMH, e cada leitura abre o próprio
+// contexto de persistência, como uma requisição HTTP
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PedidoLeituraAlocacaoBenchmarkTest {
+
+    private static final int PEDIDOS = 60;
+    private static final int ITENS_POR_PEDIDO = 10;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PedidoOutboxRepository pedidoOutboxRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        List<PedidoEntity> pedidos = new ArrayList<>();
+        for (int i = 0; i < PEDIDOS; i++) {
+            pedidos.add(criarPedido(i));
+        }
+        List<PedidoEntity> gravados = pedidoRepository.saveAll(pedidos);
+
+        // Cache de tamanho zero: toda consulta vai ao banco, medindo apenas a projeção
+        PedidoMapper pedidoMapper = new PedidoMapperImpl();
+        PedidoCache semCache = new PedidoCache(0, Duration.ZERO, new SimpleMeterRegistry());
+        PedidoLeituraAlocacaoBenchmark.pedidoRepository = pedidoRepository;
+        PedidoLeituraAlocacaoBenchmark.pedidoMapper = pedidoMapper;
+        PedidoLeituraAlocacaoBenchmark.adapter = new PedidoRepositoryAdapter(pedidoRepository, pedidoMapper, entityManager,
+                semCache, new PedidoEstatisticas(pedidoRepository), new EscritasRecentes(Duration.ZERO), pedidoOutboxRepository);
+        PedidoLeituraAlocacaoBenchmark.idConsulta = gravados.get(gravados.size() - 1).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pedidoRepository.deleteAll();
+    }
+
+    @Test
+    void deveAlocarMenosPorRequisicaoComProjecaoDireta() throws Exception {
+        // Sem fork: o benchmark usa os beans deste contexto e o surefire monta o classpath por manifest
+        Options opcoes = new OptionsBuilder()
+                .include(PedidoLeituraAlocacaoBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .build();
+
+        Collection<RunResult> resultados = new Runner(opcoes).run();
+        Map<String, Double> bytesPorRequisicao = resultados.stream().collect(Collectors.toMap(
+                r -> r.getParams().getBenchmark().replaceAll(".*\\.", ""),
+                r -> alocacaoPorOperacao(r).getScore()));
+        log.info("📊 Bytes alocados por requisição (gc.alloc.rate.norm): {}", bytesPorRequisicao);
+
+        assertTrue(bytesPorRequisicao.get("consultaProjecao") < bytesPorRequisicao.get("consultaEntidade"),
+                "Projeção deveria alocar menos na consulta por ID: " + bytesPorRequisicao);
+        assertTrue(bytesPorRequisicao.get("paginaProjecao") < bytesPorRequisicao.get("paginaEntidade"),
+                "Projeção deveria alocar menos na listagem: " + bytesPorRequisicao);
+    }
+
+    private Result<?> alocacaoPorOperacao(RunResult resultado) {
+        return resultado.getSecondaryResults().entrySet().stream()
+                .filter(e -> e.getKey().endsWith("gc.alloc.rate.norm"))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("GCProfiler não reportou gc.alloc.rate.norm"));
+    }
+
+    private PedidoEntity criarPedido(int indice) {
+        PedidoEntity pedido = PedidoEntity.builder()
+                .clienteId((long) indice % 10)
+                .status(StatusPedido.ABERTO)
+                .dataCriacao(LocalDateTime.now().minusMinutes(indice))
+                .itens(new ArrayList<>())
+                .build();
+        for (int i = 0; i < ITENS_POR_PEDIDO; i++) {
+            pedido.getItens().add(ItemPedidoEntity.builder()
+                    .produtoId("SKU" + i)
+                    .quantidade(1)
+                    .precoUnitario(100.0)
+                    .pedido(pedido)
+                    .build());
+        }
+        return pedido;
+    }
+}
@@ -0,0 +1,132 @@
+package com.fiap.pedido.repository;
+
+import com.fiap.pedido.entity.PedidoOutboxEntity;
+import com.fiap.pedido.enuns.StatusPedido;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sem a transação de teste: o relay trava e exclui em transações próprias
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PedidoOutboxRepositoryTest {
+
+    @Autowired
+    private PedidoOutboxRepository pedidoOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transacao;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transacao = new TransactionTemplate(transactionManager);
+        for (long pedidoId = 1; pedidoId <= 4; pedidoId++) {
+            ids.add(salvar(pedidoId));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pedidoOutboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void deveTravarOsEventosMaisAntigosAteOLimite() {
+        List<Long> travados = transacao.execute(status -> pedidoOutboxRepository.travarPendentes(Instant.now(), Limit.of(3))
+                .stream().map(PedidoOutboxEntity::getId).toList());
+
+        assertEquals(ids.subList(0, 3), travados);
+    }
+
+    /**
+     * O H2 ignora o SKIP LOCKED (gera só FOR UPDATE); confere o SQL que a trava da consulta gera no PostgreSQL
+     */
+    @Test
+    void deveTravarComSkipLockedNoPostgreSQL() throws Exception {
+        QueryHints hints = PedidoOutboxRepository.class.getMethod("travarPendentes", Instant.class, Limit.class).getAnnotation(QueryHints.class);
+        int timeout = Integer.parseInt(hints.value()[0].value());
+        PostgreSQLDialect postgreSQL = new PostgreSQLDialect();
+
+        assertEquals("jakarta.persistence.lock.timeout", hints.value()[0].name());
+        assertEquals(postgreSQL.getForUpdateSkipLockedString(), postgreSQL.getWriteLockString(timeout));
+        assertEquals(" for update skip locked", postgreSQL.getWriteLockString(timeout));
+    }
+
+    @Test
+    void devePularEventosReservadosAteAReservaVencer() {
+        Instant agora = Instant.now();
+        transacao.executeWithoutResult(status -> {
+            pedidoOutboxRepository.reservar(ids.subList(0, 1), "outra-instancia", agora.plusSeconds(30));
+            pedidoOutboxRepository.reservar(ids.subList(1, 2), "instancia-que-caiu", agora.minusSeconds(1));
+        });
+
+        List<Long> travados = transacao.execute(status -> pedidoOutboxRepository.travarPendentes(agora, Limit.of(10))
+                .stream().map(PedidoOutboxEntity::getId).toList());
+
+        assertEquals(ids.subList(1, 4), travados);
+    }
+
+    @Test
+    void deveLiberarSoEventosReservadosPelaInstancia() {
+        Instant ate = Instant.now().plusSeconds(30);
+        transacao.executeWithoutResult(status -> {
+            pedidoOutboxRepository.reservar(ids.subList(0, 2), "esta-instancia", ate);
+            pedidoOutboxRepository.reservar(ids.subList(2, 3), "outra-instancia", ate);
+        });
+
+        int liberados = transacao.execute(status -> pedidoOutboxRepository.liberar(ids.subList(0, 3), "esta-instancia"));
+
+        assertEquals(2, liberados);
+        assertEquals(List.of(ids.get(2)), pedidoOutboxRepository.findAll().stream()
+                .filter(evento -> evento.getReservadoAte() != null).map(PedidoOutboxEntity::getId).toList());
+    }
+
+    @Test
+    void deveBuscarEventoMaisAntigoDeCadaPedidoForaDosTravados() {
+        Long segundoDoPedido1 = salvar(1L);
+        Long terceiroDoPedido1 = salvar(1L);
+
+        List<PedidoOutboxPrimeiroLinha> primeiros = pedidoOutboxRepository.primeirosForaDe(List.of(1L, 2L),
+                List.of(ids.get(0), ids.get(1), terceiroDoPedido1));
+
+        assertEquals(1, primeiros.size());
+        assertEquals(1L, primeiros.get(0).getPedidoId());
+        assertEquals(segundoDoPedido1, primeiros.get(0).getId());
+    }
+
+    @Test
+    void deveExcluirEventosPublicadosEmUmUnicoDelete() {
+        int excluidos = transacao.execute(status -> pedidoOutboxRepository.excluirPorIds(ids.subList(0, 3)));
+
+        assertEquals(3, excluidos);
+        assertEquals(List.of(ids.get(3)), pedidoOutboxRepository.findAll().stream().map(PedidoOutboxEntity::getId).toList());
+    }
+
+    private Long salvar(Long pedidoId) {
+        return pedidoOutboxRepository.save(PedidoOutboxEntity.builder()
+                .pedidoId(pedidoId)
+                .statusAtual(StatusPedido.ABERTO)
+                .ocorridoEm(Instant.now())
+                .build()).getId();
+    }
+}
@@ -0,0 +1,207 @@
+package com.fiap.pedido.repository;
+
+import com.fiap.pedido.domain.PedidoCursor;
+import com.fiap.pedido.domain.PedidoFiltro;
+import com.fiap.pedido.entity.ItemPedidoEntity;
+import com.fiap.pedido.entity.PedidoEntity;
+import com.fiap.pedido.enuns.StatusPedido;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class PedidoRepositoryTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ids.add(persistir(1L, StatusPedido.ABERTO, BASE));
+        ids.add(persistir(1L, StatusPedido.FECHADO_COM_SUCESSO, BASE.plusHours(1)));
+        ids.add(persistir(2L, StatusPedido.ABERTO, BASE.plusHours(2)));
+        ids.add(persistir(2L, StatusPedido.ABERTO, BASE.plusHours(2)));
+        ids.add(persistir(3L, StatusPedido.CANCELADO, BASE.plusHours(3)));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void devePaginarPorKeysetEmOrdemDecrescente() {
+        List<Long> primeira = pedidoRepository.findIdsPagina(new PedidoFiltro(), null, 2);
+        assertEquals(List.of(ids.get(4), ids.get(3)), primeira);
+
+        PedidoCursor cursor = new PedidoCursor(BASE.plusHours(2), ids.get(3));
+        List<Long> segunda = pedidoRepository.findIdsPagina(new PedidoFiltro(), cursor, 2);
+        assertEquals(List.of(ids.get(2), ids.get(1)), segunda);
+
+        PedidoCursor ultimo = new PedidoCursor(BASE, ids.get(0));
+        assertTrue(pedidoRepository.findIdsPagina(new PedidoFiltro(), ultimo, 2).isEmpty());
+    }
+
+    @Test
+    void deveAplicarFiltrosDeStatusClienteEData() {
+        PedidoFiltro filtro = PedidoFiltro.builder()
+                .status(StatusPedido.ABERTO)
+                .clienteId(2L)
+                .dataInicio(BASE.plusHours(2))
+                .dataFim(BASE.plusHours(3))
+                .build();
+
+        List<Long> resultado = pedidoRepository.findIdsPagina(filtro, null, 10);
+
+        assertEquals(List.of(ids.get(3), ids.get(2)), resultado);
+    }
+
+    @Test
+    void deveCarregarItensDaPaginaEmUmaConsulta() {
+        List<PedidoEntity> pedidos = pedidoRepository.findAllWithItensByIdIn(List.of(ids.get(0), ids.get(1)));
+
+        assertEquals(2, pedidos.size());
+        pedidos.forEach(pedido -> assertEquals(2, pedido.getItens().size()));
+    }
+
+    @Test
+    void deveProjetarUmaLinhaPorItemSemEntidadesGerenciadas() {
+        List<PedidoItemLinha> linhas = pedidoRepository.findLinhasByIdIn(List.of(ids.get(0), ids.get(4)));
+
+        assertEquals(4, linhas.size());
+        assertEquals(ids.get(0), linhas.get(0).getPedidoId());
+        assertEquals(StatusPedido.CANCELADO, linhas.get(3).getStatus());
+        assertNotNull(linhas.get(0).getItemId());
+        assertEquals(0, entityManager.getEntityManager().unwrap(SessionImplementor.class)
+                .getPersistenceContext().getNumberOfManagedEntities());
+    }
+
+    @Test
+    void devePercorrerTodosPedidosUmaVezComSeusItens() {
+        try (Stream<PedidoEntity> pedidos = pedidoRepository.streamAllWithItens()) {
+            List<PedidoEntity> lidos = pedidos.toList();
+
+            assertEquals(ids, lidos.stream().map(PedidoEntity::getId).toList());
+            lidos.forEach(pedido -> assertEquals(2, pedido.getItens().size()));
+        }
+    }
+
+    @Test
+    void deveAtualizarStatusSomenteQuandoStatusAtualIgualAoEsperado() {
+        Long id = ids.get(0);
+
+        assertEquals(1, pedidoRepository.updateStatusIfMatches(id, StatusPedido.ABERTO, StatusPedido.FECHADO_SEM_ESTOQUE));
+        assertEquals(0, pedidoRepository.updateStatusIfMatches(id, StatusPedido.ABERTO, StatusPedido.CANCELADO));
+
+        assertEquals(StatusPedido.FECHADO_SEM_ESTOQUE, pedidoRepository.findStatusById(id).orElseThrow());
+        assertEquals(2, pedidoRepository.findByIdWithItens(id).orElseThrow().getItens().size());
+    }
+
+    @Test
+    void deveAgregarQuantidadeEReceitaPorStatusEHoraEmUmaConsulta() {
+        List<PedidoEstatisticaLinha> linhas = pedidoRepository.agregarPorStatusEHora();
+
+        PedidoEstatisticaLinha abertosMeioDia = linhas.stream()
+                .filter(l -> l.getStatus() == StatusPedido.ABERTO && l.getHora() == 12)
+                .findFirst().orElseThrow();
+        assertEquals(4, linhas.size());
+        assertEquals(BASE.toLocalDate(), abertosMeioDia.getData());
+        assertEquals(2L, abertosMeioDia.getQuantidade());
+        assertEquals(100.0, abertosMeioDia.getReceita(), 0.001);
+    }
+
+    @Test
+    void deveCalcularValorEDataDoPedido() {
+        PedidoValorLinha valor = pedidoRepository.findValorById(ids.get(0)).orElseThrow();
+
+        assertEquals(BASE, valor.getDataCriacao());
+        assertEquals(50.0, valor.getValor(), 0.001);
+    }
+
+    @Test
+    void deveUsarIndiceAoBuscarPedidosDoCliente() {
+        String plano = explicar("SELECT id FROM pedidos WHERE cliente_id = 2 ORDER BY data_criacao DESC, id DESC LIMIT 20");
+
+        assertTrue(plano.contains("IDX_PEDIDOS_CLIENTE_DATA"), plano);
+    }
+
+    @Test
+    void deveUsarIndiceAoBuscarPedidosAbertosAntesDeUmaData() {
+        String plano = explicar("SELECT id FROM pedidos WHERE status = 'ABERTO' AND data_criacao < TIMESTAMP '2025-01-01 12:00:00' "
+                + "ORDER BY data_criacao DESC, id DESC LIMIT 20");
+
+        assertTrue(plano.contains("IDX_PEDIDOS_STATUS_DATA"), plano);
+    }
+
+    @Test
+    void deveUsarIndiceAoCarregarItensDoPedido() {
+        String plano = explicar("SELECT id FROM itens_pedido WHERE pedido_id = 1");
+
+        assertTrue(plano.contains("IDX_ITENS_PEDIDO_PEDIDO_ID"), plano);
+    }
+
+    @Test
+    void deveRejeitarSegundoPedidoComMesmaChaveDeIdempotencia() {
+        pedidoRepository.saveAndFlush(PedidoEntity.builder().clienteId(9L).status(StatusPedido.ABERTO)
+                .dataCriacao(BASE).chaveIdempotencia("pedido-77").build());
+
+        assertTrue(pedidoRepository.existsByChaveIdempotencia("pedido-77"));
+        assertFalse(pedidoRepository.existsByChaveIdempotencia("pedido-78"));
+        assertThrows(DataIntegrityViolationException.class, () -> pedidoRepository.saveAndFlush(PedidoEntity.builder()
+                .clienteId(9L).status(StatusPedido.ABERTO).dataCriacao(BASE).chaveIdempotencia("pedido-77").build()));
+    }
+
+    @Test
+    void deveBuscarIdPelaChaveDeIdempotencia() {
+        Long id = pedidoRepository.saveAndFlush(PedidoEntity.builder().clienteId(9L).status(StatusPedido.ABERTO)
+                .dataCriacao(BASE).chaveIdempotencia("pedido-77").build()).getId();
+
+        assertEquals(Optional.of(id), pedidoRepository.findIdByChaveIdempotencia("pedido-77"));
+        assertTrue(pedidoRepository.findIdByChaveIdempotencia("pedido-78").isEmpty());
+    }
+
+    @Test
+    void deveUsarIndiceUnicoAoVerificarChaveDeIdempotencia() {
+        String plano = explicar("SELECT id FROM pedidos WHERE chave_idempotencia = 'pedido-77'");
+
+        assertTrue(plano.contains("UK_PEDIDOS_CHAVE_IDEMPOTENCIA"), plano);
+    }
+
+    private String explicar(String sql) {
+        return String.valueOf(entityManager.getEntityManager().createNativeQuery("EXPLAIN " + sql).getSingleResult());
+    }
+
+    private Long persistir(Long clienteId, StatusPedido status, LocalDateTime dataCriacao) {
+        PedidoEntity pedido = PedidoEntity.builder()
+                .clienteId(clienteId)
+                .status(status)
+                .dataCriacao(dataCriacao)
+                .itens(new ArrayList<>())
+                .build();
+        for (int i = 1; i <= 2; i++) {
+            pedido.getItens().add(ItemPedidoEntity.builder()
+                    .produtoId("SKU00" + i)
+                    .quantidade(i)
+                    .precoUnitario(10.0 * i)
+                    .pedido(pedido)
+                    .build());
+        }
+        return entityManager.persist(pedido).getId();
+    }
+}
@@ -0,0 +1,108 @@
+package com.fiap.pedido.usecase.service;
+
+import com.fiap.pedido.adapter.PedidoRepositoryAdapter;
+import com.fiap.pedido.cache.PedidoCache;
+import com.fiap.pedido.config.datasource.EscritasRecentes;
+import com.fiap.pedido.dto.request.ItemPedidoRequestDTO;
+import com.fiap.pedido.dto.request.PedidoRequestDTO;
+import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.entity.PedidoEntity;
+import com.fiap.pedido.entity.PedidoOutboxEntity;
+import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.estatistica.PedidoEstatisticas;
+import com.fiap.pedido.mapper.PedidoMapperImpl;
+import com.fiap.pedido.repository.PedidoOutboxRepository;
+import com.fiap.pedido.repository.PedidoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Gravação pelo caminho do consumer (registrarPedido nos modos UNITARIO e PARALELO, registrarPedidos no LOTE)
+ * com o banco de verdade: o ID do payload é só a origem da chave de idempotência, nunca o ID do pedido gravado.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class PedidoUseCaseImplRegistroTest {
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PedidoOutboxRepository pedidoOutboxRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private PedidoUseCaseImpl pedidoUseCase;
+    private PedidoResponseDTO existente;
+
+    @BeforeEach
+    void setUp() {
+        PedidoMapperImpl pedidoMapper = new PedidoMapperImpl();
+        PedidoEstatisticas pedidoEstatisticas = new PedidoEstatisticas(pedidoRepository);
+        PedidoRepositoryAdapter adapter = new PedidoRepositoryAdapter(pedidoRepository, pedidoMapper,
+                entityManager.getEntityManager(), new PedidoCache(100, Duration.ZERO, new SimpleMeterRegistry()),
+                pedidoEstatisticas, new EscritasRecentes(Duration.ZERO), pedidoOutboxRepository);
+        pedidoUseCase = new PedidoUseCaseImpl(adapter, pedidoMapper, pedidoEstatisticas);
+
+        existente = pedidoUseCase.registrarPedido(criarRequest(null, 1L, "SKU001"), StatusPedido.FECHADO_COM_SUCESSO, "chave-existente");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void deveGravarPedidoComIdNoPayloadComoNovoComEventoDeCriacao() {
+        PedidoResponseDTO gravado = pedidoUseCase.registrarPedido(criarRequest(existente.getId(), 2L, "SKU002"),
+                StatusPedido.FECHADO_COM_SUCESSO, "chave-nova");
+        entityManager.flush();
+        entityManager.clear();
+
+        assertNotEquals(existente.getId(), gravado.getId());
+        assertPedidoExistenteIntacto();
+        assertEventosDeCriacao(existente.getId(), gravado.getId());
+    }
+
+    @Test
+    void deveGravarLoteComIdsNoPayloadComoPedidosNovosComEventosDeCriacao() {
+        List<PedidoResponseDTO> gravados = pedidoUseCase.registrarPedidos(
+                List.of(criarRequest(existente.getId(), 2L, "SKU002"), criarRequest(existente.getId() + 1, 3L, "SKU003")),
+                List.of(StatusPedido.FECHADO_COM_SUCESSO, StatusPedido.FECHADO_SEM_ESTOQUE),
+                List.of("chave-lote-1", "chave-lote-2"));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(gravados.stream().noneMatch(gravado -> gravado.getId().equals(existente.getId())));
+        assertPedidoExistenteIntacto();
+        assertEventosDeCriacao(existente.getId(), gravados.get(0).getId(), gravados.get(1).getId());
+    }
+
+    private void assertPedidoExistenteIntacto() {
+        PedidoEntity pedido = pedidoRepository.findByIdWithItens(existente.getId()).orElseThrow();
+        assertEquals(1L, pedido.getClienteId());
+        assertEquals("chave-existente", pedido.getChaveIdempotencia());
+        assertEquals(1, pedido.getItens().size());
+        assertEquals("SKU001", pedido.getItens().get(0).getProdutoId());
+    }
+
+    private void assertEventosDeCriacao(Long... pedidoIds) {
+        List<PedidoOutboxEntity> eventos = pedidoOutboxRepository.findAll();
+        assertEquals(List.of(pedidoIds), eventos.stream().map(PedidoOutboxEntity::getPedidoId).sorted().toList());
+        assertTrue(eventos.stream().allMatch(evento -> evento.getStatusAnterior() == null));
+    }
+
+    private PedidoRequestDTO criarRequest(Long id, Long clienteId, String produtoId) {
+        return PedidoRequestDTO.builder()
+                .id(id)
+                .clienteId(clienteId)
+                .itens(List.of(ItemPedidoRequestDTO.builder().produtoId(produtoId).quantidade(1).build()))
+                .build();
+    }
+}
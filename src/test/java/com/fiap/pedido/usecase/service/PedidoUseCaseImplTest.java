@@ -3,10 +3,17 @@ package com.fiap.pedido.usecase.service;
 import com.fiap.pedido.adapter.EstoqueServiceClient;
 import com.fiap.pedido.domain.ItemPedido;
 import com.fiap.pedido.domain.Pedido;
+import com.fiap.pedido.domain.PedidoCursor;
+import com.fiap.pedido.domain.PedidoFiltro;
+import com.fiap.pedido.domain.PedidoPagina;
 import com.fiap.pedido.dto.request.PedidoRequestDTO;
 import com.fiap.pedido.dto.response.ItemPedidoResponseDTO;
+import com.fiap.pedido.dto.response.PedidoEstatisticasResponseDTO;
+import com.fiap.pedido.dto.response.PedidoPaginaResponseDTO;
 import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.dto.response.TransicaoStatusResponseDTO;
 import com.fiap.pedido.enuns.StatusPedido;
+import com.fiap.pedido.estatistica.PedidoEstatisticas;
 import com.fiap.pedido.mapper.PedidoMapper;
 import com.fiap.pedido.pots.PedidoRepositoryPort;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,9 +24,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -37,6 +46,9 @@ class PedidoUseCaseImplTest {
     @Mock
     private EstoqueServiceClient estoqueServiceClient;
 
+    @Mock
+    private PedidoEstatisticas pedidoEstatisticas;
+
     @InjectMocks
     private PedidoUseCaseImpl pedidoUseCase;
 
@@ -67,6 +79,7 @@ class PedidoUseCaseImplTest {
 
     @Test
     void deveCriarPedidoComSucesso() {
+        pedido.setItens(new ArrayList<>(List.of(criarItem("SKU002", 1, 50.0))));
         when(pedidoMapper.toDomain(pedidoRequestDTO)).thenReturn(pedido);
         when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
         when(pedidoMapper.toResponse(pedido)).thenReturn(pedidoResponseDTO);
@@ -76,7 +89,6 @@ class PedidoUseCaseImplTest {
         assertNotNull(resultado);
         assertEquals(1L, resultado.getId());
         assertEquals(1L, resultado.getClienteId());
-        assertEquals("ABERTO", resultado.getStatus());
         verify(pedidoMapper).toDomain(pedidoRequestDTO);
         verify(pedidoRepository).save(any(Pedido.class));
         verify(pedidoMapper).toResponse(pedido);
@@ -89,186 +101,401 @@ class PedidoUseCaseImplTest {
         RuntimeException exception = assertThrows(RuntimeException.class,
                 () -> pedidoUseCase.criarPedido(pedidoRequestDTO));
 
-        assertEquals("Erro ao criar pedido", exception.getMessage());
+        assertEquals("Erro no mapper", exception.getMessage());
         verify(pedidoMapper).toDomain(pedidoRequestDTO);
         verify(pedidoRepository, never()).save(any(Pedido.class));
     }
 
     @Test
-    void deveCriarPedidoComStatusAbertoEDataAtual() {
+    void deveCriarPedidoGravandoUmaUnicaVezComStatusFinalEDataAtual() {
+        pedido.setItens(new ArrayList<>(List.of(criarItem("SKU002", 1, 50.0))));
+        when(pedidoMapper.toDomain(pedidoRequestDTO)).thenReturn(pedido);
+        when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
+        when(pedidoMapper.toResponse(any(Pedido.class))).thenReturn(pedidoResponseDTO);
+
+        pedidoUseCase.criarPedido(pedidoRequestDTO);
+
+        verify(pedidoRepository, times(1)).save(argThat(p ->
+                p.getStatus() == StatusPedido.FECHADO_COM_SUCESSO && p.getDataCriacao() != null));
+        verify(pedidoRepository, never()).transicionarStatus(any(), any(), any());
+    }
+
+    @Test
+    void deveCriarPedidoFechadoSemEstoqueQuandoQuantidadeExcedeEstoque() {
+        pedido.setItens(new ArrayList<>(List.of(criarItem("SKU005", 2, 10.0))));
+        when(pedidoMapper.toDomain(pedidoRequestDTO)).thenReturn(pedido);
+        when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
+        when(pedidoMapper.toResponse(any(Pedido.class))).thenReturn(pedidoResponseDTO);
+
+        pedidoUseCase.criarPedido(pedidoRequestDTO);
+
+        verify(pedidoRepository, times(1)).save(argThat(p -> p.getStatus() == StatusPedido.FECHADO_SEM_ESTOQUE));
+    }
+
+    @Test
+    void deveCriarPedidoFechadoSemCreditoQuandoValorExcedeLimite() {
+        pedido.setItens(new ArrayList<>(List.of(criarItem("SKU002", 10, 100.0))));
         when(pedidoMapper.toDomain(pedidoRequestDTO)).thenReturn(pedido);
         when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
         when(pedidoMapper.toResponse(any(Pedido.class))).thenReturn(pedidoResponseDTO);
 
         pedidoUseCase.criarPedido(pedidoRequestDTO);
 
-        verify(pedidoRepository).save(argThat(p ->
+        verify(pedidoRepository, times(1)).save(argThat(p -> p.getStatus() == StatusPedido.FECHADO_SEM_CREDITO));
+    }
+
+    @Test
+    void deveAbrirPedidoComStatusAberto() {
+        when(pedidoMapper.toDomain(pedidoRequestDTO)).thenReturn(pedido);
+        when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
+        when(pedidoMapper.toResponse(pedido)).thenReturn(pedidoResponseDTO);
+
+        PedidoResponseDTO resultado = pedidoUseCase.abrirPedido(pedidoRequestDTO);
+
+        assertEquals("ABERTO", resultado.getStatus());
+        verify(pedidoRepository, times(1)).save(argThat(p ->
                 p.getStatus() == StatusPedido.ABERTO && p.getDataCriacao() != null));
     }
 
+    @Test
+    void deveRegistrarPedidoComStatusInformado() {
+        when(pedidoMapper.toDomain(pedidoRequestDTO)).thenReturn(pedido);
+        when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
+        when(pedidoMapper.toResponse(pedido)).thenReturn(pedidoResponseDTO);
+
+        pedidoUseCase.registrarPedido(pedidoRequestDTO, StatusPedido.FECHADO_SEM_CREDITO, "pedido-99");
+
+        verify(pedidoRepository, times(1)).save(argThat(p ->
+                p.getStatus() == StatusPedido.FECHADO_SEM_CREDITO && p.getDataCriacao() != null
+                        && "pedido-99".equals(p.getChaveIdempotencia())));
+    }
+
+    @Test
+    void deveRegistrarLoteDePedidosEmUmaUnicaGravacao() {
+        PedidoRequestDTO outroRequest = PedidoRequestDTO.builder().clienteId(2L).build();
+        Pedido outroPedido = Pedido.builder().id(2L).clienteId(2L).build();
+        when(pedidoMapper.toDomain(pedidoRequestDTO)).thenReturn(pedido);
+        when(pedidoMapper.toDomain(outroRequest)).thenReturn(outroPedido);
+        when(pedidoRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(pedidoMapper.toResponse(any(Pedido.class))).thenReturn(pedidoResponseDTO);
+
+        List<PedidoResponseDTO> resultado = pedidoUseCase.registrarPedidos(List.of(pedidoRequestDTO, outroRequest),
+                List.of(StatusPedido.FECHADO_COM_SUCESSO, StatusPedido.FECHADO_SEM_ESTOQUE), Arrays.asList("10", null));
+
+        assertEquals(2, resultado.size());
+        verify(pedidoRepository, times(1)).saveAll(argThat(pedidos -> pedidos.size() == 2
+                && pedidos.get(0).getStatus() == StatusPedido.FECHADO_COM_SUCESSO
+                && "10".equals(pedidos.get(0).getChaveIdempotencia())
+                && pedidos.get(1).getChaveIdempotencia() == null
+                && pedidos.get(1).getStatus() == StatusPedido.FECHADO_SEM_ESTOQUE
+                && pedidos.get(1).getDataCriacao() != null));
+        verify(pedidoRepository, never()).save(any());
+    }
+
+    @Test
+    void deveLancarExcecaoAoRegistrarLoteComQuantidadeDeStatusDivergente() {
+        assertThrows(IllegalArgumentException.class, () -> pedidoUseCase.registrarPedidos(
+                List.of(pedidoRequestDTO), List.of(StatusPedido.ABERTO, StatusPedido.CANCELADO), null));
+
+        verifyNoInteractions(pedidoRepository);
+    }
+
+    @Test
+    void deveLancarExcecaoAoRegistrarLoteComQuantidadeDeChavesDivergente() {
+        assertThrows(IllegalArgumentException.class, () -> pedidoUseCase.registrarPedidos(
+                List.of(pedidoRequestDTO), List.of(StatusPedido.ABERTO), List.of("1", "2")));
+
+        verifyNoInteractions(pedidoRepository);
+    }
+
     @Test
     void deveConsultarPedidoComSucesso() {
         Long id = 1L;
-        when(pedidoRepository.findById(id)).thenReturn(Optional.of(pedido));
-        when(pedidoMapper.toResponse(pedido)).thenReturn(pedidoResponseDTO);
+        when(pedidoRepository.findResponseById(id)).thenReturn(Optional.of(pedidoResponseDTO));
 
         PedidoResponseDTO resultado = pedidoUseCase.consultarPedido(id);
 
         assertNotNull(resultado);
         assertEquals(1L, resultado.getId());
         assertEquals(1L, resultado.getClienteId());
-        verify(pedidoRepository).findById(id);
-        verify(pedidoMapper).toResponse(pedido);
+        verify(pedidoRepository).findResponseById(id);
+        verifyNoInteractions(pedidoMapper);
+    }
+
+    @Test
+    void deveConsultarPedidoPelaChaveDeIdempotencia() {
+        when(pedidoRepository.findResponseByChaveIdempotencia("pedido-1")).thenReturn(Optional.of(pedidoResponseDTO));
+
+        Optional<PedidoResponseDTO> resultado = pedidoUseCase.consultarPedidoPorChaveIdempotencia("pedido-1");
+
+        assertEquals(1L, resultado.orElseThrow().getId());
     }
 
     @Test
     void deveLancarExcecaoAoConsultarPedidoNaoEncontrado() {
         Long id = 1L;
-        when(pedidoRepository.findById(id)).thenReturn(Optional.empty());
+        when(pedidoRepository.findResponseById(id)).thenReturn(Optional.empty());
 
-        RuntimeException exception = assertThrows(RuntimeException.class,
+        PedidoNaoEncontradoException exception = assertThrows(PedidoNaoEncontradoException.class,
                 () -> pedidoUseCase.consultarPedido(id));
 
-        assertEquals("Pedido não encontrado", exception.getMessage());
-        verify(pedidoRepository).findById(id);
+        assertEquals("Pedido não encontrado: 1", exception.getMessage());
+        verify(pedidoRepository).findResponseById(id);
         verify(pedidoMapper, never()).toResponse(any());
     }
 
     @Test
     void deveLancarExcecaoAoConsultarPedidoComErro() {
         Long id = 1L;
-        when(pedidoRepository.findById(id)).thenThrow(new RuntimeException("Erro no banco"));
+        when(pedidoRepository.findResponseById(id)).thenThrow(new RuntimeException("Erro no banco"));
 
         RuntimeException exception = assertThrows(RuntimeException.class,
                 () -> pedidoUseCase.consultarPedido(id));
 
         assertEquals("Erro no banco", exception.getMessage());
-        verify(pedidoRepository).findById(id);
+        verify(pedidoRepository).findResponseById(id);
     }
 
     @Test
     void deveListarPedidosComSucesso() {
-        List<Pedido> pedidos = Arrays.asList(pedido);
-        List<PedidoResponseDTO> pedidosResponse = Arrays.asList(pedidoResponseDTO);
+        PedidoPagina pagina = PedidoPagina.builder().pedidos(Arrays.asList(pedidoResponseDTO)).build();
 
-        when(pedidoRepository.findAll()).thenReturn(pedidos);
-        when(pedidoMapper.toResponse(pedido)).thenReturn(pedidoResponseDTO);
+        when(pedidoRepository.findPagina(any(), isNull(), eq(20))).thenReturn(pagina);
 
-        List<PedidoResponseDTO> resultado = pedidoUseCase.listarPedidos();
+        PedidoPaginaResponseDTO resultado = pedidoUseCase.listarPedidos(new PedidoFiltro(), null, null);
 
         assertNotNull(resultado);
-        assertEquals(1, resultado.size());
-        assertEquals(1L, resultado.get(0).getId());
-        verify(pedidoRepository).findAll();
-        verify(pedidoMapper).toResponse(pedido);
+        assertEquals(1, resultado.getPedidos().size());
+        assertEquals(1L, resultado.getPedidos().get(0).getId());
+        assertFalse(resultado.isTemMais());
+        assertNull(resultado.getProximoCursor());
+        verify(pedidoRepository).findPagina(any(), isNull(), eq(20));
+        verifyNoInteractions(pedidoMapper);
     }
 
     @Test
     void deveListarPedidosVazio() {
-        when(pedidoRepository.findAll()).thenReturn(Arrays.asList());
+        when(pedidoRepository.findPagina(any(), any(), anyInt()))
+                .thenReturn(PedidoPagina.builder().pedidos(List.of()).build());
 
-        List<PedidoResponseDTO> resultado = pedidoUseCase.listarPedidos();
+        PedidoPaginaResponseDTO resultado = pedidoUseCase.listarPedidos(new PedidoFiltro(), null, 10);
 
         assertNotNull(resultado);
-        assertTrue(resultado.isEmpty());
-        verify(pedidoRepository).findAll();
+        assertTrue(resultado.getPedidos().isEmpty());
+        verify(pedidoRepository).findPagina(any(), isNull(), eq(10));
+    }
+
+    @Test
+    void deveLimitarTamanhoDaPaginaAoMaximo() {
+        when(pedidoRepository.findPagina(any(), any(), anyInt()))
+                .thenReturn(PedidoPagina.builder().pedidos(List.of()).build());
+
+        PedidoPaginaResponseDTO resultado = pedidoUseCase.listarPedidos(new PedidoFiltro(), null, 5000);
+
+        assertEquals(100, resultado.getTamanho());
+        verify(pedidoRepository).findPagina(any(), isNull(), eq(100));
+    }
+
+    @Test
+    void deveRepassarCursorEDevolverProximoCursor() {
+        LocalDateTime data = LocalDateTime.of(2025, 1, 10, 12, 30, 15, 123000);
+        String cursor = new PedidoCursor(data, 50L).codificar();
+        PedidoCursor proximo = new PedidoCursor(data.minusHours(1), 30L);
+
+        when(pedidoRepository.findPagina(any(), any(), anyInt()))
+                .thenReturn(PedidoPagina.builder().pedidos(List.of(pedidoResponseDTO)).proximoCursor(proximo).build());
+
+        PedidoPaginaResponseDTO resultado = pedidoUseCase.listarPedidos(new PedidoFiltro(), cursor, 1);
+
+        assertTrue(resultado.isTemMais());
+        assertEquals(proximo.codificar(), resultado.getProximoCursor());
+        verify(pedidoRepository).findPagina(any(), argThat(c ->
+                c.getId().equals(50L) && c.getDataCriacao().equals(data)), eq(1));
+    }
+
+    @Test
+    void deveListarPedidosDoClienteComTamanhoPadrao() {
+        when(pedidoRepository.findPaginaPorCliente(7L, null, 20))
+                .thenReturn(PedidoPagina.builder().pedidos(List.of(pedidoResponseDTO)).build());
+
+        PedidoPaginaResponseDTO resultado = pedidoUseCase.listarPedidosDoCliente(7L, null, null);
+
+        assertEquals(1, resultado.getPedidos().size());
+        assertEquals(20, resultado.getTamanho());
+        verify(pedidoRepository).findPaginaPorCliente(7L, null, 20);
+        verify(pedidoRepository, never()).findPagina(any(), any(), anyInt());
+    }
+
+    @Test
+    void deveListarPedidosAbertosAntesDaDataLimite() {
+        LocalDateTime limite = LocalDateTime.of(2025, 1, 1, 12, 0);
+        PedidoCursor proximo = new PedidoCursor(limite.minusDays(1), 9L);
+        when(pedidoRepository.findPaginaPorStatusAntesDe(StatusPedido.ABERTO, limite, null, 10))
+                .thenReturn(PedidoPagina.builder().pedidos(List.of(pedidoResponseDTO)).proximoCursor(proximo).build());
+
+        PedidoPaginaResponseDTO resultado = pedidoUseCase.listarPedidosAbertosAntesDe(limite, null, 10);
+
+        assertTrue(resultado.isTemMais());
+        assertEquals(proximo.codificar(), resultado.getProximoCursor());
+    }
+
+    @Test
+    void deveLancarExcecaoAoListarPedidosAbertosSemDataLimite() {
+        assertThrows(IllegalArgumentException.class,
+                () -> pedidoUseCase.listarPedidosAbertosAntesDe(null, null, 10));
+
+        verifyNoInteractions(pedidoRepository);
+    }
+
+    @Test
+    void deveConsultarEstatisticasSemAcessarRepositorio() {
+        PedidoEstatisticasResponseDTO estatisticas = PedidoEstatisticasResponseDTO.builder().totalPedidos(3).build();
+        when(pedidoEstatisticas.resumo()).thenReturn(estatisticas);
+
+        PedidoEstatisticasResponseDTO resultado = pedidoUseCase.consultarEstatisticas();
+
+        assertSame(estatisticas, resultado);
+        verifyNoInteractions(pedidoRepository);
+    }
+
+    @Test
+    void deveLancarExcecaoAoListarPedidosComCursorInvalido() {
+        assertThrows(IllegalArgumentException.class,
+                () -> pedidoUseCase.listarPedidos(new PedidoFiltro(), "cursor-invalido", 10));
+
+        verify(pedidoRepository, never()).findPagina(any(), any(), anyInt());
     }
 
     @Test
     void deveLancarExcecaoAoListarPedidosComErro() {
-        when(pedidoRepository.findAll()).thenThrow(new RuntimeException("Erro no banco"));
+        when(pedidoRepository.findPagina(any(), any(), anyInt())).thenThrow(new RuntimeException("Erro no banco"));
 
         RuntimeException exception = assertThrows(RuntimeException.class,
-                () -> pedidoUseCase.listarPedidos());
+                () -> pedidoUseCase.listarPedidos(new PedidoFiltro(), null, null));
 
         assertEquals("Erro no banco", exception.getMessage());
-        verify(pedidoRepository).findAll();
+        verify(pedidoRepository).findPagina(any(), isNull(), eq(20));
+    }
+
+    @Test
+    void deveExportarPedidosMapeandoCadaLinha() {
+        List<PedidoResponseDTO> exportados = new ArrayList<>();
+        when(pedidoRepository.exportarTodos(any())).thenAnswer(invocation -> {
+            Consumer<Pedido> consumidor = invocation.getArgument(0);
+            consumidor.accept(pedido);
+            return 1L;
+        });
+        when(pedidoMapper.toResponse(pedido)).thenReturn(pedidoResponseDTO);
+
+        long total = pedidoUseCase.exportarPedidos(exportados::add);
+
+        assertEquals(1L, total);
+        assertEquals(List.of(pedidoResponseDTO), exportados);
     }
 
     @Test
     void deveAtualizarStatusComSucesso() {
         Long id = 1L;
-        String status = "FECHADO_COM_SUCESSO";
-        Pedido pedidoAtualizado = Pedido.builder()
-                .id(1L)
-                .clienteId(1L)
-                .status(StatusPedido.FECHADO_COM_SUCESSO)
-                .dataCriacao(LocalDateTime.now())
-                .build();
-        PedidoResponseDTO responseAtualizado = PedidoResponseDTO.builder()
-                .id(1L)
-                .clienteId(1L)
-                .status("FECHADO_COM_SUCESSO")
-                .dataCriacao(LocalDateTime.now())
-                .build();
+        when(pedidoRepository.findStatusById(id)).thenReturn(Optional.of(StatusPedido.ABERTO));
+        when(pedidoRepository.transicionarStatus(id, StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO)).thenReturn(true);
+
+        TransicaoStatusResponseDTO resultado = pedidoUseCase.atualizarStatus(id, "FECHADO_COM_SUCESSO", null);
+
+        assertTrue(resultado.isTransicionado());
+        assertEquals("ABERTO", resultado.getStatusEsperado());
+        assertEquals("FECHADO_COM_SUCESSO", resultado.getStatusAtual());
+        verify(pedidoRepository).transicionarStatus(id, StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO);
+        verify(pedidoRepository, never()).save(any());
+    }
 
-        when(pedidoRepository.findById(id)).thenReturn(Optional.of(pedido));
-        when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedidoAtualizado);
-        when(pedidoMapper.toResponse(pedidoAtualizado)).thenReturn(responseAtualizado);
+    @Test
+    void deveAtualizarStatusComStatusEsperadoSemConsultarStatusAtual() {
+        Long id = 1L;
+        when(pedidoRepository.transicionarStatus(id, StatusPedido.ABERTO, StatusPedido.CANCELADO)).thenReturn(true);
 
-        PedidoResponseDTO resultado = pedidoUseCase.atualizarStatus(id, status);
+        TransicaoStatusResponseDTO resultado = pedidoUseCase.atualizarStatus(id, "cancelado", "ABERTO");
 
-        assertNotNull(resultado);
-        assertEquals("FECHADO_COM_SUCESSO", resultado.getStatus());
-        verify(pedidoRepository).findById(id);
-        verify(pedidoRepository).save(argThat(p -> p.getStatus() == StatusPedido.FECHADO_COM_SUCESSO));
-        verify(pedidoMapper).toResponse(pedidoAtualizado);
+        assertTrue(resultado.isTransicionado());
+        verify(pedidoRepository, never()).findStatusById(anyLong());
+    }
+
+    @Test
+    void deveInformarQuandoTransicaoNaoOcorreu() {
+        Long id = 1L;
+        when(pedidoRepository.transicionarStatus(id, StatusPedido.ABERTO, StatusPedido.CANCELADO)).thenReturn(false);
+        when(pedidoRepository.findStatusById(id)).thenReturn(Optional.of(StatusPedido.FECHADO_COM_SUCESSO));
+
+        TransicaoStatusResponseDTO resultado = pedidoUseCase.atualizarStatus(id, "CANCELADO", "ABERTO");
+
+        assertFalse(resultado.isTransicionado());
+        assertEquals("ABERTO", resultado.getStatusEsperado());
+        assertEquals("FECHADO_COM_SUCESSO", resultado.getStatusAtual());
     }
 
     @Test
     void deveLancarExcecaoAoAtualizarStatusPedidoNaoEncontrado() {
         Long id = 1L;
         String status = "FECHADO_COM_SUCESSO";
-        when(pedidoRepository.findById(id)).thenReturn(Optional.empty());
+        when(pedidoRepository.findStatusById(id)).thenReturn(Optional.empty());
 
-        RuntimeException exception = assertThrows(RuntimeException.class,
-                () -> pedidoUseCase.atualizarStatus(id, status));
+        PedidoNaoEncontradoException exception = assertThrows(PedidoNaoEncontradoException.class,
+                () -> pedidoUseCase.atualizarStatus(id, status, null));
 
-        assertEquals("Pedido não encontrado", exception.getMessage());
-        verify(pedidoRepository).findById(id);
-        verify(pedidoRepository, never()).save(any());
+        assertEquals("Pedido não encontrado: 1", exception.getMessage());
+        verify(pedidoRepository).findStatusById(id);
+        verify(pedidoRepository, never()).transicionarStatus(anyLong(), any(), any());
     }
 
     @Test
     void deveLancarExcecaoAoAtualizarStatusInvalido() {
         Long id = 1L;
         String status = "STATUS_INVALIDO";
-        when(pedidoRepository.findById(id)).thenReturn(Optional.of(pedido));
 
         RuntimeException exception = assertThrows(RuntimeException.class,
-                () -> pedidoUseCase.atualizarStatus(id, status));
+                () -> pedidoUseCase.atualizarStatus(id, status, null));
 
         assertTrue(exception.getMessage().contains("Status inválido"));
-        verify(pedidoRepository).findById(id);
-        verify(pedidoRepository, never()).save(any());
+        verify(pedidoRepository, never()).transicionarStatus(anyLong(), any(), any());
     }
 
     @Test
     void deveLancarExcecaoAoAtualizarStatusComErroGenerico() {
         Long id = 1L;
-        String status = "FECHADO_COM_SUCESSO";
-        when(pedidoRepository.findById(id)).thenReturn(Optional.of(pedido));
-        when(pedidoRepository.save(any(Pedido.class))).thenThrow(new RuntimeException("Erro no banco"));
+        when(pedidoRepository.findStatusById(id)).thenReturn(Optional.of(StatusPedido.ABERTO));
+        when(pedidoRepository.transicionarStatus(anyLong(), any(), any())).thenThrow(new RuntimeException("Erro no banco"));
 
         RuntimeException exception = assertThrows(RuntimeException.class,
-                () -> pedidoUseCase.atualizarStatus(id, status));
+                () -> pedidoUseCase.atualizarStatus(id, "FECHADO_COM_SUCESSO", null));
 
         assertEquals("Erro no banco", exception.getMessage());
-        verify(pedidoRepository).findById(id);
-        verify(pedidoRepository).save(any(Pedido.class));
     }
 
     @Test
     void deveAtualizarStatusComTodosStatusValidos() {
         Long id = 1L;
-        when(pedidoRepository.findById(id)).thenReturn(Optional.of(pedido));
-        when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
-        when(pedidoMapper.toResponse(any(Pedido.class))).thenReturn(pedidoResponseDTO);
+        when(pedidoRepository.findStatusById(id)).thenReturn(Optional.of(StatusPedido.ABERTO));
+        when(pedidoRepository.transicionarStatus(anyLong(), any(), any())).thenReturn(true);
 
         String[] statusValidos = {"ABERTO", "FECHADO_COM_SUCESSO", "FECHADO_SEM_ESTOQUE", "FECHADO_SEM_CREDITO", "CANCELADO"};
 
         for (String status : statusValidos) {
-            assertDoesNotThrow(() -> pedidoUseCase.atualizarStatus(id, status));
+            assertDoesNotThrow(() -> pedidoUseCase.atualizarStatus(id, status, null));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveTransicionarStatusComCompareAndSet() {
+        when(pedidoRepository.transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_SEM_ESTOQUE)).thenReturn(true);
+
+        assertTrue(pedidoUseCase.transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_SEM_ESTOQUE));
+        verify(pedidoRepository, never()).save(any());
+    }
+
+    private ItemPedido criarItem(String produtoId, int quantidade, double precoUnitario) {
+        return ItemPedido.builder()
+                .produtoId(produtoId)
+                .quantidade(quantidade)
+                .precoUnitario(precoUnitario)
+                .build();
+    }
+}
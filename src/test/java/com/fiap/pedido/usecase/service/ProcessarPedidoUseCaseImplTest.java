@@ -7,6 +7,7 @@ import com.fiap.pedido.dto.request.PedidoRequestDTO;
 import com.fiap.pedido.dto.response.ItemPedidoResponseDTO;
 import com.fiap.pedido.dto.response.PagamentoResponseDTO;
 import com.fiap.pedido.dto.response.PedidoResponseDTO;
+import com.fiap.pedido.enuns.StatusPedido;
 import com.fiap.pedido.gateway.EstoqueGateway;
 import com.fiap.pedido.gateway.PagamentoServiceClient;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,13 +21,18 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ProcessarPedidoUseCaseImplTest {
 
+    private static final String RESERVA = "RES-1";
+
     @Mock
     private PedidoUseCase pedidoUseCase;
 
@@ -85,29 +91,32 @@ class ProcessarPedidoUseCaseImplTest {
 
     @Test
     void deveProcessarPedidoComSucesso() {
-        when(pedidoUseCase.criarPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
-        when(estoqueGateway.baixarEstoque("PROD001", 2)).thenReturn(true);
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2))).thenReturn(Optional.of(RESERVA));
+        when(estoqueGateway.baixarReserva(RESERVA)).thenReturn(true);
         when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class)))
                 .thenReturn(pagamentoResponseDTO);
 
         processarPedidoUseCase.processarPedido(pedidoRequestDTO);
 
-        verify(pedidoUseCase).criarPedido(pedidoRequestDTO);
-        verify(estoqueGateway).baixarEstoque("PROD001", 2);
+        verify(pedidoUseCase).abrirPedido(pedidoRequestDTO);
+        verify(estoqueGateway).reservarEstoque(Map.of("PROD001", 2));
+        verify(estoqueGateway).baixarReserva(RESERVA);
         verify(pagamentoServiceClient).processarPagamento(any(PagamentoRequestDTO.class));
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_COM_SUCESSO");
+        verify(pedidoUseCase).transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO);
     }
 
     @Test
     void deveFecharPedidoQuandoEstoqueInsuficiente() {
-        when(pedidoUseCase.criarPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
-        when(estoqueGateway.baixarEstoque("PROD001", 2)).thenReturn(false);
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2))).thenReturn(Optional.empty());
 
         processarPedidoUseCase.processarPedido(pedidoRequestDTO);
 
-        verify(pedidoUseCase).criarPedido(pedidoRequestDTO);
-        verify(estoqueGateway).baixarEstoque("PROD001", 2);
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_SEM_ESTOQUE");
+        verify(pedidoUseCase).abrirPedido(pedidoRequestDTO);
+        verify(estoqueGateway).reservarEstoque(Map.of("PROD001", 2));
+        verify(estoqueGateway, never()).baixarReserva(anyString());
+        verify(pedidoUseCase).transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_SEM_ESTOQUE);
         verifyNoInteractions(pagamentoServiceClient);
     }
 
@@ -119,17 +128,20 @@ class ProcessarPedidoUseCaseImplTest {
                 .numeroCartao("1234567890123456")
                 .build();
 
-        when(pedidoUseCase.criarPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
-        when(estoqueGateway.baixarEstoque("PROD001", 2)).thenReturn(true);
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2))).thenReturn(Optional.of(RESERVA));
+        when(estoqueGateway.liberarReserva(RESERVA)).thenReturn(true);
         when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class)))
                 .thenReturn(pagamentoRecusado);
 
         processarPedidoUseCase.processarPedido(pedidoRequestDTO);
 
-        verify(pedidoUseCase).criarPedido(pedidoRequestDTO);
-        verify(estoqueGateway).baixarEstoque("PROD001", 2);
+        verify(pedidoUseCase).abrirPedido(pedidoRequestDTO);
+        verify(estoqueGateway).reservarEstoque(Map.of("PROD001", 2));
         verify(pagamentoServiceClient).processarPagamento(any(PagamentoRequestDTO.class));
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_SEM_CREDITO");
+        verify(estoqueGateway).liberarReserva(RESERVA);
+        verify(estoqueGateway, never()).baixarReserva(anyString());
+        verify(pedidoUseCase).transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_SEM_CREDITO);
     }
 
     @Test
@@ -142,19 +154,19 @@ class ProcessarPedidoUseCaseImplTest {
         List<ItemPedidoRequestDTO> itens = Arrays.asList(itemPedidoRequestDTO, item2);
         pedidoRequestDTO.setItens(itens);
 
-        when(pedidoUseCase.criarPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
-        when(estoqueGateway.baixarEstoque("PROD001", 2)).thenReturn(true);
-        when(estoqueGateway.baixarEstoque("PROD002", 1)).thenReturn(true);
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2, "PROD002", 1))).thenReturn(Optional.of(RESERVA));
+        when(estoqueGateway.baixarReserva(RESERVA)).thenReturn(true);
         when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class)))
                 .thenReturn(pagamentoResponseDTO);
 
         processarPedidoUseCase.processarPedido(pedidoRequestDTO);
 
-        verify(pedidoUseCase).criarPedido(pedidoRequestDTO);
-        verify(estoqueGateway).baixarEstoque("PROD001", 2);
-        verify(estoqueGateway).baixarEstoque("PROD002", 1);
+        verify(pedidoUseCase).abrirPedido(pedidoRequestDTO);
+        verify(estoqueGateway).reservarEstoque(Map.of("PROD001", 2, "PROD002", 1));
+        verify(estoqueGateway).baixarReserva(RESERVA);
         verify(pagamentoServiceClient).processarPagamento(any(PagamentoRequestDTO.class));
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_COM_SUCESSO");
+        verify(pedidoUseCase).transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO);
     }
 
     @Test
@@ -167,19 +179,40 @@ class ProcessarPedidoUseCaseImplTest {
         List<ItemPedidoRequestDTO> itens = Arrays.asList(itemPedidoRequestDTO, item2);
         pedidoRequestDTO.setItens(itens);
 
-        when(pedidoUseCase.criarPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
-        when(estoqueGateway.baixarEstoque("PROD001", 2)).thenReturn(true);
-        when(estoqueGateway.baixarEstoque("PROD002", 1)).thenReturn(false);
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2, "PROD002", 1))).thenReturn(Optional.empty());
 
         processarPedidoUseCase.processarPedido(pedidoRequestDTO);
 
-        verify(pedidoUseCase).criarPedido(pedidoRequestDTO);
-        verify(estoqueGateway).baixarEstoque("PROD001", 2);
-        verify(estoqueGateway).baixarEstoque("PROD002", 1);
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_SEM_ESTOQUE");
+        verify(pedidoUseCase).abrirPedido(pedidoRequestDTO);
+        verify(estoqueGateway).reservarEstoque(Map.of("PROD001", 2, "PROD002", 1));
+        verify(estoqueGateway, never()).baixarEstoque(anyString(), anyInt());
+        verify(estoqueGateway, never()).baixarReserva(anyString());
+        verify(pedidoUseCase).transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_SEM_ESTOQUE);
         verifyNoInteractions(pagamentoServiceClient);
     }
 
+    @Test
+    void deveReservarEBaixarItensDoMesmoProdutoSomadosEmUmaUnicaChamada() {
+        ItemPedidoRequestDTO repetido = ItemPedidoRequestDTO.builder()
+                .produtoId("PROD001")
+                .quantidade(3)
+                .build();
+
+        pedidoRequestDTO.setItens(Arrays.asList(itemPedidoRequestDTO, repetido));
+
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(anyMap())).thenReturn(Optional.of(RESERVA));
+        when(estoqueGateway.baixarReserva(RESERVA)).thenReturn(true);
+        when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class)))
+                .thenReturn(pagamentoResponseDTO);
+
+        processarPedidoUseCase.processarPedido(pedidoRequestDTO);
+
+        verify(estoqueGateway, times(1)).reservarEstoque(Map.of("PROD001", 5));
+        verify(estoqueGateway, times(1)).baixarReserva(RESERVA);
+    }
+
     @Test
     void deveCalcularValorTotalCorretamente() {
         ItemPedidoRequestDTO item2 = ItemPedidoRequestDTO.builder()
@@ -190,8 +223,9 @@ class ProcessarPedidoUseCaseImplTest {
         List<ItemPedidoRequestDTO> itens = Arrays.asList(itemPedidoRequestDTO, item2);
         pedidoRequestDTO.setItens(itens);
 
-        when(pedidoUseCase.criarPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
-        when(estoqueGateway.baixarEstoque(anyString(), anyInt())).thenReturn(true);
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(anyMap())).thenReturn(Optional.of(RESERVA));
+        when(estoqueGateway.baixarReserva(RESERVA)).thenReturn(true);
         when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class)))
                 .thenReturn(pagamentoResponseDTO);
 
@@ -203,30 +237,106 @@ class ProcessarPedidoUseCaseImplTest {
     }
 
     @Test
-    void deveDefinirStatusErroQuandoExcecaoOcorrer() {
-        when(pedidoUseCase.criarPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
-        when(estoqueGateway.baixarEstoque("PROD001", 2)).thenThrow(new RuntimeException("Erro no estoque"));
+    void deveManterPedidoAbertoEPropagarErroQuandoExcecaoOcorrer() {
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2))).thenThrow(new RuntimeException("Erro no estoque"));
 
-        processarPedidoUseCase.processarPedido(pedidoRequestDTO);
+        RuntimeException erro = assertThrows(RuntimeException.class,
+                () -> processarPedidoUseCase.processarPedido(pedidoRequestDTO));
+
+        assertEquals("Erro no estoque", erro.getCause().getMessage());
+        verify(pedidoUseCase).abrirPedido(pedidoRequestDTO);
+        verify(pedidoUseCase, never()).atualizarStatus(anyLong(), anyString(), any());
+        verify(pedidoUseCase, never()).transicionarStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void deveManterPedidoAbertoQuandoBaixaDoEstoqueReservadoForRecusada() {
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2))).thenReturn(Optional.of(RESERVA));
+        when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class)))
+                .thenReturn(pagamentoResponseDTO);
+        when(estoqueGateway.baixarReserva(RESERVA)).thenReturn(false);
 
-        verify(pedidoUseCase).criarPedido(pedidoRequestDTO);
-        verify(pedidoUseCase).atualizarStatus(1L, "ERRO_PROCESSAMENTO");
+        RuntimeException erro = assertThrows(RuntimeException.class,
+                () -> processarPedidoUseCase.processarPedido(pedidoRequestDTO));
+
+        assertInstanceOf(IllegalStateException.class, erro.getCause());
+        verify(estoqueGateway).liberarReserva(RESERVA);
+        verify(pedidoUseCase, never()).transicionarStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void deveLiberarReservaQuandoPagamentoFalha() {
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2))).thenReturn(Optional.of(RESERVA));
+        when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class)))
+                .thenThrow(new RuntimeException("Pagamento indisponível"));
+
+        assertThrows(RuntimeException.class, () -> processarPedidoUseCase.processarPedido(pedidoRequestDTO));
+
+        verify(estoqueGateway).liberarReserva(RESERVA);
+        verify(estoqueGateway, never()).baixarReserva(anyString());
+        verify(pedidoUseCase, never()).transicionarStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void deveLiberarReservaQuandoBaixaLancaExcecao() {
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2))).thenReturn(Optional.of(RESERVA));
+        when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class))).thenReturn(pagamentoResponseDTO);
+        when(estoqueGateway.baixarReserva(RESERVA)).thenThrow(new RuntimeException("Timeout"));
+
+        assertThrows(RuntimeException.class, () -> processarPedidoUseCase.processarPedido(pedidoRequestDTO));
+
+        verify(estoqueGateway).liberarReserva(RESERVA);
+    }
+
+    @Test
+    void naoDeveLiberarReservaJaBaixadaQuandoTransicaoFalha() {
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2))).thenReturn(Optional.of(RESERVA));
+        when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class))).thenReturn(pagamentoResponseDTO);
+        when(estoqueGateway.baixarReserva(RESERVA)).thenReturn(true);
+        doThrow(new RuntimeException("Banco indisponível")).when(pedidoUseCase)
+                .transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_COM_SUCESSO);
+
+        assertThrows(RuntimeException.class, () -> processarPedidoUseCase.processarPedido(pedidoRequestDTO));
+
+        verify(estoqueGateway, never()).liberarReserva(anyString());
+    }
+
+    @Test
+    void naoDeveLiberarReservaDuasVezesQuandoTransicaoAposPagamentoRecusadoFalha() {
+        PagamentoResponseDTO pagamentoRecusado = PagamentoResponseDTO.builder().status("RECUSADO").build();
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2))).thenReturn(Optional.of(RESERVA));
+        when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class))).thenReturn(pagamentoRecusado);
+        when(estoqueGateway.liberarReserva(RESERVA)).thenReturn(true);
+        doThrow(new RuntimeException("Banco indisponível")).when(pedidoUseCase)
+                .transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_SEM_CREDITO);
+
+        assertThrows(RuntimeException.class, () -> processarPedidoUseCase.processarPedido(pedidoRequestDTO));
+
+        verify(estoqueGateway, times(1)).liberarReserva(RESERVA);
     }
 
     @Test
     void naoDeveAtualizarStatusQuandoPedidoNaoFoiCriado() {
-        when(pedidoUseCase.criarPedido(pedidoRequestDTO)).thenThrow(new RuntimeException("Erro ao criar pedido"));
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenThrow(new RuntimeException("Erro ao criar pedido"));
 
-        processarPedidoUseCase.processarPedido(pedidoRequestDTO);
+        assertThrows(RuntimeException.class, () -> processarPedidoUseCase.processarPedido(pedidoRequestDTO));
 
-        verify(pedidoUseCase).criarPedido(pedidoRequestDTO);
-        verify(pedidoUseCase, never()).atualizarStatus(anyLong(), anyString());
+        verify(pedidoUseCase).abrirPedido(pedidoRequestDTO);
+        verify(pedidoUseCase, never()).transicionarStatus(anyLong(), any(), any());
+        verify(pedidoUseCase, never()).atualizarStatus(anyLong(), anyString(), any());
     }
 
     @Test
     void deveProcessarPagamentoComDadosCorretos() {
-        when(pedidoUseCase.criarPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
-        when(estoqueGateway.baixarEstoque(anyString(), anyInt())).thenReturn(true);
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(anyMap())).thenReturn(Optional.of(RESERVA));
+        when(estoqueGateway.baixarReserva(RESERVA)).thenReturn(true);
         when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class)))
                 .thenReturn(pagamentoResponseDTO);
 
@@ -247,13 +357,16 @@ class ProcessarPedidoUseCaseImplTest {
                 .numeroCartao("1234567890123456")
                 .build();
 
-        when(pedidoUseCase.criarPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
-        when(estoqueGateway.baixarEstoque("PROD001", 2)).thenReturn(true);
+        when(pedidoUseCase.abrirPedido(pedidoRequestDTO)).thenReturn(pedidoResponseDTO);
+        when(estoqueGateway.reservarEstoque(Map.of("PROD001", 2))).thenReturn(Optional.of(RESERVA));
+        when(estoqueGateway.liberarReserva(RESERVA)).thenReturn(true);
         when(pagamentoServiceClient.processarPagamento(any(PagamentoRequestDTO.class)))
                 .thenReturn(pagamentoStatusNulo);
 
         processarPedidoUseCase.processarPedido(pedidoRequestDTO);
 
-        verify(pedidoUseCase).atualizarStatus(1L, "FECHADO_SEM_CREDITO");
+        verify(estoqueGateway).liberarReserva(RESERVA);
+        verify(estoqueGateway, never()).baixarReserva(anyString());
+        verify(pedidoUseCase).transicionarStatus(1L, StatusPedido.ABERTO, StatusPedido.FECHADO_SEM_CREDITO);
     }
 }
\ No newline at end of file